@@ -0,0 +1,205 @@
+package com.example.app.cache;
+
+import com.example.app.event.CatalogChangedEvent;
+import com.example.app.event.OrderStatusChangedEvent;
+import com.example.app.event.ProductChangedEvent;
+import com.example.app.event.ProductsImportedEvent;
+import com.example.app.repository.CatalogVersionRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bộ đếm phiên bản dữ liệu catalog trong bộ nhớ, dùng để tính ETag/Last-Modified cho các API đọc
+ * mà không cần truy vấn max(updatedAt). Mỗi sự kiện thay đổi sau commit tăng phiên bản tương ứng:
+ * phiên bản chung cho mọi danh sách, phiên bản thương hiệu/danh mục, và phiên bản riêng từng sản phẩm.
+ * Mỗi thay đổi cũng tăng bộ đếm dùng chung trong bảng Catalog_Version. Epoch đưa vào ETag là giá trị của
+ * bộ đếm đó khi khởi động, và được đổi mỗi khi phát hiện instance khác đã ghi (lúc tăng bộ đếm hoặc khi
+ * đồng bộ định kỳ), nên sau restart hay khi chạy nhiều instance client không nhận nhầm 304.
+ */
+@Component
+public class CatalogVersionTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogVersionTracker.class);
+    private static final String CATALOG = "catalog";
+
+    private final CatalogVersionRepository catalogVersionRepository;
+    private final TransactionTemplate newTransaction;
+
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private final AtomicLong taxonomyVersion = new AtomicLong();
+    // Giá trị bộ đếm dùng chung đưa vào ETag, và giá trị mới nhất đã thấy (gồm cả lượt tăng của instance này)
+    private volatile long epoch;
+    private long persistedVersion;
+    private volatile long epochModifiedAt = System.currentTimeMillis();
+    private volatile long catalogModifiedAt = epochModifiedAt;
+    private volatile long taxonomyModifiedAt = epochModifiedAt;
+
+    private final Map<Integer, ProductVersion> productVersions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CatalogVersionTracker(CatalogVersionRepository catalogVersionRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.catalogVersionRepository = catalogVersionRepository;
+        // Listener AFTER_COMMIT vẫn gắn với giao dịch vừa commit: ghi bộ đếm trong giao dịch riêng
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void init() {
+        syncPersistedVersion();
+    }
+
+    /**
+     * Phát hiện thay đổi do instance khác ghi; độ trễ tối đa là khoảng đồng bộ.
+     */
+    @Scheduled(initialDelayString = "${app.etag.sync-interval-ms:5000}",
+            fixedDelayString = "${app.etag.sync-interval-ms:5000}")
+    public void syncPersistedVersion() {
+        try {
+            List<Object[]> rows = newTransaction.execute(status -> catalogVersionRepository.findVersion(CATALOG));
+            if (rows == null || rows.isEmpty()) {
+                return;
+            }
+            observe(((Number) rows.get(0)[0]).longValue(), (LocalDateTime) rows.get(0)[1], false);
+        } catch (Exception e) {
+            logger.warn("Error reading catalog version: {}", e.getMessage());
+        }
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long getCatalogVersion() {
+        return catalogVersion.get();
+    }
+
+    public long getCatalogModifiedAt() {
+        return catalogModifiedAt;
+    }
+
+    public long getTaxonomyVersion() {
+        return taxonomyVersion.get();
+    }
+
+    public long getProductVersion(Integer productId) {
+        ProductVersion version = productVersions.get(productId);
+        return version == null ? 0 : version.version;
+    }
+
+    // Chi tiết sản phẩm hiển thị cả tên thương hiệu/danh mục nên lấy mốc mới hơn của hai nguồn
+    public long getProductModifiedAt(Integer productId) {
+        ProductVersion version = productVersions.get(productId);
+        long productModifiedAt = version == null ? epochModifiedAt : version.modifiedAt;
+        return Math.max(Math.max(productModifiedAt, taxonomyModifiedAt), epochModifiedAt);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        long now = System.currentTimeMillis();
+        if (event.getProductId() != null) {
+            productVersions.compute(event.getProductId(), (id, current) ->
+                    new ProductVersion(current == null ? 1 : current.version + 1, now));
+        }
+        bumpCatalog(now);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        long now = System.currentTimeMillis();
+        if (event.getCatalogType() != CatalogChangedEvent.CatalogType.BANNER) {
+            taxonomyVersion.incrementAndGet();
+            taxonomyModifiedAt = now;
+        }
+        bumpCatalog(now);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        bumpCatalog(System.currentTimeMillis());
+    }
+
+    // Trạng thái đơn hàng ảnh hưởng danh sách bán chạy
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        bumpCatalog(System.currentTimeMillis());
+    }
+
+    private void bumpCatalog(long now) {
+        catalogVersion.incrementAndGet();
+        catalogModifiedAt = now;
+        persistChange();
+    }
+
+    private void persistChange() {
+        try {
+            List<Object[]> rows = newTransaction.execute(status -> {
+                catalogVersionRepository.increment(CATALOG);
+                return catalogVersionRepository.findVersion(CATALOG);
+            });
+            if (rows != null && !rows.isEmpty()) {
+                observe(((Number) rows.get(0)[0]).longValue(), (LocalDateTime) rows.get(0)[1], true);
+            }
+        } catch (Exception e) {
+            logger.warn("Error persisting catalog version: {}", e.getMessage());
+        }
+    }
+
+    // ownIncrement: giá trị đọc ngay sau lượt tăng của instance này; tăng hơn 1 nghĩa là có instance khác đã ghi
+    private synchronized void observe(long version, LocalDateTime updatedAt, boolean ownIncrement) {
+        if (version <= persistedVersion) {
+            // Lượt đọc về muộn hơn một lượt đã thấy giá trị lớn hơn
+            return;
+        }
+        if (persistedVersion == 0 && epoch == 0 && !ownIncrement) {
+            // Lần đọc đầu tiên khi khởi động
+            epoch = version;
+        } else if (!ownIncrement || version > persistedVersion + 1) {
+            epoch = version;
+            long modifiedAt = updatedAt != null
+                    ? updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    : System.currentTimeMillis();
+            epochModifiedAt = Math.max(epochModifiedAt, modifiedAt);
+            catalogModifiedAt = Math.max(catalogModifiedAt, epochModifiedAt);
+        }
+        persistedVersion = version;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("epoch", epoch);
+        stats.put("persistedVersion", persistedVersion);
+        stats.put("catalogVersion", catalogVersion.get());
+        stats.put("taxonomyVersion", taxonomyVersion.get());
+        stats.put("trackedProducts", productVersions.size());
+        return stats;
+    }
+
+    private static final class ProductVersion {
+        private final long version;
+        private final long modifiedAt;
+
+        private ProductVersion(long version, long modifiedAt) {
+            this.version = version;
+            this.modifiedAt = modifiedAt;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.app.cache;
+
+import com.example.app.entity.Category;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Ảnh chụp bất biến của cây danh mục: mỗi nút giữ danh mục con, tập id của toàn bộ nhánh
+ * (kể cả chính nó) và số sản phẩm trực tiếp/toàn nhánh. Được dựng một lần rồi thay thế nguyên khối.
+ */
+public final class CategoryTree {
+
+    private final Map<Integer, Node> nodes;
+    private final List<Node> roots;
+
+    private CategoryTree(Map<Integer, Node> nodes, List<Node> roots) {
+        this.nodes = nodes;
+        this.roots = roots;
+    }
+
+    /**
+     * @param rows          id, name, description, image, parentId, status, createdAt, updatedAt
+     * @param productCounts số sản phẩm trực tiếp theo id danh mục
+     */
+    public static CategoryTree build(List<Object[]> rows, Map<Integer, Long> productCounts) {
+        Map<Integer, Node> nodes = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            Integer id = (Integer) row[0];
+            nodes.put(id, new Node(id, (String) row[1], (String) row[2], (String) row[3], (Integer) row[4],
+                    (Category.CategoryStatus) row[5], (LocalDateTime) row[6], (LocalDateTime) row[7],
+                    productCounts.getOrDefault(id, 0L)));
+        }
+
+        List<Node> roots = new ArrayList<>();
+        for (Node node : nodes.values()) {
+            Node parent = node.parentId != null ? nodes.get(node.parentId) : null;
+            if (parent != null) {
+                parent.children.add(node);
+            } else {
+                roots.add(node);
+            }
+        }
+
+        Comparator<Node> byId = Comparator.comparing(Node::getId);
+        roots.sort(byId);
+        Set<Integer> visited = new HashSet<>();
+        for (Node root : roots) {
+            computeSubtree(root, byId, visited);
+        }
+
+        // Nút thuộc vòng cha-con (dữ liệu lỗi) không đi tới được từ gốc: coi như gốc để không bị mất
+        for (Node node : nodes.values()) {
+            if (!visited.contains(node.id)) {
+                roots.add(node);
+                computeSubtree(node, byId, visited);
+            }
+        }
+
+        return new CategoryTree(Collections.unmodifiableMap(nodes), Collections.unmodifiableList(roots));
+    }
+
+    public Optional<Node> get(Integer id) {
+        return Optional.ofNullable(id != null ? nodes.get(id) : null);
+    }
+
+    public List<Node> getRoots() {
+        return roots;
+    }
+
+    public List<Node> getNodes() {
+        List<Node> all = new ArrayList<>(nodes.values());
+        all.sort(Comparator.comparing(Node::getId));
+        return all;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    // Hậu thứ tự, không đệ quy để cây sâu không làm tràn stack
+    private static void computeSubtree(Node start, Comparator<Node> byId, Set<Integer> visited) {
+        Deque<Node> stack = new ArrayDeque<>();
+        List<Node> order = new ArrayList<>();
+        stack.push(start);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (!visited.add(node.id)) {
+                continue;
+            }
+            order.add(node);
+            // Bỏ cạnh quay lại tổ tiên (chỉ xảy ra khi có vòng)
+            node.children.removeIf(child -> visited.contains(child.id));
+            node.children.sort(byId);
+            for (Node child : node.children) {
+                stack.push(child);
+            }
+        }
+
+        for (int i = order.size() - 1; i >= 0; i--) {
+            Node node = order.get(i);
+            Set<Integer> descendants = new HashSet<>();
+            descendants.add(node.id);
+            long subtreeCount = node.productCount;
+            for (Node child : node.children) {
+                if (child.descendantIds != null) {
+                    descendants.addAll(child.descendantIds);
+                    subtreeCount += child.subtreeProductCount;
+                }
+            }
+            node.descendantIds = Collections.unmodifiableSet(descendants);
+            node.subtreeProductCount = subtreeCount;
+            node.childrenView = Collections.unmodifiableList(node.children);
+        }
+    }
+
+    public static final class Node {
+        private final Integer id;
+        private final String name;
+        private final String description;
+        private final String image;
+        private final Integer parentId;
+        private final Category.CategoryStatus status;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime updatedAt;
+        private final long productCount;
+        private final List<Node> children = new ArrayList<>();
+        private List<Node> childrenView = Collections.emptyList();
+        private Set<Integer> descendantIds;
+        private long subtreeProductCount;
+
+        private Node(Integer id, String name, String description, String image, Integer parentId,
+                     Category.CategoryStatus status, LocalDateTime createdAt, LocalDateTime updatedAt,
+                     long productCount) {
+            this.id = id;
+            this.name = name;
+            this.description = description;
+            this.image = image;
+            this.parentId = parentId;
+            this.status = status;
+            this.createdAt = createdAt;
+            this.updatedAt = updatedAt;
+            this.productCount = productCount;
+        }
+
+        public Integer getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public String getImage() {
+            return image;
+        }
+
+        public Integer getParentId() {
+            return parentId;
+        }
+
+        public Category.CategoryStatus getStatus() {
+            return status;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+
+        public List<Node> getChildren() {
+            return childrenView;
+        }
+
+        public Set<Integer> getDescendantIds() {
+            return descendantIds;
+        }
+
+        public long getProductCount() {
+            return productCount;
+        }
+
+        public long getSubtreeProductCount() {
+            return subtreeProductCount;
+        }
+    }
+}
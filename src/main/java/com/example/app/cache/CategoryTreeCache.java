@@ -0,0 +1,119 @@
+package com.example.app.cache;
+
+import com.example.app.event.CatalogChangedEvent;
+import com.example.app.event.ProductChangedEvent;
+import com.example.app.event.ProductsImportedEvent;
+import com.example.app.exception.ResourceNotFoundException;
+import com.example.app.repository.CategoryRepository;
+import com.example.app.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Giữ cây danh mục bất biến trong bộ nhớ, dựng từ hai truy vấn (danh mục, số sản phẩm theo danh mục).
+ * Khi danh mục thay đổi, cây mới được dựng rồi thay thế nguyên khối; khi sản phẩm được thêm/sửa/xóa
+ * chỉ đánh dấu số lượng đã cũ và dựng lại ở lần đọc kế tiếp.
+ */
+@Component
+public class CategoryTreeCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CategoryTreeCache.class);
+
+    private final CategoryRepository categoryRepository;
+    private final ProductRepository productRepository;
+
+    private final AtomicReference<CategoryTree> tree = new AtomicReference<>();
+    private volatile boolean stale = false;
+    private volatile LocalDateTime builtAt;
+    private final AtomicLong builds = new AtomicLong();
+
+    @Autowired
+    public CategoryTreeCache(CategoryRepository categoryRepository, ProductRepository productRepository) {
+        this.categoryRepository = categoryRepository;
+        this.productRepository = productRepository;
+    }
+
+    public CategoryTree get() {
+        CategoryTree current = tree.get();
+        if (current == null || stale) {
+            synchronized (this) {
+                current = tree.get();
+                if (current == null || stale) {
+                    current = rebuild();
+                }
+            }
+        }
+        return current;
+    }
+
+    public CategoryTree.Node getNode(Integer categoryId) {
+        return get().get(categoryId)
+                .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + categoryId));
+    }
+
+    public synchronized CategoryTree rebuild() {
+        stale = false;
+        Map<Integer, Long> productCounts = new HashMap<>();
+        for (Object[] row : productRepository.countGroupedByCategory()) {
+            productCounts.put((Integer) row[0], (Long) row[1]);
+        }
+
+        CategoryTree built = CategoryTree.build(categoryRepository.findTreeRows(), productCounts);
+        tree.set(built);
+        builtAt = LocalDateTime.now();
+        builds.incrementAndGet();
+        return built;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.getCatalogType() != CatalogChangedEvent.CatalogType.CATEGORY) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.error("Error rebuilding category tree: {}", e.getMessage());
+            stale = true;
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        switch (event.getType()) {
+            case CREATED:
+            case UPDATED:
+            case DELETED:
+                stale = true;
+                break;
+            default:
+                break;
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        stale = true;
+    }
+
+    public Map<String, Object> getStats() {
+        CategoryTree current = tree.get();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", current != null ? current.size() : 0);
+        result.put("stale", stale);
+        result.put("builds", builds.get());
+        result.put("builtAt", builtAt);
+        return result;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.app.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Bảng xếp hạng id theo điểm (điểm chính, rồi điểm phụ, rồi id giảm dần) giữ luôn ở dạng đã sắp xếp:
+ * cập nhật O(log n), lấy top N O(N). Không đồng bộ; lớp sử dụng chịu trách nhiệm khóa.
+ */
+public class Leaderboard {
+
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingDouble((Entry entry) -> entry.primary).reversed()
+            .thenComparing(Comparator.comparingLong((Entry entry) -> entry.secondary).reversed())
+            .thenComparing(Comparator.comparingInt((Entry entry) -> entry.id).reversed());
+
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> ranked = new TreeSet<>(RANKING);
+
+    public void set(int id, double primary, long secondary) {
+        Entry previous = entries.remove(id);
+        if (previous != null) {
+            ranked.remove(previous);
+        }
+        Entry entry = new Entry(id, primary, secondary);
+        entries.put(id, entry);
+        ranked.add(entry);
+    }
+
+    /**
+     * Cộng dồn vào điểm chính; id có điểm về 0 (hoặc âm) bị loại khỏi bảng.
+     */
+    public void add(int id, double delta) {
+        Entry previous = entries.get(id);
+        double primary = (previous != null ? previous.primary : 0) + delta;
+        if (primary <= 0) {
+            remove(id);
+        } else {
+            set(id, primary, previous != null ? previous.secondary : 0);
+        }
+    }
+
+    public void remove(int id) {
+        Entry previous = entries.remove(id);
+        if (previous != null) {
+            ranked.remove(previous);
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        ranked.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public List<Integer> top(int limit) {
+        List<Integer> ids = new ArrayList<>(Math.min(Math.max(limit, 0), ranked.size()));
+        Iterator<Entry> iterator = ranked.iterator();
+        while (ids.size() < limit && iterator.hasNext()) {
+            ids.add(iterator.next().id);
+        }
+        return ids;
+    }
+
+    private static final class Entry {
+        private final int id;
+        private final double primary;
+        private final long secondary;
+
+        Entry(int id, double primary, long secondary) {
+            this.id = id;
+            this.primary = primary;
+            this.secondary = secondary;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.app.cache;
+
+import com.example.app.dto.ProductDTO;
+import com.example.app.dto.RelatedProductDTO;
+import com.example.app.event.ProductChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Cache ProductDTO chi tiết (GET /api/products/{id}) theo id, giới hạn số phần tử
+ * và thời gian sống. Bị xóa đúng key khi có ProductChangedEvent sau commit, kèm theo các sản phẩm
+ * đang nhúng sản phẩm đó trong relatedProducts. get() trả về bản sao để người gọi sửa DTO không làm hỏng cache.
+ */
+@Component
+public class ProductDetailCache {
+
+    private final Cache<Integer, ProductDTO> cache;
+    private final ObjectMapper objectMapper;
+    // id sản phẩm liên quan -> các sản phẩm đang cache có nhúng nó trong relatedProducts
+    private final Map<Integer, Set<Integer>> embeddedIn = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public ProductDetailCache(
+            ObjectMapper objectMapper,
+            @Value("${app.cache.product-detail.max-size:1000}") long maxSize,
+            @Value("${app.cache.product-detail.ttl-seconds:300}") long ttlSeconds) {
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                // Chạy đồng bộ khi bị đẩy ra do kích thước/hết hạn; xóa chủ động chỉ để lại quan hệ thừa (vô hại)
+                .evictionListener((Integer productId, ProductDTO product, RemovalCause cause) -> unregister(productId, product))
+                .recordStats()
+                .build();
+    }
+
+    public ProductDTO get(Integer productId, Function<Integer, ProductDTO> loader) {
+        ProductDTO cached = cache.get(productId, id -> {
+            ProductDTO loaded = loader.apply(id);
+            register(id, loaded);
+            return loaded;
+        });
+        return cached != null ? objectMapper.convertValue(cached, ProductDTO.class) : null;
+    }
+
+    public void invalidate(Integer productId) {
+        if (productId != null) {
+            cache.invalidate(productId);
+            Set<Integer> dependents = embeddedIn.remove(productId);
+            if (dependents != null) {
+                cache.invalidateAll(dependents);
+            }
+            invalidations.incrementAndGet();
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        embeddedIn.clear();
+        invalidations.incrementAndGet();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidate(event.getProductId());
+    }
+
+    private void register(Integer productId, ProductDTO product) {
+        for (Integer relatedId : relatedIds(product)) {
+            embeddedIn.computeIfAbsent(relatedId, key -> ConcurrentHashMap.newKeySet()).add(productId);
+        }
+    }
+
+    private void unregister(Integer productId, ProductDTO product) {
+        for (Integer relatedId : relatedIds(product)) {
+            embeddedIn.computeIfPresent(relatedId, (key, dependents) -> {
+                dependents.remove(productId);
+                return dependents.isEmpty() ? null : dependents;
+            });
+        }
+    }
+
+    private static List<Integer> relatedIds(ProductDTO product) {
+        if (product == null || product.getRelatedProducts() == null) {
+            return List.of();
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (RelatedProductDTO related : product.getRelatedProducts()) {
+            if (related.getRelatedProductId() != null) {
+                ids.add(related.getRelatedProductId());
+            }
+        }
+        return ids;
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("invalidations", invalidations.get());
+        result.put("averageLoadMillis", stats.averageLoadPenalty() / 1_000_000.0);
+        return result;
+    }
+}
@@ -0,0 +1,366 @@
+package com.example.app.cache;
+
+import com.example.app.entity.Order;
+import com.example.app.entity.ProductRating;
+import com.example.app.event.OrderStatusChangedEvent;
+import com.example.app.event.ProductChangedEvent;
+import com.example.app.repository.OrderItemRepository;
+import com.example.app.repository.ProductRatingRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bảng xếp hạng bán chạy (7 ngày, 30 ngày, toàn thời gian) và đánh giá cao, giữ sẵn trong bộ nhớ.
+ * Doanh số tính theo số lượng trong các đơn đã giao, theo ngày đặt hàng; được cộng/trừ khi đơn
+ * chuyển sang hoặc rời trạng thái delivered. Bảng đánh giá đọc từ ProductRating khi review thay đổi.
+ * Bảng được dựng trên luồng riêng rồi mới thay bản đang phục vụ; trước lần dựng đầu tiên các truy vấn
+ * đọc thẳng từ DB. Sản phẩm có đơn đổi trạng thái trong lúc dựng được đọc lại từ DB sau khi thay,
+ * thay vì cộng dồn, để không bị tính hai lần.
+ */
+@Component
+public class ProductLeaderboards {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductLeaderboards.class);
+
+    public static final String WINDOW_7_DAYS = "7d";
+    public static final String WINDOW_30_DAYS = "30d";
+    public static final String WINDOW_ALL = "all";
+
+    // Đọc lại tối đa số vòng này nếu vẫn có đơn đổi trạng thái trong lúc đọc lại
+    private static final int MAX_REFRESH_ROUNDS = 5;
+
+    private final OrderItemRepository orderItemRepository;
+    private final ProductRatingRepository productRatingRepository;
+    private final ThreadPoolExecutor rebuildExecutor;
+    private final Object rebuildLock = new Object();
+
+    // Thay trong synchronized(this); mọi thao tác trên State cũng giữ khóa this
+    private volatile State state;
+    private boolean rebuilding = false;
+    private final Set<Integer> changedDuringRebuild = new HashSet<>();
+
+    @Autowired
+    public ProductLeaderboards(OrderItemRepository orderItemRepository,
+                               ProductRatingRepository productRatingRepository) {
+        this.orderItemRepository = orderItemRepository;
+        this.productRatingRepository = productRatingRepository;
+        // Một luồng, tối đa một lượt chờ: lượt đang chờ sẽ đọc dữ liệu mới nhất nên bỏ qua yêu cầu thêm
+        this.rebuildExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "leaderboards");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+        this.rebuildExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void requestRebuild() {
+        try {
+            rebuildExecutor.execute(this::rebuild);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Leaderboard rebuild rejected: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            try {
+                long start = System.currentTimeMillis();
+                synchronized (this) {
+                    rebuilding = true;
+                    changedDuringRebuild.clear();
+                }
+
+                // Dựng vào bản mới, bản cũ (hoặc truy vấn DB) vẫn phục vụ cho tới khi thay
+                State next = new State(LocalDate.now());
+                for (Object[] row : orderItemRepository.sumDeliveredQuantityByProduct()) {
+                    next.bestSellingAllTime.set((Integer) row[0], ((Number) row[1]).doubleValue(), 0);
+                }
+                for (Object[] row : orderItemRepository.findDeliveredQuantitiesSince(next.windowStart())) {
+                    next.addWindowSale((Integer) row[0], ((LocalDateTime) row[1]).toLocalDate(), ((Number) row[2]).longValue());
+                }
+                for (ProductRating rating : productRatingRepository.findAll()) {
+                    next.topRated.set(rating.getProductId(), rating.getAverageRating(), rating.getRatingCount());
+                }
+
+                synchronized (this) {
+                    state = next;
+                }
+                refreshChangedProducts();
+                logger.info("Built leaderboards ({} sold products, {} rated products) in {} ms",
+                        next.bestSellingAllTime.size(), next.topRated.size(), System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                logger.error("Error building leaderboards: {}", e.getMessage());
+            } finally {
+                synchronized (this) {
+                    rebuilding = false;
+                    changedDuringRebuild.clear();
+                }
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        boolean wasDelivered = event.getPreviousStatus() == Order.OrderStatus.delivered;
+        boolean isDelivered = event.getNewStatus() == Order.OrderStatus.delivered;
+        if (wasDelivered == isDelivered) {
+            return;
+        }
+
+        try {
+            int sign = isDelivered ? 1 : -1;
+            LocalDate orderDay = event.getOrderCreatedAt() != null
+                    ? event.getOrderCreatedAt().toLocalDate()
+                    : LocalDate.now();
+            List<Object[]> rows = orderItemRepository.sumQuantityByProductForOrder(event.getOrderId());
+            synchronized (this) {
+                for (Object[] row : rows) {
+                    Integer productId = (Integer) row[0];
+                    if (rebuilding) {
+                        // Bản đang dựng có thể đã đọc đơn này: sẽ đọc lại sản phẩm từ DB sau khi thay
+                        changedDuringRebuild.add(productId);
+                    }
+                    if (state != null) {
+                        long quantity = sign * ((Number) row[1]).longValue();
+                        state.bestSellingAllTime.add(productId, quantity);
+                        state.addWindowSale(productId, orderDay, quantity);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error updating leaderboards for order {}: {}", event.getOrderId(), e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Integer productId = event.getProductId();
+        switch (event.getType()) {
+            case REVIEW:
+                try {
+                    ProductRating rating = productRatingRepository.findById(productId).orElse(null);
+                    synchronized (this) {
+                        // Đặt lại theo giá trị tuyệt đối nên áp dụng vào bản nào cũng không tính hai lần
+                        if (rebuilding) {
+                            changedDuringRebuild.add(productId);
+                        }
+                        if (state == null) {
+                            break;
+                        }
+                        if (rating != null) {
+                            state.topRated.set(productId, rating.getAverageRating(), rating.getRatingCount());
+                        } else {
+                            state.topRated.remove(productId);
+                        }
+                    }
+                } catch (Exception e) {
+                    logger.error("Error updating top rated leaderboard for product {}: {}", productId, e.getMessage());
+                }
+                break;
+            case DELETED:
+                synchronized (this) {
+                    if (rebuilding) {
+                        changedDuringRebuild.add(productId);
+                    }
+                    if (state != null) {
+                        state.remove(productId);
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @param window "7d", "30d" hoặc "all"
+     */
+    public List<Integer> getBestSelling(String window, int limit) {
+        if (!WINDOW_7_DAYS.equals(window) && !WINDOW_30_DAYS.equals(window) && !WINDOW_ALL.equals(window)) {
+            throw new IllegalArgumentException("Invalid window: " + window + ". Allowed values: 7d, 30d, all");
+        }
+        if (state == null) {
+            requestRebuild();
+            return bestSellingFromDb(window, limit);
+        }
+        synchronized (this) {
+            state.rollOver();
+            switch (window) {
+                case WINDOW_7_DAYS:
+                    return state.bestSelling7Days.top(limit);
+                case WINDOW_30_DAYS:
+                    return state.bestSelling30Days.top(limit);
+                default:
+                    return state.bestSellingAllTime.top(limit);
+            }
+        }
+    }
+
+    public List<Integer> getTopRated(int limit) {
+        if (state == null) {
+            requestRebuild();
+            return productRatingRepository.findTopRatedProductIds(PageRequest.of(0, limit));
+        }
+        synchronized (this) {
+            return state.topRated.top(limit);
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("ready", state != null);
+        result.put("rebuilding", rebuilding);
+        if (state != null) {
+            result.put("bestSelling7Days", state.bestSelling7Days.size());
+            result.put("bestSelling30Days", state.bestSelling30Days.size());
+            result.put("bestSellingAllTime", state.bestSellingAllTime.size());
+            result.put("topRated", state.topRated.size());
+        }
+        return result;
+    }
+
+    private List<Integer> bestSellingFromDb(String window, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        LocalDate today = LocalDate.now();
+        switch (window) {
+            case WINDOW_7_DAYS:
+                return orderItemRepository.findTopDeliveredProductIdsSince(today.minusDays(6).atStartOfDay(), page);
+            case WINDOW_30_DAYS:
+                return orderItemRepository.findTopDeliveredProductIdsSince(today.minusDays(29).atStartOfDay(), page);
+            default:
+                return orderItemRepository.findTopDeliveredProductIds(page);
+        }
+    }
+
+    // Đọc lại từ DB các sản phẩm thay đổi trong lúc dựng, lặp tới khi không còn thay đổi mới
+    private void refreshChangedProducts() {
+        for (int round = 0; round < MAX_REFRESH_ROUNDS; round++) {
+            Set<Integer> productIds;
+            State current;
+            synchronized (this) {
+                if (changedDuringRebuild.isEmpty()) {
+                    return;
+                }
+                productIds = new HashSet<>(changedDuringRebuild);
+                changedDuringRebuild.clear();
+                current = state;
+            }
+
+            Map<Integer, Long> allTime = new HashMap<>();
+            for (Object[] row : orderItemRepository.sumDeliveredQuantityByProductIn(productIds)) {
+                allTime.put((Integer) row[0], ((Number) row[1]).longValue());
+            }
+            List<Object[]> windowRows = orderItemRepository.findDeliveredQuantitiesSinceForProducts(
+                    current.windowStart(), productIds);
+            Map<Integer, ProductRating> ratings = new HashMap<>();
+            productRatingRepository.findAllById(productIds)
+                    .forEach(rating -> ratings.put(rating.getProductId(), rating));
+
+            synchronized (this) {
+                for (Integer productId : productIds) {
+                    current.remove(productId);
+                    Long sold = allTime.get(productId);
+                    if (sold != null && sold > 0) {
+                        current.bestSellingAllTime.set(productId, sold, 0);
+                    }
+                    ProductRating rating = ratings.get(productId);
+                    if (rating != null) {
+                        current.topRated.set(productId, rating.getAverageRating(), rating.getRatingCount());
+                    }
+                }
+                for (Object[] row : windowRows) {
+                    current.addWindowSale((Integer) row[0], ((LocalDateTime) row[1]).toLocalDate(), ((Number) row[2]).longValue());
+                }
+            }
+        }
+        logger.warn("Leaderboards still changing after {} refresh rounds; counts may drift until the next rebuild",
+                MAX_REFRESH_ROUNDS);
+    }
+
+    // Dữ liệu của một lần dựng; chỉ truy cập khi đang giữ khóa của ProductLeaderboards
+    private static final class State {
+        private final Leaderboard bestSellingAllTime = new Leaderboard();
+        private final Leaderboard bestSelling30Days = new Leaderboard();
+        private final Leaderboard bestSelling7Days = new Leaderboard();
+        private final Leaderboard topRated = new Leaderboard();
+        // Số lượng bán theo ngày trong 30 ngày gần nhất, để trừ khỏi cửa sổ khi sang ngày mới
+        private final Map<LocalDate, Map<Integer, Long>> dailySales = new HashMap<>();
+        private LocalDate currentDay;
+
+        State(LocalDate currentDay) {
+            this.currentDay = currentDay;
+        }
+
+        LocalDateTime windowStart() {
+            return currentDay.minusDays(29).atStartOfDay();
+        }
+
+        void remove(Integer productId) {
+            bestSellingAllTime.remove(productId);
+            bestSelling30Days.remove(productId);
+            bestSelling7Days.remove(productId);
+            topRated.remove(productId);
+            dailySales.values().forEach(sales -> sales.remove(productId));
+        }
+
+        void addWindowSale(Integer productId, LocalDate day, long quantity) {
+            rollOver();
+            if (day.isAfter(currentDay) || !day.isAfter(currentDay.minusDays(30))) {
+                return;
+            }
+            dailySales.computeIfAbsent(day, d -> new HashMap<>()).merge(productId, quantity, Long::sum);
+            bestSelling30Days.add(productId, quantity);
+            if (day.isAfter(currentDay.minusDays(7))) {
+                bestSelling7Days.add(productId, quantity);
+            }
+        }
+
+        // Sang ngày mới: trừ doanh số của ngày vừa ra khỏi cửa sổ 7 ngày và 30 ngày
+        void rollOver() {
+            LocalDate today = LocalDate.now();
+            while (currentDay.isBefore(today)) {
+                currentDay = currentDay.plusDays(1);
+                subtractDay(currentDay.minusDays(7), bestSelling7Days);
+                subtractDay(currentDay.minusDays(30), bestSelling30Days);
+                dailySales.remove(currentDay.minusDays(30));
+            }
+        }
+
+        private void subtractDay(LocalDate day, Leaderboard leaderboard) {
+            Map<Integer, Long> sales = dailySales.get(day);
+            if (sales != null) {
+                sales.forEach((productId, quantity) -> leaderboard.add(productId, -quantity));
+            }
+        }
+    }
+}
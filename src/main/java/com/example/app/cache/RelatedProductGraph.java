@@ -0,0 +1,208 @@
+package com.example.app.cache;
+
+import com.example.app.entity.RelatedProduct;
+import com.example.app.event.ProductChangedEvent;
+import com.example.app.repository.ProductRepository;
+import com.example.app.repository.RelatedProductRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Danh sách kề sản phẩm liên quan trong bộ nhớ: mỗi sản phẩm giữ mảng id liên quan và mảng loại quan hệ
+ * (ordinal của RelationType) song song. Nạp toàn bộ khi khởi động, sản phẩm chưa có trong bộ nhớ được nạp
+ * khi đọc lần đầu; khi quan hệ của một sản phẩm thay đổi (ProductChangedEvent RELATED) chỉ nạp lại sản phẩm đó.
+ * Bộ nhớ có giới hạn số sản phẩm và thời gian sống; id không tồn tại không được lưu. Kết quả nạp chỉ được lưu
+ * nếu không có lần invalidate nào xảy ra trong lúc nạp, để bản đọc cũ không ghi đè lên thay đổi vừa commit.
+ */
+@Component
+public class RelatedProductGraph {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelatedProductGraph.class);
+
+    private static final RelatedProduct.RelationType[] RELATION_TYPES = RelatedProduct.RelationType.values();
+
+    private final RelatedProductRepository relatedProductRepository;
+    private final ProductRepository productRepository;
+
+    private final Cache<Integer, Adjacency> adjacency;
+    private final AtomicLong loads = new AtomicLong();
+    // Tăng trước mỗi lần invalidate; lần nạp thấy giá trị đổi thì không lưu kết quả
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public RelatedProductGraph(RelatedProductRepository relatedProductRepository,
+                               ProductRepository productRepository,
+                               @Value("${app.cache.related-graph.max-size:50000}") long maxSize,
+                               @Value("${app.cache.related-graph.ttl-minutes:60}") long ttlMinutes) {
+        this.relatedProductRepository = relatedProductRepository;
+        this.productRepository = productRepository;
+        this.adjacency = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            long start = System.currentTimeMillis();
+            long version = invalidations.get();
+            Map<Integer, List<Object[]>> rowsByProduct = new HashMap<>();
+            for (Object[] row : relatedProductRepository.findAllEdges()) {
+                rowsByProduct.computeIfAbsent((Integer) row[0], id -> new ArrayList<>()).add(row);
+            }
+            Map<Integer, Adjacency> loaded = new HashMap<>();
+            rowsByProduct.forEach((productId, rows) -> loaded.put(productId, Adjacency.of(rows)));
+            store(loaded, version);
+            logger.info("Loaded related product graph ({} products) in {} ms",
+                    rowsByProduct.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Error loading related product graph: {}", e.getMessage());
+        }
+    }
+
+    public Adjacency get(Integer productId) {
+        Adjacency cached = adjacency.getIfPresent(productId);
+        return cached != null ? cached : getAll(List.of(productId)).get(productId);
+    }
+
+    /**
+     * Lấy danh sách kề cho nhiều sản phẩm; các sản phẩm chưa có trong bộ nhớ được nạp bằng một truy vấn.
+     * Id không tồn tại nhận danh sách rỗng nhưng không được lưu.
+     */
+    public Map<Integer, Adjacency> getAll(Collection<Integer> productIds) {
+        Map<Integer, Adjacency> result = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer productId : productIds) {
+            Adjacency cached = adjacency.getIfPresent(productId);
+            if (cached != null) {
+                result.put(productId, cached);
+            } else {
+                missing.add(productId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long version = invalidations.get();
+        Map<Integer, List<Object[]>> rowsByProduct = new HashMap<>();
+        for (Object[] row : relatedProductRepository.findEdgesByProductIdIn(missing)) {
+            rowsByProduct.computeIfAbsent((Integer) row[0], id -> new ArrayList<>()).add(row);
+        }
+        // Sản phẩm có cạnh chắc chắn tồn tại (khóa ngoại); chỉ cần kiểm tra các id không có cạnh nào
+        List<Integer> withoutEdges = new ArrayList<>();
+        for (Integer productId : missing) {
+            if (!rowsByProduct.containsKey(productId)) {
+                withoutEdges.add(productId);
+            }
+        }
+        Set<Integer> existing = withoutEdges.isEmpty()
+                ? Set.of() : new HashSet<>(productRepository.findExistingIds(withoutEdges));
+        loads.incrementAndGet();
+
+        Map<Integer, Adjacency> toStore = new HashMap<>();
+        for (Integer productId : missing) {
+            Adjacency loaded = Adjacency.of(rowsByProduct.getOrDefault(productId, List.of()));
+            if (rowsByProduct.containsKey(productId) || existing.contains(productId)) {
+                toStore.put(productId, loaded);
+            }
+            result.put(productId, loaded);
+        }
+        store(toStore, version);
+        return result;
+    }
+
+    // Ghi trước rồi kiểm tra phiên bản: invalidate xảy ra giữa lúc đọc DB và lúc ghi sẽ làm bỏ các mục vừa ghi
+    private void store(Map<Integer, Adjacency> loaded, long version) {
+        adjacency.putAll(loaded);
+        if (invalidations.get() != version) {
+            adjacency.invalidateAll(loaded.keySet());
+        }
+    }
+
+    public void invalidate(Integer productId) {
+        if (productId != null) {
+            invalidations.incrementAndGet();
+            adjacency.invalidate(productId);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() == ProductChangedEvent.ChangeType.RELATED
+                || event.getType() == ProductChangedEvent.ChangeType.DELETED) {
+            invalidate(event.getProductId());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("products", adjacency.estimatedSize());
+        stats.put("loads", loads.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    /**
+     * Danh sách kề bất biến của một sản phẩm, theo thứ tự (loại quan hệ, id liên quan).
+     */
+    public static final class Adjacency {
+
+        private static final Adjacency EMPTY = new Adjacency(new int[0], new byte[0]);
+
+        private final int[] relatedIds;
+        private final byte[] types;
+
+        private Adjacency(int[] relatedIds, byte[] types) {
+            this.relatedIds = relatedIds;
+            this.types = types;
+        }
+
+        // Mỗi dòng: {productId, relatedProductId, relationType}
+        static Adjacency of(List<Object[]> rows) {
+            if (rows.isEmpty()) {
+                return EMPTY;
+            }
+            int[] relatedIds = new int[rows.size()];
+            byte[] types = new byte[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                relatedIds[i] = (Integer) rows.get(i)[1];
+                types[i] = (byte) ((RelatedProduct.RelationType) rows.get(i)[2]).ordinal();
+            }
+            return new Adjacency(relatedIds, types);
+        }
+
+        public int size() {
+            return relatedIds.length;
+        }
+
+        public int relatedId(int i) {
+            return relatedIds[i];
+        }
+
+        public RelatedProduct.RelationType type(int i) {
+            return RELATION_TYPES[types[i]];
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.app.config;
+
+import com.example.app.cache.CatalogVersionTracker;
+import com.example.app.cache.RelatedProductGraph;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.LocalDate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hỗ trợ GET có điều kiện (If-None-Match / If-Modified-Since) cho các API catalog công khai.
+ * ETag được tính từ bộ đếm phiên bản trong bộ nhớ nên khi client gửi lại ETag còn hợp lệ,
+ * request trả 304 ngay tại đây, không chạm tới service, DTO hay việc serialize JSON.
+ * ETag chi tiết sản phẩm gồm cả phiên bản của các sản phẩm liên quan được nhúng trong response.
+ */
+@Component
+public class CatalogETagInterceptor implements HandlerInterceptor {
+
+    private static final Pattern PRODUCT_DETAIL = Pattern.compile("^/api/products/(\\d+)$");
+
+    private final CatalogVersionTracker versionTracker;
+    private final RelatedProductGraph relatedProductGraph;
+
+    @Autowired
+    public CatalogETagInterceptor(CatalogVersionTracker versionTracker,
+                                  RelatedProductGraph relatedProductGraph) {
+        this.versionTracker = versionTracker;
+        this.relatedProductGraph = relatedProductGraph;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return true;
+        }
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String etag;
+        long lastModified;
+
+        Matcher matcher = PRODUCT_DETAIL.matcher(path);
+        if (matcher.matches()) {
+            Integer productId = Integer.valueOf(matcher.group(1));
+            // Phiên bản chỉ tăng nên tổng phiên bản các sản phẩm liên quan đổi khi bất kỳ sản phẩm nào trong đó đổi
+            RelatedProductGraph.Adjacency related = relatedProductGraph.get(productId);
+            long relatedVersion = 0;
+            lastModified = versionTracker.getProductModifiedAt(productId);
+            for (int i = 0; i < related.size(); i++) {
+                relatedVersion += versionTracker.getProductVersion(related.relatedId(i));
+                lastModified = Math.max(lastModified, versionTracker.getProductModifiedAt(related.relatedId(i)));
+            }
+            etag = "\"p" + productId + "-" + versionTracker.getEpoch()
+                    + "-" + versionTracker.getProductVersion(productId)
+                    + "-" + versionTracker.getTaxonomyVersion()
+                    + "-" + relatedVersion + "\"";
+        } else {
+            // Danh sách bán chạy theo cửa sổ ngày thay đổi khi sang ngày mới nên ETag gắn thêm ngày hiện tại
+            etag = "\"c" + versionTracker.getEpoch()
+                    + "-" + versionTracker.getCatalogVersion()
+                    + "-" + LocalDate.now().toEpochDay() + "\"";
+            lastModified = versionTracker.getCatalogModifiedAt();
+        }
+
+        // Response kèm token không được lưu ở cache dùng chung (CDN/proxy)
+        boolean authenticated = request.getHeader(HttpHeaders.AUTHORIZATION) != null;
+        response.setHeader(HttpHeaders.CACHE_CONTROL, authenticated ? "private, no-cache" : "public, no-cache");
+        return !new ServletWebRequest(request, response).checkNotModified(etag, lastModified);
+    }
+}
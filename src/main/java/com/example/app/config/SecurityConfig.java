@@ -26,6 +26,7 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import jakarta.servlet.DispatcherType;
 import java.util.Arrays;
 
 
@@ -92,6 +93,8 @@ public class SecurityConfig {
                         session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth ->
                         auth
+                                // Dispatch async hoàn tất response streaming (export) đã được xác thực ở request gốc
+                                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                                 .requestMatchers("/api/auth/**").permitAll()
                                 .requestMatchers("/api/public/**").permitAll()
                                 .requestMatchers("/api/auth/password/**").permitAll()
@@ -117,6 +120,7 @@ public class SecurityConfig {
                                 .requestMatchers("/api/banners/**").permitAll()
                                 .requestMatchers("/api/products/new-arrivals").permitAll()
                                 .requestMatchers("/api/products/best-selling").permitAll()
+                                .requestMatchers("/api/home").permitAll()
                                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
                                 .anyRequest().authenticated()
                 );
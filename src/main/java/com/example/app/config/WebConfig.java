@@ -1,12 +1,19 @@
 package com.example.app.config;
 
+import com.example.app.service.FileStorageService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
@@ -17,12 +24,50 @@ public class WebConfig implements WebMvcConfigurer {
     @Value("${app.file.access-path}")
     private String accessPath;
 
+    @Autowired
+    private CatalogETagInterceptor catalogETagInterceptor;
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         Path uploadPath = Paths.get(uploadDir);
         String uploadAbsolutePath = uploadPath.toFile().getAbsolutePath();
 
+        // File lưu theo băm nội dung không bao giờ đổi: cache vĩnh viễn, ETag chính là băm (kể cả ảnh thu nhỏ)
+        String blobDirectory = FileStorageService.BLOB_DIRECTORY;
+        registry.addResourceHandler(accessPath.replace("/**", "/" + blobDirectory + "/**"))
+                .addResourceLocations("file:" + uploadAbsolutePath + "/" + blobDirectory + "/")
+                .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .setEtagGenerator(WebConfig::contentHashETag);
+
+        // File cũ lưu theo tên có thể bị ghi đè nên client phải kiểm tra lại mỗi lần
         registry.addResourceHandler(accessPath)
-                .addResourceLocations("file:" + uploadAbsolutePath + "/");
+                .addResourceLocations("file:" + uploadAbsolutePath + "/")
+                .setCacheControl(CacheControl.noCache().cachePublic())
+                .setEtagGenerator(WebConfig::fileVersionETag);
+    }
+
+    private static String contentHashETag(Resource resource) {
+        String fileName = resource.getFilename();
+        if (fileName == null) {
+            return null;
+        }
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName;
+    }
+
+    private static String fileVersionETag(Resource resource) {
+        try {
+            return Long.toHexString(resource.lastModified()) + "-" + Long.toHexString(resource.contentLength());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // /random trả kết quả ngẫu nhiên, /low-stock là dữ liệu quản trị, bought-together cập nhật theo job riêng nên không áp dụng ETag
+        registry.addInterceptor(catalogETagInterceptor)
+                .addPathPatterns("/api/products/**", "/api/categories/**", "/api/brands/**", "/api/banners/**")
+                .excludePathPatterns("/api/products/random", "/api/products/low-stock", "/api/products/*/bought-together");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,114 @@
+package com.example.app.controller;
+
+import com.example.app.cache.CategoryTreeCache;
+import com.example.app.cache.ProductDetailCache;
+import com.example.app.cache.ProductLeaderboards;
+import com.example.app.cache.RelatedProductGraph;
+import com.example.app.cache.SecondLevelCacheStats;
+import com.example.app.dto.ResponseWrapper;
+import com.example.app.search.CoPurchaseRecommender;
+import com.example.app.service.HomeService;
+import com.example.app.service.ImageDerivativeService;
+import com.example.app.service.UploadCleanupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/cache")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminCacheController {
+
+    private final ProductDetailCache productDetailCache;
+    private final CategoryTreeCache categoryTreeCache;
+    private final ProductLeaderboards productLeaderboards;
+    private final HomeService homeService;
+    private final CoPurchaseRecommender coPurchaseRecommender;
+    private final RelatedProductGraph relatedProductGraph;
+    private final SecondLevelCacheStats secondLevelCacheStats;
+    private final ImageDerivativeService imageDerivativeService;
+    private final UploadCleanupService uploadCleanupService;
+
+    @Autowired
+    public AdminCacheController(ProductDetailCache productDetailCache,
+                                CategoryTreeCache categoryTreeCache,
+                                ProductLeaderboards productLeaderboards,
+                                HomeService homeService,
+                                CoPurchaseRecommender coPurchaseRecommender,
+                                RelatedProductGraph relatedProductGraph,
+                                SecondLevelCacheStats secondLevelCacheStats,
+                                ImageDerivativeService imageDerivativeService,
+                                UploadCleanupService uploadCleanupService) {
+        this.productDetailCache = productDetailCache;
+        this.categoryTreeCache = categoryTreeCache;
+        this.productLeaderboards = productLeaderboards;
+        this.homeService = homeService;
+        this.coPurchaseRecommender = coPurchaseRecommender;
+        this.relatedProductGraph = relatedProductGraph;
+        this.secondLevelCacheStats = secondLevelCacheStats;
+        this.imageDerivativeService = imageDerivativeService;
+        this.uploadCleanupService = uploadCleanupService;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<ResponseWrapper<Map<String, Object>>> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("productDetail", productDetailCache.getStats());
+        stats.put("categoryTree", categoryTreeCache.getStats());
+        stats.put("leaderboards", productLeaderboards.getStats());
+        stats.put("coPurchase", coPurchaseRecommender.getStats());
+        stats.put("relatedProducts", relatedProductGraph.getStats());
+        stats.put("secondLevel", secondLevelCacheStats.getStats());
+        stats.put("imageDerivatives", imageDerivativeService.getStats());
+        stats.put("uploads", uploadCleanupService.getStats());
+        return ResponseEntity.ok(ResponseWrapper.success("Cache statistics retrieved successfully", stats));
+    }
+
+    @DeleteMapping("/product-detail")
+    public ResponseEntity<ResponseWrapper<?>> clearProductDetailCache() {
+        productDetailCache.invalidateAll();
+        return ResponseEntity.ok(ResponseWrapper.success("Product detail cache cleared"));
+    }
+
+    @DeleteMapping("/category-tree")
+    public ResponseEntity<ResponseWrapper<?>> rebuildCategoryTree() {
+        categoryTreeCache.rebuild();
+        return ResponseEntity.ok(ResponseWrapper.success("Category tree rebuilt"));
+    }
+
+    @DeleteMapping("/leaderboards")
+    public ResponseEntity<ResponseWrapper<?>> rebuildLeaderboards() {
+        productLeaderboards.rebuild();
+        return ResponseEntity.ok(ResponseWrapper.success("Leaderboards rebuilt"));
+    }
+
+    @DeleteMapping("/co-purchase")
+    public ResponseEntity<ResponseWrapper<?>> rebuildCoPurchase() {
+        coPurchaseRecommender.rebuild();
+        return ResponseEntity.ok(ResponseWrapper.success("Co-purchase recommendations rebuilt"));
+    }
+
+    @DeleteMapping("/second-level")
+    public ResponseEntity<ResponseWrapper<?>> clearSecondLevelCache() {
+        secondLevelCacheStats.evictAll();
+        return ResponseEntity.ok(ResponseWrapper.success("Second-level cache cleared"));
+    }
+
+    @DeleteMapping("/orphan-uploads")
+    public ResponseEntity<ResponseWrapper<?>> collectOrphanUploads() {
+        if (!uploadCleanupService.requestCollection()) {
+            return ResponseEntity.ok(ResponseWrapper.success("Orphaned upload cleanup is already running"));
+        }
+        return ResponseEntity.ok(ResponseWrapper.success("Orphaned upload cleanup started"));
+    }
+
+    @DeleteMapping("/home")
+    public ResponseEntity<ResponseWrapper<?>> clearHomePageCache() {
+        homeService.evictHomePage();
+        return ResponseEntity.ok(ResponseWrapper.success("Home page cache cleared"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.app.controller;
+
+import com.example.app.entity.Order;
+import com.example.app.entity.Product;
+import com.example.app.service.DataExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/api/admin/export")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminExportController {
+
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    private static final MediaType APPLICATION_NDJSON = new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+
+    private final DataExportService dataExportService;
+
+    @Autowired
+    public AdminExportController(DataExportService dataExportService) {
+        this.dataExportService = dataExportService;
+    }
+
+    @GetMapping("/products")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) Product.ProductStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+
+        DataExportService.Format exportFormat = parseFormat(format);
+        return stream("products", exportFormat,
+                out -> dataExportService.exportProducts(exportFormat, status, startDate, endDate, out));
+    }
+
+    @GetMapping("/orders")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) Order.OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+
+        DataExportService.Format exportFormat = parseFormat(format);
+        return stream("orders", exportFormat,
+                out -> dataExportService.exportOrders(exportFormat, status, startDate, endDate, out));
+    }
+
+    private DataExportService.Format parseFormat(String format) {
+        try {
+            return DataExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported export format: " + format + ", expected csv or jsonl");
+        }
+    }
+
+    // Body được ghi trên luồng async của MVC sau khi handler trả về, nên header phải đặt trước
+    private ResponseEntity<StreamingResponseBody> stream(String name, DataExportService.Format format,
+                                                         StreamingResponseBody body) {
+        boolean jsonLines = format == DataExportService.Format.JSONL;
+        String fileName = name + "-" + LocalDate.now() + (jsonLines ? ".jsonl" : ".csv");
+        return ResponseEntity.ok()
+                .contentType(jsonLines ? APPLICATION_NDJSON : TEXT_CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.app.controller;
+
+import com.example.app.dto.ProductImportStatusDTO;
+import com.example.app.dto.ResponseWrapper;
+import com.example.app.service.ProductImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/import")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminImportController {
+
+    private final ProductImportService productImportService;
+
+    @Autowired
+    public AdminImportController(ProductImportService productImportService) {
+        this.productImportService = productImportService;
+    }
+
+    /**
+     * Nhận file CSV/JSONL và chạy nhập ở nền; theo dõi tiến độ qua GET /products/{jobId}
+     */
+    @PostMapping(value = "/products", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ResponseWrapper<ProductImportStatusDTO>> importProducts(
+            @RequestParam("file") MultipartFile file) {
+        try {
+            ProductImportStatusDTO status = productImportService.startImport(file);
+            return new ResponseEntity<>(
+                    ResponseWrapper.success("Product import started", status),
+                    HttpStatus.ACCEPTED
+            );
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(ResponseWrapper.error(e.getMessage()), HttpStatus.CONFLICT);
+        } catch (IOException e) {
+            return new ResponseEntity<>(
+                    ResponseWrapper.error("Failed to store import file: " + e.getMessage()),
+                    HttpStatus.INTERNAL_SERVER_ERROR
+            );
+        }
+    }
+
+    @GetMapping("/products")
+    public ResponseEntity<ResponseWrapper<List<ProductImportStatusDTO>>> getRecentImports() {
+        return ResponseEntity.ok(ResponseWrapper.success("Import jobs retrieved successfully",
+                productImportService.getRecentJobs()));
+    }
+
+    @GetMapping("/products/{jobId}")
+    public ResponseEntity<ResponseWrapper<ProductImportStatusDTO>> getImportStatus(@PathVariable String jobId) {
+        return ResponseEntity.ok(ResponseWrapper.success("Import status retrieved successfully",
+                productImportService.getStatus(jobId)));
+    }
+
+    @GetMapping("/products/{jobId}/errors")
+    public ResponseEntity<Resource> downloadErrors(@PathVariable String jobId) {
+        Resource errors = productImportService.getErrorFile(jobId);
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"import-" + jobId + "-errors.csv\"")
+                .body(errors);
+    }
+}
@@ -52,40 +52,49 @@ public class CartController {
     }
 
     @PostMapping("/{cartId}/items")
-    public ResponseEntity<ResponseWrapper<CartDTO>> addItemToCart(
+    public ResponseEntity<ResponseWrapper<?>> addItemToCart(
             @PathVariable Integer cartId,
-            @Valid @RequestBody CartItemDTO cartItemDTO) {
+            @Valid @RequestBody CartItemDTO cartItemDTO,
+            @RequestParam(defaultValue = "full") String view) {
 
         if (cartItemDTO.getQuantity() != null && cartItemDTO.getQuantity() <= 0) {
-            return ResponseEntity.badRequest().body(ResponseWrapper.error("Số lượng sản phẩm phải lớn hơn 0", CartDTO.class));
+            return ResponseEntity.badRequest().body(ResponseWrapper.error("Số lượng sản phẩm phải lớn hơn 0"));
         }
 
-        CartDTO updatedCart = cartService.addItemToCart(cartId, cartItemDTO);
+        Object updatedCart = isDeltaView(view)
+                ? cartService.addItemToCartDelta(cartId, cartItemDTO)
+                : cartService.addItemToCart(cartId, cartItemDTO);
         return ResponseEntity.ok(ResponseWrapper.success("Item added to cart successfully", updatedCart));
     }
 
 
     @PutMapping("/{cartId}/items/{itemId}")
-    public ResponseEntity<ResponseWrapper<CartDTO>> updateCartItem(
+    public ResponseEntity<ResponseWrapper<?>> updateCartItem(
             @PathVariable Integer cartId,
             @PathVariable Integer itemId,
-            @RequestParam Integer quantity) {
+            @RequestParam Integer quantity,
+            @RequestParam(defaultValue = "full") String view) {
 
         if (quantity < 0) {
-            return ResponseEntity.badRequest().body(ResponseWrapper.error("Số lượng sản phẩm không được âm", CartDTO.class));
+            return ResponseEntity.badRequest().body(ResponseWrapper.error("Số lượng sản phẩm không được âm"));
         }
 
-        CartDTO updatedCart = cartService.updateCartItem(cartId, itemId, quantity);
+        Object updatedCart = isDeltaView(view)
+                ? cartService.updateCartItemDelta(cartId, itemId, quantity)
+                : cartService.updateCartItem(cartId, itemId, quantity);
         return ResponseEntity.ok(ResponseWrapper.success("Cart item updated successfully", updatedCart));
     }
 
 
     @DeleteMapping("/{cartId}/items/{itemId}")
-    public ResponseEntity<ResponseWrapper<CartDTO>> removeItemFromCart(
+    public ResponseEntity<ResponseWrapper<?>> removeItemFromCart(
             @PathVariable Integer cartId,
-            @PathVariable Integer itemId) {
+            @PathVariable Integer itemId,
+            @RequestParam(defaultValue = "full") String view) {
 
-        CartDTO updatedCart = cartService.removeItemFromCart(cartId, itemId);
+        Object updatedCart = isDeltaView(view)
+                ? cartService.removeItemFromCartDelta(cartId, itemId)
+                : cartService.removeItemFromCart(cartId, itemId);
         return ResponseEntity.ok(ResponseWrapper.success("Item removed from cart successfully", updatedCart));
     }
 
@@ -113,4 +122,9 @@ public class CartController {
 
         return ResponseEntity.ok(ResponseWrapper.success("Carts merged successfully", mergedCart));
     }
+
+    // view=delta: chỉ trả dòng vừa thay đổi và tổng mới (CartDeltaDTO) thay vì toàn bộ giỏ hàng
+    private boolean isDeltaView(String view) {
+        return "delta".equalsIgnoreCase(view);
+    }
 }
\ No newline at end of file
@@ -53,6 +53,13 @@ public class CategoryController {
     }
 
 
+    @GetMapping("/tree")
+    public ResponseEntity<ResponseWrapper<List<CategoryDTO>>> getCategoryTree() {
+        List<CategoryDTO> tree = categoryService.getCategoryTree();
+        return ResponseEntity.ok(ResponseWrapper.success("Category tree retrieved successfully", tree));
+    }
+
+
     @GetMapping("/{id}/subcategories")
     public ResponseEntity<ResponseWrapper<List<CategoryDTO>>> getSubcategories(@PathVariable Integer id) {
         List<CategoryDTO> subcategories = categoryService.getSubcategories(id);
@@ -0,0 +1,35 @@
+package com.example.app.controller;
+
+import com.example.app.dto.HomePageDTO;
+import com.example.app.dto.ResponseWrapper;
+import com.example.app.service.HomeService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/home")
+@Tag(name = "Trang chủ", description = "API gộp dữ liệu trang chủ")
+public class HomeController {
+
+    private final HomeService homeService;
+
+    @Autowired
+    public HomeController(HomeService homeService) {
+        this.homeService = homeService;
+    }
+
+    @Operation(
+            summary = "Lấy dữ liệu trang chủ",
+            description = "Trả về banner, danh mục, sản phẩm mới, bán chạy, đánh giá cao và khuyến mãi trong một lần gọi"
+    )
+    @GetMapping
+    public ResponseEntity<ResponseWrapper<HomePageDTO>> getHomePage() {
+        HomePageDTO homePage = homeService.getHomePage();
+        return ResponseEntity.ok(ResponseWrapper.success("Home page retrieved successfully", homePage));
+    }
+}
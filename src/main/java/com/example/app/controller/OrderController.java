@@ -43,9 +43,12 @@ public class OrderController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(required = false) String cursor) {
 
-        PagedResponse<OrderDTO> orders = orderService.getAllOrders(page, size, sortBy, sortDir);
+        PagedResponse<OrderDTO> orders = cursor != null
+                ? orderService.getOrdersByCursor(cursor, size, sortBy, sortDir)
+                : orderService.getAllOrders(page, size, sortBy, sortDir);
         return ResponseEntity.ok(ResponseWrapper.success("Orders retrieved successfully", orders));
     }
 
@@ -2,6 +2,10 @@ package com.example.app.controller;
 import com.example.app.dto.ResponseWrapper;
 import com.example.app.dto.PagedResponse;
 import com.example.app.dto.ProductDTO;
+import com.example.app.dto.ProductFacetResponse;
+import com.example.app.dto.ProductFilterRequest;
+import com.example.app.dto.ProductSummaryDTO;
+import com.example.app.dto.SuggestResponse;
 import com.example.app.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -48,11 +52,25 @@ public class ProductController {
             @Parameter(description = "Số trang (bắt đầu từ 0)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Số sản phẩm trên mỗi trang") @RequestParam(defaultValue = "12") int size,
             @Parameter(description = "Sắp xếp theo trường") @RequestParam(defaultValue = "id") String sortBy,
-            @Parameter(description = "Chiều sắp xếp (asc hoặc desc)") @RequestParam(defaultValue = "desc") String sortDir) {
+            @Parameter(description = "Chiều sắp xếp (asc hoặc desc)") @RequestParam(defaultValue = "desc") String sortDir,
+            @Parameter(description = "Kiểu dữ liệu trả về: full hoặc summary (rút gọn cho lưới sản phẩm)") @RequestParam(defaultValue = "full") String view,
+            @Parameter(description = "Con trỏ phân trang (nextCursor của trang trước, để trống cho trang đầu); khi có tham số này thì bỏ qua page") @RequestParam(required = false) String cursor) {
 
         try {
-            PagedResponse<ProductDTO> products = productService.getAllProducts(page, size, sortBy, sortDir);
+            PagedResponse<?> products;
+            if (cursor != null) {
+                products = isSummaryView(view)
+                        ? productService.getProductSummariesByCursor(cursor, size, sortBy, sortDir)
+                        : productService.getProductsByCursor(cursor, size, sortBy, sortDir);
+            } else {
+                products = isSummaryView(view)
+                        ? productService.getProductSummaries(page, size, sortBy, sortDir)
+                        : productService.getAllProducts(page, size, sortBy, sortDir);
+            }
             return ResponseEntity.ok(ResponseWrapper.success("Products retrieved successfully", products));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ResponseWrapper.error("Error retrieving products: " + e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ResponseWrapper.error("Error retrieving products: " + e.getMessage()));
@@ -88,10 +106,13 @@ public class ProductController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "12") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(defaultValue = "full") String view) {
 
         try {
-            PagedResponse<ProductDTO> products = productService.getProductsByCategory(categoryId, page, size, sortBy, sortDir);
+            PagedResponse<?> products = isSummaryView(view)
+                    ? productService.getProductSummariesByCategory(categoryId, page, size, sortBy, sortDir)
+                    : productService.getProductsByCategory(categoryId, page, size, sortBy, sortDir);
             return ResponseEntity.ok(ResponseWrapper.success("Products by category retrieved successfully", products));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -106,10 +127,13 @@ public class ProductController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "12") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(defaultValue = "full") String view) {
 
         try {
-            PagedResponse<ProductDTO> products = productService.getProductsByBrand(brandId, page, size, sortBy, sortDir);
+            PagedResponse<?> products = isSummaryView(view)
+                    ? productService.getProductSummariesByBrand(brandId, page, size, sortBy, sortDir)
+                    : productService.getProductsByBrand(brandId, page, size, sortBy, sortDir);
             return ResponseEntity.ok(ResponseWrapper.success("Products by brand retrieved successfully", products));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -118,16 +142,34 @@ public class ProductController {
     }
 
 
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "5") int limit) {
+
+        try {
+            SuggestResponse suggestions = productService.suggest(q, limit);
+            return ResponseEntity.ok(ResponseWrapper.success("Suggestions retrieved successfully", suggestions));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ResponseWrapper.error("Error retrieving suggestions: " + e.getMessage()));
+        }
+    }
+
+
     @GetMapping("/search")
     public ResponseEntity<?> searchProducts(
             @RequestParam String keyword,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "12") int size,
-            @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
+            @RequestParam(defaultValue = "relevance") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(defaultValue = "full") String view) {
 
         try {
-            PagedResponse<ProductDTO> products = productService.searchProducts(keyword, page, size, sortBy, sortDir);
+            PagedResponse<?> products = isSummaryView(view)
+                    ? productService.searchProductSummaries(keyword, page, size, sortBy, sortDir)
+                    : productService.searchProducts(keyword, page, size, sortBy, sortDir);
             return ResponseEntity.ok(ResponseWrapper.success("Search results", products));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -136,6 +178,35 @@ public class ProductController {
     }
 
 
+    @GetMapping("/filter")
+    public ResponseEntity<?> filterProducts(
+            @RequestParam(required = false) List<Integer> categoryIds,
+            @RequestParam(required = false) List<Integer> brandIds,
+            @RequestParam(required = false) List<String> sizes,
+            @RequestParam(required = false) List<String> colors,
+            @RequestParam(required = false) List<String> priceRanges,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "12") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(defaultValue = "full") String view) {
+
+        try {
+            ProductFilterRequest filter = new ProductFilterRequest(
+                    categoryIds, brandIds, sizes, colors, priceRanges, minPrice, maxPrice);
+            ProductFacetResponse<?> result = isSummaryView(view)
+                    ? productService.filterProductSummaries(filter, page, size, sortBy, sortDir)
+                    : productService.filterProducts(filter, page, size, sortBy, sortDir);
+            return ResponseEntity.ok(ResponseWrapper.success("Filtered products", result));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ResponseWrapper.error("Error filtering products: " + e.getMessage()));
+        }
+    }
+
+
     @GetMapping("/filter/price")
     public ResponseEntity<?> filterProductsByPrice(
             @RequestParam BigDecimal minPrice,
@@ -143,10 +214,13 @@ public class ProductController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "12") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(defaultValue = "full") String view) {
 
         try {
-            PagedResponse<ProductDTO> products = productService.filterProductsByPrice(minPrice, maxPrice, page, size, sortBy, sortDir);
+            PagedResponse<?> products = isSummaryView(view)
+                    ? productService.filterProductSummariesByPrice(minPrice, maxPrice, page, size, sortBy, sortDir)
+                    : productService.filterProductsByPrice(minPrice, maxPrice, page, size, sortBy, sortDir);
             return ResponseEntity.ok(ResponseWrapper.success("Price filtered results", products));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -157,10 +231,13 @@ public class ProductController {
 
     @GetMapping("/new-arrivals")
     public ResponseEntity<?> getNewArrivals(
-            @RequestParam(defaultValue = "8") int limit) {
+            @RequestParam(defaultValue = "8") int limit,
+            @RequestParam(defaultValue = "full") String view) {
 
         try {
-            List<ProductDTO> products = productService.getNewArrivals(limit);
+            List<?> products = isSummaryView(view)
+                    ? productService.getNewArrivalSummaries(limit)
+                    : productService.getNewArrivals(limit);
             return ResponseEntity.ok(ResponseWrapper.success("New arrivals retrieved successfully", products));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -171,10 +248,13 @@ public class ProductController {
 
     @GetMapping("/top-rated")
     public ResponseEntity<?> getTopRatedProducts(
-            @RequestParam(defaultValue = "8") int limit) {
+            @RequestParam(defaultValue = "8") int limit,
+            @RequestParam(defaultValue = "full") String view) {
 
         try {
-            List<ProductDTO> products = productService.getTopRatedProducts(limit);
+            List<?> products = isSummaryView(view)
+                    ? productService.getTopRatedSummaries(limit)
+                    : productService.getTopRatedProducts(limit);
             return ResponseEntity.ok(ResponseWrapper.success("Top rated products retrieved successfully", products));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -185,11 +265,17 @@ public class ProductController {
 
     @GetMapping("/best-selling")
     public ResponseEntity<?> getBestSellingProducts(
-            @RequestParam(defaultValue = "8") int limit) {
+            @RequestParam(defaultValue = "8") int limit,
+            @RequestParam(defaultValue = "all") String window,
+            @RequestParam(defaultValue = "full") String view) {
 
         try {
-            List<ProductDTO> products = productService.getBestSellingProducts(limit);
+            List<?> products = isSummaryView(view)
+                    ? productService.getBestSellingSummaries(window, limit)
+                    : productService.getBestSellingProducts(window, limit);
             return ResponseEntity.ok(ResponseWrapper.success("Best selling products retrieved successfully", products));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ResponseWrapper.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ResponseWrapper.error("Error retrieving best selling products: " + e.getMessage()));
@@ -256,23 +342,41 @@ public class ProductController {
     }
 
     @GetMapping("/random")
-    public ResponseEntity<List<ProductDTO>> getRandomProducts(
-        @RequestParam(defaultValue = "4") int limit
+    public ResponseEntity<List<?>> getRandomProducts(
+        @RequestParam(defaultValue = "4") int limit,
+        @RequestParam(required = false) Integer categoryId,
+        @RequestParam(defaultValue = "full") String view
     ) {
-        List<ProductDTO> randomProducts = productService.getRandomProducts(limit);
+        List<?> randomProducts = isSummaryView(view)
+            ? productService.getRandomProductSummaries(categoryId, limit)
+            : productService.getRandomProducts(categoryId, limit);
         return ResponseEntity.ok(randomProducts);
     }
 
+    @GetMapping("/{id}/bought-together")
+    public ResponseEntity<ResponseWrapper<List<ProductSummaryDTO>>> getBoughtTogetherProducts(
+            @PathVariable Integer id,
+            @RequestParam(defaultValue = "6") int limit) {
+        List<ProductSummaryDTO> products = productService.getBoughtTogetherSummaries(id, limit);
+        return ResponseEntity.ok(ResponseWrapper.success("Frequently bought together products retrieved successfully", products));
+    }
+
     @GetMapping("/category/{categoryId}/brand/{brandId}")
-    public ResponseEntity<PagedResponse<ProductDTO>> getProductsByCategoryAndBrand(
+    public ResponseEntity<PagedResponse<?>> getProductsByCategoryAndBrand(
         @PathVariable Integer categoryId,
         @PathVariable Integer brandId,
         @RequestParam(defaultValue = "0") int page,
         @RequestParam(defaultValue = "10") int size,
         @RequestParam(defaultValue = "createdAt") String sortBy,
-        @RequestParam(defaultValue = "desc") String sortDir) {
-        PagedResponse<ProductDTO> response = productService.getProductsByCategoryAndBrand(
-            categoryId, brandId, page, size, sortBy, sortDir);
+        @RequestParam(defaultValue = "desc") String sortDir,
+        @RequestParam(defaultValue = "full") String view) {
+        PagedResponse<?> response = isSummaryView(view)
+            ? productService.getProductSummariesByCategoryAndBrand(categoryId, brandId, page, size, sortBy, sortDir)
+            : productService.getProductsByCategoryAndBrand(categoryId, brandId, page, size, sortBy, sortDir);
         return ResponseEntity.ok(response);
     }
+
+    private boolean isSummaryView(String view) {
+        return "summary".equalsIgnoreCase(view);
+    }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.example.app.controller;
 import com.example.app.dto.ResponseWrapper;
 import com.example.app.dto.ProductImageDTO;
 import com.example.app.service.FileStorageService;
+import com.example.app.service.ImageDerivativeService;
 import com.example.app.service.ProductImageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,7 +14,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 @RestController
@@ -22,14 +23,18 @@ public class ProductImageController {
 
     private final ProductImageService productImageService;
     private final FileStorageService fileStorageService;
+    private final ImageDerivativeService imageDerivativeService;
 
     @Value("${app.file.access-path}")
     private String fileAccessPath;
 
     @Autowired
-    public ProductImageController(ProductImageService productImageService, FileStorageService fileStorageService) {
+    public ProductImageController(ProductImageService productImageService,
+                                  FileStorageService fileStorageService,
+                                  ImageDerivativeService imageDerivativeService) {
         this.productImageService = productImageService;
         this.fileStorageService = fileStorageService;
+        this.imageDerivativeService = imageDerivativeService;
     }
 
 
@@ -41,20 +46,21 @@ public class ProductImageController {
             @RequestParam(value = "variantId", required = false) Integer variantId,
             @RequestParam(value = "isMainImage", required = false, defaultValue = "false") boolean isMainImage) {
 
-        List<ProductImageDTO> uploadedImages = new ArrayList<>();
-
         try {
-            for (int i = 0; i < files.length; i++) {
-                MultipartFile file = files[i];
-                String filePath = fileStorageService.storeProductImage(file, (long) productId, null);
-                ProductImageDTO imageDTO = new ProductImageDTO();
-                imageDTO.setProductId(productId);
-                imageDTO.setVariantId(variantId);
-                imageDTO.setImageURL(filePath);
-                imageDTO.setSortOrder(i == 0 && isMainImage ? 0 : i + 1);
-
-                ProductImageDTO savedImage = productImageService.createImage(imageDTO);
-                uploadedImages.add(savedImage);
+            // Lưu file song song, rồi ghi tất cả bản ghi ảnh trong một giao dịch
+            List<String> filePaths = fileStorageService.storeFiles(Arrays.asList(files));
+            List<ProductImageDTO> uploadedImages;
+            try {
+                uploadedImages = productImageService.createImages(productId, variantId, filePaths, isMainImage);
+            } catch (RuntimeException e) {
+                // Sản phẩm/biến thể không hợp lệ: trả lại tham chiếu của các file vừa lưu
+                for (String filePath : filePaths) {
+                    fileStorageService.deleteFile(filePath);
+                }
+                throw e;
+            }
+            for (ProductImageDTO savedImage : uploadedImages) {
+                imageDerivativeService.enqueue(savedImage.getImageURL());
             }
 
             return new ResponseEntity<>(
@@ -83,7 +89,7 @@ public class ProductImageController {
             @RequestParam("productId") Integer productId) {
 
         try {
-            String filePath = fileStorageService.storeProductImage(file, (long) productId, "variant_" + variantId);
+            String filePath = fileStorageService.storeFile(file);
 
             ProductImageDTO imageDTO = new ProductImageDTO();
             imageDTO.setProductId(productId);
@@ -91,7 +97,15 @@ public class ProductImageController {
             imageDTO.setImageURL(filePath);
             imageDTO.setSortOrder(0); // Hình chính của biến thể
 
-            ProductImageDTO savedImage = productImageService.createImage(imageDTO);
+            ProductImageDTO savedImage;
+            try {
+                savedImage = productImageService.createImage(imageDTO);
+            } catch (RuntimeException e) {
+                // Sản phẩm/biến thể không hợp lệ: trả lại tham chiếu của file vừa lưu
+                fileStorageService.deleteFile(filePath);
+                throw e;
+            }
+            imageDerivativeService.enqueue(savedImage.getImageURL());
 
             return new ResponseEntity<>(
                     ResponseWrapper.success("Variant image uploaded successfully", savedImage),
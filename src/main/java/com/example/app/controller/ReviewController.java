@@ -31,9 +31,12 @@ public class ReviewController {
     public ResponseEntity<ResponseWrapper<PagedResponse<ReviewDTO>>> getReviewsByProduct(
             @PathVariable Integer productId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor) {
 
-        PagedResponse<ReviewDTO> reviews = reviewService.getReviewsByProduct(productId, page, size);
+        PagedResponse<ReviewDTO> reviews = cursor != null
+                ? reviewService.getReviewsByProductCursor(productId, cursor, size)
+                : reviewService.getReviewsByProduct(productId, page, size);
         return ResponseEntity.ok(ResponseWrapper.success("Product reviews retrieved successfully", reviews));
     }
 
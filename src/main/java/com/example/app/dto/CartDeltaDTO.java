@@ -0,0 +1,24 @@
+package com.example.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Phản hồi rút gọn cho thao tác trên giỏ hàng (view=delta): chỉ dòng vừa thay đổi và tổng mới của giỏ.
+ * item là null khi dòng bị xóa, lúc đó removedItemId cho biết dòng nào.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartDeltaDTO {
+    private Integer cartId;
+    private CartItemDTO item;
+    private Integer removedItemId;
+    private BigDecimal totalAmount;
+    private Integer totalItems;
+    private LocalDateTime updatedAt;
+}
@@ -20,5 +20,6 @@ public class CategoryDTO {
     private String status;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Long productCount;
     private List<CategoryDTO> subcategories;
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.example.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetValueDTO {
+    private String value;
+    private String label;
+    private Integer count;
+    private Boolean selected;
+}
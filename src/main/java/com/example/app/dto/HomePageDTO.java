@@ -0,0 +1,26 @@
+package com.example.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Dữ liệu trang chủ gộp trong một lần gọi. fallbackSections liệt kê các phần không tải kịp
+ * (quá thời gian hoặc lỗi) và đang dùng dữ liệu lần trước hoặc danh sách rỗng.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HomePageDTO {
+    private List<SlideBannerDTO> banners;
+    private List<CategoryDTO> categories;
+    private List<ProductSummaryDTO> newArrivals;
+    private List<ProductSummaryDTO> bestSelling;
+    private List<ProductSummaryDTO> topRated;
+    private List<PromotionDTO> promotions;
+    private List<String> fallbackSections;
+    private LocalDateTime generatedAt;
+}
@@ -16,4 +16,17 @@ public class PagedResponse<T> {
     private long totalElements;
     private int totalPages;
     private boolean last;
+    // Chỉ có giá trị ở chế độ phân trang theo cursor; null khi đã hết dữ liệu
+    private String nextCursor;
+
+    public PagedResponse(List<T> content, int page, int size, long totalElements, int totalPages, boolean last) {
+        this(content, page, size, totalElements, totalPages, last, null);
+    }
+
+    /**
+     * Trang theo cursor: không chạy COUNT nên totalElements/totalPages = -1.
+     */
+    public static <T> PagedResponse<T> ofCursor(List<T> content, int size, String nextCursor) {
+        return new PagedResponse<>(content, 0, size, -1, -1, nextCursor == null, nextCursor);
+    }
 }
\ No newline at end of file
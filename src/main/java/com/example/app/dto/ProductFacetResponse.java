@@ -0,0 +1,20 @@
+package com.example.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kết quả lọc sản phẩm kèm số lượng theo từng nhóm (category, brand, size, color, price).
+ * Số lượng của mỗi nhóm được tính với mọi điều kiện trừ điều kiện của chính nhóm đó.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetResponse<T> {
+    private PagedResponse<T> products;
+    private Map<String, List<FacetValueDTO>> facets;
+}
@@ -0,0 +1,25 @@
+package com.example.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Điều kiện lọc cho /api/products/filter. Trong cùng một nhóm các giá trị được OR,
+ * giữa các nhóm với nhau được AND.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFilterRequest {
+    private List<Integer> categoryIds;
+    private List<Integer> brandIds;
+    private List<String> sizes;
+    private List<String> colors;
+    private List<String> priceRanges;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+}
@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @Data
 @NoArgsConstructor
@@ -18,4 +19,6 @@ public class ProductImageDTO {
     private Integer sortOrder;
     private String altText;
     private LocalDateTime createdAt;
+    // thumb/card/zoom -> đường dẫn ảnh thu nhỏ; null khi chưa xử lý xong thì dùng imageURL
+    private Map<String, String> derivativeURLs;
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.example.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tiến độ của một job nhập sản phẩm. rowsRead tính cả dòng lỗi; các dòng lỗi được ghi vào file
+ * tải về qua /api/admin/import/products/{jobId}/errors.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportStatusDTO {
+    private String jobId;
+    private String fileName;
+    private String state;
+    private long rowsRead;
+    private long rowsImported;
+    private long productsCreated;
+    private long variantsCreated;
+    private long imagesCreated;
+    private long errorCount;
+    private String message;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,24 @@
+package com.example.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Dữ liệu rút gọn cho lưới sản phẩm (view=summary), được lấy bằng một truy vấn
+ * constructor duy nhất thay vì dựng toàn bộ ProductDTO.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSummaryDTO {
+    private Integer id;
+    private String name;
+    private BigDecimal basePrice;
+    private String mainImageUrl;
+    private Double averageRating;
+    private Long reviewCount;
+    private Boolean inStock;
+}
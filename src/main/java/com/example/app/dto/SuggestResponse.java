@@ -0,0 +1,19 @@
+package com.example.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Gợi ý khi gõ tìm kiếm, mỗi nhóm xếp theo độ phổ biến (số lượng đã bán).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestResponse {
+    private List<SuggestionDTO> products;
+    private List<SuggestionDTO> brands;
+    private List<SuggestionDTO> categories;
+}
@@ -0,0 +1,30 @@
+package com.example.app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Bộ đếm thay đổi catalog dùng chung giữa các instance: mỗi thay đổi sau commit tăng version một lần.
+ * CatalogVersionTracker đọc bảng này lúc khởi động và định kỳ để ETag không trùng sau restart
+ * và đổi khi instance khác ghi dữ liệu.
+ */
+@Entity
+@Table(name = "Catalog_Version")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogVersion {
+
+    @Id
+    @Column(name = "Name", length = 32)
+    private String name;
+
+    @Column(name = "Version", nullable = false)
+    private Long version = 0L;
+
+    @Column(name = "Updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,41 @@
+package com.example.app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * File ảnh lưu theo nội dung (SHA-256). Nhiều ảnh sản phẩm/danh mục/banner có cùng nội dung dùng chung
+ * một file; refCount đếm số tham chiếu còn giữ. refCount = 0 chỉ đánh dấu ứng viên cho lượt dọn nhanh của bộ
+ * dọn file mồ côi (xóa hàng loạt trong DB không giảm refCount); file chỉ bị xóa sau khi đối chiếu tham chiếu thật.
+ */
+@Entity
+@Table(name = "Image_Blob")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageBlob {
+
+    @Id
+    @Column(name = "Hash", length = 64)
+    private String hash;
+
+    @Column(name = "Path", nullable = false)
+    private String path;
+
+    @Column(name = "Size", nullable = false)
+    private Long size;
+
+    @Column(name = "Ref_Count", nullable = false)
+    private Integer refCount = 1;
+
+    @Column(name = "Created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
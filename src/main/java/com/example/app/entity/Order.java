@@ -14,7 +14,8 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "`Order`") // Using backticks because Order is a reserved word in SQL
+@Table(name = "`Order`", // Using backticks because Order is a reserved word in SQL
+        indexes = @Index(name = "idx_order_created_at_id", columnList = "Created_at, Order_ID"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -60,7 +61,7 @@ public class Order {
     @Column(name = "Note")
     private String note;
 
-    @Column(name = "Created_at", updatable = false)
+    @Column(name = "Created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     @Column(name = "Updated_at")
@@ -8,17 +8,28 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
 @Entity
-@Table(name = "Product")
+// Chỉ mục (khóa sắp xếp, id) cho phân trang keyset: mỗi trang là một lần seek trên chỉ mục, không filesort
+@Table(name = "Product", indexes = {
+        @Index(name = "idx_product_created_at_id", columnList = "Created_at, Product_ID"),
+        @Index(name = "idx_product_base_price_id", columnList = "Base_Price, Product_ID"),
+        @Index(name = "idx_product_name_id", columnList = "Name, Product_ID")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Product {
 
+    public static final String DEFAULT_IMAGE_URL = "/images/default-product.jpg";
+    public static final String THUMBNAIL_SEPARATOR = "\n";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "Product_ID")
@@ -46,7 +57,7 @@ public class Product {
     @NotNull(message = "Thương hiệu không được để trống")
     private Brand brand;
 
-    @Column(name = "Created_at", updatable = false)
+    @Column(name = "Created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     @Column(name = "Updated_at")
@@ -56,6 +67,13 @@ public class Product {
     @JoinColumn(name = "Default_Variant_ID")
     private ProductVariant defaultVariant;
 
+    // Ảnh chính và vài ảnh thu nhỏ được lưu sẵn để các màn danh sách không phải nạp collection ảnh
+    @Column(name = "Main_Image_URL")
+    private String mainImageUrl;
+
+    @Column(name = "Thumbnail_URLs", length = 2000)
+    private String thumbnailUrls;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "Status", nullable = false)
     private ProductStatus status = ProductStatus.active;
@@ -115,8 +133,26 @@ public class Product {
     }
     
 
-    @Transient
+    /**
+     * Ảnh chính đã được lưu sẵn (xem ProductImageSummaryUpdater). Chỉ khi sản phẩm chưa được
+     * tính lại mới phải duyệt collection ảnh như trước.
+     */
     public String getMainImageUrl() {
+        if (mainImageUrl != null) {
+            return mainImageUrl;
+        }
+        return resolveMainImageUrlFromImages();
+    }
+
+    @Transient
+    public List<String> getThumbnailUrlList() {
+        if (thumbnailUrls == null || thumbnailUrls.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(Arrays.asList(thumbnailUrls.split(THUMBNAIL_SEPARATOR)));
+    }
+
+    private String resolveMainImageUrlFromImages() {
         String imageUrl = null;
         
         // 1. Ảnh chính từ biến thể mặc định
@@ -164,6 +200,6 @@ public class Product {
             }
         }
         
-        return "/images/default-product.jpg";
+        return DEFAULT_IMAGE_URL;
     }
 }
\ No newline at end of file
@@ -42,6 +42,14 @@ public class ProductImage {
     @Column(name = "Alt_Text")
     private String altText;
 
+    // null: chưa sinh ảnh thu nhỏ, true: đã có đủ thumb/card/zoom, false: ảnh gốc không đọc được
+    @Column(name = "Derivatives_Ready")
+    private Boolean derivativesReady;
+
+    // Số lần sinh ảnh thu nhỏ lỗi tạm thời (ghi file, hết bộ nhớ); quá giới hạn thì lượt quét bỏ qua
+    @Column(name = "Derivative_Attempts")
+    private Integer derivativeAttempts;
+
     @PrePersist
     protected void onCreate() {
         this.createdAt = LocalDateTime.now();
@@ -0,0 +1,100 @@
+package com.example.app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Tổng hợp đánh giá của một sản phẩm (tổng điểm, số lượt, phân bố 1–5 sao).
+ * Được cập nhật cùng transaction với thao tác ghi review.
+ */
+@Entity
+@Table(name = "Product_Rating")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductRating {
+
+    @Id
+    @Column(name = "Product_ID")
+    private Integer productId;
+
+    @Column(name = "Rating_Sum", nullable = false)
+    private Long ratingSum = 0L;
+
+    @Column(name = "Rating_Count", nullable = false)
+    private Long ratingCount = 0L;
+
+    @Column(name = "Average_Rating", nullable = false)
+    private Double averageRating = 0.0;
+
+    @Column(name = "Star_1", nullable = false)
+    private Long star1 = 0L;
+
+    @Column(name = "Star_2", nullable = false)
+    private Long star2 = 0L;
+
+    @Column(name = "Star_3", nullable = false)
+    private Long star3 = 0L;
+
+    @Column(name = "Star_4", nullable = false)
+    private Long star4 = 0L;
+
+    @Column(name = "Star_5", nullable = false)
+    private Long star5 = 0L;
+
+    @Column(name = "Updated_at")
+    private LocalDateTime updatedAt;
+
+    public ProductRating(Integer productId) {
+        this.productId = productId;
+    }
+
+    /**
+     * Cộng (delta = 1) hoặc trừ (delta = -1) một lượt đánh giá.
+     */
+    public void apply(int rating, int delta) {
+        if (rating < 1 || rating > 5) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5");
+        }
+        ratingSum += (long) rating * delta;
+        ratingCount += delta;
+        switch (rating) {
+            case 1 -> star1 += delta;
+            case 2 -> star2 += delta;
+            case 3 -> star3 += delta;
+            case 4 -> star4 += delta;
+            default -> star5 += delta;
+        }
+        recalculate();
+    }
+
+    public void setStarCount(int rating, long count) {
+        switch (rating) {
+            case 1 -> star1 = count;
+            case 2 -> star2 = count;
+            case 3 -> star3 = count;
+            case 4 -> star4 = count;
+            case 5 -> star5 = count;
+            default -> throw new IllegalArgumentException("Rating must be between 1 and 5");
+        }
+    }
+
+    public void recalculate() {
+        if (ratingCount <= 0) {
+            ratingCount = 0L;
+            ratingSum = 0L;
+            averageRating = 0.0;
+        } else {
+            averageRating = (double) ratingSum / ratingCount;
+        }
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -7,7 +7,8 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "Review")
+@Table(name = "Review",
+        indexes = @Index(name = "idx_review_product_created_at_id", columnList = "Product_ID, Created_at, Review_ID"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -38,7 +39,7 @@ public class Review {
     @Column(name = "Comment")
     private String comment;
 
-    @Column(name = "Created_at", updatable = false)
+    @Column(name = "Created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     @Column(name = "Updated_at")
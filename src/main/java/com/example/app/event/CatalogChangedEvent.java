@@ -0,0 +1,20 @@
+package com.example.app.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Phát ra khi một thương hiệu, danh mục hoặc banner được thêm, sửa hoặc xóa, để các chỉ mục
+ * và phiên bản dữ liệu trong bộ nhớ có thể làm mới sau khi transaction commit.
+ */
+@Getter
+@AllArgsConstructor
+public class CatalogChangedEvent {
+
+    private final CatalogType catalogType;
+    private final Integer id;
+
+    public enum CatalogType {
+        BRAND, CATEGORY, BANNER
+    }
+}
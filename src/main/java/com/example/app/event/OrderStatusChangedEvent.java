@@ -0,0 +1,21 @@
+package com.example.app.event;
+
+import com.example.app.entity.Order;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Phát ra khi trạng thái đơn hàng thay đổi, dùng để cập nhật các thống kê bán hàng
+ * trong bộ nhớ sau khi transaction commit.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderStatusChangedEvent {
+
+    private final Integer orderId;
+    private final Order.OrderStatus previousStatus;
+    private final Order.OrderStatus newStatus;
+    private final LocalDateTime orderCreatedAt;
+}
@@ -0,0 +1,21 @@
+package com.example.app.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Phát ra khi dữ liệu hiển thị của một sản phẩm thay đổi (thông tin, biến thể,
+ * tồn kho, ảnh, đánh giá). Các cache/chỉ mục trong bộ nhớ lắng nghe sự kiện này
+ * sau khi transaction commit để làm mới dữ liệu của đúng sản phẩm đó.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+
+    private final Integer productId;
+    private final ChangeType type;
+
+    public enum ChangeType {
+        CREATED, UPDATED, DELETED, VARIANT, STOCK, IMAGE, REVIEW, RELATED
+    }
+}
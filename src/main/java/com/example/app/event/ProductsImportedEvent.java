@@ -0,0 +1,17 @@
+package com.example.app.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Phát ra một lần khi job nhập sản phẩm hàng loạt kết thúc, thay cho hàng nghìn ProductChangedEvent.
+ * Các chỉ mục trong bộ nhớ dựng lại toàn bộ (hoặc đánh dấu cũ) thay vì cập nhật từng sản phẩm.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductsImportedEvent {
+
+    private final List<Integer> productIds;
+}
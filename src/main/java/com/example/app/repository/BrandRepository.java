@@ -1,13 +1,27 @@
 package com.example.app.repository;
 
 import com.example.app.entity.Brand;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface BrandRepository extends JpaRepository<Brand, Integer> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Brand> findByName(String name);
     boolean existsByName(String name);
+
+    @Query("SELECT b.logoUrl FROM Brand b WHERE b.logoUrl LIKE CONCAT('%', :fragment, '%')")
+    List<String> findLogoUrlsContaining(@Param("fragment") String fragment);
+
+    @Query("SELECT DISTINCT b.logoUrl FROM Brand b WHERE b.logoUrl IN :urls")
+    List<String> findLogoUrlsIn(@Param("urls") Collection<String> urls);
 }
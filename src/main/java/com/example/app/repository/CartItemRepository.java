@@ -26,4 +26,9 @@ public interface CartItemRepository extends JpaRepository<CartItem, Integer> {
 
     @Query("SELECT SUM(ci.quantity) FROM CartItem ci WHERE ci.cart.id = :cartId")
     Integer getTotalQuantityInCart(@Param("cartId") Integer cartId);
+
+    // Số dòng và tổng tiền của giỏ tính trong DB, không nạp item/sản phẩm/biến thể
+    @Query("SELECT COUNT(ci), SUM((p.basePrice + v.priceAdjustment) * ci.quantity) " +
+           "FROM CartItem ci JOIN ci.product p JOIN ci.variant v WHERE ci.cart.id = :cartId")
+    List<Object[]> summarizeCart(@Param("cartId") Integer cartId);
 }
\ No newline at end of file
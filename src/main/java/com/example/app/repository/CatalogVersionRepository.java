@@ -0,0 +1,24 @@
+package com.example.app.repository;
+
+import com.example.app.entity.CatalogVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CatalogVersionRepository extends JpaRepository<CatalogVersion, String> {
+
+    // Tạo dòng nếu chưa có; tăng nguyên tử nên các instance ghi cùng lúc không mất lượt
+    @Modifying
+    @Query(value = "INSERT INTO catalog_version (name, version, updated_at) VALUES (:name, 1, NOW()) " +
+            "ON DUPLICATE KEY UPDATE version = version + 1, updated_at = NOW()", nativeQuery = true)
+    int increment(@Param("name") String name);
+
+    // Đọc bằng truy vấn thay vì findById để không lấy bản cũ trong persistence context/cache cấp 2
+    @Query("SELECT v.version, v.updatedAt FROM CatalogVersion v WHERE v.name = :name")
+    List<Object[]> findVersion(@Param("name") String name);
+}
@@ -1,15 +1,21 @@
 package com.example.app.repository;
 
 import com.example.app.entity.Category;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Integer> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Category> findByName(String name);
 
     boolean existsByName(String name);
@@ -20,4 +26,15 @@ public interface CategoryRepository extends JpaRepository<Category, Integer> {
     List<Category> findByParentId(Integer parentId);
 
     List<Category> findByStatus(Category.CategoryStatus status);
+
+    // Toàn bộ danh mục trong một truy vấn cho cây danh mục (không nạp quan hệ lazy)
+    @Query("SELECT c.id, c.name, c.description, c.image, p.id, c.status, c.createdAt, c.updatedAt " +
+            "FROM Category c LEFT JOIN c.parent p")
+    List<Object[]> findTreeRows();
+
+    @Query("SELECT c.image FROM Category c WHERE c.image LIKE CONCAT('%', :fragment, '%')")
+    List<String> findImagesContaining(@Param("fragment") String fragment);
+
+    @Query("SELECT DISTINCT c.image FROM Category c WHERE c.image IN :urls")
+    List<String> findImagesIn(@Param("urls") Collection<String> urls);
 }
\ No newline at end of file
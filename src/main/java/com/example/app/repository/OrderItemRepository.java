@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -23,4 +24,52 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Integer> {
     List<OrderItem> findOrderItemsByDateRange(
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
+
+    // Số lượng đã bán (đơn đã giao) cho bảng xếp hạng bán chạy
+    @Query("SELECT oi.product.id, SUM(oi.quantity) FROM OrderItem oi " +
+            "WHERE oi.order.orderStatus = com.example.app.entity.Order.OrderStatus.delivered " +
+            "GROUP BY oi.product.id")
+    List<Object[]> sumDeliveredQuantityByProduct();
+
+    @Query("SELECT oi.product.id, oi.order.createdAt, oi.quantity FROM OrderItem oi " +
+            "WHERE oi.order.orderStatus = com.example.app.entity.Order.OrderStatus.delivered " +
+            "AND oi.order.createdAt >= :since")
+    List<Object[]> findDeliveredQuantitiesSince(@Param("since") LocalDateTime since);
+
+    // Đọc lại doanh số của các sản phẩm có đơn đổi trạng thái trong lúc dựng bảng xếp hạng
+    @Query("SELECT oi.product.id, SUM(oi.quantity) FROM OrderItem oi " +
+            "WHERE oi.order.orderStatus = com.example.app.entity.Order.OrderStatus.delivered " +
+            "AND oi.product.id IN :productIds " +
+            "GROUP BY oi.product.id")
+    List<Object[]> sumDeliveredQuantityByProductIn(@Param("productIds") Collection<Integer> productIds);
+
+    @Query("SELECT oi.product.id, oi.order.createdAt, oi.quantity FROM OrderItem oi " +
+            "WHERE oi.order.orderStatus = com.example.app.entity.Order.OrderStatus.delivered " +
+            "AND oi.order.createdAt >= :since AND oi.product.id IN :productIds")
+    List<Object[]> findDeliveredQuantitiesSinceForProducts(@Param("since") LocalDateTime since,
+                                                           @Param("productIds") Collection<Integer> productIds);
+
+    // Bán chạy tính trực tiếp trong DB khi bảng xếp hạng trong bộ nhớ chưa dựng xong
+    @Query("SELECT oi.product.id FROM OrderItem oi " +
+            "WHERE oi.order.orderStatus = com.example.app.entity.Order.OrderStatus.delivered " +
+            "GROUP BY oi.product.id ORDER BY SUM(oi.quantity) DESC, oi.product.id DESC")
+    List<Integer> findTopDeliveredProductIds(Pageable pageable);
+
+    @Query("SELECT oi.product.id FROM OrderItem oi " +
+            "WHERE oi.order.orderStatus = com.example.app.entity.Order.OrderStatus.delivered " +
+            "AND oi.order.createdAt >= :since " +
+            "GROUP BY oi.product.id ORDER BY SUM(oi.quantity) DESC, oi.product.id DESC")
+    List<Integer> findTopDeliveredProductIdsSince(@Param("since") LocalDateTime since, Pageable pageable);
+
+    @Query("SELECT oi.product.id, SUM(oi.quantity) FROM OrderItem oi " +
+            "WHERE oi.order.id = :orderId GROUP BY oi.product.id")
+    List<Object[]> sumQuantityByProductForOrder(@Param("orderId") Integer orderId);
+
+    // Cặp (đơn, sản phẩm) cho ma trận đồng mua
+    @Query("SELECT DISTINCT oi.order.id, oi.product.id FROM OrderItem oi " +
+            "WHERE oi.order.orderStatus = com.example.app.entity.Order.OrderStatus.delivered")
+    List<Object[]> findDeliveredOrderProductPairs();
+
+    @Query("SELECT DISTINCT oi.order.id, oi.product.id FROM OrderItem oi WHERE oi.order.id IN :orderIds")
+    List<Object[]> findOrderProductPairs(@Param("orderIds") Collection<Integer> orderIds);
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import com.example.app.entity.Order;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -69,4 +70,27 @@ public interface OrderRepository extends JpaRepository<Order, Integer> {
            "LEFT JOIN FETCH o.payment " +
            "WHERE o.orderStatus = :status")
     List<Order> findByOrderStatusWithDetails(@Param("status") Order.OrderStatus status);
-}
\ No newline at end of file
+
+    // Phân trang keyset: lastId = null nghĩa là trang đầu tiên
+    @Query("SELECT o FROM Order o WHERE (:lastId IS NULL OR o.createdAt < :lastKey " +
+           "OR (o.createdAt = :lastKey AND o.id < :lastId)) ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findKeysetByCreatedAtDesc(@Param("lastKey") LocalDateTime lastKey,
+                                          @Param("lastId") Integer lastId, Pageable pageable);
+
+    @Query("SELECT o FROM Order o WHERE (:lastId IS NULL OR o.createdAt > :lastKey " +
+           "OR (o.createdAt = :lastKey AND o.id > :lastId)) ORDER BY o.createdAt ASC, o.id ASC")
+    List<Order> findKeysetByCreatedAtAsc(@Param("lastKey") LocalDateTime lastKey,
+                                         @Param("lastId") Integer lastId, Pageable pageable);
+
+    @Query("SELECT o FROM Order o WHERE (:lastId IS NULL OR o.id < :lastId) ORDER BY o.id DESC")
+    List<Order> findKeysetByIdDesc(@Param("lastId") Integer lastId, Pageable pageable);
+
+    @Query("SELECT o FROM Order o WHERE (:lastId IS NULL OR o.id > :lastId) ORDER BY o.id ASC")
+    List<Order> findKeysetByIdAsc(@Param("lastId") Integer lastId, Pageable pageable);
+
+    // Dữ liệu cũ có thể thiếu Created_at; điền trước khi phân trang keyset theo cột này
+    @Modifying
+    @Query(value = "UPDATE `order` SET created_at = COALESCE(updated_at, NOW()) WHERE created_at IS NULL",
+           nativeQuery = true)
+    int backfillMissingCreatedAt();
+}
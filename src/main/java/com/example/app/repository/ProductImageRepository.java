@@ -1,12 +1,15 @@
 package com.example.app.repository;
 
 import com.example.app.entity.ProductImage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -27,4 +30,32 @@ public interface ProductImageRepository extends JpaRepository<ProductImage, Inte
     @Modifying
     @Query("DELETE FROM ProductImage p WHERE p.product.id = ?1 AND p.variant IS NULL")
     void deleteByProductIdAndVariantIsNull(Integer productId);
+
+    @Query("SELECT MAX(p.sortOrder) FROM ProductImage p WHERE p.product.id = :productId")
+    Integer findMaxSortOrderByProductId(@Param("productId") Integer productId);
+
+    // Tham chiếu tới file upload, dùng cho bộ dọn file mồ côi
+    @Query("SELECT DISTINCT p.imageURL FROM ProductImage p WHERE p.imageURL LIKE CONCAT('%', :fragment, '%')")
+    List<String> findImageUrlsContaining(@Param("fragment") String fragment);
+
+    @Query("SELECT DISTINCT p.imageURL FROM ProductImage p WHERE p.imageURL IN :urls")
+    List<String> findImageUrlsIn(@Param("urls") Collection<String> urls);
+
+    @Query("SELECT DISTINCT p.imageURL FROM ProductImage p WHERE p.derivativesReady IS NULL " +
+            "AND (p.derivativeAttempts IS NULL OR p.derivativeAttempts < :maxAttempts)")
+    List<String> findImageUrlsWithoutDerivatives(@Param("maxAttempts") int maxAttempts, Pageable pageable);
+
+    @Query("SELECT DISTINCT p.product.id FROM ProductImage p WHERE p.imageURL = :imageUrl")
+    List<Integer> findProductIdsByImageUrl(@Param("imageUrl") String imageUrl);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ProductImage p SET p.derivativesReady = :ready WHERE p.imageURL = :imageUrl")
+    int updateDerivativesReady(@Param("imageUrl") String imageUrl, @Param("ready") Boolean ready);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ProductImage p SET p.derivativeAttempts = COALESCE(p.derivativeAttempts, 0) + 1 " +
+            "WHERE p.imageURL = :imageUrl AND p.derivativesReady IS NULL")
+    int incrementDerivativeAttempts(@Param("imageUrl") String imageUrl);
 }
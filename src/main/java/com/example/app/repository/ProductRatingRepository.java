@@ -0,0 +1,57 @@
+package com.example.app.repository;
+
+import com.example.app.entity.ProductRating;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.LockModeType;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ProductRatingRepository extends JpaRepository<ProductRating, Integer> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT pr FROM ProductRating pr WHERE pr.productId = :productId")
+    Optional<ProductRating> findByIdForUpdate(@Param("productId") Integer productId);
+
+    // Tạo dòng tổng hợp rỗng nếu chưa có; hai review đầu tiên cùng lúc không còn trùng khóa chính
+    @Modifying
+    @Query(value = "INSERT INTO product_rating (product_id, rating_sum, rating_count, average_rating, " +
+            "star_1, star_2, star_3, star_4, star_5, updated_at) " +
+            "VALUES (:productId, 0, 0, 0, 0, 0, 0, 0, 0, NOW()) " +
+            "ON DUPLICATE KEY UPDATE product_id = product_id", nativeQuery = true)
+    int insertIfAbsent(@Param("productId") Integer productId);
+
+    // Tính lại mọi dòng từ Review trong một câu lệnh: InnoDB khóa các dòng review đã đọc và dòng tổng hợp đã ghi,
+    // nên thao tác review đồng thời hoặc đã commit trước (và được tính vào) hoặc chờ rồi cộng tiếp lên kết quả
+    @Modifying
+    @Query(value = "INSERT INTO product_rating (product_id, rating_sum, rating_count, average_rating, " +
+            "star_1, star_2, star_3, star_4, star_5, updated_at) " +
+            "SELECT * FROM (" +
+            "SELECT p.product_id, COALESCE(SUM(r.rating), 0) AS rating_sum, COUNT(r.review_id) AS rating_count, " +
+            "COALESCE(AVG(r.rating), 0) AS average_rating, " +
+            "COALESCE(SUM(CASE WHEN r.rating = 1 THEN 1 ELSE 0 END), 0) AS star_1, " +
+            "COALESCE(SUM(CASE WHEN r.rating = 2 THEN 1 ELSE 0 END), 0) AS star_2, " +
+            "COALESCE(SUM(CASE WHEN r.rating = 3 THEN 1 ELSE 0 END), 0) AS star_3, " +
+            "COALESCE(SUM(CASE WHEN r.rating = 4 THEN 1 ELSE 0 END), 0) AS star_4, " +
+            "COALESCE(SUM(CASE WHEN r.rating = 5 THEN 1 ELSE 0 END), 0) AS star_5, " +
+            "NOW() AS updated_at " +
+            "FROM product p " +
+            "LEFT JOIN review r ON r.product_id = p.product_id AND r.rating BETWEEN 1 AND 5 " +
+            "GROUP BY p.product_id) AS agg " +
+            "ON DUPLICATE KEY UPDATE rating_sum = agg.rating_sum, rating_count = agg.rating_count, " +
+            "average_rating = agg.average_rating, star_1 = agg.star_1, star_2 = agg.star_2, star_3 = agg.star_3, " +
+            "star_4 = agg.star_4, star_5 = agg.star_5, updated_at = agg.updated_at", nativeQuery = true)
+    int rebuildAllFromReviews();
+
+    // Cùng thứ tự với bảng xếp hạng đánh giá cao trong bộ nhớ, dùng khi bảng chưa dựng xong
+    @Query("SELECT pr.productId FROM ProductRating pr " +
+            "ORDER BY pr.averageRating DESC, pr.ratingCount DESC, pr.productId DESC")
+    List<Integer> findTopRatedProductIds(Pageable pageable);
+}
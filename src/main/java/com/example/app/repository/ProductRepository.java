@@ -1,19 +1,50 @@
 package com.example.app.repository;
 
+import com.example.app.dto.ProductSummaryDTO;
 import com.example.app.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Integer> {
+
+    String SUMMARY_SELECT = "SELECT new com.example.app.dto.ProductSummaryDTO(" +
+            "p.id, p.name, p.basePrice, " +
+            "COALESCE(p.mainImageUrl, " +
+            "(SELECT MIN(i.imageURL) FROM ProductImage i WHERE i.variant = p.defaultVariant AND i.isPrimary = true), " +
+            "(SELECT MIN(i.imageURL) FROM ProductImage i WHERE i.variant = p.defaultVariant), " +
+            "(SELECT MIN(i.imageURL) FROM ProductImage i WHERE i.product = p AND i.variant IS NULL AND i.isPrimary = true), " +
+            "(SELECT MIN(i.imageURL) FROM ProductImage i WHERE i.product = p AND i.variant IS NULL), " +
+            "(SELECT MIN(i.imageURL) FROM ProductImage i WHERE i.product = p), " +
+            "'/images/default-product.jpg'), " +
+            "COALESCE(pr.averageRating, 0.0), COALESCE(pr.ratingCount, 0L), " +
+            "CASE WHEN EXISTS (SELECT v.id FROM ProductVariant v WHERE v.product = p AND v.stockQuantity > 0) " +
+            "THEN true ELSE false END) " +
+            "FROM Product p LEFT JOIN ProductRating pr ON pr.productId = p.id ";
+
+    // Điều kiện của /api/products/filter khi lọc bằng SQL; size/màu so khớp theo collation của cột
+    String FILTER_WHERE = "WHERE (:anyCategory = true OR p.category.id IN :categoryIds) " +
+            "AND (:anyBrand = true OR p.brand.id IN :brandIds) " +
+            "AND (:minPrice IS NULL OR p.basePrice >= :minPrice) " +
+            "AND (:maxPrice IS NULL OR p.basePrice <= :maxPrice) " +
+            "AND (:priceFrom IS NULL OR p.basePrice >= :priceFrom) " +
+            "AND (:priceBelow IS NULL OR p.basePrice < :priceBelow) " +
+            "AND (:anySize = true OR EXISTS (SELECT v.id FROM ProductVariant v WHERE v.product = p " +
+            "AND v.status <> com.example.app.entity.ProductVariant.VariantStatus.inactive AND v.size IN :sizes)) " +
+            "AND (:anyColor = true OR EXISTS (SELECT v.id FROM ProductVariant v WHERE v.product = p " +
+            "AND v.status <> com.example.app.entity.ProductVariant.VariantStatus.inactive AND v.color IN :colors))";
+
     Page<Product> findByCategoryId(Integer categoryId, Pageable pageable);
 
     Page<Product> findByBrandId(Integer brandId, Pageable pageable);
@@ -28,9 +59,6 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     @Query("SELECT p FROM Product p WHERE p.status = 'active' ORDER BY p.createdAt DESC")
     List<Product> findNewArrivals(Pageable pageable);
 
-    @Query("SELECT p FROM Product p LEFT JOIN p.reviews r GROUP BY p ORDER BY COALESCE(AVG(r.rating), 0) DESC")
-    List<Product> findTopRatedProducts(int limit);
-
     @Query("SELECT DISTINCT p FROM Product p JOIN p.variants v WHERE v.stockQuantity < :threshold")
     List<Product> findLowStockProducts(@Param("threshold") Integer threshold);
 
@@ -75,14 +103,162 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     @Query("SELECT p.id FROM Product p")
     List<Integer> findAllProductIds();
 
+    @Query("SELECT p.id, p.category.id FROM Product p WHERE p.status = 'active'")
+    List<Object[]> findActiveIdsWithCategory();
+
+    @Query("SELECT p FROM Product p JOIN FETCH p.brand JOIN FETCH p.category")
+    List<Product> findAllWithBrandAndCategory();
+
+    @Query("SELECT p FROM Product p JOIN FETCH p.brand JOIN FETCH p.category WHERE p.id = :productId")
+    Optional<Product> findByIdWithBrandAndCategory(@Param("productId") Integer productId);
+
+    // Dữ liệu cho chỉ mục facet: id, danh mục, thương hiệu, giá gốc, tên và ngày tạo (để sắp xếp)
+    @Query("SELECT p.id, p.category.id, p.brand.id, p.basePrice, p.name, p.createdAt FROM Product p")
+    List<Object[]> findFacetRows();
+
+    @Query("SELECT p.id, p.category.id, p.brand.id, p.basePrice, p.name, p.createdAt FROM Product p WHERE p.id = :productId")
+    List<Object[]> findFacetRowsById(@Param("productId") Integer productId);
+
+    @Query("SELECT p.id FROM Product p WHERE p.mainImageUrl IS NULL")
+    List<Integer> findIdsWithoutMainImage();
+
+    @Query("SELECT p.category.id, COUNT(p) FROM Product p GROUP BY p.category.id")
+    List<Object[]> countGroupedByCategory();
+
+    @Query("SELECT p.id FROM Product p WHERE p.brand.id = :brandId")
+    List<Integer> findIdsByBrandId(@Param("brandId") Integer brandId);
+
+    @Query("SELECT p.id FROM Product p WHERE p.category.id = :categoryId")
+    List<Integer> findIdsByCategoryId(@Param("categoryId") Integer categoryId);
+
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :productIds")
+    List<Integer> findExistingIds(@Param("productIds") Collection<Integer> productIds);
+
+    // Dữ liệu cho gợi ý tìm kiếm: id, tên, thương hiệu, danh mục của sản phẩm đang bán
+    @Query("SELECT p.id, p.name, p.brand.id, p.category.id FROM Product p WHERE p.status = 'active'")
+    List<Object[]> findSuggestRows();
+
+    @Query("SELECT p.id, p.name, p.brand.id, p.category.id FROM Product p " +
+            "WHERE p.id = :productId AND p.status = 'active'")
+    List<Object[]> findSuggestRowsById(@Param("productId") Integer productId);
+
+    @Query(value = "SELECT oi.product_id, SUM(oi.quantity) FROM order_item oi " +
+            "GROUP BY oi.product_id", nativeQuery = true)
+    List<Object[]> findSoldQuantities();
+
     Page<Product> findByCategoryIdAndBrandId(Integer categoryId, Integer brandId, Pageable pageable);
 
     Page<Product> findByCategoryIdIn(List<Integer> categoryIds, Pageable pageable);
 
-    @Query(value = "SELECT p.* FROM Product p " +
-            "JOIN fashion_store.order_item oi ON p.Product_ID = oi.Product_ID " +
-            "GROUP BY p.Product_ID " +
-            "ORDER BY SUM(oi.Quantity) DESC " +
-            "LIMIT :limit", nativeQuery = true)
-    List<Product> findBestSellingProducts(@Param("limit") int limit);
+    @Query(value = SUMMARY_SELECT,
+           countQuery = "SELECT COUNT(p) FROM Product p")
+    Page<ProductSummaryDTO> findAllSummaries(Pageable pageable);
+
+    @Query(value = "SELECT p.id FROM Product p LEFT JOIN ProductRating pr ON pr.productId = p.id",
+           countQuery = "SELECT COUNT(p) FROM Product p")
+    Page<Integer> findPageIds(Pageable pageable);
+
+    @Query(value = "SELECT p.id FROM Product p LEFT JOIN ProductRating pr ON pr.productId = p.id WHERE p.id IN :productIds",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.id IN :productIds")
+    Page<Integer> findPageIdsByIdIn(@Param("productIds") Collection<Integer> productIds, Pageable pageable);
+
+    // Lọc trực tiếp trong DB khi chỉ mục facet chưa dựng xong; danh sách rỗng được thay bằng cờ any* = true
+    @Query(value = "SELECT p.id FROM Product p LEFT JOIN ProductRating pr ON pr.productId = p.id " + FILTER_WHERE,
+           countQuery = "SELECT COUNT(p) FROM Product p " + FILTER_WHERE)
+    Page<Integer> findPageIdsByFilter(@Param("anyCategory") boolean anyCategory,
+                                      @Param("categoryIds") Collection<Integer> categoryIds,
+                                      @Param("anyBrand") boolean anyBrand,
+                                      @Param("brandIds") Collection<Integer> brandIds,
+                                      @Param("anySize") boolean anySize,
+                                      @Param("sizes") Collection<String> sizes,
+                                      @Param("anyColor") boolean anyColor,
+                                      @Param("colors") Collection<String> colors,
+                                      @Param("minPrice") BigDecimal minPrice,
+                                      @Param("maxPrice") BigDecimal maxPrice,
+                                      @Param("priceFrom") BigDecimal priceFrom,
+                                      @Param("priceBelow") BigDecimal priceBelow,
+                                      Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE p.id IN :productIds")
+    List<ProductSummaryDTO> findSummariesByIdIn(@Param("productIds") Collection<Integer> productIds);
+
+    @Query(value = SUMMARY_SELECT + "WHERE p.category.id IN :categoryIds",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.category.id IN :categoryIds")
+    Page<ProductSummaryDTO> findSummariesByCategoryIdIn(@Param("categoryIds") List<Integer> categoryIds, Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "WHERE p.brand.id = :brandId",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.brand.id = :brandId")
+    Page<ProductSummaryDTO> findSummariesByBrandId(@Param("brandId") Integer brandId, Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "WHERE p.name LIKE %:keyword% OR p.description LIKE %:keyword%",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.name LIKE %:keyword% OR p.description LIKE %:keyword%")
+    Page<ProductSummaryDTO> searchSummaries(@Param("keyword") String keyword, Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "WHERE p.basePrice BETWEEN :minPrice AND :maxPrice",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.basePrice BETWEEN :minPrice AND :maxPrice")
+    Page<ProductSummaryDTO> findSummariesByBasePriceBetween(@Param("minPrice") BigDecimal minPrice,
+                                                            @Param("maxPrice") BigDecimal maxPrice,
+                                                            Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "WHERE p.category.id = :categoryId AND p.brand.id = :brandId",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.category.id = :categoryId AND p.brand.id = :brandId")
+    Page<ProductSummaryDTO> findSummariesByCategoryIdAndBrandId(@Param("categoryId") Integer categoryId,
+                                                                @Param("brandId") Integer brandId,
+                                                                Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE p.status = 'active' ORDER BY p.createdAt DESC")
+    List<ProductSummaryDTO> findNewArrivalSummaries(Pageable pageable);
+
+    // Phân trang keyset: lastId = null nghĩa là trang đầu tiên. Chỉ lấy (id, khóa sắp xếp), dữ liệu trang nạp sau theo id.
+    // So sánh trên cột gốc để MySQL seek trên chỉ mục (khóa, Product_ID) khai báo ở Product.
+    @Query("SELECT p.id, p.id FROM Product p WHERE (:lastId IS NULL OR p.id < :lastId) ORDER BY p.id DESC")
+    List<Object[]> findKeysetByIdDesc(@Param("lastId") Integer lastId, Pageable pageable);
+
+    @Query("SELECT p.id, p.id FROM Product p WHERE (:lastId IS NULL OR p.id > :lastId) ORDER BY p.id ASC")
+    List<Object[]> findKeysetByIdAsc(@Param("lastId") Integer lastId, Pageable pageable);
+
+    @Query("SELECT p.id, p.createdAt FROM Product p WHERE (:lastId IS NULL OR p.createdAt < :lastKey " +
+           "OR (p.createdAt = :lastKey AND p.id < :lastId)) ORDER BY p.createdAt DESC, p.id DESC")
+    List<Object[]> findKeysetByCreatedAtDesc(@Param("lastKey") LocalDateTime lastKey,
+                                             @Param("lastId") Integer lastId, Pageable pageable);
+
+    @Query("SELECT p.id, p.createdAt FROM Product p WHERE (:lastId IS NULL OR p.createdAt > :lastKey " +
+           "OR (p.createdAt = :lastKey AND p.id > :lastId)) ORDER BY p.createdAt ASC, p.id ASC")
+    List<Object[]> findKeysetByCreatedAtAsc(@Param("lastKey") LocalDateTime lastKey,
+                                            @Param("lastId") Integer lastId, Pageable pageable);
+
+    // Dữ liệu cũ có thể thiếu Created_at; điền trước khi phân trang keyset theo cột này
+    @Modifying
+    @Query(value = "UPDATE product SET created_at = COALESCE(updated_at, NOW()) WHERE created_at IS NULL",
+           nativeQuery = true)
+    int backfillMissingCreatedAt();
+
+    @Query("SELECT p.id, p.basePrice FROM Product p WHERE (:lastId IS NULL OR p.basePrice < :lastKey " +
+           "OR (p.basePrice = :lastKey AND p.id < :lastId)) ORDER BY p.basePrice DESC, p.id DESC")
+    List<Object[]> findKeysetByBasePriceDesc(@Param("lastKey") BigDecimal lastKey,
+                                             @Param("lastId") Integer lastId, Pageable pageable);
+
+    @Query("SELECT p.id, p.basePrice FROM Product p WHERE (:lastId IS NULL OR p.basePrice > :lastKey " +
+           "OR (p.basePrice = :lastKey AND p.id > :lastId)) ORDER BY p.basePrice ASC, p.id ASC")
+    List<Object[]> findKeysetByBasePriceAsc(@Param("lastKey") BigDecimal lastKey,
+                                            @Param("lastId") Integer lastId, Pageable pageable);
+
+    @Query("SELECT p.id, p.name FROM Product p WHERE (:lastId IS NULL OR p.name < :lastKey " +
+           "OR (p.name = :lastKey AND p.id < :lastId)) ORDER BY p.name DESC, p.id DESC")
+    List<Object[]> findKeysetByNameDesc(@Param("lastKey") String lastKey,
+                                        @Param("lastId") Integer lastId, Pageable pageable);
+
+    @Query("SELECT p.id, p.name FROM Product p WHERE (:lastId IS NULL OR p.name > :lastKey " +
+           "OR (p.name = :lastKey AND p.id > :lastId)) ORDER BY p.name ASC, p.id ASC")
+    List<Object[]> findKeysetByNameAsc(@Param("lastKey") String lastKey,
+                                       @Param("lastId") Integer lastId, Pageable pageable);
+
+    // Ảnh chính/ảnh thu nhỏ lưu sẵn trên sản phẩm (có thể còn trỏ tới ảnh vừa xóa cho tới lần cập nhật sau)
+    @Query("SELECT CONCAT(COALESCE(p.mainImageUrl, ''), ' ', COALESCE(p.thumbnailUrls, '')) FROM Product p " +
+           "WHERE p.mainImageUrl LIKE CONCAT('%', :fragment, '%') OR p.thumbnailUrls LIKE CONCAT('%', :fragment, '%')")
+    List<String> findImageUrlsContaining(@Param("fragment") String fragment);
+
+    // thumbnailUrls được sinh từ Product_Image nên chỉ cần đối chiếu ảnh chính
+    @Query("SELECT DISTINCT p.mainImageUrl FROM Product p WHERE p.mainImageUrl IN :urls")
+    List<String> findMainImageUrlsIn(@Param("urls") Collection<String> urls);
 }
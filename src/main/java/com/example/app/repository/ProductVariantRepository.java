@@ -37,6 +37,16 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
            "LEFT JOIN FETCH v.images " +
            "WHERE v.product.id = :productId AND v.stockQuantity > 0")
     List<ProductVariant> findAvailableVariantsWithImages(@Param("productId") Integer productId);
+
+    // Size/màu của các biến thể chưa ngừng bán, dùng cho chỉ mục facet
+    @Query("SELECT v.product.id, v.size, v.color FROM ProductVariant v " +
+           "WHERE v.status <> com.example.app.entity.ProductVariant.VariantStatus.inactive")
+    List<Object[]> findFacetRows();
+
+    @Query("SELECT v.product.id, v.size, v.color FROM ProductVariant v " +
+           "WHERE v.product.id = :productId " +
+           "AND v.status <> com.example.app.entity.ProductVariant.VariantStatus.inactive")
+    List<Object[]> findFacetRowsByProductId(@Param("productId") Integer productId);
     
     @Query("SELECT DISTINCT v FROM ProductVariant v " +
            "LEFT JOIN FETCH v.images " +
@@ -50,4 +60,7 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
             @Param("productId") Integer productId, 
             @Param("color") String color, 
             @Param("size") String size);
+
+    @Query("SELECT v.sku FROM ProductVariant v WHERE v.sku IS NOT NULL")
+    List<String> findAllSkus();
 }
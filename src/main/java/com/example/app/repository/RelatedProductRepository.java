@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,9 +16,18 @@ public interface RelatedProductRepository extends JpaRepository<RelatedProduct,
     @Query("SELECT rp FROM RelatedProduct rp WHERE rp.product.id = :productId")
     List<RelatedProduct> findByProductId(@Param("productId") Integer productId);
 
-    @Query("SELECT rp FROM RelatedProduct rp WHERE rp.product.id = :productId AND rp.relationType = :relationType")
-    List<RelatedProduct> findByProductIdAndRelationType(@Param("productId") Integer productId,
-                                                        @Param("relationType") RelatedProduct.RelationType relationType);
+    // Cạnh (productId, relatedProductId, relationType) cho danh sách kề trong bộ nhớ
+    @Query("SELECT rp.id.productId, rp.id.relatedProductId, rp.id.relationType FROM RelatedProduct rp " +
+           "ORDER BY rp.id.productId, rp.id.relationType, rp.id.relatedProductId")
+    List<Object[]> findAllEdges();
+
+    @Query("SELECT rp.id.productId, rp.id.relatedProductId, rp.id.relationType FROM RelatedProduct rp " +
+           "WHERE rp.id.productId IN :productIds " +
+           "ORDER BY rp.id.productId, rp.id.relationType, rp.id.relatedProductId")
+    List<Object[]> findEdgesByProductIdIn(@Param("productIds") Collection<Integer> productIds);
+
+    @Query("SELECT DISTINCT rp.product.id FROM RelatedProduct rp WHERE rp.relatedProduct.id = :relatedProductId")
+    List<Integer> findProductIdsByRelatedProductId(@Param("relatedProductId") Integer relatedProductId);
 
     void deleteByProductId(Integer productId);
 
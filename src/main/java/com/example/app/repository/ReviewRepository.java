@@ -3,10 +3,13 @@ import com.example.app.entity.Review;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -29,4 +32,29 @@ public interface ReviewRepository extends JpaRepository<Review, Integer> {
 
     @Query("SELECT COUNT(r) FROM Review r WHERE r.product.id = :productId")
     Long countByProductId(@Param("productId") Integer productId);
-}
\ No newline at end of file
+
+    @Query(value = "SELECT ranked.review_id FROM (" +
+            "SELECT r.review_id, ROW_NUMBER() OVER (PARTITION BY r.product_id " +
+            "ORDER BY r.created_at DESC, r.review_id DESC) AS rn " +
+            "FROM review r WHERE r.product_id IN (:productIds)) ranked " +
+            "WHERE ranked.rn <= :perProduct", nativeQuery = true)
+    List<Integer> findLatestReviewIdsByProductIds(@Param("productIds") Collection<Integer> productIds,
+                                                  @Param("perProduct") int perProduct);
+
+    @Query("SELECT r FROM Review r JOIN FETCH r.user JOIN FETCH r.product WHERE r.id IN :ids")
+    List<Review> findAllWithUserByIdIn(@Param("ids") Collection<Integer> ids);
+
+    // Phân trang keyset theo (createdAt, id) giảm dần; lastId = null nghĩa là trang đầu tiên
+    @Query("SELECT r FROM Review r WHERE r.product.id = :productId AND (:lastId IS NULL " +
+           "OR r.createdAt < :lastKey OR (r.createdAt = :lastKey AND r.id < :lastId)) " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Review> findKeysetByProductId(@Param("productId") Integer productId,
+                                       @Param("lastKey") LocalDateTime lastKey,
+                                       @Param("lastId") Integer lastId, Pageable pageable);
+
+    // Dữ liệu cũ có thể thiếu Created_at; điền trước khi phân trang keyset theo cột này
+    @Modifying
+    @Query(value = "UPDATE review SET created_at = COALESCE(updated_at, NOW()) WHERE created_at IS NULL",
+           nativeQuery = true)
+    int backfillMissingCreatedAt();
+}
@@ -2,11 +2,20 @@ package com.example.app.repository;
 
 import com.example.app.entity.SlideBanner;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface SlideBannerRepository extends JpaRepository<SlideBanner, Long> {
     List<SlideBanner> findByIsActiveTrueOrderByDisplayOrderAsc();
+
+    @Query("SELECT b.imageUrl FROM SlideBanner b WHERE b.imageUrl LIKE CONCAT('%', :fragment, '%')")
+    List<String> findImageUrlsContaining(@Param("fragment") String fragment);
+
+    @Query("SELECT DISTINCT b.imageUrl FROM SlideBanner b WHERE b.imageUrl IN :urls")
+    List<String> findImageUrlsIn(@Param("urls") Collection<String> urls);
 } 
\ No newline at end of file
@@ -0,0 +1,190 @@
+package com.example.app.search;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Chỉ mục facet trong bộ nhớ: mỗi giá trị của mỗi facet giữ một BitSet đánh dấu theo id tài liệu.
+ * Lọc là phép AND giữa các facet (OR trong cùng facet); đếm là cardinality của phép giao,
+ * không cần GROUP BY theo từng facet.
+ */
+public class BitsetFacetIndex {
+
+    private final Map<String, Map<String, BitSet>> postings = new HashMap<>();
+    private final Map<Integer, Map<String, Set<String>>> documentValues = new HashMap<>();
+    private final BitSet documents = new BitSet();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void put(int docId, Map<String, Set<String>> values) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(docId);
+            for (Map.Entry<String, Set<String>> facet : values.entrySet()) {
+                Map<String, BitSet> facetPostings = postings.computeIfAbsent(facet.getKey(), k -> new HashMap<>());
+                for (String value : facet.getValue()) {
+                    facetPostings.computeIfAbsent(value, k -> new BitSet()).set(docId);
+                }
+            }
+            documentValues.put(docId, values);
+            documents.set(docId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int docId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(docId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documentValues.clear();
+            documents.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentValues.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean hasValue(String facetName, String value) {
+        lock.readLock().lock();
+        try {
+            return postings.getOrDefault(facetName, Map.of()).containsKey(value);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param selected   giá trị được chọn theo từng facet; facet không có mặt (hoặc rỗng) không bị lọc
+     * @param restrict   tập tài liệu giới hạn thêm (ví dụ khoảng giá tùy ý), null nếu không dùng
+     * @param facetNames các facet cần đếm
+     */
+    public Result query(Map<String, Set<String>> selected, BitSet restrict, Collection<String> facetNames) {
+        lock.readLock().lock();
+        try {
+            BitSet base = (BitSet) documents.clone();
+            if (restrict != null) {
+                base.and(restrict);
+            }
+
+            Map<String, BitSet> filters = new HashMap<>();
+            for (Map.Entry<String, Set<String>> entry : selected.entrySet()) {
+                if (entry.getValue() == null || entry.getValue().isEmpty()) {
+                    continue;
+                }
+                BitSet filter = new BitSet();
+                Map<String, BitSet> facetPostings = postings.getOrDefault(entry.getKey(), Map.of());
+                for (String value : entry.getValue()) {
+                    BitSet posting = facetPostings.get(value);
+                    if (posting != null) {
+                        filter.or(posting);
+                    }
+                }
+                filters.put(entry.getKey(), filter);
+            }
+
+            BitSet matches = (BitSet) base.clone();
+            for (BitSet filter : filters.values()) {
+                matches.and(filter);
+            }
+
+            Map<String, Map<String, Integer>> counts = new HashMap<>();
+            BitSet scratch = new BitSet();
+            for (String facetName : facetNames) {
+                // Đếm với mọi điều kiện trừ điều kiện của chính facet này
+                BitSet scope = matches;
+                if (filters.containsKey(facetName)) {
+                    scope = (BitSet) base.clone();
+                    for (Map.Entry<String, BitSet> filter : filters.entrySet()) {
+                        if (!filter.getKey().equals(facetName)) {
+                            scope.and(filter.getValue());
+                        }
+                    }
+                }
+
+                Map<String, Integer> facetCounts = new HashMap<>();
+                for (Map.Entry<String, BitSet> posting : postings.getOrDefault(facetName, Map.of()).entrySet()) {
+                    scratch.clear();
+                    scratch.or(posting.getValue());
+                    scratch.and(scope);
+                    int count = scratch.cardinality();
+                    if (count > 0) {
+                        facetCounts.put(posting.getKey(), count);
+                    }
+                }
+                counts.put(facetName, facetCounts);
+            }
+
+            return new Result(matches, counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeInternal(int docId) {
+        Map<String, Set<String>> previous = documentValues.remove(docId);
+        if (previous == null) {
+            return;
+        }
+        for (Map.Entry<String, Set<String>> facet : previous.entrySet()) {
+            Map<String, BitSet> facetPostings = postings.get(facet.getKey());
+            if (facetPostings == null) {
+                continue;
+            }
+            for (String value : facet.getValue()) {
+                BitSet posting = facetPostings.get(value);
+                if (posting != null) {
+                    posting.clear(docId);
+                    if (posting.isEmpty()) {
+                        facetPostings.remove(value);
+                    }
+                }
+            }
+        }
+        documents.clear(docId);
+    }
+
+    public static class Result {
+        private final BitSet matches;
+        private final Map<String, Map<String, Integer>> counts;
+
+        Result(BitSet matches, Map<String, Map<String, Integer>> counts) {
+            this.matches = matches;
+            this.counts = counts;
+        }
+
+        public BitSet getMatches() {
+            return matches;
+        }
+
+        public int getTotal() {
+            return matches.cardinality();
+        }
+
+        public Map<String, Integer> getCounts(String facetName) {
+            return counts.getOrDefault(facetName, Map.of());
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.app.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Chỉ mục ngược trong bộ nhớ với xếp hạng BM25. Mỗi tài liệu là danh sách token
+ * (đã chuẩn hóa); trọng số trường được thể hiện bằng cách lặp token khi thêm.
+ * Từ điển term được sắp xếp nên mỗi từ truy vấn còn khớp các term bắt đầu bằng nó
+ * ("ao" khớp "aokhoac"), với điểm thấp hơn khớp nguyên từ.
+ * An toàn cho nhiều luồng đọc đồng thời, ghi được khóa độc quyền.
+ */
+public class Bm25Index {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Khớp tiền tố được tính bằng một nửa điểm khớp nguyên từ; từ truy vấn ngắn hơn thì chỉ khớp nguyên từ
+    private static final double PREFIX_WEIGHT = 0.5;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+
+    private final NavigableMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+    private final Map<Integer, Map<String, Integer>> documentTerms = new HashMap<>();
+    private final Map<Integer, Integer> documentLengths = new HashMap<>();
+    private long totalLength;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void put(Integer docId, List<String> tokens) {
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        for (String token : tokens) {
+            termFrequencies.merge(token, 1, Integer::sum);
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(docId);
+            for (Map.Entry<String, Integer> entry : termFrequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).put(docId, entry.getValue());
+            }
+            documentTerms.put(docId, termFrequencies);
+            documentLengths.put(docId, tokens.size());
+            totalLength += tokens.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer docId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(docId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documentTerms.clear();
+            documentLengths.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentLengths.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Trả về id tài liệu chứa tất cả các từ của truy vấn, sắp xếp theo điểm BM25 giảm dần.
+     */
+    public List<Integer> search(List<String> queryTokens) {
+        if (queryTokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documentLengths.size();
+            if (documentCount == 0) {
+                return new ArrayList<>();
+            }
+            double averageLength = (double) totalLength / documentCount;
+
+            // Mỗi từ truy vấn mở rộng thành các term khớp (nguyên từ + tiền tố); bắt đầu từ nhóm ít tài liệu nhất
+            List<Map<String, Map<Integer, Integer>>> termGroups = new ArrayList<>();
+            List<String> groupTokens = new ArrayList<>();
+            Map<String, Map<Integer, Integer>> smallest = null;
+            int smallestSize = Integer.MAX_VALUE;
+            for (String token : queryTokens) {
+                Map<String, Map<Integer, Integer>> group = expand(token);
+                if (group.isEmpty()) {
+                    return new ArrayList<>();
+                }
+                termGroups.add(group);
+                groupTokens.add(token);
+                int groupSize = group.values().stream().mapToInt(Map::size).sum();
+                if (groupSize < smallestSize) {
+                    smallest = group;
+                    smallestSize = groupSize;
+                }
+            }
+
+            Set<Integer> candidates = new HashSet<>();
+            smallest.values().forEach(posting -> candidates.addAll(posting.keySet()));
+
+            Map<Integer, Double> scores = new HashMap<>();
+            for (Integer docId : candidates) {
+                double score = 0;
+                boolean matchesAll = true;
+                double lengthNorm = 1 - B + B * documentLengths.get(docId) / averageLength;
+                for (int i = 0; i < termGroups.size() && matchesAll; i++) {
+                    double best = -1;
+                    for (Map.Entry<String, Map<Integer, Integer>> term : termGroups.get(i).entrySet()) {
+                        Map<Integer, Integer> posting = term.getValue();
+                        Integer tf = posting.get(docId);
+                        if (tf == null) {
+                            continue;
+                        }
+                        double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+                        double termScore = idf * (tf * (K1 + 1)) / (tf + K1 * lengthNorm);
+                        if (!term.getKey().equals(groupTokens.get(i))) {
+                            termScore *= PREFIX_WEIGHT;
+                        }
+                        best = Math.max(best, termScore);
+                    }
+                    if (best < 0) {
+                        matchesAll = false;
+                    } else {
+                        score += best;
+                    }
+                }
+                if (matchesAll) {
+                    scores.put(docId, score);
+                }
+            }
+
+            List<Integer> ranked = new ArrayList<>(scores.keySet());
+            ranked.sort((a, b) -> {
+                int byScore = Double.compare(scores.get(b), scores.get(a));
+                return byScore != 0 ? byScore : Integer.compare(b, a);
+            });
+            return ranked;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Gọi khi đang giữ khóa đọc
+    private Map<String, Map<Integer, Integer>> expand(String token) {
+        Map<String, Map<Integer, Integer>> group = new LinkedHashMap<>();
+        Map<Integer, Integer> exact = postings.get(token);
+        if (exact != null) {
+            group.put(token, exact);
+        }
+        if (token.length() < MIN_PREFIX_LENGTH) {
+            return group;
+        }
+        for (Map.Entry<String, Map<Integer, Integer>> entry
+                : postings.subMap(token, false, token + Character.MAX_VALUE, false).entrySet()) {
+            if (group.size() > MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            group.put(entry.getKey(), entry.getValue());
+        }
+        return group;
+    }
+
+    private void removeInternal(Integer docId) {
+        Map<String, Integer> terms = documentTerms.remove(docId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms.keySet()) {
+            Map<Integer, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(docId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        Integer length = documentLengths.remove(docId);
+        if (length != null) {
+            totalLength -= length;
+        }
+    }
+}
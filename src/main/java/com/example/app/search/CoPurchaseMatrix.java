@@ -0,0 +1,241 @@
+package com.example.app.search;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ma trận đồng mua thưa giữa các sản phẩm, cập nhật tăng dần theo từng giỏ hàng (đơn đã giao).
+ * Mỗi sản phẩm được gán một chỉ số liên tục; số đơn chứa sản phẩm nằm trong mảng int, còn mỗi
+ * hàng của ma trận là một bảng băm địa chỉ mở dùng mảng int (khóa, giá trị) thay vì Map đóng gói.
+ * Độ tương đồng là cosine trên số đơn: co(i, j) / sqrt(n(i) * n(j)).
+ * Không an toàn luồng, nơi gọi tự đồng bộ.
+ */
+public class CoPurchaseMatrix {
+
+    private final Map<Integer, Integer> indexByProduct = new HashMap<>();
+    private int[] productIds = new int[64];
+    private int[] orderCounts = new int[64];
+    private IntCounter[] rows = new IntCounter[64];
+    private int size = 0;
+
+    /**
+     * Cộng (sign = 1) hoặc trừ (sign = -1) một giỏ hàng. Id trùng trong giỏ chỉ được tính một lần.
+     */
+    public void addBasket(int[] basket, int sign) {
+        int[] distinct = Arrays.stream(basket).distinct().toArray();
+        int[] indexes = new int[distinct.length];
+        for (int i = 0; i < distinct.length; i++) {
+            indexes[i] = indexOf(distinct[i]);
+            orderCounts[indexes[i]] = Math.max(0, orderCounts[indexes[i]] + sign);
+        }
+        for (int i = 0; i < indexes.length; i++) {
+            for (int j = i + 1; j < indexes.length; j++) {
+                rows[indexes[i]].add(indexes[j], sign);
+                rows[indexes[j]].add(indexes[i], sign);
+            }
+        }
+    }
+
+    public void remove(int productId) {
+        Integer index = indexByProduct.get(productId);
+        if (index == null) {
+            return;
+        }
+        IntCounter row = rows[index];
+        for (int slot = 0; slot < row.keys.length; slot++) {
+            if (row.values[slot] > 0) {
+                rows[row.keys[slot]].add(index, -row.values[slot]);
+            }
+        }
+        rows[index] = new IntCounter();
+        orderCounts[index] = 0;
+    }
+
+    /**
+     * Id các sản phẩm từng được mua cùng (số đơn chung > 0).
+     */
+    public int[] partners(int productId) {
+        Integer index = indexByProduct.get(productId);
+        if (index == null) {
+            return new int[0];
+        }
+        IntCounter row = rows[index];
+        int[] result = new int[row.count];
+        int n = 0;
+        for (int slot = 0; slot < row.keys.length; slot++) {
+            if (row.values[slot] > 0) {
+                result[n++] = productIds[row.keys[slot]];
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    /**
+     * k sản phẩm tương đồng nhất, sắp theo điểm giảm dần (hòa thì id nhỏ trước).
+     */
+    public Neighbors topK(int productId, int k) {
+        Integer index = indexByProduct.get(productId);
+        if (index == null || k <= 0 || orderCounts[index] == 0) {
+            return Neighbors.EMPTY;
+        }
+
+        IntCounter row = rows[index];
+        int[] candidates = new int[row.count];
+        float[] scores = new float[row.count];
+        int n = 0;
+        for (int slot = 0; slot < row.keys.length; slot++) {
+            int co = row.values[slot];
+            int other = row.keys[slot];
+            if (co > 0 && orderCounts[other] > 0) {
+                candidates[n] = other;
+                scores[n] = (float) (co / Math.sqrt((double) orderCounts[index] * orderCounts[other]));
+                n++;
+            }
+        }
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byScore = Float.compare(scores[b], scores[a]);
+            return byScore != 0 ? byScore : Integer.compare(productIds[candidates[a]], productIds[candidates[b]]);
+        });
+
+        int limit = Math.min(k, n);
+        int[] ids = new int[limit];
+        float[] topScores = new float[limit];
+        for (int i = 0; i < limit; i++) {
+            ids[i] = productIds[candidates[order[i]]];
+            topScores[i] = scores[order[i]];
+        }
+        return new Neighbors(ids, topScores);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long pairCount() {
+        long pairs = 0;
+        for (int i = 0; i < size; i++) {
+            pairs += rows[i].count;
+        }
+        return pairs / 2;
+    }
+
+    private int indexOf(int productId) {
+        Integer index = indexByProduct.get(productId);
+        if (index != null) {
+            return index;
+        }
+        if (size == productIds.length) {
+            int capacity = size * 2;
+            productIds = Arrays.copyOf(productIds, capacity);
+            orderCounts = Arrays.copyOf(orderCounts, capacity);
+            rows = Arrays.copyOf(rows, capacity);
+        }
+        productIds[size] = productId;
+        rows[size] = new IntCounter();
+        indexByProduct.put(productId, size);
+        return size++;
+    }
+
+    /**
+     * Danh sách hàng xóm bất biến: id sản phẩm và điểm tương ứng.
+     */
+    public static final class Neighbors {
+
+        public static final Neighbors EMPTY = new Neighbors(new int[0], new float[0]);
+
+        private final int[] ids;
+        private final float[] scores;
+
+        Neighbors(int[] ids, float[] scores) {
+            this.ids = ids;
+            this.scores = scores;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        public int id(int i) {
+            return ids[i];
+        }
+
+        public float score(int i) {
+            return scores[i];
+        }
+    }
+
+    /**
+     * Bảng băm địa chỉ mở int -> int (dò tuyến tính). Giá trị về 0 được giữ nguyên ô để
+     * không phải dịch chuyển khi xóa; count chỉ đếm các ô có giá trị dương.
+     */
+    private static final class IntCounter {
+
+        private static final int EMPTY_KEY = -1;
+
+        private int[] keys;
+        private int[] values;
+        private int used = 0;
+        private int count = 0;
+
+        IntCounter() {
+            keys = new int[8];
+            values = new int[8];
+            Arrays.fill(keys, EMPTY_KEY);
+        }
+
+        void add(int key, int delta) {
+            if ((used + 1) * 4 > keys.length * 3) {
+                rehash(count * 2 + 2 > keys.length ? keys.length * 2 : keys.length);
+            }
+            int slot = find(keys, key);
+            if (keys[slot] == EMPTY_KEY) {
+                if (delta <= 0) {
+                    return;
+                }
+                keys[slot] = key;
+                used++;
+            }
+            int before = values[slot];
+            int after = Math.max(0, before + delta);
+            values[slot] = after;
+            if (before == 0 && after > 0) {
+                count++;
+            } else if (before > 0 && after == 0) {
+                count--;
+            }
+        }
+
+        private void rehash(int capacity) {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[capacity];
+            values = new int[capacity];
+            Arrays.fill(keys, EMPTY_KEY);
+            used = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                // Bỏ các ô đã về 0 khi giãn bảng
+                if (oldKeys[i] != EMPTY_KEY && oldValues[i] > 0) {
+                    int slot = find(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                    used++;
+                }
+            }
+        }
+
+        private static int find(int[] keys, int key) {
+            int mask = keys.length - 1;
+            int slot = (key * 0x9E3779B9) >>> 1 & mask;
+            while (keys[slot] != EMPTY_KEY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
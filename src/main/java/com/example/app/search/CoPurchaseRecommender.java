@@ -0,0 +1,222 @@
+package com.example.app.search;
+
+import com.example.app.entity.Order;
+import com.example.app.event.OrderStatusChangedEvent;
+import com.example.app.event.ProductChangedEvent;
+import com.example.app.repository.OrderItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Gợi ý "thường được mua cùng" từ lịch sử đơn đã giao. Ma trận đồng mua được dựng đầy đủ khi khởi động,
+ * sau đó job định kỳ chỉ xử lý các đơn vừa chuyển sang (hoặc rời khỏi) trạng thái delivered và tính lại
+ * top-K cho các sản phẩm bị ảnh hưởng. Danh sách top-K được đọc thẳng từ bộ nhớ, không truy vấn.
+ * Sự kiện đổi trạng thái luôn được xếp hàng, kể cả khi đang dựng lại; mỗi đơn chỉ được cộng/trừ khi
+ * trạng thái "đã tính trong ma trận" của nó thực sự đổi, nên sự kiện trùng với dữ liệu dựng lại bị bỏ qua.
+ */
+@Component
+public class CoPurchaseRecommender {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoPurchaseRecommender.class);
+
+    private final OrderItemRepository orderItemRepository;
+    private final int topK;
+    private final int maxBasketSize;
+
+    private CoPurchaseMatrix matrix = new CoPurchaseMatrix();
+    // Đơn đang được tính trong ma trận, đánh dấu theo id đơn
+    private BitSet countedOrders = new BitSet();
+    private final Map<Integer, CoPurchaseMatrix.Neighbors> neighbors = new ConcurrentHashMap<>();
+    // Đơn chờ xử lý: {orderId, +1 khi vào delivered / -1 khi rời delivered}
+    private final ConcurrentLinkedQueue<int[]> pendingOrders = new ConcurrentLinkedQueue<>();
+    private volatile boolean ready = false;
+    private volatile LocalDateTime lastBatchAt;
+    private long processedOrders = 0;
+
+    @Autowired
+    public CoPurchaseRecommender(OrderItemRepository orderItemRepository,
+                                 @Value("${app.recommend.top-k:20}") int topK,
+                                 @Value("${app.recommend.max-basket-size:50}") int maxBasketSize) {
+        this.orderItemRepository = orderItemRepository;
+        this.topK = topK;
+        this.maxBasketSize = maxBasketSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        try {
+            long start = System.currentTimeMillis();
+            // Không xóa hàng đợi: sự kiện commit trước khi đọc dữ liệu sẽ bị bỏ qua nhờ countedOrders,
+            // sự kiện commit sau đó vẫn được áp dụng ở lượt xử lý kế tiếp
+            matrix = new CoPurchaseMatrix();
+            countedOrders = new BitSet();
+            Map<Integer, List<Integer>> baskets = groupByOrder(orderItemRepository.findDeliveredOrderProductPairs());
+            for (Map.Entry<Integer, List<Integer>> basket : baskets.entrySet()) {
+                addBasket(basket.getValue(), 1);
+                countedOrders.set(basket.getKey());
+            }
+            processedOrders = baskets.size();
+
+            neighbors.clear();
+            for (Integer productId : baskets.values().stream().flatMap(List::stream).distinct().toList()) {
+                refreshNeighbors(productId);
+            }
+            ready = true;
+            logger.info("Built co-purchase matrix ({} orders, {} products, {} pairs) in {} ms",
+                    baskets.size(), matrix.size(), matrix.pairCount(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // Ma trận có thể đã dựng dở: job định kỳ sẽ dựng lại thay vì áp dụng đơn lên đó
+            ready = false;
+            logger.error("Error building co-purchase matrix: {}", e.getMessage());
+        }
+    }
+
+    public List<Integer> getNeighbors(Integer productId, int limit) {
+        CoPurchaseMatrix.Neighbors top = neighbors.getOrDefault(productId, CoPurchaseMatrix.Neighbors.EMPTY);
+        int size = Math.min(Math.max(limit, 0), top.size());
+        List<Integer> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.add(top.id(i));
+        }
+        return ids;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        boolean wasDelivered = event.getPreviousStatus() == Order.OrderStatus.delivered;
+        boolean isDelivered = event.getNewStatus() == Order.OrderStatus.delivered;
+        if (wasDelivered != isDelivered) {
+            pendingOrders.add(new int[]{event.getOrderId(), isDelivered ? 1 : -1});
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() != ProductChangedEvent.ChangeType.DELETED) {
+            return;
+        }
+        synchronized (this) {
+            Integer productId = event.getProductId();
+            int[] partners = matrix.partners(productId);
+            matrix.remove(productId);
+            neighbors.remove(productId);
+            for (int partner : partners) {
+                refreshNeighbors(partner);
+            }
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.recommend.batch-interval-ms:300000}",
+            fixedDelayString = "${app.recommend.batch-interval-ms:300000}")
+    public synchronized void processPendingOrders() {
+        if (!ready) {
+            // Lần dựng khi khởi động thất bại: thử lại, sự kiện vẫn nằm trong hàng đợi
+            rebuild();
+            return;
+        }
+        if (pendingOrders.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, Integer> signs = new HashMap<>();
+        int[] pending;
+        while ((pending = pendingOrders.poll()) != null) {
+            // Đơn vào rồi rời delivered trong cùng một lượt sẽ triệt tiêu nhau
+            signs.merge(pending[0], pending[1], Integer::sum);
+        }
+        // Bỏ đơn mà ma trận đã ở đúng trạng thái, ví dụ đơn đã có trong dữ liệu của lần dựng lại
+        signs.entrySet().removeIf(entry -> entry.getValue() == 0
+                || (entry.getValue() > 0) == countedOrders.get(entry.getKey()));
+        if (signs.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, List<Integer>> baskets;
+        try {
+            baskets = groupByOrder(orderItemRepository.findOrderProductPairs(signs.keySet()));
+        } catch (Exception e) {
+            // Trả đơn về hàng đợi để lượt sau thử lại thay vì bỏ mất
+            signs.forEach((orderId, sign) -> pendingOrders.add(new int[]{orderId, Integer.signum(sign)}));
+            logger.error("Error applying orders to co-purchase matrix: {}", e.getMessage());
+            return;
+        }
+
+        Set<Integer> touched = new HashSet<>();
+        for (Map.Entry<Integer, List<Integer>> basket : baskets.entrySet()) {
+            addBasket(basket.getValue(), Integer.signum(signs.get(basket.getKey())));
+            touched.addAll(basket.getValue());
+        }
+        for (Map.Entry<Integer, Integer> sign : signs.entrySet()) {
+            countedOrders.set(sign.getKey(), sign.getValue() > 0);
+        }
+
+        // Số đơn của sản phẩm trong giỏ thay đổi nên điểm của các sản phẩm từng mua cùng cũng đổi
+        Set<Integer> affected = new HashSet<>(touched);
+        for (Integer productId : touched) {
+            for (int partner : matrix.partners(productId)) {
+                affected.add(partner);
+            }
+        }
+        affected.forEach(this::refreshNeighbors);
+
+        processedOrders += baskets.size();
+        lastBatchAt = LocalDateTime.now();
+        logger.debug("Applied {} orders to co-purchase matrix, refreshed {} products", baskets.size(), affected.size());
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("products", matrix.size());
+        stats.put("pairs", matrix.pairCount());
+        stats.put("processedOrders", processedOrders);
+        stats.put("pendingOrders", pendingOrders.size());
+        stats.put("lastBatchAt", lastBatchAt);
+        return stats;
+    }
+
+    private void addBasket(List<Integer> basket, int sign) {
+        // Đơn quá lớn (mua sỉ) tạo rất nhiều cặp nhưng ít ý nghĩa gợi ý
+        if (basket.isEmpty() || basket.size() > maxBasketSize) {
+            return;
+        }
+        matrix.addBasket(basket.stream().mapToInt(Integer::intValue).toArray(), sign);
+    }
+
+    private void refreshNeighbors(Integer productId) {
+        CoPurchaseMatrix.Neighbors top = matrix.topK(productId, topK);
+        if (top.size() == 0) {
+            neighbors.remove(productId);
+        } else {
+            neighbors.put(productId, top);
+        }
+    }
+
+    private Map<Integer, List<Integer>> groupByOrder(List<Object[]> rows) {
+        Map<Integer, List<Integer>> baskets = new HashMap<>();
+        for (Object[] row : rows) {
+            baskets.computeIfAbsent((Integer) row[0], id -> new ArrayList<>()).add((Integer) row[1]);
+        }
+        return baskets;
+    }
+}
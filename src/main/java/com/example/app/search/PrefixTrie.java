@@ -0,0 +1,161 @@
+package com.example.app.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cây tiền tố trong bộ nhớ cho gợi ý tìm kiếm. Mỗi mục có một điểm (độ phổ biến) và một
+ * hoặc nhiều khóa đã chuẩn hóa. Mỗi nút lưu tạm danh sách top-K mục trong nhánh của nó;
+ * danh sách này bị xóa dọc theo đường đi mỗi khi thêm/sửa/xóa một mục, và được tính lại khi tra cứu.
+ * Nút không còn mục và không còn con bị gỡ khỏi cây khi xóa, nên cây không phình theo số lần đổi tên.
+ */
+public class PrefixTrie {
+
+    private static final int CACHED_TOP = 20;
+
+    private final Node root = new Node();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final Comparator<Integer> ranking = Comparator
+            .comparingLong((Integer id) -> entries.get(id).score).reversed()
+            .thenComparing(Comparator.naturalOrder());
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void put(Integer id, List<String> keys, long score) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            for (String key : keys) {
+                Node node = root;
+                node.top = null;
+                for (int i = 0; i < key.length(); i++) {
+                    node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+                    node.top = null;
+                }
+                node.ids.add(id);
+            }
+            entries.put(id, new Entry(keys, score));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Id các mục có khóa bắt đầu bằng prefix, xếp theo điểm giảm dần.
+     */
+    public List<Integer> search(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.children.get(prefix.charAt(i));
+            }
+            if (node == null) {
+                return Collections.emptyList();
+            }
+
+            if (limit > CACHED_TOP) {
+                return collectTop(node, limit);
+            }
+            List<Integer> top = node.top;
+            if (top == null) {
+                // Ghi cache dưới read lock là an toàn: mọi luồng đọc tính ra cùng một kết quả
+                top = collectTop(node, CACHED_TOP);
+                node.top = top;
+            }
+            return top.size() > limit ? new ArrayList<>(top.subList(0, limit)) : new ArrayList<>(top);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Integer> collectTop(Node start, int limit) {
+        Set<Integer> found = new HashSet<>();
+        List<Node> stack = new ArrayList<>();
+        stack.add(start);
+        while (!stack.isEmpty()) {
+            Node node = stack.remove(stack.size() - 1);
+            found.addAll(node.ids);
+            stack.addAll(node.children.values());
+        }
+
+        List<Integer> ranked = new ArrayList<>(found);
+        ranked.sort(ranking);
+        return ranked.size() > limit ? new ArrayList<>(ranked.subList(0, limit)) : ranked;
+    }
+
+    private void removeInternal(Integer id) {
+        Entry previous = entries.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String key : previous.keys) {
+            List<Node> path = new ArrayList<>(key.length() + 1);
+            Node node = root;
+            node.top = null;
+            path.add(node);
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.children.get(key.charAt(i));
+                if (node != null) {
+                    node.top = null;
+                    path.add(node);
+                }
+            }
+            if (node == null) {
+                continue;
+            }
+            node.ids.remove(id);
+
+            // Gỡ các nút rỗng từ cuối đường đi lên, dừng ở nút còn mục hoặc còn nhánh khác
+            for (int depth = path.size() - 1; depth > 0; depth--) {
+                Node child = path.get(depth);
+                if (!child.ids.isEmpty() || !child.children.isEmpty()) {
+                    break;
+                }
+                path.get(depth - 1).children.remove(key.charAt(depth - 1));
+            }
+        }
+    }
+
+    private static class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private final Set<Integer> ids = new HashSet<>();
+        private volatile List<Integer> top;
+    }
+
+    private static class Entry {
+        private final List<String> keys;
+        private final long score;
+
+        Entry(List<String> keys, long score) {
+            this.keys = keys;
+            this.score = score;
+        }
+    }
+}
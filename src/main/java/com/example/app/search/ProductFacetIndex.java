@@ -0,0 +1,427 @@
+package com.example.app.search;
+
+import com.example.app.dto.ProductFilterRequest;
+import com.example.app.event.ProductChangedEvent;
+import com.example.app.event.ProductsImportedEvent;
+import com.example.app.repository.ProductRepository;
+import com.example.app.repository.ProductVariantRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chỉ mục facet cho /api/products/filter: danh mục, thương hiệu, khoảng giá (theo giá gốc)
+ * và size/màu của các biến thể chưa ngừng bán. Size và màu được so khớp không phân biệt
+ * hoa thường và dấu ("Đỏ" = "do").
+ * Chỉ mục được dựng trên luồng riêng vào một bản mới rồi mới thay bản đang phục vụ; khi chưa dựng xong lần đầu
+ * {@link #isReady()} trả về false để ProductServiceImpl lọc thẳng trong DB thay vì chờ.
+ */
+@Component
+public class ProductFacetIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductFacetIndex.class);
+
+    public static final String CATEGORY = "category";
+    public static final String BRAND = "brand";
+    public static final String SIZE = "size";
+    public static final String COLOR = "color";
+    public static final String PRICE = "price";
+    public static final List<String> FACETS = List.of(CATEGORY, BRAND, SIZE, COLOR, PRICE);
+
+    private final ProductRepository productRepository;
+    private final ProductVariantRepository variantRepository;
+    private final BigDecimal[] priceBoundaries;
+
+    // Khóa sắp xếp giữ trong chỉ mục để phân trang ngay trên BitSet kết quả
+    public static final Set<String> SORTABLE = Set.of("id", "basePrice", "name", "createdAt");
+    private static final LocalDateTime MISSING_CREATED_AT = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private record SortKeys(BigDecimal basePrice, String name, LocalDateTime createdAt) {
+    }
+
+    private final ThreadPoolExecutor rebuildExecutor;
+
+    // Ba trường dưới đây luôn được thay cùng nhau trong synchronized(this)
+    private volatile BitsetFacetIndex index = new BitsetFacetIndex();
+    private volatile Map<Integer, SortKeys> sortKeys = new ConcurrentHashMap<>();
+    private volatile Map<String, String> valueLabels = new ConcurrentHashMap<>();
+    // Sản phẩm thay đổi trong lúc đang dựng lại: đánh chỉ mục lại vào bản mới sau khi thay
+    private final Set<Integer> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private boolean rebuilding = false;
+    private volatile boolean ready = false;
+
+    @Autowired
+    public ProductFacetIndex(ProductRepository productRepository,
+                             ProductVariantRepository variantRepository,
+                             @Value("${app.facet.price-buckets:200000,500000,1000000,2000000}") String priceBuckets) {
+        this.productRepository = productRepository;
+        this.variantRepository = variantRepository;
+        this.priceBoundaries = parseBoundaries(priceBuckets);
+        // Một luồng, tối đa một lượt chờ: lượt đang chờ sẽ đọc dữ liệu mới nhất nên bỏ qua yêu cầu thêm
+        this.rebuildExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "facet-index");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+        this.rebuildExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void requestRebuild() {
+        try {
+            rebuildExecutor.execute(this::rebuild);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Product facet index rebuild rejected: {}", e.getMessage());
+        }
+    }
+
+    // Nhập hàng loạt thêm nhiều sản phẩm cùng lúc: dựng lại một lần thay vì cập nhật từng sản phẩm
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        requestRebuild();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        switch (event.getType()) {
+            case CREATED:
+            case UPDATED:
+            case VARIANT:
+                reindex(event.getProductId());
+                break;
+            case DELETED:
+                remove(event.getProductId());
+                break;
+            default:
+                break;
+        }
+    }
+
+    public void reindex(Integer productId) {
+        try {
+            List<Object[]> productRows = productRepository.findFacetRowsById(productId);
+            List<Object[]> variantRows = productRows.isEmpty()
+                    ? List.of() : variantRepository.findFacetRowsByProductId(productId);
+            synchronized (this) {
+                if (rebuilding) {
+                    changedDuringRebuild.add(productId);
+                }
+                if (productRows.isEmpty()) {
+                    removeDocument(productId);
+                } else {
+                    put(index, sortKeys, valueLabels, productRows.get(0), variantRows);
+                }
+                pruneLabels();
+            }
+        } catch (Exception e) {
+            logger.error("Error indexing facets of product {}: {}", productId, e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Lọc theo điều kiện (categoryIds đã bao gồm danh mục con) và đếm số sản phẩm theo từng facet.
+     * Chỉ gọi khi {@link #isReady()}.
+     */
+    public BitsetFacetIndex.Result query(ProductFilterRequest filter) {
+        Map<String, Set<String>> selected = new HashMap<>();
+        selected.put(CATEGORY, toKeys(filter.getCategoryIds()));
+        selected.put(BRAND, toKeys(filter.getBrandIds()));
+        selected.put(SIZE, foldKeys(filter.getSizes()));
+        selected.put(COLOR, foldKeys(filter.getColors()));
+        selected.put(PRICE, filter.getPriceRanges() != null ? new HashSet<>(filter.getPriceRanges()) : Set.of());
+
+        return index.query(selected, priceRange(filter.getMinPrice(), filter.getMaxPrice()), FACETS);
+    }
+
+    public static boolean isSortable(String sortBy) {
+        return SORTABLE.contains(sortBy);
+    }
+
+    /**
+     * Một trang id trong tập kết quả, sắp theo sortBy (một trong {@link #SORTABLE}) rồi theo id.
+     * Sắp theo id chỉ duyệt BitSet; các khóa khác sắp trong bộ nhớ, không truy vấn DB.
+     */
+    public List<Integer> page(BitSet matches, String sortBy, boolean desc, int offset, int limit) {
+        List<Integer> page = new ArrayList<>();
+        if (limit <= 0) {
+            return page;
+        }
+
+        if ("id".equals(sortBy)) {
+            int skipped = 0;
+            for (int id = desc ? matches.previousSetBit(matches.length() - 1) : matches.nextSetBit(0);
+                 id >= 0 && page.size() < limit;
+                 id = desc ? matches.previousSetBit(id - 1) : matches.nextSetBit(id + 1)) {
+                if (skipped++ >= offset) {
+                    page.add(id);
+                }
+            }
+            return page;
+        }
+
+        Map<Integer, SortKeys> keys = sortKeys;
+        Comparator<Integer> byKey = switch (sortBy) {
+            case "basePrice" -> Comparator.comparing((Integer id) -> keysOf(keys, id).basePrice());
+            case "name" -> Comparator.comparing((Integer id) -> keysOf(keys, id).name());
+            case "createdAt" -> Comparator.comparing((Integer id) -> keysOf(keys, id).createdAt());
+            default -> throw new IllegalArgumentException("Unsupported facet sort: " + sortBy);
+        };
+        Comparator<Integer> order = byKey.thenComparing(Comparator.naturalOrder());
+        if (desc) {
+            order = order.reversed();
+        }
+
+        List<Integer> ids = matches.stream().boxed().sorted(order).toList();
+        int from = Math.min(offset, ids.size());
+        int to = Math.min(from + limit, ids.size());
+        page.addAll(ids.subList(from, to));
+        return page;
+    }
+
+    /**
+     * Khoảng giá bao các khoảng được chọn: [min, max) hoặc null ở đầu không giới hạn.
+     * Dùng khi lọc trong DB; chọn các khoảng không liền nhau sẽ lấy cả phần ở giữa.
+     */
+    public BigDecimal[] priceBucketBounds(Collection<String> ranges) {
+        if (ranges == null || ranges.isEmpty()) {
+            return new BigDecimal[]{null, null};
+        }
+        int lowest = Integer.MAX_VALUE;
+        int highest = -1;
+        for (String range : ranges) {
+            for (int bucket = 0; bucket <= priceBoundaries.length; bucket++) {
+                if (bucketKey(bucket).equals(range)) {
+                    lowest = Math.min(lowest, bucket);
+                    highest = Math.max(highest, bucket);
+                }
+            }
+        }
+        if (highest < 0) {
+            // Không khoảng nào hợp lệ: không sản phẩm nào khớp, giống chỉ mục
+            return new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO};
+        }
+        return new BigDecimal[]{
+                lowest == 0 ? null : priceBoundaries[lowest - 1],
+                highest == priceBoundaries.length ? null : priceBoundaries[highest]
+        };
+    }
+
+    /**
+     * Khóa các khoảng giá theo thứ tự tăng dần, ví dụ "0-200000", "200000-500000", "2000000-".
+     */
+    public List<String> getPriceBuckets() {
+        List<String> buckets = new ArrayList<>();
+        for (int i = 0; i <= priceBoundaries.length; i++) {
+            buckets.add(bucketKey(i));
+        }
+        return buckets;
+    }
+
+    public String getLabel(String value) {
+        return valueLabels.getOrDefault(value, value);
+    }
+
+    public static String foldValue(String value) {
+        return value == null ? "" : VietnameseTextNormalizer.fold(value.trim());
+    }
+
+    private void rebuild() {
+        try {
+            long start = System.currentTimeMillis();
+            synchronized (this) {
+                rebuilding = true;
+                changedDuringRebuild.clear();
+            }
+
+            // Dựng vào bản mới, bản cũ vẫn phục vụ cho tới khi thay
+            Map<Integer, List<Object[]>> variantRows = new HashMap<>();
+            for (Object[] row : variantRepository.findFacetRows()) {
+                variantRows.computeIfAbsent((Integer) row[0], k -> new ArrayList<>()).add(row);
+            }
+            List<Object[]> productRows = productRepository.findFacetRows();
+            BitsetFacetIndex newIndex = new BitsetFacetIndex();
+            Map<Integer, SortKeys> newSortKeys = new ConcurrentHashMap<>();
+            Map<String, String> newLabels = new ConcurrentHashMap<>();
+            for (Object[] row : productRows) {
+                put(newIndex, newSortKeys, newLabels, row, variantRows.getOrDefault((Integer) row[0], List.of()));
+            }
+
+            List<Integer> changed;
+            synchronized (this) {
+                index = newIndex;
+                sortKeys = newSortKeys;
+                valueLabels = newLabels;
+                changed = new ArrayList<>(changedDuringRebuild);
+                changedDuringRebuild.clear();
+                rebuilding = false;
+                ready = true;
+            }
+            // Thay đổi commit sau khi đọc dữ liệu dựng chỉ mục có thể chưa có trong bản mới
+            changed.forEach(this::reindex);
+            logger.info("Built product facet index with {} products in {} ms",
+                    productRows.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            synchronized (this) {
+                rebuilding = false;
+                changedDuringRebuild.clear();
+            }
+            logger.error("Error building product facet index: {}", e.getMessage());
+        }
+    }
+
+    private void put(BitsetFacetIndex target, Map<Integer, SortKeys> targetSortKeys,
+                            Map<String, String> targetLabels, Object[] productRow, List<Object[]> variantRows) {
+        Integer productId = (Integer) productRow[0];
+        BigDecimal basePrice = (BigDecimal) productRow[3];
+        String name = (String) productRow[4];
+        LocalDateTime createdAt = (LocalDateTime) productRow[5];
+
+        Map<String, Set<String>> values = new HashMap<>();
+        values.put(CATEGORY, Set.of(String.valueOf(productRow[1])));
+        values.put(BRAND, Set.of(String.valueOf(productRow[2])));
+        values.put(PRICE, Set.of(bucketKey(bucketOf(basePrice))));
+
+        Set<String> sizes = new HashSet<>();
+        Set<String> colors = new HashSet<>();
+        for (Object[] row : variantRows) {
+            addValue(sizes, targetLabels, (String) row[1]);
+            addValue(colors, targetLabels, (String) row[2]);
+        }
+        values.put(SIZE, sizes);
+        values.put(COLOR, colors);
+
+        target.put(productId, values);
+        targetSortKeys.put(productId, new SortKeys(basePrice, foldValue(name),
+                createdAt != null ? createdAt : MISSING_CREATED_AT));
+    }
+
+    private void remove(Integer productId) {
+        synchronized (this) {
+            if (rebuilding) {
+                changedDuringRebuild.add(productId);
+            }
+            removeDocument(productId);
+            pruneLabels();
+        }
+    }
+
+    private void removeDocument(Integer productId) {
+        index.remove(productId);
+        sortKeys.remove(productId);
+    }
+
+    // Nhãn của size/màu không còn sản phẩm nào dùng
+    private void pruneLabels() {
+        BitsetFacetIndex current = index;
+        valueLabels.keySet().removeIf(key -> !current.hasValue(SIZE, key) && !current.hasValue(COLOR, key));
+    }
+
+    private static void addValue(Set<String> keys, Map<String, String> labels, String value) {
+        String key = foldValue(value);
+        if (!key.isEmpty()) {
+            keys.add(key);
+            labels.putIfAbsent(key, value.trim());
+        }
+    }
+
+    private static SortKeys keysOf(Map<Integer, SortKeys> keys, Integer productId) {
+        SortKeys productKeys = keys.get(productId);
+        return productKeys != null ? productKeys : new SortKeys(BigDecimal.ZERO, "", MISSING_CREATED_AT);
+    }
+
+    private BitSet priceRange(BigDecimal minPrice, BigDecimal maxPrice) {
+        if (minPrice == null && maxPrice == null) {
+            return null;
+        }
+        BitSet range = new BitSet();
+        for (Map.Entry<Integer, SortKeys> entry : sortKeys.entrySet()) {
+            BigDecimal price = entry.getValue().basePrice();
+            if ((minPrice == null || price.compareTo(minPrice) >= 0)
+                    && (maxPrice == null || price.compareTo(maxPrice) <= 0)) {
+                range.set(entry.getKey());
+            }
+        }
+        return range;
+    }
+
+    private int bucketOf(BigDecimal price) {
+        int bucket = 0;
+        while (bucket < priceBoundaries.length && price.compareTo(priceBoundaries[bucket]) >= 0) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private String bucketKey(int bucket) {
+        String from = bucket == 0 ? "0" : priceBoundaries[bucket - 1].toPlainString();
+        String to = bucket == priceBoundaries.length ? "" : priceBoundaries[bucket].toPlainString();
+        return from + "-" + to;
+    }
+
+    private static Set<String> toKeys(Collection<Integer> ids) {
+        Set<String> keys = new HashSet<>();
+        if (ids != null) {
+            for (Integer id : ids) {
+                keys.add(String.valueOf(id));
+            }
+        }
+        return keys;
+    }
+
+    private static Set<String> foldKeys(Collection<String> values) {
+        Set<String> keys = new HashSet<>();
+        if (values != null) {
+            for (String value : values) {
+                keys.add(foldValue(value));
+            }
+        }
+        return keys;
+    }
+
+    private static BigDecimal[] parseBoundaries(String priceBuckets) {
+        List<BigDecimal> boundaries = new ArrayList<>();
+        for (String part : priceBuckets.split(",")) {
+            if (!part.isBlank()) {
+                boundaries.add(new BigDecimal(part.trim()));
+            }
+        }
+        boundaries.sort(BigDecimal::compareTo);
+        return boundaries.toArray(new BigDecimal[0]);
+    }
+}
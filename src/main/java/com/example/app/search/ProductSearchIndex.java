@@ -0,0 +1,142 @@
+package com.example.app.search;
+
+import com.example.app.entity.Product;
+import com.example.app.event.CatalogChangedEvent;
+import com.example.app.event.ProductChangedEvent;
+import com.example.app.event.ProductsImportedEvent;
+import com.example.app.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chỉ mục tìm kiếm sản phẩm trong bộ nhớ trên tên, mô tả, thương hiệu và danh mục.
+ * Dựng toàn bộ khi ứng dụng khởi động, sau đó cập nhật từng sản phẩm theo ProductChangedEvent.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int BRAND_WEIGHT = 2;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private final ProductRepository productRepository;
+    private final Bm25Index index = new Bm25Index();
+    private volatile boolean ready = false;
+
+    @Autowired
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            long start = System.currentTimeMillis();
+            List<Product> products = productRepository.findAllWithBrandAndCategory();
+            index.clear();
+            for (Product product : products) {
+                index.put(product.getId(), tokensOf(product));
+            }
+            ready = true;
+            logger.info("Built product search index with {} products in {} ms",
+                    products.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Error building product search index: {}", e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        switch (event.getType()) {
+            case CREATED:
+            case UPDATED:
+                reindex(event.getProductId());
+                break;
+            case DELETED:
+                index.remove(event.getProductId());
+                break;
+            default:
+                // Biến thể, ảnh, đánh giá không ảnh hưởng nội dung được đánh chỉ mục
+                break;
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        rebuild();
+    }
+
+    // Tên thương hiệu/danh mục được đánh chỉ mục cùng sản phẩm nên cần làm mới các sản phẩm liên quan
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.getCatalogType() == CatalogChangedEvent.CatalogType.BANNER) {
+            return;
+        }
+        try {
+            List<Integer> productIds = event.getCatalogType() == CatalogChangedEvent.CatalogType.BRAND
+                    ? productRepository.findIdsByBrandId(event.getId())
+                    : productRepository.findIdsByCategoryId(event.getId());
+            productIds.forEach(this::reindex);
+        } catch (Exception e) {
+            logger.error("Error reindexing products of {} {}: {}", event.getCatalogType(), event.getId(), e.getMessage());
+        }
+    }
+
+    public void reindex(Integer productId) {
+        try {
+            productRepository.findByIdWithBrandAndCategory(productId)
+                    .ifPresentOrElse(
+                            product -> index.put(product.getId(), tokensOf(product)),
+                            () -> index.remove(productId));
+        } catch (Exception e) {
+            logger.error("Error indexing product {}: {}", productId, e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Id các sản phẩm khớp mọi từ khóa (không phân biệt dấu), xếp theo độ liên quan.
+     */
+    public List<Integer> search(String keyword) {
+        return index.search(VietnameseTextNormalizer.tokenize(keyword));
+    }
+
+    private List<String> tokensOf(Product product) {
+        List<String> tokens = new ArrayList<>();
+        addWeighted(tokens, product.getName(), NAME_WEIGHT);
+        if (product.getBrand() != null) {
+            addWeighted(tokens, product.getBrand().getName(), BRAND_WEIGHT);
+        }
+        if (product.getCategory() != null) {
+            addWeighted(tokens, product.getCategory().getName(), CATEGORY_WEIGHT);
+        }
+        addWeighted(tokens, product.getDescription(), DESCRIPTION_WEIGHT);
+        return tokens;
+    }
+
+    private void addWeighted(List<String> tokens, String text, int weight) {
+        List<String> fieldTokens = VietnameseTextNormalizer.tokenize(text);
+        for (int i = 0; i < weight; i++) {
+            tokens.addAll(fieldTokens);
+        }
+    }
+}
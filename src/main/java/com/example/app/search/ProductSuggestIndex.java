@@ -0,0 +1,267 @@
+package com.example.app.search;
+
+import com.example.app.dto.SuggestResponse;
+import com.example.app.dto.SuggestionDTO;
+import com.example.app.entity.Brand;
+import com.example.app.entity.Category;
+import com.example.app.event.CatalogChangedEvent;
+import com.example.app.event.ProductChangedEvent;
+import com.example.app.event.ProductsImportedEvent;
+import com.example.app.repository.BrandRepository;
+import com.example.app.repository.CategoryRepository;
+import com.example.app.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gợi ý tìm kiếm theo tiền tố cho tên sản phẩm, thương hiệu và danh mục, không phân biệt dấu.
+ * Khớp từ đầu bất kỳ từ nào trong tên ("thun" gợi ý "Áo thun nam"). Điểm xếp hạng là số lượng
+ * đã bán (thương hiệu/danh mục: tổng của các sản phẩm), được tính lại định kỳ; tên được cập nhật
+ * ngay theo ProductChangedEvent và CatalogChangedEvent.
+ * Mỗi lần dựng lại tạo bộ cây mới rồi thay bằng một phép gán volatile, nên truy vấn không bao giờ thấy cây đang dựng dở.
+ */
+@Component
+public class ProductSuggestIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSuggestIndex.class);
+
+    // Giới hạn độ sâu của cây cho tên dài; gợi ý chỉ cần khớp phần đầu
+    private static final int MAX_KEY_LENGTH = 40;
+
+    private final ProductRepository productRepository;
+    private final BrandRepository brandRepository;
+    private final CategoryRepository categoryRepository;
+
+    private volatile Snapshot current = new Snapshot(Map.of(), Map.of(), Map.of());
+    // Sự kiện đến trong lúc đang dựng lại: áp dụng lại vào bản mới sau khi thay
+    private final List<Object> eventsDuringRebuild = new ArrayList<>();
+    private boolean rebuilding = false;
+
+    @Autowired
+    public ProductSuggestIndex(ProductRepository productRepository,
+                               BrandRepository brandRepository,
+                               CategoryRepository categoryRepository) {
+        this.productRepository = productRepository;
+        this.brandRepository = brandRepository;
+        this.categoryRepository = categoryRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.suggest.refresh-interval-ms:3600000}",
+            fixedDelayString = "${app.suggest.refresh-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        synchronized (eventsDuringRebuild) {
+            rebuilding = true;
+            eventsDuringRebuild.clear();
+        }
+        List<Object> missed;
+        try {
+            long start = System.currentTimeMillis();
+            Map<Integer, Long> sold = new HashMap<>();
+            for (Object[] row : productRepository.findSoldQuantities()) {
+                sold.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+            }
+
+            List<Object[]> productRows = productRepository.findSuggestRows();
+            Map<Integer, Long> newBrandScores = new HashMap<>();
+            Map<Integer, Long> newCategoryScores = new HashMap<>();
+            for (Object[] row : productRows) {
+                // +1 mỗi sản phẩm để thương hiệu/danh mục chưa có đơn hàng vẫn xếp theo quy mô
+                long score = sold.getOrDefault((Integer) row[0], 0L) + 1;
+                newBrandScores.merge((Integer) row[2], score, Long::sum);
+                newCategoryScores.merge((Integer) row[3], score, Long::sum);
+            }
+
+            Snapshot next = new Snapshot(sold, newBrandScores, newCategoryScores);
+            for (Object[] row : productRows) {
+                next.putProduct((Integer) row[0], (String) row[1]);
+            }
+            for (Brand brand : brandRepository.findAll()) {
+                next.putBrand(brand);
+            }
+            for (Category category : categoryRepository.findByStatus(Category.CategoryStatus.active)) {
+                next.putCategory(category);
+            }
+
+            synchronized (eventsDuringRebuild) {
+                current = next;
+                missed = new ArrayList<>(eventsDuringRebuild);
+                eventsDuringRebuild.clear();
+                rebuilding = false;
+            }
+            logger.info("Built suggest index with {} products, {} brands, {} categories in {} ms",
+                    next.products.size(), next.brands.size(), next.categories.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            synchronized (eventsDuringRebuild) {
+                eventsDuringRebuild.clear();
+                rebuilding = false;
+            }
+            logger.error("Error building suggest index: {}", e.getMessage());
+            return;
+        }
+
+        // Thay đổi commit sau khi đọc dữ liệu dựng cây có thể chưa có trong bản mới
+        for (Object event : missed) {
+            if (event instanceof ProductChangedEvent productEvent) {
+                onProductChanged(productEvent);
+            } else if (event instanceof CatalogChangedEvent catalogEvent) {
+                onCatalogChanged(catalogEvent);
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        recordIfRebuilding(event);
+        Snapshot snapshot = current;
+        Integer productId = event.getProductId();
+        switch (event.getType()) {
+            case CREATED:
+            case UPDATED:
+                try {
+                    List<Object[]> rows = productRepository.findSuggestRowsById(productId);
+                    if (rows.isEmpty()) {
+                        snapshot.removeProduct(productId);
+                    } else {
+                        snapshot.putProduct(productId, (String) rows.get(0)[1]);
+                    }
+                } catch (Exception e) {
+                    logger.error("Error updating suggestions for product {}: {}", productId, e.getMessage());
+                }
+                break;
+            case DELETED:
+                snapshot.removeProduct(productId);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        rebuild();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        recordIfRebuilding(event);
+        Snapshot snapshot = current;
+        Integer id = event.getId();
+        try {
+            if (event.getCatalogType() == CatalogChangedEvent.CatalogType.BRAND) {
+                brandRepository.findById(id).ifPresentOrElse(snapshot::putBrand, () -> {
+                    snapshot.brands.remove(id);
+                    snapshot.brandNames.remove(id);
+                });
+            } else if (event.getCatalogType() == CatalogChangedEvent.CatalogType.CATEGORY) {
+                categoryRepository.findById(id)
+                        .filter(category -> category.getStatus() == Category.CategoryStatus.active)
+                        .ifPresentOrElse(snapshot::putCategory, () -> {
+                            snapshot.categories.remove(id);
+                            snapshot.categoryNames.remove(id);
+                        });
+            }
+        } catch (Exception e) {
+            logger.error("Error updating suggestions for {} {}: {}", event.getCatalogType(), id, e.getMessage());
+        }
+    }
+
+    public SuggestResponse suggest(String query, int limit) {
+        String prefix = String.join(" ", VietnameseTextNormalizer.tokenize(query));
+        if (prefix.isEmpty()) {
+            return new SuggestResponse(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        }
+        if (prefix.length() > MAX_KEY_LENGTH) {
+            prefix = prefix.substring(0, MAX_KEY_LENGTH);
+        }
+
+        Snapshot snapshot = current;
+        return new SuggestResponse(
+                toSuggestions(snapshot.products.search(prefix, limit), snapshot.productNames),
+                toSuggestions(snapshot.brands.search(prefix, limit), snapshot.brandNames),
+                toSuggestions(snapshot.categories.search(prefix, limit), snapshot.categoryNames)
+        );
+    }
+
+    private void recordIfRebuilding(Object event) {
+        synchronized (eventsDuringRebuild) {
+            if (rebuilding) {
+                eventsDuringRebuild.add(event);
+            }
+        }
+    }
+
+    private List<SuggestionDTO> toSuggestions(List<Integer> ids, Map<Integer, String> names) {
+        List<SuggestionDTO> suggestions = new ArrayList<>();
+        for (Integer id : ids) {
+            String name = names.get(id);
+            if (name != null) {
+                suggestions.add(new SuggestionDTO(id, name));
+            }
+        }
+        return suggestions;
+    }
+
+    // Một khóa cho mỗi vị trí bắt đầu từ: "ao thun nam", "thun nam", "nam"
+    private static List<String> keysOf(String name) {
+        List<String> tokens = VietnameseTextNormalizer.tokenize(name);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            String key = String.join(" ", tokens.subList(i, tokens.size()));
+            keys.add(key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key);
+        }
+        return keys;
+    }
+
+    // Bộ cây và tên của một lần dựng; điểm cố định theo lần dựng, cập nhật lẻ chỉ đổi tên/khóa
+    private static final class Snapshot {
+        private final PrefixTrie products = new PrefixTrie();
+        private final PrefixTrie brands = new PrefixTrie();
+        private final PrefixTrie categories = new PrefixTrie();
+        private final Map<Integer, String> productNames = new ConcurrentHashMap<>();
+        private final Map<Integer, String> brandNames = new ConcurrentHashMap<>();
+        private final Map<Integer, String> categoryNames = new ConcurrentHashMap<>();
+        private final Map<Integer, Long> productScores;
+        private final Map<Integer, Long> brandScores;
+        private final Map<Integer, Long> categoryScores;
+
+        Snapshot(Map<Integer, Long> productScores, Map<Integer, Long> brandScores, Map<Integer, Long> categoryScores) {
+            this.productScores = productScores;
+            this.brandScores = brandScores;
+            this.categoryScores = categoryScores;
+        }
+
+        void putProduct(Integer productId, String name) {
+            productNames.put(productId, name);
+            products.put(productId, keysOf(name), productScores.getOrDefault(productId, 0L));
+        }
+
+        void removeProduct(Integer productId) {
+            products.remove(productId);
+            productNames.remove(productId);
+        }
+
+        void putBrand(Brand brand) {
+            brandNames.put(brand.getId(), brand.getName());
+            brands.put(brand.getId(), keysOf(brand.getName()), brandScores.getOrDefault(brand.getId(), 0L));
+        }
+
+        void putCategory(Category category) {
+            categoryNames.put(category.getId(), category.getName());
+            categories.put(category.getId(), keysOf(category.getName()), categoryScores.getOrDefault(category.getId(), 0L));
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.app.search;
+
+import com.example.app.event.ProductChangedEvent;
+import com.example.app.event.ProductsImportedEvent;
+import com.example.app.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Lấy ngẫu nhiên id sản phẩm đang bán mà không cần tải và xáo trộn toàn bộ danh sách mỗi lần gọi.
+ * Giữ id dưới dạng mảng int (toàn bộ và theo từng danh mục), dựng lại khi sản phẩm thay đổi,
+ * và chọn k phần tử khác nhau bằng thuật toán Floyd trong O(k).
+ */
+@Component
+public class RandomProductSampler {
+
+    private final ProductRepository productRepository;
+
+    private volatile Pool pool;
+    private volatile boolean stale = true;
+
+    @Autowired
+    public RandomProductSampler(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        switch (event.getType()) {
+            case CREATED:
+            case UPDATED:
+            case DELETED:
+                stale = true;
+                break;
+            default:
+                break;
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        stale = true;
+    }
+
+    /**
+     * @param categoryIds null để lấy trong toàn bộ sản phẩm, ngược lại chỉ trong các danh mục này
+     */
+    public List<Integer> sample(Collection<Integer> categoryIds, int limit) {
+        Pool current = currentPool();
+        List<int[]> segments = new ArrayList<>();
+        if (categoryIds == null) {
+            segments.add(current.all);
+        } else {
+            for (Integer categoryId : categoryIds) {
+                int[] ids = current.byCategory.get(categoryId);
+                if (ids != null) {
+                    segments.add(ids);
+                }
+            }
+        }
+        return sample(segments, limit);
+    }
+
+    private Pool currentPool() {
+        Pool current = pool;
+        if (current == null || stale) {
+            synchronized (this) {
+                current = pool;
+                if (current == null || stale) {
+                    stale = false;
+                    current = loadPool();
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Pool loadPool() {
+        List<Object[]> rows = productRepository.findActiveIdsWithCategory();
+        int[] all = new int[rows.size()];
+        Map<Integer, List<Integer>> grouped = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            all[i] = (Integer) row[0];
+            grouped.computeIfAbsent((Integer) row[1], k -> new ArrayList<>()).add((Integer) row[0]);
+        }
+
+        Map<Integer, int[]> byCategory = new HashMap<>();
+        for (Map.Entry<Integer, List<Integer>> entry : grouped.entrySet()) {
+            byCategory.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+        return new Pool(all, byCategory);
+    }
+
+    // Floyd: chọn k chỉ số khác nhau trong [0, n) với đúng k lần sinh số ngẫu nhiên
+    static List<Integer> sample(List<int[]> segments, int limit) {
+        int total = 0;
+        for (int[] segment : segments) {
+            total += segment.length;
+        }
+        int k = Math.min(Math.max(limit, 0), total);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Set<Integer> picked = new HashSet<>();
+        for (int j = total - k; j < total; j++) {
+            int t = random.nextInt(j + 1);
+            picked.add(picked.contains(t) ? j : t);
+        }
+
+        List<Integer> ids = new ArrayList<>(k);
+        for (int index : picked) {
+            ids.add(idAt(segments, index));
+        }
+        // Thứ tự trong tập của Floyd không ngẫu nhiên đều nên xáo lại k phần tử đã chọn
+        Collections.shuffle(ids, random);
+        return ids;
+    }
+
+    private static int idAt(List<int[]> segments, int index) {
+        for (int[] segment : segments) {
+            if (index < segment.length) {
+                return segment[index];
+            }
+            index -= segment.length;
+        }
+        throw new IndexOutOfBoundsException("Sample index out of range: " + index);
+    }
+
+    private static class Pool {
+        private final int[] all;
+        private final Map<Integer, int[]> byCategory;
+
+        Pool(int[] all, Map<Integer, int[]> byCategory) {
+            this.all = all;
+            this.byCategory = byCategory;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.app.service;
 
 import com.example.app.dto.CartDTO;
+import com.example.app.dto.CartDeltaDTO;
 import com.example.app.dto.CartItemDTO;
 
 import java.util.List;
@@ -20,6 +21,16 @@ public interface CartService {
 
     CartDTO removeItemFromCart(Integer cartId, Integer cartItemId);
 
+    /**
+     * Các bản rút gọn của addItemToCart/updateCartItem/removeItemFromCart: trả về dòng vừa thay đổi
+     * và tổng mới thay vì nạp lại toàn bộ giỏ hàng.
+     */
+    CartDeltaDTO addItemToCartDelta(Integer cartId, CartItemDTO cartItemDTO);
+
+    CartDeltaDTO updateCartItemDelta(Integer cartId, Integer cartItemId, Integer quantity);
+
+    CartDeltaDTO removeItemFromCartDelta(Integer cartId, Integer cartItemId);
+
     void clearCart(Integer cartId);
 
     void deleteExpiredCarts(int expirationDays);
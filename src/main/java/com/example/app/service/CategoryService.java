@@ -17,6 +17,8 @@ public interface CategoryService {
 
     CategoryDTO getCategoryById(Integer id);
 
+    List<CategoryDTO> getCategoryTree();
+
     CategoryDTO createCategory(CategoryDTO categoryDTO);
 
     CategoryDTO updateCategory(Integer id, CategoryDTO categoryDTO);
@@ -0,0 +1,27 @@
+package com.example.app.service;
+
+import com.example.app.entity.Order;
+import com.example.app.entity.Product;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+public interface DataExportService {
+
+    enum Format {
+        CSV, JSONL
+    }
+
+    /**
+     * Xuất sản phẩm, mỗi dòng một biến thể, cùng định dạng cột với file nhập sản phẩm
+     */
+    void exportProducts(Format format, Product.ProductStatus status,
+                        LocalDateTime startDate, LocalDateTime endDate, OutputStream out) throws IOException;
+
+    /**
+     * Xuất đơn hàng, mỗi dòng một đơn
+     */
+    void exportOrders(Format format, Order.OrderStatus status,
+                      LocalDateTime startDate, LocalDateTime endDate, OutputStream out) throws IOException;
+}
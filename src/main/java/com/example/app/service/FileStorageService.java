@@ -7,9 +7,39 @@ import java.nio.file.Path;
 import java.util.List;
 
 public interface FileStorageService {
-    String storeFile(MultipartFile file, String directory, String customFileName) throws IOException;
-    String storeProductImage(MultipartFile file, Long productId, String fileName) throws IOException;
+
+    /**
+     * Thư mục con (trong upload-dir) chứa file lưu theo nội dung; file ở đây không bao giờ bị ghi đè
+     */
+    String BLOB_DIRECTORY = "blobs";
+
+    /**
+     * Lưu file theo băm SHA-256 của nội dung, trả về đường dẫn tương đối "blobs/ab/cd/{hash}.{ext}".
+     * File trùng nội dung với file đã có chỉ tăng số tham chiếu, không ghi thêm bản mới.
+     */
+    String storeFile(MultipartFile file) throws IOException;
+
+    /**
+     * Lưu nhiều file song song, trả về đường dẫn theo đúng thứ tự đầu vào.
+     * Một file lỗi thì các file đã lưu trong lô được giải phóng và ném lại lỗi đầu tiên; luồng gọi bị ngắt thì
+     * chờ các file đang lưu xong, giải phóng mọi file đã lưu rồi ném InterruptedIOException.
+     */
+    List<String> storeFiles(List<MultipartFile> files) throws IOException;
+
+    /**
+     * Giải phóng một tham chiếu. Blob chỉ bị giảm refCount, không xóa file: refCount không chính xác tuyệt đối
+     * (sửa URL trực tiếp, xóa hàng loạt) nên việc xóa file để cho UploadCleanupService, vốn đối chiếu tham chiếu
+     * thật trong DB. File cũ lưu theo tên (không dùng chung) thì xóa ngay.
+     */
     void deleteFile(String filePath) throws IOException;
+
+    /**
+     * Xóa một blob không còn được tham chiếu (bỏ qua refCount, vốn không giảm khi xóa hàng loạt ảnh trong DB).
+     * Blob vừa được lưu hoặc dùng lại sau thời điểm cutoffMillis thì giữ nguyên.
+     *
+     * @return số byte giải phóng (gồm cả ảnh thu nhỏ), 0 nếu file được giữ lại
+     */
+    long deleteOrphan(String filePath, long cutoffMillis) throws IOException;
+
     Path getFilePath(String fileName, String directory);
-    List<String> listProductImages(Long productId);
-}
\ No newline at end of file
+}
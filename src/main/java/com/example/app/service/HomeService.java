@@ -0,0 +1,9 @@
+package com.example.app.service;
+
+import com.example.app.dto.HomePageDTO;
+
+public interface HomeService {
+    HomePageDTO getHomePage();
+
+    void evictHomePage();
+}
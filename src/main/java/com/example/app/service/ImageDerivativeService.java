@@ -0,0 +1,14 @@
+package com.example.app.service;
+
+import java.util.Map;
+
+public interface ImageDerivativeService {
+
+    /**
+     * Đưa ảnh vừa upload vào hàng đợi sinh ảnh thu nhỏ (thumb/card/zoom). Không chờ xử lý xong;
+     * ảnh bị từ chối khi hàng đợi đầy sẽ được lượt quét định kỳ xử lý lại.
+     */
+    void enqueue(String imageUrl);
+
+    Map<String, Object> getStats();
+}
@@ -14,6 +14,8 @@ public interface OrderService {
 
     PagedResponse<OrderDTO> getAllOrders(int page, int size, String sortBy, String sortDir);
 
+    PagedResponse<OrderDTO> getOrdersByCursor(String cursor, int size, String sortBy, String sortDir);
+
     OrderDTO getOrderById(Integer id);
 
     PagedResponse<OrderDTO> getOrdersByUser(Integer userId, int page, int size);
@@ -13,6 +13,12 @@ public interface ProductImageService {
 
     ProductImageDTO createImage(ProductImageDTO imageDTO);
 
+    /**
+     * Tạo một lô ảnh cho sản phẩm trong một lần ghi; thứ tự hiển thị nối tiếp ảnh hiện có,
+     * ảnh đầu tiên đứng đầu (Sort_Order = 0) khi isMainImage = true.
+     */
+    List<ProductImageDTO> createImages(Integer productId, Integer variantId, List<String> imageUrls, boolean isMainImage);
+
     ProductImageDTO updateImage(Integer id, ProductImageDTO imageDTO);
     List<ProductImageDTO> getAllProductImages(Integer productId);
     void deleteImage(Integer id);
@@ -0,0 +1,18 @@
+package com.example.app.service;
+
+import com.example.app.dto.ProductImportStatusDTO;
+import org.springframework.core.io.Resource;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.List;
+
+public interface ProductImportService {
+    ProductImportStatusDTO startImport(MultipartFile file) throws IOException;
+
+    ProductImportStatusDTO getStatus(String jobId);
+
+    List<ProductImportStatusDTO> getRecentJobs();
+
+    Resource getErrorFile(String jobId);
+}
@@ -0,0 +1,20 @@
+package com.example.app.service;
+
+import com.example.app.entity.ProductRating;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface ProductRatingService {
+    void addRating(Integer productId, Integer rating);
+
+    void changeRating(Integer productId, Integer oldRating, Integer newRating);
+
+    void removeRating(Integer productId, Integer rating);
+
+    Map<Integer, ProductRating> getRatings(Collection<Integer> productIds);
+
+    void deleteByProductId(Integer productId);
+
+    int rebuildAll();
+}
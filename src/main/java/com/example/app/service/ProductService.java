@@ -1,6 +1,10 @@
 package com.example.app.service;
 import com.example.app.dto.PagedResponse;
 import com.example.app.dto.ProductDTO;
+import com.example.app.dto.ProductFacetResponse;
+import com.example.app.dto.ProductFilterRequest;
+import com.example.app.dto.ProductSummaryDTO;
+import com.example.app.dto.SuggestResponse;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -22,11 +26,11 @@ public interface ProductService {
 
     List<ProductDTO> getTopRatedProducts(int limit);
 
-    List<ProductDTO> getBestSellingProducts(int limit);
+    List<ProductDTO> getBestSellingProducts(String window, int limit);
 
     List<ProductDTO> getLowStockProducts(int threshold);
 
-    List<ProductDTO> getRandomProducts(int limit);
+    List<ProductDTO> getRandomProducts(Integer categoryId, int limit);
 
     ProductDTO createProduct(ProductDTO productDTO);
 
@@ -37,4 +41,38 @@ public interface ProductService {
     Long countProducts();
 
     PagedResponse<ProductDTO> getProductsByCategoryAndBrand(Integer categoryId, Integer brandId, int page, int size, String sortBy, String sortDir);
-}
\ No newline at end of file
+
+    PagedResponse<ProductSummaryDTO> getProductSummaries(int page, int size, String sortBy, String sortDir);
+
+    PagedResponse<ProductSummaryDTO> getProductSummariesByCategory(Integer categoryId, int page, int size, String sortBy, String sortDir);
+
+    PagedResponse<ProductSummaryDTO> getProductSummariesByBrand(Integer brandId, int page, int size, String sortBy, String sortDir);
+
+    PagedResponse<ProductSummaryDTO> searchProductSummaries(String keyword, int page, int size, String sortBy, String sortDir);
+
+    PagedResponse<ProductSummaryDTO> filterProductSummariesByPrice(BigDecimal minPrice, BigDecimal maxPrice, int page, int size, String sortBy, String sortDir);
+
+    PagedResponse<ProductSummaryDTO> getProductSummariesByCategoryAndBrand(Integer categoryId, Integer brandId, int page, int size, String sortBy, String sortDir);
+
+    ProductFacetResponse<ProductDTO> filterProducts(ProductFilterRequest filter, int page, int size, String sortBy, String sortDir);
+
+    ProductFacetResponse<ProductSummaryDTO> filterProductSummaries(ProductFilterRequest filter, int page, int size, String sortBy, String sortDir);
+
+    SuggestResponse suggest(String query, int limit);
+
+    List<ProductSummaryDTO> getNewArrivalSummaries(int limit);
+
+    List<ProductSummaryDTO> getTopRatedSummaries(int limit);
+
+    List<ProductSummaryDTO> getBestSellingSummaries(String window, int limit);
+
+    List<ProductSummaryDTO> getRandomProductSummaries(Integer categoryId, int limit);
+
+    List<ProductSummaryDTO> getBoughtTogetherSummaries(Integer productId, int limit);
+
+    List<ProductSummaryDTO> getSummariesByIds(List<Integer> productIds);
+
+    PagedResponse<ProductDTO> getProductsByCursor(String cursor, int size, String sortBy, String sortDir);
+
+    PagedResponse<ProductSummaryDTO> getProductSummariesByCursor(String cursor, int size, String sortBy, String sortDir);
+}
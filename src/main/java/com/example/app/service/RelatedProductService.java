@@ -3,11 +3,15 @@ package com.example.app.service;
 import com.example.app.dto.RelatedProductDTO;
 import com.example.app.entity.RelatedProduct;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface RelatedProductService {
     List<RelatedProductDTO> getRelatedProducts(Integer productId);
 
+    Map<Integer, List<RelatedProductDTO>> getRelatedProductsForProducts(Collection<Integer> productIds);
+
     List<RelatedProductDTO> getRelatedProductsByType(Integer productId, RelatedProduct.RelationType relationType);
 
     RelatedProductDTO addRelatedProduct(RelatedProductDTO relatedProductDTO);
@@ -9,6 +9,8 @@ import java.util.List;
 public interface ReviewService {
     PagedResponse<ReviewDTO> getReviewsByProduct(Integer productId, int page, int size);
 
+    PagedResponse<ReviewDTO> getReviewsByProductCursor(Integer productId, String cursor, int size);
+
     List<ReviewDTO> getReviewsByUser(Integer userId);
 
     ReviewDTO getReviewById(Integer id);
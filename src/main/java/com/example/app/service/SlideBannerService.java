@@ -2,8 +2,12 @@ package com.example.app.service;
 
 import com.example.app.dto.SlideBannerDTO;
 import com.example.app.entity.SlideBanner;
+import com.example.app.event.CatalogChangedEvent;
 import com.example.app.repository.SlideBannerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -14,13 +18,16 @@ import java.util.stream.Collectors;
 @Service
 public class SlideBannerService {
 
+    private static final Logger logger = LoggerFactory.getLogger(SlideBannerService.class);
+
     @Autowired
     private SlideBannerRepository slideBannerRepository;
 
     @Autowired
     private FileStorageService fileStorageService;
 
-    private static final String BANNER_UPLOAD_DIR = "banners";
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     public List<SlideBannerDTO> getAllActiveBanners() {
         return slideBannerRepository.findByIsActiveTrueOrderByDisplayOrderAsc()
@@ -30,7 +37,7 @@ public class SlideBannerService {
     }
 
     public SlideBannerDTO createBanner(SlideBannerDTO bannerDTO, MultipartFile imageFile) throws IOException {
-        String imageUrl = fileStorageService.storeFile(imageFile, BANNER_UPLOAD_DIR, imageFile.getOriginalFilename());
+        String imageUrl = fileStorageService.storeFile(imageFile);
         
         SlideBanner banner = new SlideBanner();
         banner.setTitle(bannerDTO.getTitle());
@@ -40,6 +47,7 @@ public class SlideBannerService {
         banner.setIsActive(bannerDTO.getIsActive());
 
         SlideBanner savedBanner = slideBannerRepository.save(banner);
+        publishBannerChange(savedBanner.getId());
         return convertToDTO(savedBanner);
     }
 
@@ -47,8 +55,10 @@ public class SlideBannerService {
         SlideBanner banner = slideBannerRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Banner not found"));
 
+        String oldImageUrl = banner.getImageUrl();
+        String newImageUrl = null;
         if (imageFile != null && !imageFile.isEmpty()) {
-            String newImageUrl = fileStorageService.storeFile(imageFile, BANNER_UPLOAD_DIR, imageFile.getOriginalFilename());
+            newImageUrl = fileStorageService.storeFile(imageFile);
             banner.setImageUrl(newImageUrl);
         }
 
@@ -57,12 +67,39 @@ public class SlideBannerService {
         banner.setDisplayOrder(bannerDTO.getDisplayOrder());
         banner.setIsActive(bannerDTO.getIsActive());
 
-        SlideBanner updatedBanner = slideBannerRepository.save(banner);
+        SlideBanner updatedBanner;
+        try {
+            updatedBanner = slideBannerRepository.save(banner);
+        } catch (RuntimeException e) {
+            // Lưu banner thất bại: trả tham chiếu của ảnh vừa upload
+            release(newImageUrl);
+            throw e;
+        }
+        if (newImageUrl != null) {
+            release(oldImageUrl);
+        }
+        publishBannerChange(id);
         return convertToDTO(updatedBanner);
     }
 
     public void deleteBanner(Long id) {
         slideBannerRepository.deleteById(id);
+        publishBannerChange(id);
+    }
+
+    private void release(String imageUrl) {
+        if (imageUrl == null || !imageUrl.startsWith(FileStorageService.BLOB_DIRECTORY + "/")) {
+            return;
+        }
+        try {
+            fileStorageService.deleteFile(imageUrl);
+        } catch (IOException e) {
+            logger.warn("Failed to release banner image {}: {}", imageUrl, e.getMessage());
+        }
+    }
+
+    private void publishBannerChange(Long bannerId) {
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.CatalogType.BANNER, bannerId.intValue()));
     }
 
     private SlideBannerDTO convertToDTO(SlideBanner banner) {
@@ -0,0 +1,15 @@
+package com.example.app.service;
+
+import java.util.Map;
+
+public interface UploadCleanupService {
+
+    /**
+     * Chạy ngay một lượt dọn file upload mồ côi ở nền (ngoài lịch định kỳ).
+     *
+     * @return false nếu đang có một lượt dọn khác chạy
+     */
+    boolean requestCollection();
+
+    Map<String, Object> getStats();
+}
@@ -2,10 +2,12 @@ package com.example.app.service.impl;
 import com.example.app.dto.BrandDTO;
 import com.example.app.dto.PagedResponse;
 import com.example.app.entity.Brand;
+import com.example.app.event.CatalogChangedEvent;
 import com.example.app.exception.ResourceNotFoundException;
 import com.example.app.repository.BrandRepository;
 import com.example.app.service.BrandService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -20,10 +22,12 @@ import java.util.stream.Collectors;
 public class BrandServiceImpl implements BrandService {
 
     private final BrandRepository brandRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public BrandServiceImpl(BrandRepository brandRepository) {
+    public BrandServiceImpl(BrandRepository brandRepository, ApplicationEventPublisher eventPublisher) {
         this.brandRepository = brandRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -69,6 +73,7 @@ public class BrandServiceImpl implements BrandService {
         brand.setLogoUrl(brandDTO.getLogoUrl());
 
         Brand savedBrand = brandRepository.save(brand);
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.CatalogType.BRAND, savedBrand.getId()));
 
         return convertToDTO(savedBrand);
     }
@@ -88,6 +93,7 @@ public class BrandServiceImpl implements BrandService {
         brand.setLogoUrl(brandDTO.getLogoUrl());
 
         Brand updatedBrand = brandRepository.save(brand);
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.CatalogType.BRAND, id));
 
         return convertToDTO(updatedBrand);
     }
@@ -101,6 +107,7 @@ public class BrandServiceImpl implements BrandService {
         }
 
         brandRepository.deleteById(id);
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.CatalogType.BRAND, id));
     }
 
     @Override
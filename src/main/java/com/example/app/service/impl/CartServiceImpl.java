@@ -1,6 +1,7 @@
 package com.example.app.service.impl;
 
 import com.example.app.dto.CartDTO;
+import com.example.app.dto.CartDeltaDTO;
 import com.example.app.dto.CartItemDTO;
 import com.example.app.entity.Cart;
 import com.example.app.entity.CartItem;
@@ -114,9 +115,63 @@ public class CartServiceImpl implements CartService {
     @Override
     @Transactional
     public CartDTO addItemToCart(Integer cartId, CartItemDTO cartItemDTO) {
-        Cart cart = cartRepository.findById(cartId)
+        addItem(findCart(cartId), cartItemDTO);
+        return reloadCart(cartId);
+    }
+
+    @Override
+    @Transactional
+    public CartDTO updateCartItem(Integer cartId, Integer cartItemId, Integer quantity) {
+        updateItem(findCart(cartId), cartItemId, quantity);
+        return reloadCart(cartId);
+    }
+
+    @Override
+    @Transactional
+    public CartDTO removeItemFromCart(Integer cartId, Integer cartItemId) {
+        removeItem(findCart(cartId), cartItemId);
+        return reloadCart(cartId);
+    }
+
+    @Override
+    @Transactional
+    public CartDeltaDTO addItemToCartDelta(Integer cartId, CartItemDTO cartItemDTO) {
+        Cart cart = findCart(cartId);
+        CartItem item = addItem(cart, cartItemDTO);
+        return convertToDeltaDTO(cart, item, null);
+    }
+
+    @Override
+    @Transactional
+    public CartDeltaDTO updateCartItemDelta(Integer cartId, Integer cartItemId, Integer quantity) {
+        Cart cart = findCart(cartId);
+        CartItem item = updateItem(cart, cartItemId, quantity);
+        return item != null
+                ? convertToDeltaDTO(cart, item, null)
+                : convertToDeltaDTO(cart, null, cartItemId);
+    }
+
+    @Override
+    @Transactional
+    public CartDeltaDTO removeItemFromCartDelta(Integer cartId, Integer cartItemId) {
+        Cart cart = findCart(cartId);
+        removeItem(cart, cartItemId);
+        return convertToDeltaDTO(cart, null, cartItemId);
+    }
+
+    private Cart findCart(Integer cartId) {
+        return cartRepository.findById(cartId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart not found with id: " + cartId));
+    }
+
+    private CartDTO reloadCart(Integer cartId) {
+        Cart updatedCart = cartRepository.findByIdWithFullDetails(cartId)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart not found with id: " + cartId));
 
+        return convertToDTO(updatedCart);
+    }
+
+    private CartItem addItem(Cart cart, CartItemDTO cartItemDTO) {
         Product product = productRepository.findByIdWithImagesAndDefaultVariant(cartItemDTO.getProductId())
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + cartItemDTO.getProductId()));
 
@@ -136,12 +191,13 @@ public class CartServiceImpl implements CartService {
         }
 
         Optional<CartItem> existingItem = cartItemRepository.findByCartIdAndProductIdAndVariantId(
-                cartId, cartItemDTO.getProductId(), cartItemDTO.getVariantId());
+                cart.getId(), cartItemDTO.getProductId(), cartItemDTO.getVariantId());
 
+        CartItem savedItem;
         if (existingItem.isPresent()) {
             CartItem item = existingItem.get();
             item.setQuantity(item.getQuantity() + cartItemDTO.getQuantity());
-            cartItemRepository.save(item);
+            savedItem = cartItemRepository.save(item);
         } else {
             CartItem newItem = new CartItem();
             newItem.setCart(cart);
@@ -149,31 +205,21 @@ public class CartServiceImpl implements CartService {
             newItem.setVariant(variant);
             newItem.setQuantity(cartItemDTO.getQuantity());
 
-            cartItemRepository.save(newItem);
+            savedItem = cartItemRepository.save(newItem);
         }
 
         cart.setUpdatedAt(LocalDateTime.now());
         cartRepository.save(cart);
-
-        Cart updatedCart = cartRepository.findByIdWithFullDetails(cartId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart not found with id: " + cartId));
-
-        return convertToDTO(updatedCart);
+        return savedItem;
     }
 
-    @Override
-    @Transactional
-    public CartDTO updateCartItem(Integer cartId, Integer cartItemId, Integer quantity) {
-        Cart cart = cartRepository.findById(cartId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart not found with id: " + cartId));
-
-        CartItem cartItem = cartItemRepository.findById(cartItemId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart item not found with id: " + cartItemId));
-
-        if (!cartItem.getCart().getId().equals(cartId)) {
-            throw new IllegalArgumentException("Cart item does not belong to the specified cart");
-        }
+    /**
+     * @return dòng sau khi cập nhật, hoặc null nếu quantity <= 0 và dòng đã bị xóa
+     */
+    private CartItem updateItem(Cart cart, Integer cartItemId, Integer quantity) {
+        CartItem cartItem = findCartItem(cart, cartItemId);
 
+        CartItem savedItem = null;
         if (quantity <= 0) {
             cartItemRepository.delete(cartItem);
         } else {
@@ -183,40 +229,31 @@ public class CartServiceImpl implements CartService {
             }
 
             cartItem.setQuantity(quantity);
-            cartItemRepository.save(cartItem);
+            savedItem = cartItemRepository.save(cartItem);
         }
 
         cart.setUpdatedAt(LocalDateTime.now());
         cartRepository.save(cart);
-
-        Cart updatedCart = cartRepository.findByIdWithFullDetails(cartId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart not found with id: " + cartId));
-
-        return convertToDTO(updatedCart);
+        return savedItem;
     }
 
-    @Override
-    @Transactional
-    public CartDTO removeItemFromCart(Integer cartId, Integer cartItemId) {
-        Cart cart = cartRepository.findById(cartId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart not found with id: " + cartId));
-
-        CartItem cartItem = cartItemRepository.findById(cartItemId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart item not found with id: " + cartItemId));
-
-        if (!cartItem.getCart().getId().equals(cartId)) {
-            throw new IllegalArgumentException("Cart item does not belong to the specified cart");
-        }
+    private void removeItem(Cart cart, Integer cartItemId) {
+        CartItem cartItem = findCartItem(cart, cartItemId);
 
         cartItemRepository.delete(cartItem);
 
         cart.setUpdatedAt(LocalDateTime.now());
         cartRepository.save(cart);
+    }
 
-        Cart updatedCart = cartRepository.findByIdWithFullDetails(cartId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart not found with id: " + cartId));
+    private CartItem findCartItem(Cart cart, Integer cartItemId) {
+        CartItem cartItem = cartItemRepository.findById(cartItemId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart item not found with id: " + cartItemId));
 
-        return convertToDTO(updatedCart);
+        if (!cartItem.getCart().getId().equals(cart.getId())) {
+            throw new IllegalArgumentException("Cart item does not belong to the specified cart");
+        }
+        return cartItem;
     }
 
     @Override
@@ -415,30 +452,8 @@ public class CartServiceImpl implements CartService {
         BigDecimal totalAmount = BigDecimal.ZERO;
 
         for (CartItem item : cart.getItems()) {
-            CartItemDTO itemDTO = new CartItemDTO();
-            itemDTO.setId(item.getId());
-            itemDTO.setCartId(cart.getId());
-            itemDTO.setProductId(item.getProduct().getId());
-            itemDTO.setProductName(item.getProduct().getName());
-            
-            itemDTO.setProductImage(item.getProduct().getMainImageUrl());
-            
-            itemDTO.setVariantId(item.getVariant().getId());
-            itemDTO.setColor(item.getVariant().getColor());
-            itemDTO.setSize(item.getVariant().getSize());
-            itemDTO.setQuantity(item.getQuantity());
-
-            BigDecimal unitPrice = item.getProduct().getBasePrice().add(item.getVariant().getPriceAdjustment());
-            itemDTO.setUnitPrice(unitPrice);
-
-            BigDecimal itemTotal = unitPrice.multiply(BigDecimal.valueOf(item.getQuantity()));
-            itemDTO.setTotal(itemTotal);
-
-            totalAmount = totalAmount.add(itemTotal);
-
-            itemDTO.setAddedAt(item.getAddedAt());
-            itemDTO.setUpdatedAt(item.getUpdatedAt());
-
+            CartItemDTO itemDTO = convertItemToDTO(cart.getId(), item);
+            totalAmount = totalAmount.add(itemDTO.getTotal());
             itemDTOs.add(itemDTO);
         }
 
@@ -448,4 +463,51 @@ public class CartServiceImpl implements CartService {
 
         return dto;
     }
-}
\ No newline at end of file
+
+    /**
+     * Tổng mới lấy từ một truy vấn gộp trên Cart_Item; truy vấn này cũng flush thay đổi vừa rồi
+     * nên thời điểm cập nhật của dòng đã có giá trị khi chuyển sang DTO.
+     */
+    private CartDeltaDTO convertToDeltaDTO(Cart cart, CartItem changedItem, Integer removedItemId) {
+        CartDeltaDTO dto = new CartDeltaDTO();
+        dto.setCartId(cart.getId());
+
+        Object[] summary = cartItemRepository.summarizeCart(cart.getId()).get(0);
+        dto.setTotalItems(((Number) summary[0]).intValue());
+        dto.setTotalAmount(summary[1] != null ? (BigDecimal) summary[1] : BigDecimal.ZERO);
+
+        if (changedItem != null) {
+            dto.setItem(convertItemToDTO(cart.getId(), changedItem));
+        }
+        dto.setRemovedItemId(removedItemId);
+        dto.setUpdatedAt(cart.getUpdatedAt());
+
+        return dto;
+    }
+
+    private CartItemDTO convertItemToDTO(Integer cartId, CartItem item) {
+        CartItemDTO itemDTO = new CartItemDTO();
+        itemDTO.setId(item.getId());
+        itemDTO.setCartId(cartId);
+        itemDTO.setProductId(item.getProduct().getId());
+        itemDTO.setProductName(item.getProduct().getName());
+
+        itemDTO.setProductImage(item.getProduct().getMainImageUrl());
+
+        itemDTO.setVariantId(item.getVariant().getId());
+        itemDTO.setColor(item.getVariant().getColor());
+        itemDTO.setSize(item.getVariant().getSize());
+        itemDTO.setQuantity(item.getQuantity());
+
+        BigDecimal unitPrice = item.getProduct().getBasePrice().add(item.getVariant().getPriceAdjustment());
+        itemDTO.setUnitPrice(unitPrice);
+
+        BigDecimal itemTotal = unitPrice.multiply(BigDecimal.valueOf(item.getQuantity()));
+        itemDTO.setTotal(itemTotal);
+
+        itemDTO.setAddedAt(item.getAddedAt());
+        itemDTO.setUpdatedAt(item.getUpdatedAt());
+
+        return itemDTO;
+    }
+}
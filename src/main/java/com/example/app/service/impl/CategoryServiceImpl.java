@@ -1,12 +1,16 @@
 package com.example.app.service.impl;
+import com.example.app.cache.CategoryTree;
+import com.example.app.cache.CategoryTreeCache;
 import com.example.app.dto.CategoryDTO;
 import com.example.app.dto.PagedResponse;
 import com.example.app.entity.Category;
+import com.example.app.event.CatalogChangedEvent;
 import com.example.app.exception.ResourceNotFoundException;
 import com.example.app.repository.CategoryRepository;
 import com.example.app.service.CategoryService;
 import com.example.app.service.FileStorageService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -16,6 +20,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -24,11 +29,15 @@ public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final FileStorageService fileStorageService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CategoryTreeCache categoryTreeCache;
 
     @Autowired
-    public CategoryServiceImpl(CategoryRepository categoryRepository, FileStorageService fileStorageService) {
+    public CategoryServiceImpl(CategoryRepository categoryRepository, FileStorageService fileStorageService, ApplicationEventPublisher eventPublisher, CategoryTreeCache categoryTreeCache) {
         this.categoryRepository = categoryRepository;
         this.fileStorageService = fileStorageService;
+        this.eventPublisher = eventPublisher;
+        this.categoryTreeCache = categoryTreeCache;
     }
 
     @Override
@@ -38,8 +47,11 @@ public class CategoryServiceImpl implements CategoryService {
 
         Page<Category> categories = categoryRepository.findAll(pageable);
 
+        CategoryTree tree = categoryTreeCache.get();
         List<CategoryDTO> content = categories.getContent().stream()
-                .map(this::convertToDTO)
+                .map(category -> tree.get(category.getId())
+                        .map(node -> toDTO(tree, node, 1))
+                        .orElseGet(() -> convertToDTO(category)))
                 .collect(Collectors.toList());
 
         return new PagedResponse<>(
@@ -54,37 +66,49 @@ public class CategoryServiceImpl implements CategoryService {
 
     @Override
     public List<CategoryDTO> getAllCategoriesNoPage() {
-        List<Category> categories = categoryRepository.findAll();
+        CategoryTree tree = categoryTreeCache.get();
 
-        return categories.stream()
-                .map(this::convertToDTO)
+        return tree.getNodes().stream()
+                .map(node -> toDTO(tree, node, 1))
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<CategoryDTO> getParentCategories() {
-        List<Category> parentCategories = categoryRepository.findAllParentCategories();
+        CategoryTree tree = categoryTreeCache.get();
 
-        return parentCategories.stream()
-                .map(this::convertToDTO)
+        return tree.getRoots().stream()
+                .map(node -> toDTO(tree, node, 1))
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<CategoryDTO> getSubcategories(Integer parentId) {
-        List<Category> subcategories = categoryRepository.findByParentId(parentId);
+        CategoryTree tree = categoryTreeCache.get();
 
-        return subcategories.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return tree.get(parentId)
+                .map(parent -> parent.getChildren().stream()
+                        .map(node -> toDTO(tree, node, 1))
+                        .collect(Collectors.toList()))
+                .orElseGet(ArrayList::new);
     }
 
     @Override
     public CategoryDTO getCategoryById(Integer id) {
-        Category category = categoryRepository.findById(id)
+        CategoryTree tree = categoryTreeCache.get();
+        CategoryTree.Node node = tree.get(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + id));
 
-        return convertToDTO(category);
+        return toDTO(tree, node, 1);
+    }
+
+    @Override
+    public List<CategoryDTO> getCategoryTree() {
+        CategoryTree tree = categoryTreeCache.get();
+
+        return tree.getRoots().stream()
+                .map(node -> toDTO(tree, node, Integer.MAX_VALUE))
+                .collect(Collectors.toList());
     }
 
     @Override
@@ -110,6 +134,7 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         Category savedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.CatalogType.CATEGORY, savedCategory.getId()));
 
         return convertToDTO(savedCategory);
     }
@@ -133,6 +158,13 @@ public class CategoryServiceImpl implements CategoryService {
                 throw new IllegalArgumentException("Category cannot be its own parent");
             }
 
+            boolean movesUnderDescendant = categoryTreeCache.get().get(id)
+                    .map(node -> node.getDescendantIds().contains(categoryDTO.getParentId()))
+                    .orElse(false);
+            if (movesUnderDescendant) {
+                throw new IllegalArgumentException("Category cannot be moved under one of its subcategories");
+            }
+
             Category parent = categoryRepository.findById(categoryDTO.getParentId())
                     .orElseThrow(() -> new ResourceNotFoundException("Parent category not found with id: " + categoryDTO.getParentId()));
             category.setParent(parent);
@@ -145,6 +177,7 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         Category updatedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.CatalogType.CATEGORY, id));
 
         return convertToDTO(updatedCategory);
     }
@@ -163,14 +196,16 @@ public class CategoryServiceImpl implements CategoryService {
 
 
         categoryRepository.deleteById(id);
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.CatalogType.CATEGORY, id));
     }
 
     @Override
     public List<CategoryDTO> getActiveCategories() {
-        List<Category> categories = categoryRepository.findByStatus(Category.CategoryStatus.active);
+        CategoryTree tree = categoryTreeCache.get();
 
-        return categories.stream()
-                .map(this::convertToDTO)
+        return tree.getNodes().stream()
+                .filter(node -> node.getStatus() == Category.CategoryStatus.active)
+                .map(node -> toDTO(tree, node, 1))
                 .collect(Collectors.toList());
     }
     
@@ -181,11 +216,17 @@ public class CategoryServiceImpl implements CategoryService {
             Category category = categoryRepository.findById(id)
                     .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + id));
             
-            String imageUrl = fileStorageService.storeFile(imageFile, "categories", imageFile.getOriginalFilename());
+            String oldImage = category.getImage();
+            String imageUrl = fileStorageService.storeFile(imageFile);
             
             category.setImage(imageUrl);
             
             Category updatedCategory = categoryRepository.save(category);
+            // Trả tham chiếu của ảnh cũ (cùng giao dịch nên rollback thì refCount cũng giữ nguyên)
+            if (isBlob(oldImage)) {
+                fileStorageService.deleteFile(oldImage);
+            }
+            eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.CatalogType.CATEGORY, id));
             
             return convertToDTO(updatedCategory);
         } catch (IOException e) {
@@ -193,6 +234,10 @@ public class CategoryServiceImpl implements CategoryService {
         }
     }
 
+    private static boolean isBlob(String path) {
+        return path != null && path.startsWith(FileStorageService.BLOB_DIRECTORY + "/");
+    }
+
     private CategoryDTO convertToDTO(Category category) {
         CategoryDTO dto = new CategoryDTO();
         dto.setId(category.getId());
@@ -209,24 +254,46 @@ public class CategoryServiceImpl implements CategoryService {
         dto.setCreatedAt(category.getCreatedAt());
         dto.setUpdatedAt(category.getUpdatedAt());
 
-        List<CategoryDTO> subcategories = category.getSubcategories().stream()
-                .map(sub -> {
-                    CategoryDTO subDto = new CategoryDTO();
-                    subDto.setId(sub.getId());
-                    subDto.setName(sub.getName());
-                    subDto.setDescription(sub.getDescription());
-                    subDto.setImage(sub.getImage());
-                    subDto.setParentId(category.getId());
-                    subDto.setParentName(category.getName());
-                    subDto.setStatus(sub.getStatus().name());
-                    subDto.setCreatedAt(sub.getCreatedAt());
-                    subDto.setUpdatedAt(sub.getUpdatedAt());
-                    return subDto;
+        // Danh mục con và số sản phẩm lấy từ cây trong bộ nhớ thay vì nạp lazy subcategories
+        CategoryTree tree = categoryTreeCache.get();
+        List<CategoryDTO> subcategories = tree.get(category.getId())
+                .map(node -> {
+                    dto.setProductCount(node.getSubtreeProductCount());
+                    return node.getChildren().stream()
+                            .map(child -> toDTO(tree, child, 0))
+                            .collect(Collectors.toList());
                 })
-                .collect(Collectors.toList());
+                .orElseGet(ArrayList::new);
 
         dto.setSubcategories(subcategories);
 
         return dto;
     }
-}
\ No newline at end of file
+
+    // depth = số cấp danh mục con được đưa vào DTO (0: không có, 1: như các API danh sách)
+    private CategoryDTO toDTO(CategoryTree tree, CategoryTree.Node node, int depth) {
+        CategoryDTO dto = new CategoryDTO();
+        dto.setId(node.getId());
+        dto.setName(node.getName());
+        dto.setDescription(node.getDescription());
+        dto.setImage(node.getImage());
+
+        if (node.getParentId() != null) {
+            dto.setParentId(node.getParentId());
+            tree.get(node.getParentId()).ifPresent(parent -> dto.setParentName(parent.getName()));
+        }
+
+        dto.setStatus(node.getStatus().name());
+        dto.setCreatedAt(node.getCreatedAt());
+        dto.setUpdatedAt(node.getUpdatedAt());
+        dto.setProductCount(node.getSubtreeProductCount());
+
+        if (depth > 0) {
+            dto.setSubcategories(node.getChildren().stream()
+                    .map(child -> toDTO(tree, child, depth - 1))
+                    .collect(Collectors.toList()));
+        }
+
+        return dto;
+    }
+}
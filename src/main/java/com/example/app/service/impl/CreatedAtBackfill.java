@@ -0,0 +1,59 @@
+package com.example.app.service.impl;
+
+import com.example.app.repository.OrderRepository;
+import com.example.app.repository.ProductRepository;
+import com.example.app.repository.ReviewRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Điền Created_at còn thiếu của dữ liệu cũ (sản phẩm, đơn hàng, review) trước khi ứng dụng nhận request:
+ * phân trang keyset so sánh trực tiếp trên cột này để dùng chỉ mục, nên dòng NULL sẽ bị bỏ sót và con trỏ
+ * của chúng không giải mã được.
+ */
+@Component
+public class CreatedAtBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(CreatedAtBackfill.class);
+
+    private final ProductRepository productRepository;
+    private final OrderRepository orderRepository;
+    private final ReviewRepository reviewRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public CreatedAtBackfill(ProductRepository productRepository,
+                             OrderRepository orderRepository,
+                             ReviewRepository reviewRepository,
+                             PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.orderRepository = orderRepository;
+        this.reviewRepository = reviewRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void backfill() {
+        backfill("products", productRepository::backfillMissingCreatedAt);
+        backfill("orders", orderRepository::backfillMissingCreatedAt);
+        backfill("reviews", reviewRepository::backfillMissingCreatedAt);
+    }
+
+    private void backfill(String table, Supplier<Integer> update) {
+        try {
+            Integer updated = transactionTemplate.execute(status -> update.get());
+            if (updated != null && updated > 0) {
+                logger.info("Backfilled Created_at for {} {}", updated, table);
+            }
+        } catch (Exception e) {
+            logger.error("Error backfilling Created_at for {}: {}", table, e.getMessage());
+        }
+    }
+}
@@ -392,9 +392,10 @@ public class DashboardStatsServiceImpl implements DashboardStatsService {
             dto.setCategoryId(product.getCategory().getId());
             dto.setCategoryName(product.getCategory().getName());
             
-            String mainImageUrl = product.getMainImageUrl();
-            List<String> images = new ArrayList<>();
-            images.add(mainImageUrl);
+            List<String> images = product.getThumbnailUrlList();
+            if (images.isEmpty()) {
+                images.add(product.getMainImageUrl());
+            }
             dto.setImages(images);
             
             dto.setTotalStockQuantity(product.getTotalStockQuantity());
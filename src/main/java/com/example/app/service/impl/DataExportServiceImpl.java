@@ -0,0 +1,246 @@
+package com.example.app.service.impl;
+
+import com.example.app.entity.Order;
+import com.example.app.entity.Product;
+import com.example.app.service.DataExportService;
+import com.example.app.util.CsvUtils;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Xuất dữ liệu bằng một truy vấn duy nhất đọc qua con trỏ chỉ-tiến (fetch size cố định) và ghi thẳng
+ * từng dòng ra response, nên bộ nhớ dùng không phụ thuộc số dòng và không cần truy vấn COUNT như khi phân trang.
+ * Xuất chạy trên kết nối riêng (không qua pool) bật useCursorFetch để MySQL dùng con trỏ phía server thay vì
+ * nạp toàn bộ kết quả; pool dùng chung giữ nguyên cấu hình và không bị một lượt xuất dài chiếm kết nối.
+ * File CSV chặn công thức trong ô chuỗi (CSV injection); file nhập sản phẩm tự bỏ dấu ' đã thêm.
+ */
+@Service
+public class DataExportServiceImpl implements DataExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataExportServiceImpl.class);
+
+    private static final String[] PRODUCT_COLUMNS = {
+            "product_key", "name", "description", "category", "brand", "base_price", "status", "product_type",
+            "color", "size", "size_type", "stock_quantity", "price_adjustment", "sku", "is_default", "images",
+            "created_at"
+    };
+
+    // Sản phẩm chưa có biến thể xuất một dòng để trống color/size; file nhập hiểu đó là sản phẩm không biến thể.
+    // Ảnh lấy đủ từ product_image (ảnh cấp sản phẩm, ảnh chính trước) thay vì thumbnail_urls chỉ giữ 4 ảnh đầu.
+    private static final String PRODUCT_SELECT = "SELECT p.product_id, p.name, p.description, c.category_name, " +
+            "b.brand_name, p.base_price, p.status, p.product_type, v.color, v.size, v.size_type, v.stock_quantity, " +
+            "v.price_adjustment, v.sku, " +
+            "CASE WHEN v.variant_id = p.default_variant_id THEN 'true' ELSE 'false' END, " +
+            "(SELECT GROUP_CONCAT(pi.image_url ORDER BY pi.is_primary DESC, pi.sort_order, pi.image_id SEPARATOR '|') " +
+            "FROM product_image pi WHERE pi.product_id = p.product_id AND pi.variant_id IS NULL), p.created_at " +
+            "FROM product p " +
+            "JOIN category c ON c.category_id = p.category_id " +
+            "JOIN brand b ON b.brand_id = p.brand_id " +
+            "LEFT JOIN product_variant v ON v.product_id = p.product_id " +
+            "WHERE 1 = 1";
+
+    private static final String[] ORDER_COLUMNS = {
+            "order_id", "created_at", "order_status", "customer_name", "email", "phone", "item_count",
+            "total_amount", "discount_amount", "shipping_fee", "final_amount", "payment_status", "note"
+    };
+
+    private static final String ORDER_SELECT = "SELECT o.order_id, o.created_at, o.order_status, " +
+            "COALESCE(CONCAT(u.first_name, ' ', u.last_name), o.guest_name), " +
+            "COALESCE(u.email, o.guest_email), COALESCE(u.phone, o.guest_phone), " +
+            "(SELECT COALESCE(SUM(oi.quantity), 0) FROM order_item oi WHERE oi.order_id = o.order_id), " +
+            "o.total_amount, o.discount_amount, o.shipping_fee, o.final_amount, pay.status, o.note " +
+            "FROM `order` o " +
+            "LEFT JOIN `user` u ON u.user_id = o.user_id " +
+            "LEFT JOIN payment pay ON pay.order_id = o.order_id " +
+            "WHERE 1 = 1";
+
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public DataExportServiceImpl(ObjectMapper objectMapper,
+                                 @Value("${spring.datasource.url}") String url,
+                                 @Value("${spring.datasource.username:}") String username,
+                                 @Value("${spring.datasource.password:}") String password,
+                                 @Value("${app.export.fetch-size:1000}") int fetchSize,
+                                 @Value("${app.export.group-concat-max-len:1048576}") long groupConcatMaxLen) {
+        // Mỗi lượt xuất mở một kết nối riêng: useCursorFetch chỉ áp dụng ở đây, không cho cả pool
+        DriverManagerDataSource exportDataSource = new DriverManagerDataSource(url, username, password);
+        Properties connectionProperties = new Properties();
+        connectionProperties.setProperty("useCursorFetch", "true");
+        // GROUP_CONCAT mặc định cắt ở 1024 byte, không đủ cho danh sách ảnh dài
+        connectionProperties.setProperty("sessionVariables", "group_concat_max_len=" + groupConcatMaxLen);
+        exportDataSource.setConnectionProperties(connectionProperties);
+        this.streamingJdbcTemplate = new JdbcTemplate(exportDataSource);
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void exportProducts(Format format, Product.ProductStatus status,
+                               LocalDateTime startDate, LocalDateTime endDate, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder(PRODUCT_SELECT);
+        List<Object> params = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND p.status = ?");
+            params.add(status.name());
+        }
+        appendDateRange(sql, params, "p.created_at", startDate, endDate);
+        sql.append(" ORDER BY p.product_id, v.variant_id");
+
+        export("products", format, PRODUCT_COLUMNS, sql.toString(), params, out);
+    }
+
+    @Override
+    public void exportOrders(Format format, Order.OrderStatus status,
+                             LocalDateTime startDate, LocalDateTime endDate, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder(ORDER_SELECT);
+        List<Object> params = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND o.order_status = ?");
+            params.add(status.name());
+        }
+        appendDateRange(sql, params, "o.created_at", startDate, endDate);
+        sql.append(" ORDER BY o.order_id");
+
+        export("orders", format, ORDER_COLUMNS, sql.toString(), params, out);
+    }
+
+    private void appendDateRange(StringBuilder sql, List<Object> params, String column,
+                                 LocalDateTime startDate, LocalDateTime endDate) {
+        if (startDate != null) {
+            sql.append(" AND ").append(column).append(" >= ?");
+            params.add(Timestamp.valueOf(startDate));
+        }
+        if (endDate != null) {
+            sql.append(" AND ").append(column).append(" <= ?");
+            params.add(Timestamp.valueOf(endDate));
+        }
+    }
+
+    private void export(String name, Format format, String[] columns, String sql, List<Object> params,
+                        OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        long[] rows = {0};
+        try (RowWriter writer = format == Format.JSONL ? new JsonLinesWriter(out, columns) : new CsvWriter(out, columns)) {
+            Object[] values = new Object[columns.length];
+            streamingJdbcTemplate.query(sql, (ResultSet rs) -> {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = readValue(rs, i + 1);
+                }
+                try {
+                    writer.write(values);
+                } catch (IOException e) {
+                    // Client ngắt kết nối giữa chừng: dừng đọc con trỏ
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            }, params.toArray());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        logger.info("Exported {} {} rows as {} in {} ms", rows[0], name, format, System.currentTimeMillis() - start);
+    }
+
+    private static Object readValue(ResultSet rs, int column) throws SQLException {
+        Object value = rs.getObject(column);
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return value;
+    }
+
+    private interface RowWriter extends AutoCloseable {
+        void write(Object[] values) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static final class CsvWriter implements RowWriter {
+
+        private final Writer writer;
+
+        CsvWriter(OutputStream out, String[] columns) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            // BOM để Excel nhận đúng tiếng Việt; file nhập sản phẩm tự bỏ BOM
+            writer.write('\uFEFF');
+            CsvUtils.writeGuardedRow(writer, (Object[]) columns);
+        }
+
+        @Override
+        public void write(Object[] values) throws IOException {
+            CsvUtils.writeGuardedRow(writer, values);
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private final class JsonLinesWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+        private final String[] columns;
+
+        JsonLinesWriter(OutputStream out, String[] columns) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            // Không để generator đóng output stream của response; mỗi object kết thúc bằng xuống dòng
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.generator.setRootValueSeparator(null);
+            this.columns = columns;
+        }
+
+        @Override
+        public void write(Object[] values) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < columns.length; i++) {
+                generator.writeFieldName(columns[i]);
+                Object value = values[i];
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof BigDecimal decimal) {
+                    generator.writeNumber(decimal);
+                } else if (value instanceof Integer || value instanceof Long) {
+                    generator.writeNumber(((Number) value).longValue());
+                } else if (value instanceof Boolean bool) {
+                    generator.writeBoolean(bool);
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+}
@@ -1,61 +1,232 @@
 package com.example.app.service.impl;
 
+import com.example.app.entity.ImageBlob;
+import com.example.app.repository.ImageBlobRepository;
 import com.example.app.service.FileStorageService;
+import com.example.app.util.ImageDerivatives;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Lưu file upload theo nội dung: phần multipart (đã nằm trên đĩa) được chuyển sang file tạm, băm SHA-256 bằng
+ * cách đọc tuần tự, rồi chuyển (atomic move) vào blobs/ab/cd/{sha256}.{ext}. Nội dung đã có thì chỉ tăng refCount
+ * trong Image_Blob. Vì tên file là băm nội dung nên file không bao giờ thay đổi và có thể cache vĩnh viễn ở client.
+ * Giải phóng blob chỉ giảm refCount; file được xóa bởi UploadCleanupServiceImpl sau khi xác nhận không còn tham chiếu.
+ */
 @Service
 public class FileStorageServiceImpl implements FileStorageService {
 
+    private static final Logger logger = LoggerFactory.getLogger(FileStorageServiceImpl.class);
+
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "webp", "bmp", "avif");
+    private static final String DEFAULT_EXTENSION = "bin";
+    private static final int LOCK_STRIPES = 64;
+
     @Value("${app.file.upload-dir}")
     private String uploadDir;
 
-    @Value("${app.file.product-image-dir}")
-    private String productImageDir;
+    private final ImageBlobRepository imageBlobRepository;
+    private final UploadIndex uploadIndex;
+    // Khóa theo băm để hai upload cùng nội dung không cùng tạo một blob
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    // Luồng riêng cho upload nhiều file; hàng đợi đầy thì luồng request tự lưu file (tự giới hạn tốc độ)
+    private final ThreadPoolExecutor uploadExecutor;
+
+    @Autowired
+    public FileStorageServiceImpl(ImageBlobRepository imageBlobRepository,
+                                  UploadIndex uploadIndex,
+                                  @Value("${app.file.upload.pool-size:4}") int poolSize,
+                                  @Value("${app.file.upload.queue-capacity:32}") int queueCapacity) {
+        this.imageBlobRepository = imageBlobRepository;
+        this.uploadIndex = uploadIndex;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.uploadExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "upload-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.uploadExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        uploadExecutor.shutdownNow();
+    }
 
     @Override
-    public String storeFile(MultipartFile file, String directory, String customFileName) throws IOException {
-        Path directoryPath = Paths.get(uploadDir, directory);
-        Files.createDirectories(directoryPath);
-
-        String fileName = customFileName;
-        if (fileName == null || fileName.isEmpty()) {
-            String originalFileName = file.getOriginalFilename();
-            String fileExtension = "";
-            if (originalFileName != null && originalFileName.contains(".")) {
-                fileExtension = originalFileName.substring(originalFileName.lastIndexOf("."));
+    public String storeFile(MultipartFile file) throws IOException {
+        Path uploadRoot = Paths.get(uploadDir);
+        Path tempDirectory = uploadRoot.resolve(BLOB_DIRECTORY).resolve("tmp");
+        Files.createDirectories(tempDirectory);
+
+        Path temp = Files.createTempFile(tempDirectory, "upload-", ".part").toAbsolutePath();
+        MessageDigest digest = sha256();
+        long size;
+        try {
+            // Phần đã ghi ra đĩa được container đổi tên sang file tạm (không chép qua bộ nhớ);
+            // đường dẫn phải tuyệt đối, nếu không Tomcat ghi vào thư mục tạm của nó
+            file.transferTo(temp.toFile());
+            try (InputStream in = new DigestInputStream(Files.newInputStream(temp), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
             }
-            fileName = UUID.randomUUID().toString() + fileExtension;
+            size = Files.size(temp);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
         }
+        String hash = HexFormat.of().formatHex(digest.digest());
+
+        try {
+            synchronized (lockFor(hash)) {
+                ImageBlob existing = imageBlobRepository.findById(hash).orElse(null);
+                String path = existing != null ? existing.getPath() : blobPath(hash, extensionOf(file.getOriginalFilename()));
+                Path target = uploadRoot.resolve(path);
 
-        Path filePath = directoryPath.resolve(fileName);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+                if (existing != null && Files.exists(target)) {
+                    imageBlobRepository.incrementRefCount(hash);
+                    // Đánh dấu vừa dùng lại để bộ dọn file mồ côi không xóa trước khi bản ghi ảnh được lưu
+                    Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+                    logger.debug("Deduplicated upload {} -> {}", file.getOriginalFilename(), path);
+                    return path;
+                }
 
-        return directory + "/" + fileName;
+                // Blob mới, hoặc bản ghi còn nhưng file đã mất: ghi lại file từ bản upload này
+                Files.createDirectories(target.getParent());
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                uploadIndex.add(path, size);
+                if (existing != null) {
+                    imageBlobRepository.incrementRefCount(hash);
+                } else {
+                    imageBlobRepository.save(new ImageBlob(hash, path, size, 1, null));
+                }
+                return path;
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
     }
 
     @Override
-    public String storeProductImage(MultipartFile file, Long productId, String fileName) throws IOException {
-        String productDirectory = productImageDir + "/" + productId;
-        return storeFile(file, productDirectory, fileName);
+    public List<String> storeFiles(List<MultipartFile> files) throws IOException {
+        List<Future<String>> futures = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            futures.add(uploadExecutor.submit(() -> storeFile(file)));
+        }
+
+        // Chờ đủ mọi file kể cả khi có file lỗi hay bị ngắt, để biết chính xác những file nào cần giải phóng
+        List<String> paths = new ArrayList<>(files.size());
+        IOException failure = null;
+        boolean interrupted = false;
+        for (Future<String> future : futures) {
+            while (true) {
+                try {
+                    paths.add(future.get());
+                    break;
+                } catch (CancellationException e) {
+                    break;
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof IOException io ? io : new IOException(e.getCause().getMessage(), e.getCause());
+                    }
+                    break;
+                } catch (InterruptedException e) {
+                    if (!interrupted) {
+                        interrupted = true;
+                        dropQueued(futures);
+                    }
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            failure = new InterruptedIOException("Upload interrupted");
+        }
+
+        if (failure != null) {
+            for (String path : paths) {
+                try {
+                    deleteFile(path);
+                } catch (IOException e) {
+                    logger.warn("Failed to release {} after batch upload failure", path, e);
+                }
+            }
+            throw failure;
+        }
+        return paths;
     }
 
     @Override
     public void deleteFile(String filePath) throws IOException {
-        Path path = Paths.get(uploadDir, filePath);
-        Files.deleteIfExists(path);
+        if (filePath == null || filePath.isBlank()) {
+            return;
+        }
+        String hash = hashOf(filePath);
+        if (hash == null) {
+            // File cũ lưu theo tên (trước khi có blob): không chia sẻ nên xóa luôn
+            deleteWithDerivatives(filePath);
+            return;
+        }
+
+        // Không xóa file ở đây: bản ghi khác có thể vẫn trỏ tới blob dù refCount đã về 0
+        imageBlobRepository.decrementRefCount(hash);
+    }
+
+    @Override
+    public long deleteOrphan(String filePath, long cutoffMillis) throws IOException {
+        String hash = hashOf(filePath);
+        if (hash == null) {
+            throw new IllegalArgumentException("Not a content-addressed upload: " + filePath);
+        }
+
+        synchronized (lockFor(hash)) {
+            Path file = Paths.get(uploadDir, filePath);
+            if (Files.exists(file) && Files.getLastModifiedTime(file).toMillis() > cutoffMillis) {
+                return 0;
+            }
+            long reclaimed = sizeOf(file);
+            for (String name : ImageDerivatives.NAMES) {
+                reclaimed += sizeOf(Paths.get(uploadDir, ImageDerivatives.pathOf(filePath, name)));
+            }
+            imageBlobRepository.findById(hash).ifPresent(imageBlobRepository::delete);
+            deleteWithDerivatives(filePath);
+            return reclaimed;
+        }
     }
 
     @Override
@@ -63,24 +234,66 @@ public class FileStorageServiceImpl implements FileStorageService {
         return Paths.get(uploadDir, directory, fileName);
     }
 
-    @Override
-    public List<String> listProductImages(Long productId) {
-        String productDirectory = productImageDir + "/" + productId;
-        Path directoryPath = Paths.get(uploadDir, productDirectory);
-        File directory = directoryPath.toFile();
+    /**
+     * Bỏ các file còn nằm trong hàng đợi. File đang lưu thì không hủy (kể cả cancel(false) cũng làm mất kết quả
+     * trong khi refCount đã tăng) mà để chạy xong rồi giải phóng như các file đã lưu.
+     */
+    private void dropQueued(List<Future<String>> futures) {
+        for (Future<String> future : futures) {
+            if (future instanceof Runnable task && uploadExecutor.remove(task)) {
+                future.cancel(false);
+            }
+        }
+    }
 
-        if (!directory.exists() || !directory.isDirectory()) {
-            return new ArrayList<>();
+    private void deleteWithDerivatives(String filePath) throws IOException {
+        Files.deleteIfExists(Paths.get(uploadDir, filePath));
+        uploadIndex.remove(filePath);
+        // Ảnh thu nhỏ sinh từ file này (nếu có)
+        for (String name : ImageDerivatives.NAMES) {
+            Files.deleteIfExists(Paths.get(uploadDir, ImageDerivatives.pathOf(filePath, name)));
         }
+    }
 
-        File[] files = directory.listFiles();
-        if (files == null) {
-            return new ArrayList<>();
+    private static long sizeOf(Path file) throws IOException {
+        return Files.exists(file) ? Files.size(file) : 0;
+    }
+
+    private Object lockFor(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), locks.length)];
+    }
+
+    // Hai cấp thư mục theo 4 ký tự đầu của băm để mỗi thư mục không chứa quá nhiều file
+    private static String blobPath(String hash, String extension) {
+        return BLOB_DIRECTORY + "/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + "." + extension;
+    }
+
+    /**
+     * @return băm SHA-256 nếu filePath là một blob, ngược lại null
+     */
+    static String hashOf(String filePath) {
+        if (!filePath.startsWith(BLOB_DIRECTORY + "/")) {
+            return null;
         }
+        String fileName = filePath.substring(filePath.lastIndexOf('/') + 1);
+        int dot = fileName.indexOf('.');
+        String hash = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return hash.length() == 64 ? hash : null;
+    }
 
-        return java.util.Arrays.stream(files)
-                .filter(File::isFile)
-                .map(file -> productDirectory + "/" + file.getName())
-                .collect(Collectors.toList());
+    private static String extensionOf(String originalFileName) {
+        if (originalFileName == null || !originalFileName.contains(".")) {
+            return DEFAULT_EXTENSION;
+        }
+        String extension = originalFileName.substring(originalFileName.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        return IMAGE_EXTENSIONS.contains(extension) ? extension : DEFAULT_EXTENSION;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
-}
\ No newline at end of file
+}
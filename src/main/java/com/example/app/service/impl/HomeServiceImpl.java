@@ -0,0 +1,203 @@
+package com.example.app.service.impl;
+
+import com.example.app.cache.ProductLeaderboards;
+import com.example.app.dto.CategoryDTO;
+import com.example.app.dto.HomePageDTO;
+import com.example.app.dto.ProductSummaryDTO;
+import com.example.app.dto.PromotionDTO;
+import com.example.app.dto.SlideBannerDTO;
+import com.example.app.service.CategoryService;
+import com.example.app.service.HomeService;
+import com.example.app.service.ProductService;
+import com.example.app.service.PromotionService;
+import com.example.app.service.SlideBannerService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Trang chủ: tải song song banner, danh mục, hàng mới, bán chạy, đánh giá cao và khuyến mãi trên
+ * một pool luồng riêng có giới hạn. Mỗi phần có thời gian chờ riêng; phần quá hạn, lỗi hoặc bị pool
+ * từ chối dùng dữ liệu tải thành công gần nhất của phần đó (hoặc rỗng), và tác vụ quá hạn bị hủy.
+ * Trang đầy đủ được cache theo cache-ttl-seconds, trang thiếu phần chỉ cache degraded-cache-ttl-seconds
+ * để lúc DB chậm không request nào cũng tải lại, nhưng vẫn sớm thử lại phần bị lỗi.
+ */
+@Service
+public class HomeServiceImpl implements HomeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HomeServiceImpl.class);
+    private static final String HOME_KEY = "home";
+
+    private final SlideBannerService slideBannerService;
+    private final CategoryService categoryService;
+    private final ProductService productService;
+    private final PromotionService promotionService;
+    private final ThreadPoolExecutor homeExecutor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Cache<String, HomePageDTO> cache;
+    private final long sectionTimeoutMillis;
+    private final int sectionSize;
+
+    // Dữ liệu tải thành công gần nhất của từng phần, dùng khi phần đó quá hạn hoặc lỗi
+    private final Map<String, List<?>> lastLoaded = new ConcurrentHashMap<>();
+
+    @Autowired
+    public HomeServiceImpl(SlideBannerService slideBannerService,
+                           CategoryService categoryService,
+                           ProductService productService,
+                           PromotionService promotionService,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.home.executor.pool-size:6}") int poolSize,
+                           @Value("${app.home.executor.queue-capacity:60}") int queueCapacity,
+                           @Value("${app.home.cache-ttl-seconds:30}") long cacheTtlSeconds,
+                           @Value("${app.home.degraded-cache-ttl-seconds:5}") long degradedCacheTtlSeconds,
+                           @Value("${app.home.section-timeout-ms:800}") long sectionTimeoutMillis,
+                           @Value("${app.home.section-size:8}") int sectionSize) {
+        this.slideBannerService = slideBannerService;
+        this.categoryService = categoryService;
+        this.productService = productService;
+        this.promotionService = promotionService;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.homeExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "home-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.homeExecutor.allowCoreThreadTimeOut(true);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Truy vấn của phần đã bị hủy không chạy quá thời gian chờ (làm tròn lên giây)
+        this.readOnlyTransaction.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(sectionTimeoutMillis + 999)));
+        long completeTtlNanos = TimeUnit.SECONDS.toNanos(cacheTtlSeconds);
+        long degradedTtlNanos = TimeUnit.SECONDS.toNanos(degradedCacheTtlSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfter(new Expiry<String, HomePageDTO>() {
+                    @Override
+                    public long expireAfterCreate(String key, HomePageDTO page, long currentTime) {
+                        return page.getFallbackSections().isEmpty() ? completeTtlNanos : degradedTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, HomePageDTO page, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, page, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, HomePageDTO page, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        this.sectionTimeoutMillis = sectionTimeoutMillis;
+        this.sectionSize = sectionSize;
+    }
+
+    @Override
+    public HomePageDTO getHomePage() {
+        // Các request cùng lúc khi cache hết hạn chờ một lần tải duy nhất của khóa này
+        return cache.get(HOME_KEY, key -> loadHomePage());
+    }
+
+    @Override
+    public void evictHomePage() {
+        cache.invalidateAll();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        homeExecutor.shutdownNow();
+    }
+
+    private HomePageDTO loadHomePage() {
+        Set<String> fallbacks = ConcurrentHashMap.newKeySet();
+
+        CompletableFuture<List<SlideBannerDTO>> banners = section("banners",
+                slideBannerService::getAllActiveBanners, fallbacks);
+        CompletableFuture<List<CategoryDTO>> categories = section("categories",
+                categoryService::getParentCategories, fallbacks);
+        CompletableFuture<List<ProductSummaryDTO>> newArrivals = section("newArrivals",
+                () -> productService.getNewArrivalSummaries(sectionSize), fallbacks);
+        CompletableFuture<List<ProductSummaryDTO>> bestSelling = section("bestSelling",
+                () -> productService.getBestSellingSummaries(ProductLeaderboards.WINDOW_30_DAYS, sectionSize), fallbacks);
+        CompletableFuture<List<ProductSummaryDTO>> topRated = section("topRated",
+                () -> productService.getTopRatedSummaries(sectionSize), fallbacks);
+        CompletableFuture<List<PromotionDTO>> promotions = section("promotions",
+                promotionService::getActivePromotions, fallbacks);
+
+        CompletableFuture.allOf(banners, categories, newArrivals, bestSelling, topRated, promotions).join();
+
+        return new HomePageDTO(
+                banners.join(),
+                categories.join(),
+                newArrivals.join(),
+                bestSelling.join(),
+                topRated.join(),
+                promotions.join(),
+                new ArrayList<>(fallbacks),
+                LocalDateTime.now()
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<List<T>> section(String name,
+                                                   Supplier<List<T>> loader,
+                                                   Set<String> fallbacks) {
+        CompletableFuture<List<T>> result = new CompletableFuture<>();
+        Future<?> task = null;
+        try {
+            task = homeExecutor.submit(() -> {
+                try {
+                    result.complete(readOnlyTransaction.execute(status -> loader.get()));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+
+        Future<?> running = task;
+        return result
+                .orTimeout(sectionTimeoutMillis, TimeUnit.MILLISECONDS)
+                .handle((value, e) -> {
+                    if (e == null) {
+                        lastLoaded.put(name, value);
+                        return value;
+                    }
+                    // orTimeout chỉ hoàn thành future; hủy tác vụ để nó không chiếm luồng của pool sau khi đã quá hạn
+                    if (running != null) {
+                        running.cancel(true);
+                    }
+                    logger.warn("Home section {} fell back: {}", name, e.toString());
+                    fallbacks.add(name);
+                    List<?> last = lastLoaded.get(name);
+                    return last != null ? (List<T>) last : new ArrayList<>();
+                });
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.app.service.impl;
+
+import com.example.app.event.ProductChangedEvent;
+import com.example.app.repository.ProductImageRepository;
+import com.example.app.service.FileStorageService;
+import com.example.app.service.ImageDerivativeService;
+import com.example.app.util.ImageDerivatives;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sinh ảnh thu nhỏ thumb/card/zoom (JPEG) cho ảnh sản phẩm trên một pool luồng riêng có giới hạn,
+ * chỉ dùng ImageIO của JDK. Ảnh lớn được đọc với subsampling để không giải nén toàn bộ độ phân giải,
+ * sau đó thu nhỏ dần từng nửa (bản nhỏ hơn sinh từ bản lớn hơn). Xong thì bật cờ derivativesReady
+ * và phát ProductChangedEvent IMAGE để cache chi tiết sản phẩm trả về URL mới. Chỉ ảnh gốc không đọc được mới
+ * bị đánh dấu false vĩnh viễn; lỗi tạm thời (ghi file, hết bộ nhớ) để cờ NULL và tăng số lần thử để lượt quét
+ * làm lại, tối đa app.image.max-attempts lần.
+ */
+@Service
+public class ImageDerivativeServiceImpl implements ImageDerivativeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivativeServiceImpl.class);
+
+    private final ProductImageRepository productImageRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Path uploadRoot;
+    // Sắp theo kích thước giảm dần để bản sau thu nhỏ từ bản trước
+    private final Map<String, Integer> sizes = new LinkedHashMap<>();
+    private final float jpegQuality;
+    private final long maxPixels;
+    private final int maxAttempts;
+    private final ThreadPoolExecutor imageExecutor;
+
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Autowired
+    public ImageDerivativeServiceImpl(ProductImageRepository productImageRepository,
+                                      ApplicationEventPublisher eventPublisher,
+                                      @Value("${app.file.upload-dir}") String uploadDir,
+                                      @Value("${app.image.zoom-size:1200}") int zoomSize,
+                                      @Value("${app.image.card-size:480}") int cardSize,
+                                      @Value("${app.image.thumb-size:160}") int thumbSize,
+                                      @Value("${app.image.jpeg-quality:0.82}") float jpegQuality,
+                                      @Value("${app.image.max-pixels:50000000}") long maxPixels,
+                                      @Value("${app.image.max-attempts:5}") int maxAttempts,
+                                      @Value("${app.image.executor.pool-size:2}") int poolSize,
+                                      @Value("${app.image.executor.queue-capacity:200}") int queueCapacity) {
+        this.productImageRepository = productImageRepository;
+        this.eventPublisher = eventPublisher;
+        this.uploadRoot = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.sizes.put(ImageDerivatives.ZOOM, zoomSize);
+        this.sizes.put(ImageDerivatives.CARD, cardSize);
+        this.sizes.put(ImageDerivatives.THUMB, thumbSize);
+        this.jpegQuality = jpegQuality;
+        this.maxPixels = maxPixels;
+        this.maxAttempts = maxAttempts;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.imageExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    // Không tranh CPU với luồng xử lý request
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+        this.imageExecutor.allowCoreThreadTimeOut(true);
+        // Đọc/ghi trong bộ nhớ thay vì file cache tạm của ImageIO
+        ImageIO.setUseCache(false);
+    }
+
+    @Override
+    public void enqueue(String imageUrl) {
+        if (imageUrl == null || !inFlight.add(imageUrl)) {
+            return;
+        }
+        try {
+            imageExecutor.execute(() -> process(imageUrl));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(imageUrl);
+            rejected.incrementAndGet();
+            logger.debug("Image queue full, {} will be picked up by the next sweep", imageUrl);
+        }
+    }
+
+    /**
+     * Xử lý ảnh chưa có bản thu nhỏ (ảnh cũ, ảnh bị từ chối khi hàng đợi đầy hoặc khi ứng dụng dừng giữa chừng),
+     * mỗi lượt chỉ lấy vừa đủ chỗ trống của hàng đợi.
+     */
+    @Scheduled(initialDelayString = "${app.image.sweep-interval-ms:60000}",
+            fixedDelayString = "${app.image.sweep-interval-ms:60000}")
+    public void sweep() {
+        int capacity = imageExecutor.getQueue().remainingCapacity();
+        if (capacity == 0) {
+            return;
+        }
+        try {
+            List<String> pending = productImageRepository.findImageUrlsWithoutDerivatives(maxAttempts, PageRequest.of(0, capacity));
+            pending.forEach(this::enqueue);
+        } catch (Exception e) {
+            logger.error("Error scanning images without derivatives: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("processed", processed.get());
+        stats.put("failed", failed.get());
+        stats.put("rejected", rejected.get());
+        stats.put("queued", imageExecutor.getQueue().size());
+        stats.put("active", imageExecutor.getActiveCount());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        imageExecutor.shutdownNow();
+    }
+
+    private void process(String imageUrl) {
+        long start = System.currentTimeMillis();
+        // null: lỗi tạm thời, giữ cờ NULL để thử lại
+        Boolean ready = null;
+        try {
+            if (!ImageDerivatives.isLocal(imageUrl)) {
+                throw new UnreadableImageException("Not a stored upload");
+            }
+            Path source = uploadRoot.resolve(imageUrl).normalize();
+            if (!source.startsWith(uploadRoot) || !Files.isRegularFile(source)) {
+                throw new UnreadableImageException("File not found");
+            }
+
+            // Blob dùng chung nội dung: ảnh thu nhỏ đã sinh cho lần upload trước vẫn đúng
+            if (imageUrl.startsWith(FileStorageService.BLOB_DIRECTORY + "/") && derivativesExist(imageUrl)) {
+                ready = true;
+            } else {
+                BufferedImage current = read(source, sizes.values().iterator().next());
+                for (Map.Entry<String, Integer> size : sizes.entrySet()) {
+                    current = scale(current, size.getValue());
+                    Path target = uploadRoot.resolve(ImageDerivatives.pathOf(imageUrl, size.getKey()));
+                    writeJpeg(current, target);
+                }
+                ready = true;
+                processed.incrementAndGet();
+                logger.debug("Generated derivatives for {} in {} ms", imageUrl, System.currentTimeMillis() - start);
+            }
+        } catch (UnreadableImageException e) {
+            ready = false;
+            failed.incrementAndGet();
+            logger.warn("Could not generate derivatives for {}: {}", imageUrl, e.getMessage());
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            logger.warn("Could not generate derivatives for {}, will retry: {}", imageUrl, e.getMessage());
+        } catch (OutOfMemoryError e) {
+            failed.incrementAndGet();
+            logger.error("Out of memory generating derivatives for {}", imageUrl);
+        } finally {
+            inFlight.remove(imageUrl);
+        }
+
+        try {
+            if (ready == null) {
+                productImageRepository.incrementDerivativeAttempts(imageUrl);
+            } else if (productImageRepository.updateDerivativesReady(imageUrl, ready) > 0 && ready) {
+                for (Integer productId : productImageRepository.findProductIdsByImageUrl(imageUrl)) {
+                    eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.ChangeType.IMAGE));
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error updating derivative state for {}: {}", imageUrl, e.getMessage());
+        }
+    }
+
+    private boolean derivativesExist(String imageUrl) {
+        return sizes.keySet().stream()
+                .allMatch(name -> Files.isRegularFile(uploadRoot.resolve(ImageDerivatives.pathOf(imageUrl, name))));
+    }
+
+    private BufferedImage read(Path source, int largestEdge) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new UnreadableImageException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new UnreadableImageException("Image too large: " + width + "x" + height);
+                }
+                // Bỏ bớt điểm ảnh ngay khi giải nén, vẫn giữ gấp đôi cạnh lớn nhất cần sinh
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(width, height) / (largestEdge * 2));
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return toRgb(reader.read(0, param));
+            } catch (IOException e) {
+                if (e instanceof UnreadableImageException) {
+                    throw e;
+                }
+                // File hỏng/cắt cụt: giải nén lại cũng lỗi
+                throw new UnreadableImageException("Cannot decode image: " + e.getMessage());
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // JPEG không có kênh alpha: nền trong suốt (PNG/GIF) được phủ màu trắng
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rgb;
+    }
+
+    /**
+     * Thu nhỏ để cạnh lớn nhất không vượt maxEdge (không phóng to). Giảm từng nửa bằng nội suy
+     * bilinear cho chất lượng gần với bicubic nhưng nhanh hơn nhiều.
+     */
+    private static BufferedImage scale(BufferedImage source, int maxEdge) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double ratio = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+
+        BufferedImage current = source;
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = resize(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        if (current.getWidth() != targetWidth || current.getHeight() != targetHeight) {
+            current = resize(current, targetWidth, targetHeight);
+        }
+        return current;
+    }
+
+    private static BufferedImage resize(BufferedImage source, int width, int height) {
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        // Client không bao giờ thấy file ghi dở
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Ảnh gốc không thể sinh ảnh thu nhỏ dù thử lại (không tồn tại, sai định dạng, hỏng, quá lớn)
+     */
+    private static class UnreadableImageException extends IOException {
+        UnreadableImageException(String message) {
+            super(message);
+        }
+    }
+}
@@ -17,13 +17,17 @@ import com.example.app.entity.ProductImage;
 import com.example.app.entity.ProductVariant;
 import com.example.app.entity.Promotion;
 import com.example.app.entity.User;
+import com.example.app.event.OrderStatusChangedEvent;
+import com.example.app.event.ProductChangedEvent;
 import com.example.app.exception.ResourceNotFoundException;
 import com.example.app.repository.*;
 import com.example.app.service.EmailService;
 import com.example.app.service.OrderService;
+import com.example.app.util.CursorUtils;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -60,6 +64,7 @@ public class OrderServiceImpl implements OrderService {
     private final PaymentRepository paymentRepository;
     private final ModelMapper modelMapper;
     private final EmailService emailService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public OrderServiceImpl(
@@ -74,7 +79,8 @@ public class OrderServiceImpl implements OrderService {
             DeliveryRepository deliveryRepository,
             PaymentRepository paymentRepository,
             ModelMapper modelMapper,
-            EmailService emailService) {
+            EmailService emailService,
+            ApplicationEventPublisher eventPublisher) {
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
         this.userRepository = userRepository;
@@ -87,6 +93,7 @@ public class OrderServiceImpl implements OrderService {
         this.paymentRepository = paymentRepository;
         this.modelMapper = modelMapper;
         this.emailService = emailService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -110,6 +117,41 @@ public class OrderServiceImpl implements OrderService {
         );
     }
 
+    @Override
+    public PagedResponse<OrderDTO> getOrdersByCursor(String cursor, int size, String sortBy, String sortDir) {
+        // Con trỏ gắn với cách sắp xếp đã tạo ra nó: dùng lại với sortBy/sortDir khác bị từ chối
+        String sort = sortBy + ":" + (sortDir.equalsIgnoreCase("desc") ? "desc" : "asc");
+        CursorUtils.Cursor position = CursorUtils.decode(cursor, sort);
+        Integer lastId = position != null ? position.getId() : null;
+        boolean desc = sortDir.equalsIgnoreCase("desc");
+        Pageable limit = PageRequest.of(0, size + 1);
+
+        List<Order> rows;
+        if ("createdAt".equals(sortBy)) {
+            LocalDateTime lastKey = position != null ? position.getKeyAsDateTime() : null;
+            rows = desc ? orderRepository.findKeysetByCreatedAtDesc(lastKey, lastId, limit)
+                    : orderRepository.findKeysetByCreatedAtAsc(lastKey, lastId, limit);
+        } else if ("id".equals(sortBy)) {
+            rows = desc ? orderRepository.findKeysetByIdDesc(lastId, limit)
+                    : orderRepository.findKeysetByIdAsc(lastId, limit);
+        } else {
+            throw new IllegalArgumentException("Cursor pagination does not support sorting by: " + sortBy);
+        }
+
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            Order last = rows.get(size - 1);
+            nextCursor = CursorUtils.encode(sort, "createdAt".equals(sortBy) ? last.getCreatedAt() : last.getId(), last.getId());
+        }
+
+        List<OrderDTO> content = rows.stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+
+        return PagedResponse.ofCursor(content, size, nextCursor);
+    }
+
     @Override
     public OrderDTO getOrderById(Integer id) {
         Order order = orderRepository.findByIdWithDetails(id)
@@ -278,6 +320,7 @@ public class OrderServiceImpl implements OrderService {
                 variant.setStatus(ProductVariant.VariantStatus.out_of_stock);
             }
             variantRepository.save(variant);
+            eventPublisher.publishEvent(new ProductChangedEvent(variant.getProduct().getId(), ProductChangedEvent.ChangeType.STOCK));
         }
 
         Delivery delivery = new Delivery();
@@ -316,8 +359,10 @@ public class OrderServiceImpl implements OrderService {
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + id));
 
+        Order.OrderStatus previousStatus = order.getOrderStatus();
         order.setOrderStatus(status);
         Order updatedOrder = orderRepository.save(order);
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(id, previousStatus, status, order.getCreatedAt()));
 
         Optional<Delivery> deliveryOpt = deliveryRepository.findByOrderId(id);
         if (deliveryOpt.isPresent()) {
@@ -354,6 +399,7 @@ public class OrderServiceImpl implements OrderService {
                         variant.setStatus(ProductVariant.VariantStatus.active);
                     }
                     variantRepository.save(variant);
+                    eventPublisher.publishEvent(new ProductChangedEvent(variant.getProduct().getId(), ProductChangedEvent.ChangeType.STOCK));
                 }
             }
         }
@@ -719,6 +765,8 @@ public class OrderServiceImpl implements OrderService {
         }
 
         Order updatedOrder = orderRepository.save(order);
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, Order.OrderStatus.shipped,
+                Order.OrderStatus.delivered, order.getCreatedAt()));
 
         sendOrderStatusUpdateEmail(updatedOrder, Order.OrderStatus.shipped.name());
 
@@ -770,9 +818,12 @@ public class OrderServiceImpl implements OrderService {
                 variant.setStatus(ProductVariant.VariantStatus.active);
             }
             variantRepository.save(variant);
+            eventPublisher.publishEvent(new ProductChangedEvent(variant.getProduct().getId(), ProductChangedEvent.ChangeType.STOCK));
         }
 
         Order updatedOrder = orderRepository.save(order);
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, Order.OrderStatus.pending,
+                Order.OrderStatus.cancelled, order.getCreatedAt()));
 
         sendOrderStatusUpdateEmail(updatedOrder, oldStatus);
 
@@ -0,0 +1,413 @@
+package com.example.app.service.impl;
+
+import com.example.app.dto.ProductDTO;
+import com.example.app.dto.ProductImageDTO;
+import com.example.app.dto.ProductVariantDTO;
+import com.example.app.dto.RelatedProductDTO;
+import com.example.app.dto.ReviewDTO;
+import com.example.app.entity.Product;
+import com.example.app.entity.ProductImage;
+import com.example.app.entity.ProductRating;
+import com.example.app.entity.ProductVariant;
+import com.example.app.entity.Review;
+import com.example.app.repository.ProductRepository;
+import com.example.app.repository.ReviewRepository;
+import com.example.app.service.ProductRatingService;
+import com.example.app.service.RelatedProductService;
+import com.example.app.util.ImageDerivatives;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Chuyển một trang sản phẩm sang ProductDTO bằng một số truy vấn cố định
+ * (đánh giá, số lượng review, review mới nhất và sản phẩm liên quan được
+ * lấy theo tập id của cả trang thay vì từng sản phẩm một).
+ */
+@Component
+public class ProductDTOAssembler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductDTOAssembler.class);
+
+    static final int EMBEDDED_REVIEW_LIMIT = 10;
+
+    private final ProductRepository productRepository;
+    private final ReviewRepository reviewRepository;
+    private final RelatedProductService relatedProductService;
+    private final ProductRatingService productRatingService;
+
+    @Autowired
+    public ProductDTOAssembler(
+            ProductRepository productRepository,
+            ReviewRepository reviewRepository,
+            RelatedProductService relatedProductService,
+            ProductRatingService productRatingService) {
+        this.productRepository = productRepository;
+        this.reviewRepository = reviewRepository;
+        this.relatedProductService = relatedProductService;
+        this.productRatingService = productRatingService;
+    }
+
+    @Transactional(readOnly = true)
+    public ProductDTO toDTO(Product product) {
+        if (product == null) {
+            return null;
+        }
+        List<ProductDTO> dtos = toDTOs(Collections.singletonList(product));
+        return dtos.isEmpty() ? null : dtos.get(0);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductDTO> toDTOsByIds(List<Integer> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Product> hydrated = productRepository.findByIdInWithVariantsAndImages(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity(), (a, b) -> a));
+
+        List<Product> ordered = new ArrayList<>();
+        for (Integer id : productIds) {
+            Product product = hydrated.get(id);
+            if (product != null) {
+                ordered.add(product);
+            }
+        }
+        return assemble(ordered);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductDTO> toDTOs(List<Product> products) {
+        if (products == null || products.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        boolean needsHydration = products.stream().anyMatch(p -> p != null && !isHydrated(p));
+        if (needsHydration) {
+            List<Integer> ids = products.stream()
+                    .filter(p -> p != null)
+                    .map(Product::getId)
+                    .collect(Collectors.toList());
+            return toDTOsByIds(ids);
+        }
+        return assemble(products);
+    }
+
+    private List<ProductDTO> assemble(List<Product> products) {
+        List<Integer> ids = products.stream()
+                .filter(p -> p != null)
+                .map(Product::getId)
+                .distinct()
+                .collect(Collectors.toList());
+
+        Map<Integer, ProductRating> ratings = new HashMap<>();
+        Map<Integer, List<ReviewDTO>> latestReviews = new HashMap<>();
+        try {
+            ratings = productRatingService.getRatings(ids);
+            latestReviews = loadLatestReviews(ids);
+        } catch (Exception e) {
+            logger.warn("Error getting review stats for products {}: {}", ids, e.getMessage(), e);
+        }
+
+        Map<Integer, List<RelatedProductDTO>> relatedProducts = new HashMap<>();
+        try {
+            relatedProducts = relatedProductService.getRelatedProductsForProducts(ids);
+        } catch (Exception e) {
+            logger.warn("Error getting related products for products {}: {}", ids, e.getMessage(), e);
+        }
+
+        List<ProductDTO> result = new ArrayList<>();
+        for (Product product : products) {
+            try {
+                ProductDTO dto = convertToDTOSafe(product);
+                if (dto == null) {
+                    logger.warn("Skipping null product DTO for product ID: {}",
+                            product != null ? product.getId() : "unknown");
+                    continue;
+                }
+
+                ProductRating rating = ratings.get(product.getId());
+                dto.setAverageRating(rating != null ? rating.getAverageRating() : 0.0);
+                dto.setReviewCount(rating != null ? rating.getRatingCount() : 0L);
+                dto.setReviews(latestReviews.getOrDefault(product.getId(), new ArrayList<>()));
+                dto.setRelatedProducts(relatedProducts.getOrDefault(product.getId(), new ArrayList<>()));
+
+                result.add(dto);
+            } catch (Exception e) {
+                logger.error("Error converting product with ID {}: {}",
+                        product != null ? product.getId() : "unknown", e.getMessage(), e);
+            }
+        }
+        return result;
+    }
+
+    private Map<Integer, List<ReviewDTO>> loadLatestReviews(List<Integer> productIds) {
+        List<Integer> reviewIds = reviewRepository.findLatestReviewIdsByProductIds(productIds, EMBEDDED_REVIEW_LIMIT);
+        if (reviewIds.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        return reviewRepository.findAllWithUserByIdIn(reviewIds).stream()
+                .sorted(Comparator.comparing(Review::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+                        .thenComparing(Review::getId, Comparator.reverseOrder()))
+                .collect(Collectors.groupingBy(
+                        review -> review.getProduct().getId(),
+                        Collectors.mapping(this::convertReviewToDTO, Collectors.toList())));
+    }
+
+    private boolean isHydrated(Product product) {
+        if (!Hibernate.isInitialized(product.getVariants()) || !Hibernate.isInitialized(product.getImages())) {
+            return false;
+        }
+        for (ProductVariant variant : product.getVariants()) {
+            if (variant != null && !Hibernate.isInitialized(variant.getImages())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ReviewDTO convertReviewToDTO(Review review) {
+        ReviewDTO reviewDTO = new ReviewDTO();
+        reviewDTO.setId(review.getId());
+        reviewDTO.setProductId(review.getProduct().getId());
+        reviewDTO.setProductName(review.getProduct().getName());
+        reviewDTO.setUserId(review.getUser().getId());
+        reviewDTO.setUsername(review.getUser().getUsername());
+        reviewDTO.setRating(review.getRating());
+        reviewDTO.setTitle(review.getTitle());
+        reviewDTO.setContent(review.getContent());
+        reviewDTO.setComment(review.getComment());
+        reviewDTO.setCreatedAt(review.getCreatedAt());
+        reviewDTO.setUpdatedAt(review.getUpdatedAt());
+        return reviewDTO;
+    }
+
+    private ProductDTO convertToDTOSafe(Product product) {
+        try {
+            if (product == null) {
+                return null;
+            }
+
+            ProductDTO dto = new ProductDTO();
+            dto.setId(product.getId());
+            dto.setName(product.getName());
+            dto.setDescription(product.getDescription());
+            dto.setBasePrice(product.getBasePrice());
+
+            if (product.getCategory() != null) {
+                dto.setCategoryId(product.getCategory().getId());
+                dto.setCategoryName(product.getCategory().getName());
+            }
+
+            if (product.getBrand() != null) {
+                dto.setBrandId(product.getBrand().getId());
+                dto.setBrandName(product.getBrand().getName());
+            }
+
+            if (product.getProductType() != null) {
+                dto.setProductType(product.getProductType().name());
+            }
+
+            try {
+                dto.setTotalStockQuantity(product.getTotalStockQuantity());
+            } catch (Exception e) {
+                logger.warn("Error calculating total stock for product ID {}: {}", product.getId(), e.getMessage(), e);
+                int totalStock = 0;
+                List<ProductVariant> safeVariants = safeCollectionCopy(product.getVariants(),
+                    "Error copying variants for product ID ", product.getId());
+                for (ProductVariant variant : safeVariants) {
+                    if (variant != null && variant.getStockQuantity() != null) {
+                        totalStock += variant.getStockQuantity();
+                    }
+                }
+                dto.setTotalStockQuantity(totalStock);
+            }
+
+            if (product.getDefaultVariant() != null) {
+                dto.setDefaultVariantId(product.getDefaultVariant().getId());
+            }
+
+            if (product.getStatus() != null) {
+                dto.setStatus(product.getStatus().name());
+            }
+
+            dto.setCreatedAt(product.getCreatedAt());
+            dto.setUpdatedAt(product.getUpdatedAt());
+
+            List<ProductVariant> safeVariants = safeCollectionCopy(product.getVariants(),
+                "Error copying variants for product ID ", product.getId());
+
+            if (!safeVariants.isEmpty()) {
+                List<ProductVariantDTO> variantDTOs = new ArrayList<>();
+                for (ProductVariant variant : safeVariants) {
+                    try {
+                        ProductVariantDTO variantDTO = convertVariantToDTOSafe(variant);
+                        if (variantDTO != null) {
+                            variantDTOs.add(variantDTO);
+                        }
+                    } catch (Exception e) {
+                        logger.warn("Error converting variant for product ID {}: {}", product.getId(), e.getMessage(), e);
+                    }
+                }
+                dto.setVariants(variantDTOs);
+            } else {
+                dto.setVariants(new ArrayList<>());
+            }
+
+            List<ProductImage> safeImages = safeCollectionCopy(product.getImages(),
+                "Error copying images for product ID ", product.getId());
+
+            if (!safeImages.isEmpty()) {
+                List<String> imageUrls = new ArrayList<>();
+                for (ProductImage img : safeImages) {
+                    if (img != null && img.getVariant() == null && img.getImageURL() != null) {
+                        imageUrls.add(img.getImageURL());
+                    }
+                }
+                dto.setImages(imageUrls);
+            } else {
+                dto.setImages(new ArrayList<>());
+            }
+
+            return dto;
+        } catch (Exception e) {
+            logger.error("Error converting product to DTO: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private ProductVariantDTO convertVariantToDTOSafe(ProductVariant variant) {
+        try {
+            if (variant == null) {
+                return null;
+            }
+
+            ProductVariantDTO dto = new ProductVariantDTO();
+            dto.setId(variant.getId());
+
+            if (variant.getProduct() != null) {
+                dto.setProductId(variant.getProduct().getId());
+            }
+
+            dto.setColor(variant.getColor());
+            dto.setSize(variant.getSize());
+
+            if (variant.getSizeType() != null) {
+                dto.setSizeType(variant.getSizeType().name());
+            }
+
+            dto.setStockQuantity(variant.getStockQuantity());
+            dto.setPriceAdjustment(variant.getPriceAdjustment());
+
+            try {
+                dto.setFinalPrice(variant.getFinalPrice());
+            } catch (Exception e) {
+                logger.warn("Error calculating final price for variant ID {}: {}", variant.getId(), e.getMessage(), e);
+                if (variant.getProduct() != null && variant.getProduct().getBasePrice() != null) {
+                    dto.setFinalPrice(variant.getProduct().getBasePrice().add(variant.getPriceAdjustment()));
+                } else {
+                    dto.setFinalPrice(variant.getPriceAdjustment());
+                }
+            }
+
+            dto.setSku(variant.getSku());
+
+            if (variant.getStatus() != null) {
+                dto.setStatus(variant.getStatus().name());
+            }
+
+            try {
+                Product product = variant.getProduct();
+                if (product != null && product.getDefaultVariant() != null) {
+                    dto.setIsPrimary(product.getDefaultVariant().getId().equals(variant.getId()));
+                } else {
+                    dto.setIsPrimary(false);
+                }
+            } catch (Exception e) {
+                logger.warn("Error checking if variant is primary for variant ID {}: {}", variant.getId(), e.getMessage(), e);
+                dto.setIsPrimary(false);
+            }
+
+            List<ProductImage> safeImages = safeCollectionCopy(variant.getImages(),
+                "Error copying images for variant ID ", variant.getId());
+
+            if (!safeImages.isEmpty()) {
+                List<ProductImageDTO> imageDTOs = new ArrayList<>();
+                for (ProductImage image : safeImages) {
+                    try {
+                        ProductImageDTO imageDTO = convertImageToDTOSafe(image);
+                        if (imageDTO != null) {
+                            imageDTOs.add(imageDTO);
+                        }
+                    } catch (Exception e) {
+                        logger.warn("Error converting image for variant ID {}: {}", variant.getId(), e.getMessage(), e);
+                    }
+                }
+                dto.setImages(imageDTOs);
+            } else {
+                dto.setImages(new ArrayList<>());
+            }
+
+            return dto;
+        } catch (Exception e) {
+            logger.error("Error converting variant to DTO: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private ProductImageDTO convertImageToDTOSafe(ProductImage image) {
+        try {
+            if (image == null) {
+                return null;
+            }
+
+            ProductImageDTO dto = new ProductImageDTO();
+            dto.setId(image.getId());
+
+            if (image.getProduct() != null) {
+                dto.setProductId(image.getProduct().getId());
+            }
+
+            if (image.getVariant() != null) {
+                dto.setVariantId(image.getVariant().getId());
+            }
+
+            dto.setImageURL(image.getImageURL());
+            dto.setDerivativeURLs(ImageDerivatives.urlsOf(image));
+            dto.setIsPrimary(image.getIsPrimary());
+            dto.setSortOrder(image.getSortOrder());
+            dto.setAltText(image.getAltText());
+            dto.setCreatedAt(image.getCreatedAt());
+
+            return dto;
+        } catch (Exception e) {
+            logger.error("Error converting image to DTO: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private <T> List<T> safeCollectionCopy(Set<T> collection, String errorMessage, Integer entityId) {
+        try {
+            if (collection == null) {
+                return new ArrayList<>();
+            }
+            return new ArrayList<>(collection);
+        } catch (Exception e) {
+            logger.warn("{}{}: {}", errorMessage, entityId, e.getMessage(), e);
+            return new ArrayList<>();
+        }
+    }
+}
@@ -4,15 +4,19 @@ import com.example.app.dto.ProductImageDTO;
 import com.example.app.entity.Product;
 import com.example.app.entity.ProductImage;
 import com.example.app.entity.ProductVariant;
+import com.example.app.event.ProductChangedEvent;
 import com.example.app.exception.ResourceNotFoundException;
 import com.example.app.repository.ProductImageRepository;
 import com.example.app.repository.ProductRepository;
 import com.example.app.repository.ProductVariantRepository;
 import com.example.app.service.ProductImageService;
+import com.example.app.util.ImageDerivatives;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -25,15 +29,21 @@ public class ProductImageServiceImpl implements ProductImageService {
     private final ProductImageRepository productImageRepository;
     private final ProductRepository productRepository;
     private final ProductVariantRepository variantRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductImageSummaryUpdater productImageSummaryUpdater;
 
     @Autowired
     public ProductImageServiceImpl(
             ProductImageRepository productImageRepository,
             ProductRepository productRepository,
-            ProductVariantRepository variantRepository) {
+            ProductVariantRepository variantRepository,
+            ApplicationEventPublisher eventPublisher,
+            ProductImageSummaryUpdater productImageSummaryUpdater) {
         this.productImageRepository = productImageRepository;
         this.productRepository = productRepository;
         this.variantRepository = variantRepository;
+        this.eventPublisher = eventPublisher;
+        this.productImageSummaryUpdater = productImageSummaryUpdater;
     }
 
     @Override
@@ -99,10 +109,51 @@ public class ProductImageServiceImpl implements ProductImageService {
         }
 
         ProductImage savedImage = productImageRepository.save(image);
+        productImageSummaryUpdater.refresh(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(product.getId(), ProductChangedEvent.ChangeType.IMAGE));
 
         return convertToDTO(savedImage);
     }
 
+    @Override
+    @Transactional
+    public List<ProductImageDTO> createImages(Integer productId, Integer variantId, List<String> imageUrls, boolean isMainImage) {
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
+
+        ProductVariant variant = null;
+        if (variantId != null) {
+            variant = variantRepository.findById(variantId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product variant not found with id: " + variantId));
+
+            if (!variant.getProduct().getId().equals(product.getId())) {
+                throw new IllegalArgumentException("Variant does not belong to the specified product");
+            }
+        }
+
+        // Một truy vấn MAX thay vì đọc lại toàn bộ ảnh cho mỗi file
+        Integer maxSortOrder = productImageRepository.findMaxSortOrderByProductId(productId);
+        int nextSortOrder = maxSortOrder != null ? maxSortOrder + 1 : 0;
+
+        List<ProductImage> images = new ArrayList<>(imageUrls.size());
+        for (int i = 0; i < imageUrls.size(); i++) {
+            ProductImage image = new ProductImage();
+            image.setProduct(product);
+            image.setVariant(variant);
+            image.setImageURL(imageUrls.get(i));
+            image.setSortOrder(i == 0 && isMainImage ? 0 : nextSortOrder + i);
+            images.add(image);
+        }
+
+        List<ProductImage> savedImages = productImageRepository.saveAll(images);
+        productImageSummaryUpdater.refresh(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(product.getId(), ProductChangedEvent.ChangeType.IMAGE));
+
+        return savedImages.stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+
     @Override
     @Transactional
     public ProductImageDTO updateImage(Integer id, ProductImageDTO imageDTO) {
@@ -133,6 +184,8 @@ public class ProductImageServiceImpl implements ProductImageService {
         }
 
         ProductImage updatedImage = productImageRepository.save(image);
+        productImageSummaryUpdater.refresh(image.getProduct());
+        eventPublisher.publishEvent(new ProductChangedEvent(image.getProduct().getId(), ProductChangedEvent.ChangeType.IMAGE));
 
         return convertToDTO(updatedImage);
     }
@@ -140,11 +193,12 @@ public class ProductImageServiceImpl implements ProductImageService {
     @Override
     @Transactional
     public void deleteImage(Integer id) {
-        if (!productImageRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Product image not found with id: " + id);
-        }
+        ProductImage image = productImageRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Product image not found with id: " + id));
 
         productImageRepository.deleteById(id);
+        productImageSummaryUpdater.refresh(image.getProduct());
+        eventPublisher.publishEvent(new ProductChangedEvent(image.getProduct().getId(), ProductChangedEvent.ChangeType.IMAGE));
     }
 
     @Override
@@ -155,16 +209,19 @@ public class ProductImageServiceImpl implements ProductImageService {
         }
 
         productImageRepository.deleteByProductId(productId);
+        productImageSummaryUpdater.refresh(productId);
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.ChangeType.IMAGE));
     }
 
     @Override
     @Transactional
     public void deleteImagesByVariant(Integer variantId) {
-        if (!variantRepository.existsById(variantId)) {
-            throw new ResourceNotFoundException("Product variant not found with id: " + variantId);
-        }
+        ProductVariant variant = variantRepository.findById(variantId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product variant not found with id: " + variantId));
 
         productImageRepository.deleteByVariantId(variantId);
+        productImageSummaryUpdater.refresh(variant.getProduct());
+        eventPublisher.publishEvent(new ProductChangedEvent(variant.getProduct().getId(), ProductChangedEvent.ChangeType.IMAGE));
     }
 
     @Override
@@ -191,6 +248,8 @@ public class ProductImageServiceImpl implements ProductImageService {
             image.setSortOrder(index);
             productImageRepository.save(image);
         });
+        productImageSummaryUpdater.refresh(productId);
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.ChangeType.IMAGE));
     }
     @Override
     public List<ProductImageDTO> getAllProductImages(Integer productId) {
@@ -215,6 +274,7 @@ public class ProductImageServiceImpl implements ProductImageService {
         }
 
         dto.setImageURL(image.getImageURL());
+        dto.setDerivativeURLs(ImageDerivatives.urlsOf(image));
         dto.setSortOrder(image.getSortOrder());
         dto.setCreatedAt(image.getCreatedAt());
 
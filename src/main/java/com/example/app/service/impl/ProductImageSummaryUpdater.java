@@ -0,0 +1,127 @@
+package com.example.app.service.impl;
+
+import com.example.app.entity.Product;
+import com.example.app.entity.ProductImage;
+import com.example.app.repository.ProductImageRepository;
+import com.example.app.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Tính lại ảnh chính và danh sách ảnh thu nhỏ lưu trên Product sau mỗi lần ghi ảnh/biến thể.
+ * Thứ tự ưu tiên giữ như Product.getMainImageUrl() trước đây: ảnh chính của biến thể mặc định,
+ * ảnh bất kỳ của biến thể mặc định, ảnh chính cấp sản phẩm, ảnh cấp sản phẩm, rồi ảnh bất kỳ.
+ * Phải được gọi trong transaction đang ghi để giá trị mới được flush cùng các thay đổi ảnh.
+ */
+@Component
+public class ProductImageSummaryUpdater {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImageSummaryUpdater.class);
+
+    static final int THUMBNAIL_LIMIT = 4;
+    private static final int BACKFILL_BATCH_SIZE = 200;
+
+    private final ProductRepository productRepository;
+    private final ProductImageRepository productImageRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public ProductImageSummaryUpdater(
+            ProductRepository productRepository,
+            ProductImageRepository productImageRepository,
+            PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.productImageRepository = productImageRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void refresh(Integer productId) {
+        productRepository.findById(productId).ifPresent(this::refresh);
+    }
+
+    public void refresh(Product product) {
+        // Truy vấn theo repository (không dùng product.getImages()) để thấy cả ảnh vừa lưu/xóa trong transaction
+        List<ProductImage> images = productImageRepository.findByProductIdOrderBySortOrder(product.getId());
+        Integer defaultVariantId = product.getDefaultVariant() != null ? product.getDefaultVariant().getId() : null;
+
+        String mainImageUrl = resolveMainImageUrl(images, defaultVariantId);
+
+        Set<String> thumbnails = new LinkedHashSet<>();
+        thumbnails.add(mainImageUrl);
+        addThumbnails(thumbnails, images, image -> image.getVariant() == null);
+        addThumbnails(thumbnails, images, image -> isVariant(image, defaultVariantId));
+        thumbnails.remove(Product.DEFAULT_IMAGE_URL);
+
+        product.setMainImageUrl(mainImageUrl);
+        product.setThumbnailUrls(thumbnails.isEmpty() ? null : String.join(Product.THUMBNAIL_SEPARATOR, thumbnails));
+    }
+
+    // Điền giá trị cho các sản phẩm tạo trước khi có cột Main_Image_URL
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillMissing() {
+        List<Integer> productIds = productRepository.findIdsWithoutMainImage();
+        if (productIds.isEmpty()) {
+            return;
+        }
+
+        for (int from = 0; from < productIds.size(); from += BACKFILL_BATCH_SIZE) {
+            List<Integer> batch = productIds.subList(from, Math.min(from + BACKFILL_BATCH_SIZE, productIds.size()));
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(this::refresh));
+        }
+        logger.info("Backfilled main image for {} products", productIds.size());
+    }
+
+    private String resolveMainImageUrl(List<ProductImage> images, Integer defaultVariantId) {
+        ProductImage selected = first(images, image -> isVariant(image, defaultVariantId) && Boolean.TRUE.equals(image.getIsPrimary()));
+        if (selected == null) {
+            selected = first(images, image -> isVariant(image, defaultVariantId));
+        }
+        if (selected == null) {
+            selected = first(images, image -> image.getVariant() == null && Boolean.TRUE.equals(image.getIsPrimary()));
+        }
+        if (selected == null) {
+            selected = first(images, image -> image.getVariant() == null);
+        }
+        if (selected == null) {
+            selected = first(images, image -> true);
+        }
+        return selected != null ? selected.getImageURL() : Product.DEFAULT_IMAGE_URL;
+    }
+
+    private boolean isVariant(ProductImage image, Integer variantId) {
+        return variantId != null && image.getVariant() != null && variantId.equals(image.getVariant().getId());
+    }
+
+    private ProductImage first(List<ProductImage> images, Predicate<ProductImage> filter) {
+        return images.stream()
+                .filter(image -> image.getImageURL() != null)
+                .filter(filter)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private void addThumbnails(Set<String> thumbnails, List<ProductImage> images,
+                               Predicate<ProductImage> filter) {
+        images.stream()
+                .filter(filter)
+                .map(ProductImage::getImageURL)
+                .filter(Objects::nonNull)
+                .forEach(url -> {
+                    if (thumbnails.size() < THUMBNAIL_LIMIT) {
+                        thumbnails.add(url);
+                    }
+                });
+    }
+}
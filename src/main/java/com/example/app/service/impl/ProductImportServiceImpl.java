@@ -0,0 +1,816 @@
+package com.example.app.service.impl;
+
+import com.example.app.dto.ProductImportStatusDTO;
+import com.example.app.entity.Brand;
+import com.example.app.entity.Category;
+import com.example.app.entity.Product;
+import com.example.app.entity.ProductVariant;
+import com.example.app.event.ProductsImportedEvent;
+import com.example.app.exception.ResourceNotFoundException;
+import com.example.app.repository.BrandRepository;
+import com.example.app.repository.CategoryRepository;
+import com.example.app.repository.ProductVariantRepository;
+import com.example.app.search.VietnameseTextNormalizer;
+import com.example.app.service.ProductImportService;
+import com.example.app.util.CsvUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Nhập sản phẩm hàng loạt từ CSV hoặc JSONL (mỗi dòng một biến thể). Các dòng cùng product_key (mặc định
+ * là tên) được gộp thành một sản phẩm. File được đọc tuần tự, danh mục/thương hiệu tra theo tên trong bộ nhớ,
+ * và ghi bằng JDBC batch theo từng chunk trong transaction riêng (entity dùng IDENTITY nên Hibernate không
+ * batch được insert). Dòng lỗi không dừng job mà được ghi vào file lỗi kèm số dòng. Dòng để trống cả color và
+ * size tạo sản phẩm không có biến thể (như file xuất ghi cho sản phẩm chưa có biến thể).
+ * Chunk chỉ được cắt ở ranh giới giữa hai sản phẩm nên các dòng liền nhau của một sản phẩm luôn được ghi (hoặc
+ * rollback) cùng nhau; dòng của sản phẩm đã ghi xuất hiện rời rạc ở phía sau file được thêm vào sản phẩm đó
+ * trong chunk sau và có thể bị từ chối riêng.
+ */
+@Service
+public class ProductImportServiceImpl implements ProductImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportServiceImpl.class);
+
+    private static final int MAX_RETAINED_JOBS = 20;
+    private static final int THUMBNAIL_LIMIT = ProductImageSummaryUpdater.THUMBNAIL_LIMIT;
+    private static final List<String> REQUIRED_COLUMNS = List.of(
+            "name", "category", "brand", "base_price", "product_type", "color", "size");
+
+    private static final String INSERT_PRODUCT = "INSERT INTO product (category_id, brand_id, name, description, " +
+            "base_price, status, product_type, main_image_url, thumbnail_urls, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_VARIANT = "INSERT INTO product_variant (product_id, color, size, size_type, " +
+            "stock_quantity, price_adjustment, sku, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_DEFAULT_VARIANT = "UPDATE product SET default_variant_id = ? WHERE product_id = ?";
+    private static final String INSERT_IMAGE = "INSERT INTO product_image (product_id, variant_id, image_url, " +
+            "is_primary, sort_order, created_at) VALUES (?, NULL, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CategoryRepository categoryRepository;
+    private final BrandRepository brandRepository;
+    private final ProductVariantRepository variantRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final Path workDir;
+    private final int chunkSize;
+
+    private final ThreadPoolExecutor importExecutor;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ProductImportServiceImpl(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    CategoryRepository categoryRepository,
+                                    BrandRepository brandRepository,
+                                    ProductVariantRepository variantRepository,
+                                    ApplicationEventPublisher eventPublisher,
+                                    ObjectMapper objectMapper,
+                                    @Value("${app.import.work-dir:${java.io.tmpdir}/product-import}") String workDir,
+                                    @Value("${app.import.chunk-size:500}") int chunkSize,
+                                    @Value("${app.import.queue-capacity:4}") int queueCapacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.categoryRepository = categoryRepository;
+        this.brandRepository = brandRepository;
+        this.variantRepository = variantRepository;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.workDir = Paths.get(workDir);
+        this.chunkSize = chunkSize;
+        // Một luồng: các job nhập chạy lần lượt để không tranh chấp SKU/khóa với nhau
+        this.importExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "product-import");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.importExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public ProductImportStatusDTO startImport(MultipartFile file) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Import file is empty");
+        }
+        String fileName = file.getOriginalFilename() != null ? file.getOriginalFilename() : "upload";
+        String lowerName = fileName.toLowerCase(Locale.ROOT);
+        boolean jsonLines = lowerName.endsWith(".jsonl") || lowerName.endsWith(".ndjson");
+        if (!jsonLines && !lowerName.endsWith(".csv")) {
+            throw new IllegalArgumentException("Unsupported import file type, expected .csv or .jsonl");
+        }
+
+        // File multipart tạm bị xóa khi request kết thúc nên cần chép sang thư mục làm việc
+        Files.createDirectories(workDir);
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), fileName, jsonLines);
+        try (InputStream in = file.getInputStream()) {
+            Files.copy(in, job.uploadPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        jobs.put(job.id, job);
+        try {
+            importExecutor.execute(() -> runImport(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            Files.deleteIfExists(job.uploadPath());
+            throw new IllegalStateException("Too many imports are queued, please try again later");
+        }
+        evictOldJobs();
+        return job.toDTO();
+    }
+
+    @Override
+    public ProductImportStatusDTO getStatus(String jobId) {
+        return getJob(jobId).toDTO();
+    }
+
+    @Override
+    public List<ProductImportStatusDTO> getRecentJobs() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing((ImportJob job) -> job.createdAt).reversed())
+                .map(ImportJob::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Resource getErrorFile(String jobId) {
+        ImportJob job = getJob(jobId);
+        if (!Files.exists(job.errorPath())) {
+            throw new ResourceNotFoundException("No error file for import job: " + jobId);
+        }
+        return new FileSystemResource(job.errorPath());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importExecutor.shutdownNow();
+    }
+
+    private ImportJob getJob(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Import job not found with id: " + jobId);
+        }
+        return job;
+    }
+
+    private void evictOldJobs() {
+        List<ImportJob> finished = jobs.values().stream()
+                .filter(job -> job.finishedAt != null)
+                .sorted(Comparator.comparing((ImportJob job) -> job.createdAt))
+                .collect(Collectors.toList());
+        Iterator<ImportJob> oldest = finished.iterator();
+        while (jobs.size() > MAX_RETAINED_JOBS && oldest.hasNext()) {
+            ImportJob job = oldest.next();
+            jobs.remove(job.id);
+            try {
+                Files.deleteIfExists(job.errorPath());
+            } catch (IOException e) {
+                logger.warn("Could not delete import error file {}: {}", job.errorPath(), e.getMessage());
+            }
+        }
+    }
+
+    private void runImport(ImportJob job) {
+        job.state = "RUNNING";
+        job.startedAt = LocalDateTime.now();
+        long start = System.currentTimeMillis();
+        ImportRun run = null;
+        try (BufferedReader reader = Files.newBufferedReader(job.uploadPath(), StandardCharsets.UTF_8);
+             ErrorWriter errors = new ErrorWriter(job)) {
+            run = new ImportRun(job, errors);
+            if (job.jsonLines) {
+                readJsonLines(reader, run);
+            } else {
+                readCsv(reader, run);
+            }
+            run.flush();
+            job.state = "COMPLETED";
+            logger.info("Import {} finished: {} rows, {} products, {} errors in {} ms", job.id, job.rowsRead.get(),
+                    job.productsCreated.get(), job.errorCount.get(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            job.state = "FAILED";
+            job.message = e.getMessage();
+            logger.error("Import {} failed: {}", job.id, e.getMessage());
+        } finally {
+            // Các chunk đã commit vẫn phải cập nhật chỉ mục/cache dù job dừng giữa chừng
+            if (run != null && !run.importedProductIds.isEmpty()) {
+                try {
+                    eventPublisher.publishEvent(new ProductsImportedEvent(run.importedProductIds));
+                } catch (RuntimeException e) {
+                    logger.error("Error publishing imported products for import {}: {}", job.id, e.getMessage(), e);
+                }
+            }
+            job.finishedAt = LocalDateTime.now();
+            try {
+                Files.deleteIfExists(job.uploadPath());
+            } catch (IOException e) {
+                logger.warn("Could not delete import upload {}: {}", job.uploadPath(), e.getMessage());
+            }
+        }
+    }
+
+    private void readCsv(BufferedReader reader, ImportRun run) throws IOException {
+        CsvUtils.RecordReader records = new CsvUtils.RecordReader(reader);
+        List<String> header = records.next();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV file has no header row");
+        }
+        List<String> columns = header.stream()
+                .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toList());
+        List<String> missing = REQUIRED_COLUMNS.stream()
+                .filter(column -> !columns.contains(column))
+                .collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("CSV header is missing columns: " + String.join(", ", missing));
+        }
+
+        while (true) {
+            List<String> values;
+            try {
+                values = records.next();
+            } catch (CsvUtils.MalformedRecordException e) {
+                // Chỉ bản ghi hỏng bị từ chối, đọc tiếp từ dòng ngay sau nó
+                run.job.rowsRead.incrementAndGet();
+                run.reject(e.getLine(), null, e.getMessage());
+                continue;
+            }
+            if (values == null) {
+                break;
+            }
+            if (values.size() == 1 && values.get(0).isBlank()) {
+                continue;
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < columns.size() && i < values.size(); i++) {
+                fields.put(columns.get(i), CsvUtils.unguardFormula(values.get(i)));
+            }
+            run.accept(records.getRecordLine(), fields);
+        }
+    }
+
+    private void readJsonLines(BufferedReader reader, ImportRun run) throws IOException {
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            Map<String, String> fields = new HashMap<>();
+            try {
+                JsonNode node = objectMapper.readTree(line);
+                if (!node.isObject()) {
+                    throw new IllegalArgumentException("Line is not a JSON object");
+                }
+                node.fields().forEachRemaining(entry -> {
+                    JsonNode value = entry.getValue();
+                    if (value.isArray()) {
+                        List<String> items = new ArrayList<>();
+                        value.forEach(item -> items.add(item.asText()));
+                        fields.put(entry.getKey().toLowerCase(Locale.ROOT), String.join("|", items));
+                    } else if (!value.isNull()) {
+                        fields.put(entry.getKey().toLowerCase(Locale.ROOT), value.asText());
+                    }
+                });
+            } catch (Exception e) {
+                run.job.rowsRead.incrementAndGet();
+                run.reject(lineNumber, null, "Invalid JSON: " + e.getMessage());
+                continue;
+            }
+            run.accept(lineNumber, fields);
+        }
+    }
+
+    /**
+     * Trạng thái của một lần chạy: bảng tra danh mục/thương hiệu, SKU đã dùng và chunk đang gom.
+     */
+    private class ImportRun {
+
+        private final ImportJob job;
+        private final ErrorWriter errors;
+        private final Map<String, Integer> categoryIds = new HashMap<>();
+        private final Map<String, Integer> brandIds = new HashMap<>();
+        private final Set<String> usedSkus;
+        private final Set<String> usedVariantKeys = new HashSet<>();
+        private final Map<String, Integer> importedProducts = new HashMap<>();
+        private final List<Integer> importedProductIds = new ArrayList<>();
+        private final Map<String, PendingProduct> chunk = new LinkedHashMap<>();
+        private int chunkRows = 0;
+
+        ImportRun(ImportJob job, ErrorWriter errors) {
+            this.job = job;
+            this.errors = errors;
+            for (Category category : categoryRepository.findAll()) {
+                categoryIds.putIfAbsent(VietnameseTextNormalizer.fold(category.getName()).trim(), category.getId());
+                categoryIds.put(String.valueOf(category.getId()), category.getId());
+            }
+            for (Brand brand : brandRepository.findAll()) {
+                brandIds.putIfAbsent(VietnameseTextNormalizer.fold(brand.getName()).trim(), brand.getId());
+                brandIds.put(String.valueOf(brand.getId()), brand.getId());
+            }
+            this.usedSkus = new HashSet<>(variantRepository.findAllSkus());
+        }
+
+        void accept(long line, Map<String, String> fields) throws IOException {
+            job.rowsRead.incrementAndGet();
+            ImportRow row;
+            try {
+                row = parse(line, fields);
+            } catch (IllegalArgumentException e) {
+                String key = text(fields, "product_key");
+                reject(line, key != null ? key : text(fields, "name"), e.getMessage());
+                return;
+            }
+
+            // Chỉ cắt chunk trước một sản phẩm mới để các dòng của một sản phẩm không bị ghi nửa chừng.
+            // Cắt trước khi kiểm tra SKU: chunk bị rollback trả lại SKU mà chính dòng này có thể dùng
+            if (chunkRows >= chunkSize && !chunk.containsKey(row.key)) {
+                flush();
+            }
+            if (row.hasVariant()) {
+                String variantKey = variantKey(row);
+                if (!usedVariantKeys.add(variantKey)) {
+                    reject(line, row.key, "Duplicate color/size for product");
+                    return;
+                }
+                if (row.sku != null && !usedSkus.add(row.sku)) {
+                    usedVariantKeys.remove(variantKey);
+                    reject(line, row.key, "SKU already exists: " + row.sku);
+                    return;
+                }
+            }
+
+            PendingProduct pending = chunk.get(row.key);
+            if (pending == null) {
+                pending = new PendingProduct(row, importedProducts.get(row.key));
+                chunk.put(row.key, pending);
+            }
+            pending.rows.add(row);
+            chunkRows++;
+        }
+
+        void reject(long line, String key, String message) throws IOException {
+            errors.write(line, key, message);
+        }
+
+        void flush() throws IOException {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<PendingProduct> products = new ArrayList<>(chunk.values());
+            chunk.clear();
+            chunkRows = 0;
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> writeChunk(products));
+            } catch (Exception e) {
+                // Cả chunk bị rollback: trả lại SKU/khóa biến thể để dòng sửa lại ở lần nhập sau không bị chặn
+                String message = "Chunk rolled back: " + rootMessage(e);
+                for (PendingProduct product : products) {
+                    for (ImportRow row : product.rows) {
+                        if (row.sku != null) {
+                            usedSkus.remove(row.sku);
+                        }
+                        if (row.hasVariant()) {
+                            usedVariantKeys.remove(variantKey(row));
+                        }
+                        errors.write(row.line, row.key, message);
+                    }
+                }
+                logger.warn("Import {} chunk rolled back: {}", job.id, message);
+                return;
+            }
+
+            for (PendingProduct product : products) {
+                if (product.existingProductId == null) {
+                    importedProducts.put(product.first.key, product.productId);
+                    importedProductIds.add(product.productId);
+                    job.productsCreated.incrementAndGet();
+                    job.imagesCreated.addAndGet(product.first.images.size());
+                }
+                job.variantsCreated.addAndGet(product.rows.stream().filter(ImportRow::hasVariant).count());
+                job.rowsImported.addAndGet(product.rows.size());
+            }
+        }
+
+        private void writeChunk(List<PendingProduct> products) {
+            List<PendingProduct> newProducts = products.stream()
+                    .filter(product -> product.existingProductId == null)
+                    .collect(Collectors.toList());
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+            List<Integer> productIds = insertWithKeys(INSERT_PRODUCT, newProducts.size(), (ps, i) -> {
+                ImportRow row = newProducts.get(i).first;
+                ps.setInt(1, row.categoryId);
+                ps.setInt(2, row.brandId);
+                ps.setString(3, row.name);
+                ps.setString(4, row.description);
+                ps.setBigDecimal(5, row.basePrice);
+                ps.setString(6, row.status.name());
+                ps.setString(7, row.productType.name());
+                ps.setString(8, row.images.isEmpty() ? Product.DEFAULT_IMAGE_URL : row.images.get(0));
+                if (row.images.isEmpty()) {
+                    ps.setNull(9, Types.VARCHAR);
+                } else {
+                    ps.setString(9, String.join(Product.THUMBNAIL_SEPARATOR,
+                            row.images.subList(0, Math.min(THUMBNAIL_LIMIT, row.images.size()))));
+                }
+                ps.setTimestamp(10, now);
+                ps.setTimestamp(11, now);
+            });
+            for (int i = 0; i < newProducts.size(); i++) {
+                newProducts.get(i).productId = productIds.get(i);
+            }
+            products.stream()
+                    .filter(product -> product.existingProductId != null)
+                    .forEach(product -> product.productId = product.existingProductId);
+
+            List<ImportRow> variantRows = new ArrayList<>();
+            List<PendingProduct> variantOwners = new ArrayList<>();
+            for (PendingProduct product : products) {
+                for (ImportRow row : product.rows) {
+                    if (row.hasVariant()) {
+                        variantRows.add(row);
+                        variantOwners.add(product);
+                    }
+                }
+            }
+            List<Integer> variantIds = insertWithKeys(INSERT_VARIANT, variantRows.size(), (ps, i) -> {
+                ImportRow row = variantRows.get(i);
+                ps.setInt(1, variantOwners.get(i).productId);
+                ps.setString(2, row.color);
+                ps.setString(3, row.size);
+                ps.setString(4, row.sizeType.name());
+                ps.setInt(5, row.stockQuantity);
+                ps.setBigDecimal(6, row.priceAdjustment);
+                ps.setString(7, row.sku);
+                ps.setString(8, row.variantStatus.name());
+            });
+
+            // Biến thể mặc định: dòng đánh dấu is_default, nếu không có thì dòng đầu tiên
+            Map<PendingProduct, Integer> defaultVariants = new LinkedHashMap<>();
+            for (int i = 0; i < variantRows.size(); i++) {
+                PendingProduct owner = variantOwners.get(i);
+                if (owner.existingProductId != null) {
+                    continue;
+                }
+                if (variantRows.get(i).isDefault) {
+                    defaultVariants.putIfAbsent(owner, variantIds.get(i));
+                } else if (!owner.hasDefaultRow()) {
+                    defaultVariants.putIfAbsent(owner, variantIds.get(i));
+                }
+            }
+            List<Map.Entry<PendingProduct, Integer>> defaults = new ArrayList<>(defaultVariants.entrySet());
+            jdbcTemplate.batchUpdate(UPDATE_DEFAULT_VARIANT, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setInt(1, defaults.get(i).getValue());
+                    ps.setInt(2, defaults.get(i).getKey().productId);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return defaults.size();
+                }
+            });
+
+            List<Object[]> images = new ArrayList<>();
+            for (PendingProduct product : newProducts) {
+                List<String> urls = product.first.images;
+                for (int i = 0; i < urls.size(); i++) {
+                    images.add(new Object[]{product.productId, urls.get(i), i == 0, i, now});
+                }
+            }
+            jdbcTemplate.batchUpdate(INSERT_IMAGE, images);
+        }
+
+        private List<Integer> insertWithKeys(String sql, int size, RowBinder binder) {
+            if (size == 0) {
+                return List.of();
+            }
+            GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(
+                    connection -> connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            binder.bind(ps, i);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return size;
+                        }
+                    },
+                    keyHolder);
+
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            if (keys.size() != size) {
+                throw new IllegalStateException("Expected " + size + " generated keys but got " + keys.size());
+            }
+            List<Integer> ids = new ArrayList<>(size);
+            for (Map<String, Object> key : keys) {
+                ids.add(((Number) key.values().iterator().next()).intValue());
+            }
+            return ids;
+        }
+
+        private ImportRow parse(long line, Map<String, String> fields) {
+            ImportRow row = new ImportRow();
+            row.line = line;
+            row.name = required(fields, "name");
+            String key = text(fields, "product_key");
+            row.key = key != null ? key : row.name;
+            row.description = text(fields, "description");
+
+            String category = required(fields, "category");
+            row.categoryId = categoryIds.get(VietnameseTextNormalizer.fold(category).trim());
+            if (row.categoryId == null) {
+                throw new IllegalArgumentException("Unknown category: " + category);
+            }
+            String brand = required(fields, "brand");
+            row.brandId = brandIds.get(VietnameseTextNormalizer.fold(brand).trim());
+            if (row.brandId == null) {
+                throw new IllegalArgumentException("Unknown brand: " + brand);
+            }
+
+            row.basePrice = decimal(fields, "base_price", null);
+            if (row.basePrice.compareTo(BigDecimal.ZERO) < 0) {
+                throw new IllegalArgumentException("base_price must not be negative");
+            }
+            row.productType = enumValue(Product.ProductType.class, required(fields, "product_type"), "product_type");
+            String status = text(fields, "status");
+            row.status = status != null
+                    ? enumValue(Product.ProductStatus.class, status, "status")
+                    : Product.ProductStatus.active;
+
+            row.images = images(fields);
+            row.color = text(fields, "color");
+            row.size = text(fields, "size");
+            if (row.color == null && row.size == null) {
+                // Sản phẩm không có biến thể: bỏ qua các cột của biến thể
+                if (text(fields, "sku") != null) {
+                    throw new IllegalArgumentException("sku requires color and size");
+                }
+                return row;
+            }
+            if (row.color == null) {
+                throw new IllegalArgumentException("color is required");
+            }
+            if (row.size == null) {
+                throw new IllegalArgumentException("size is required");
+            }
+            String sizeType = text(fields, "size_type");
+            if (sizeType != null) {
+                row.sizeType = enumValue(ProductVariant.SizeType.class, sizeType, "size_type");
+            } else {
+                row.sizeType = row.productType == Product.ProductType.footwear
+                        ? ProductVariant.SizeType.shoe_size
+                        : ProductVariant.SizeType.clothing_size;
+            }
+
+            String stock = text(fields, "stock_quantity");
+            try {
+                row.stockQuantity = stock != null ? Integer.parseInt(stock) : 0;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid stock_quantity: " + stock);
+            }
+            if (row.stockQuantity < 0) {
+                throw new IllegalArgumentException("stock_quantity must not be negative");
+            }
+            row.priceAdjustment = decimal(fields, "price_adjustment", BigDecimal.ZERO);
+            if (row.priceAdjustment.compareTo(BigDecimal.ZERO) < 0) {
+                throw new IllegalArgumentException("price_adjustment must not be negative");
+            }
+            row.variantStatus = row.stockQuantity <= 0
+                    ? ProductVariant.VariantStatus.out_of_stock
+                    : ProductVariant.VariantStatus.active;
+            row.sku = text(fields, "sku");
+            row.isDefault = "true".equalsIgnoreCase(text(fields, "is_default"));
+            return row;
+        }
+    }
+
+    private static String variantKey(ImportRow row) {
+        return row.key + '\u0000' + row.color.toLowerCase(Locale.ROOT) + '\u0000' + row.size.toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> images(Map<String, String> fields) {
+        String images = text(fields, "images");
+        return images == null ? List.of() : Arrays.stream(images.split("\\|"))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private static String text(Map<String, String> fields, String column) {
+        String value = fields.get(column);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static String required(Map<String, String> fields, String column) {
+        String value = text(fields, column);
+        if (value == null) {
+            throw new IllegalArgumentException(column + " is required");
+        }
+        return value;
+    }
+
+    private static BigDecimal decimal(Map<String, String> fields, String column, BigDecimal defaultValue) {
+        String value = defaultValue == null ? required(fields, column) : text(fields, column);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String value, String column) {
+        try {
+            return Enum.valueOf(type, value.trim().toLowerCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    @FunctionalInterface
+    private interface RowBinder {
+        void bind(PreparedStatement ps, int i) throws SQLException;
+    }
+
+    private static class ImportRow {
+        long line;
+        String key;
+        String name;
+        String description;
+        Integer categoryId;
+        Integer brandId;
+        BigDecimal basePrice;
+        Product.ProductType productType;
+        Product.ProductStatus status;
+        String color;
+        String size;
+        ProductVariant.SizeType sizeType;
+        int stockQuantity;
+        BigDecimal priceAdjustment;
+        ProductVariant.VariantStatus variantStatus;
+        String sku;
+        boolean isDefault;
+        List<String> images;
+
+        boolean hasVariant() {
+            return color != null;
+        }
+    }
+
+    /**
+     * Sản phẩm trong chunk hiện tại. existingProductId khác null khi sản phẩm đã được ghi ở chunk trước
+     * và chunk này chỉ thêm biến thể.
+     */
+    private static class PendingProduct {
+        final ImportRow first;
+        final Integer existingProductId;
+        final List<ImportRow> rows = new ArrayList<>();
+        Integer productId;
+
+        PendingProduct(ImportRow first, Integer existingProductId) {
+            this.first = first;
+            this.existingProductId = existingProductId;
+        }
+
+        boolean hasDefaultRow() {
+            return rows.stream().anyMatch(row -> row.isDefault);
+        }
+    }
+
+    private class ImportJob {
+        final String id;
+        final String fileName;
+        final boolean jsonLines;
+        final LocalDateTime createdAt = LocalDateTime.now();
+        final AtomicLong rowsRead = new AtomicLong();
+        final AtomicLong rowsImported = new AtomicLong();
+        final AtomicLong productsCreated = new AtomicLong();
+        final AtomicLong variantsCreated = new AtomicLong();
+        final AtomicLong imagesCreated = new AtomicLong();
+        final AtomicLong errorCount = new AtomicLong();
+        volatile String state = "QUEUED";
+        volatile String message;
+        volatile LocalDateTime startedAt;
+        volatile LocalDateTime finishedAt;
+
+        ImportJob(String id, String fileName, boolean jsonLines) {
+            this.id = id;
+            this.fileName = fileName;
+            this.jsonLines = jsonLines;
+        }
+
+        Path uploadPath() {
+            return workDir.resolve(id + (jsonLines ? ".jsonl" : ".csv"));
+        }
+
+        Path errorPath() {
+            return workDir.resolve(id + "-errors.csv");
+        }
+
+        ProductImportStatusDTO toDTO() {
+            return new ProductImportStatusDTO(id, fileName, state, rowsRead.get(), rowsImported.get(),
+                    productsCreated.get(), variantsCreated.get(), imagesCreated.get(), errorCount.get(),
+                    message, startedAt, finishedAt);
+        }
+    }
+
+    /**
+     * File lỗi (line, product_key, error) chỉ được tạo khi có dòng lỗi đầu tiên.
+     */
+    private static class ErrorWriter implements AutoCloseable {
+        private final ImportJob job;
+        private BufferedWriter writer;
+
+        ErrorWriter(ImportJob job) {
+            this.job = job;
+        }
+
+        void write(long line, String key, String message) throws IOException {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(job.errorPath(), StandardCharsets.UTF_8);
+                CsvUtils.writeGuardedRow(writer, "line", "product_key", "error");
+            }
+            CsvUtils.writeGuardedRow(writer, line, key, message);
+            job.errorCount.incrementAndGet();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+}
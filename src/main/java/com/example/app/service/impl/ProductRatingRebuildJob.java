@@ -0,0 +1,56 @@
+package com.example.app.service.impl;
+
+import com.example.app.repository.ProductRatingRepository;
+import com.example.app.repository.ReviewRepository;
+import com.example.app.service.ProductRatingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Dựng lại bảng Product_Rating từ dữ liệu review đã có: tự chạy khi khởi động
+ * nếu bảng còn trống, và theo lịch nếu cấu hình app.rating.rebuild-cron.
+ */
+@Component
+public class ProductRatingRebuildJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductRatingRebuildJob.class);
+
+    private final ProductRatingService productRatingService;
+    private final ProductRatingRepository productRatingRepository;
+    private final ReviewRepository reviewRepository;
+
+    @Autowired
+    public ProductRatingRebuildJob(
+            ProductRatingService productRatingService,
+            ProductRatingRepository productRatingRepository,
+            ReviewRepository reviewRepository) {
+        this.productRatingService = productRatingService;
+        this.productRatingRepository = productRatingRepository;
+        this.reviewRepository = reviewRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        try {
+            if (productRatingRepository.count() == 0 && reviewRepository.count() > 0) {
+                productRatingService.rebuildAll();
+            }
+        } catch (Exception e) {
+            logger.error("Error rebuilding rating aggregates on startup: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${app.rating.rebuild-cron:-}")
+    public void scheduledRebuild() {
+        try {
+            productRatingService.rebuildAll();
+        } catch (Exception e) {
+            logger.error("Error rebuilding rating aggregates: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.app.service.impl;
+
+import com.example.app.entity.ProductRating;
+import com.example.app.repository.ProductRatingRepository;
+import com.example.app.repository.ProductRepository;
+import com.example.app.service.ProductRatingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class ProductRatingServiceImpl implements ProductRatingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductRatingServiceImpl.class);
+
+    private final ProductRatingRepository productRatingRepository;
+    private final ProductRepository productRepository;
+
+    @Autowired
+    public ProductRatingServiceImpl(
+            ProductRatingRepository productRatingRepository,
+            ProductRepository productRepository) {
+        this.productRatingRepository = productRatingRepository;
+        this.productRepository = productRepository;
+    }
+
+    @Override
+    @Transactional
+    public void addRating(Integer productId, Integer rating) {
+        ProductRating aggregate = lockOrCreate(productId);
+        aggregate.apply(rating, 1);
+        productRatingRepository.save(aggregate);
+    }
+
+    @Override
+    @Transactional
+    public void changeRating(Integer productId, Integer oldRating, Integer newRating) {
+        if (Objects.equals(oldRating, newRating)) {
+            return;
+        }
+        ProductRating aggregate = lockOrCreate(productId);
+        aggregate.apply(oldRating, -1);
+        aggregate.apply(newRating, 1);
+        productRatingRepository.save(aggregate);
+    }
+
+    @Override
+    @Transactional
+    public void removeRating(Integer productId, Integer rating) {
+        ProductRating aggregate = lockOrCreate(productId);
+        aggregate.apply(rating, -1);
+        productRatingRepository.save(aggregate);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Integer, ProductRating> getRatings(Collection<Integer> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        return productRatingRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(ProductRating::getProductId, Function.identity()));
+    }
+
+    @Override
+    @Transactional
+    public void deleteByProductId(Integer productId) {
+        if (productRatingRepository.existsById(productId)) {
+            productRatingRepository.deleteById(productId);
+        }
+    }
+
+    /**
+     * Tính lại toàn bộ bảng tổng hợp từ bảng Review (dùng cho dữ liệu cũ
+     * hoặc khi cần đối soát). Chạy thành một câu INSERT ... SELECT nên không
+     * ghi đè thay đổi của addRating/changeRating/removeRating đang chạy song song.
+     * Sản phẩm chưa có review cũng có một dòng (0 lượt) để các lần ghi sau luôn khóa được dòng sẵn có.
+     */
+    @Override
+    @Transactional
+    public int rebuildAll() {
+        productRatingRepository.rebuildAllFromReviews();
+        int products = (int) productRepository.count();
+        logger.info("Rebuilt rating aggregates for {} products", products);
+        return products;
+    }
+
+    private ProductRating lockOrCreate(Integer productId) {
+        // Sản phẩm tạo sau lần rebuild chưa có dòng: chèn trước (bỏ qua nếu đã có) rồi mới khóa
+        productRatingRepository.insertIfAbsent(productId);
+        return productRatingRepository.findByIdForUpdate(productId)
+                .orElseThrow(() -> new IllegalStateException("Rating aggregate missing for product " + productId));
+    }
+}
@@ -1,40 +1,77 @@
 package com.example.app.service.impl;
+import com.example.app.cache.CategoryTree;
+import com.example.app.cache.CategoryTreeCache;
+import com.example.app.cache.ProductDetailCache;
+import com.example.app.cache.ProductLeaderboards;
+import com.example.app.dto.FacetValueDTO;
 import com.example.app.dto.PagedResponse;
 import com.example.app.dto.ProductDTO;
+import com.example.app.dto.ProductFacetResponse;
+import com.example.app.dto.ProductFilterRequest;
 import com.example.app.dto.ProductImageDTO;
+import com.example.app.dto.ProductSummaryDTO;
 import com.example.app.dto.ProductVariantDTO;
-import com.example.app.dto.RelatedProductDTO;
-import com.example.app.dto.ReviewDTO;
+import com.example.app.dto.SuggestResponse;
 import com.example.app.entity.*;
+import com.example.app.event.ProductChangedEvent;
 import com.example.app.exception.ResourceNotFoundException;
 import com.example.app.repository.*;
+import com.example.app.search.BitsetFacetIndex;
+import com.example.app.search.CoPurchaseRecommender;
+import com.example.app.search.ProductFacetIndex;
+import com.example.app.search.ProductSearchIndex;
+import com.example.app.search.ProductSuggestIndex;
+import com.example.app.search.RandomProductSampler;
+import com.example.app.service.ProductRatingService;
 import com.example.app.service.ProductService;
-import com.example.app.service.RelatedProductService;
+import com.example.app.util.CursorUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.JpaSort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class ProductServiceImpl implements ProductService {
 
+    private static final String RELEVANCE_SORT = "relevance";
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final BrandRepository brandRepository;
     private final ProductVariantRepository variantRepository;
     private final ProductImageRepository productImageRepository;
-    private final ReviewRepository reviewRepository;
-    private final RelatedProductService relatedProductService;
+    private final ProductDTOAssembler productDTOAssembler;
+    private final ProductRatingService productRatingService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductDetailCache productDetailCache;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final CategoryTreeCache categoryTreeCache;
+    private final RandomProductSampler randomProductSampler;
+    private final ProductLeaderboards productLeaderboards;
+    private final ProductImageSummaryUpdater productImageSummaryUpdater;
+    private final CoPurchaseRecommender coPurchaseRecommender;
 
     @Autowired
     public ProductServiceImpl(
@@ -43,128 +80,51 @@ public class ProductServiceImpl implements ProductService {
             BrandRepository brandRepository,
             ProductVariantRepository variantRepository,
             ProductImageRepository productImageRepository,
-            ReviewRepository reviewRepository,
-            RelatedProductService relatedProductService) {
+            ProductDTOAssembler productDTOAssembler,
+            ProductRatingService productRatingService,
+            ApplicationEventPublisher eventPublisher,
+            ProductDetailCache productDetailCache,
+            ProductSearchIndex productSearchIndex,
+            ProductFacetIndex productFacetIndex,
+            ProductSuggestIndex productSuggestIndex,
+            CategoryTreeCache categoryTreeCache,
+            RandomProductSampler randomProductSampler,
+            ProductLeaderboards productLeaderboards,
+            ProductImageSummaryUpdater productImageSummaryUpdater,
+            CoPurchaseRecommender coPurchaseRecommender) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.brandRepository = brandRepository;
         this.variantRepository = variantRepository;
         this.productImageRepository = productImageRepository;
-        this.reviewRepository = reviewRepository;
-        this.relatedProductService = relatedProductService;
+        this.productDTOAssembler = productDTOAssembler;
+        this.productRatingService = productRatingService;
+        this.eventPublisher = eventPublisher;
+        this.productDetailCache = productDetailCache;
+        this.productSearchIndex = productSearchIndex;
+        this.productFacetIndex = productFacetIndex;
+        this.productSuggestIndex = productSuggestIndex;
+        this.categoryTreeCache = categoryTreeCache;
+        this.randomProductSampler = randomProductSampler;
+        this.productLeaderboards = productLeaderboards;
+        this.productImageSummaryUpdater = productImageSummaryUpdater;
+        this.coPurchaseRecommender = coPurchaseRecommender;
     }
 
     @Override
     public PagedResponse<ProductDTO> getAllProducts(int page, int size, String sortBy, String sortDir) {
         try {
-            Sort sort = sortDir.equalsIgnoreCase("desc") ? Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
-            Pageable pageable = PageRequest.of(page, size, sort);
-
-            Page<Product> products;
-            if (sortBy.equals("id") || sortBy.equals("name") || sortBy.equals("basePrice") || sortBy.equals("averageRating")) {
-                List<Integer> productIds;
-                
-                productIds = productRepository.findAll(pageable)
-                    .stream().map(Product::getId).collect(Collectors.toList());
-                
-                if (productIds.isEmpty()) {
-                    return new PagedResponse<>(
-                        new ArrayList<>(), 
-                        page, 
-                        size, 
-                        0, 
-                        0, 
-                        true
-                    );
-                }
-                
-                List<Product> productList = productRepository.findByIdInWithVariantsAndImages(productIds);
-                
-                productList.sort((p1, p2) -> {
-                    if (sortBy.equals("id")) {
-                        return sortDir.equalsIgnoreCase("desc") ? 
-                            p2.getId().compareTo(p1.getId()) : 
-                            p1.getId().compareTo(p2.getId());
-                    } else if (sortBy.equals("name")) {
-                        return sortDir.equalsIgnoreCase("desc") ? 
-                            p2.getName().compareTo(p1.getName()) : 
-                            p1.getName().compareTo(p2.getName());
-                    } else if (sortBy.equals("averageRating")) {
-                        Double rating1 = reviewRepository.findAverageRatingByProductId(p1.getId());
-                        Double rating2 = reviewRepository.findAverageRatingByProductId(p2.getId());
-                        
-                        rating1 = rating1 != null ? rating1 : 0.0;
-                        rating2 = rating2 != null ? rating2 : 0.0;
-                        
-                        return sortDir.equalsIgnoreCase("desc") ? 
-                            Double.compare(rating2, rating1) : 
-                            Double.compare(rating1, rating2);
-                    } else {
-                        return sortDir.equalsIgnoreCase("desc") ? 
-                            p2.getBasePrice().compareTo(p1.getBasePrice()) : 
-                            p1.getBasePrice().compareTo(p2.getBasePrice());
-                    }
-                });
-                
-                final int start = (int)pageable.getOffset();
-                final int end = Math.min((start + pageable.getPageSize()), productList.size());
-                
-                List<ProductDTO> content = new ArrayList<>();
-                for (int i = start; i < end; i++) {
-                    Product product = productList.get(i);
-                    try {
-                        ProductDTO dto = convertToDTOSafe(product);
-                        if (dto != null) {
-                            content.add(dto);
-                        } else {
-                            System.err.println("Skipping null product DTO for product ID: " + 
-                                (product != null ? product.getId() : "unknown"));
-                        }
-                    } catch (Exception e) {
-                        System.err.println("Error converting product with ID " + 
-                            (product != null ? product.getId() : "unknown") + ": " + e.getMessage());
-                        e.printStackTrace();
-                    }
-                }
-                
-                return new PagedResponse<>(
-                    content,
-                    page,
-                    size,
-                    productRepository.count(),
-                    (int) Math.ceil((double) productRepository.count() / size),
-                    (page + 1) * size >= productRepository.count()
-                );
-            } else {
-                products = productRepository.findAll(pageable);
-                
-                List<ProductDTO> content = new ArrayList<>();
-                
-                for (Product product : products.getContent()) {
-                    try {
-                        ProductDTO dto = convertToDTOSafe(product);
-                        if (dto != null) {
-                            content.add(dto);
-                        } else {
-                            System.err.println("Skipping null product DTO for product ID: " + 
-                                (product != null ? product.getId() : "unknown"));
-                        }
-                    } catch (Exception e) {
-                        System.err.println("Error converting product with ID " +
-                            (product != null ? product.getId() : "unknown") + ": " + e.getMessage());
-                        e.printStackTrace();
-                    }
-                }
-
-                return new PagedResponse<>(
-                        content,
-                        products.getNumber(),
-                        products.getSize(),
-                        products.getTotalElements(),
-                        products.getTotalPages(),
-                        products.isLast()
-                );
-            }
+            // Sắp xếp và phân trang trong SQL (kể cả averageRating qua bảng tổng hợp), sau đó chỉ nạp chi tiết các id của trang
+            Page<Integer> productIds = productRepository.findPageIds(productPageable(page, size, sortBy, sortDir));
+
+            return new PagedResponse<>(
+                    productDTOAssembler.toDTOsByIds(productIds.getContent()),
+                    productIds.getNumber(),
+                    productIds.getSize(),
+                    productIds.getTotalElements(),
+                    productIds.getTotalPages(),
+                    productIds.isLast()
+            );
         } catch (Exception e) {
             System.err.println("Error in getAllProducts: " + e.getMessage());
             e.printStackTrace();
@@ -174,34 +134,23 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public ProductDTO getProductById(Integer id) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
+        return productDetailCache.get(id, productId -> {
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
 
-        return convertToDTOSafe(product);
+            return productDTOAssembler.toDTO(product);
+        });
     }
 
     @Override
     public PagedResponse<ProductDTO> getProductsByCategory(Integer categoryId, int page, int size, String sortBy, String sortDir) {
-        Category category = categoryRepository.findById(categoryId)
-            .orElseThrow(() -> new RuntimeException("Category not found with id: " + categoryId));
-        
-        List<Integer> categoryIds = new ArrayList<>();
-        categoryIds.add(categoryId);
-        
-        if (category.getParent() == null) {
-            List<Category> childCategories = categoryRepository.findByParentId(categoryId);
-            categoryIds.addAll(childCategories.stream()
-                .map(Category::getId)
-                .collect(Collectors.toList()));
-        }
+        List<Integer> categoryIds = resolveCategoryIds(categoryId);
         
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.fromString(sortDir), sortBy));
         Page<Product> products = productRepository.findByCategoryIdIn(categoryIds, pageable);
         
         return new PagedResponse<>(
-            products.getContent().stream()
-                .map(this::convertToDTOSafe)
-                .collect(Collectors.toList()),
+            productDTOAssembler.toDTOs(products.getContent()),
             products.getNumber(),
             products.getSize(),
             products.getTotalElements(),
@@ -220,10 +169,7 @@ public class ProductServiceImpl implements ProductService {
         Pageable pageable = PageRequest.of(page, size, sort);
         Page<Product> products = productRepository.findByBrandId(brandId, pageable);
 
-        List<ProductDTO> content = products.getContent().stream()
-                .map(this::convertToDTOSafe)
-                .filter(dto -> dto != null)
-                .collect(Collectors.toList());
+        List<ProductDTO> content = productDTOAssembler.toDTOs(products.getContent());
 
         return new PagedResponse<>(
                 content,
@@ -237,14 +183,27 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public PagedResponse<ProductDTO> searchProducts(String keyword, int page, int size, String sortBy, String sortDir) {
+        if (productSearchIndex.isReady()) {
+            Page<Integer> productIds = searchPageIds(keyword, page, size, sortBy, sortDir);
+            return new PagedResponse<>(
+                    productDTOAssembler.toDTOsByIds(productIds.getContent()),
+                    productIds.getNumber(),
+                    productIds.getSize(),
+                    productIds.getTotalElements(),
+                    productIds.getTotalPages(),
+                    productIds.isLast()
+            );
+        }
+
+        // Chỉ mục chưa dựng xong: dùng truy vấn LIKE như trước
+        if (RELEVANCE_SORT.equals(sortBy)) {
+            sortBy = "id";
+        }
         Sort sort = sortDir.equalsIgnoreCase("desc") ? Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
         Pageable pageable = PageRequest.of(page, size, sort);
         Page<Product> products = productRepository.searchProducts(keyword, pageable);
 
-        List<ProductDTO> content = products.getContent().stream()
-                .map(this::convertToDTOSafe)
-                .filter(dto -> dto != null)
-                .collect(Collectors.toList());
+        List<ProductDTO> content = productDTOAssembler.toDTOs(products.getContent());
 
         return new PagedResponse<>(
                 content,
@@ -262,10 +221,7 @@ public class ProductServiceImpl implements ProductService {
         Pageable pageable = PageRequest.of(page, size, sort);
         Page<Product> products = productRepository.findByBasePriceBetween(minPrice, maxPrice, pageable);
 
-        List<ProductDTO> content = products.getContent().stream()
-                .map(this::convertToDTOSafe)
-                .filter(dto -> dto != null)
-                .collect(Collectors.toList());
+        List<ProductDTO> content = productDTOAssembler.toDTOs(products.getContent());
 
         return new PagedResponse<>(
                 content,
@@ -282,36 +238,24 @@ public class ProductServiceImpl implements ProductService {
         Pageable pageable = PageRequest.of(0, limit);
         List<Product> products = productRepository.findNewArrivals(pageable);
 
-        return products.stream()
-                .map(this::convertToDTOSafe)
-                .filter(dto -> dto != null)
-                .collect(Collectors.toList());
+        return productDTOAssembler.toDTOs(products);
     }
 
     @Override
     public List<ProductDTO> getTopRatedProducts(int limit) {
-        List<Product> topRatedProducts = productRepository.findTopRatedProducts(limit);
-        return topRatedProducts.stream()
-                .map(this::convertToDTOSafe)
-                .collect(Collectors.toList());
+        return productDTOAssembler.toDTOsByIds(productLeaderboards.getTopRated(limit));
     }
 
     @Override
-    public List<ProductDTO> getBestSellingProducts(int limit) {
-        List<Product> bestSellingProducts = productRepository.findBestSellingProducts(limit);
-        return bestSellingProducts.stream()
-                .map(this::convertToDTOSafe)
-                .collect(Collectors.toList());
+    public List<ProductDTO> getBestSellingProducts(String window, int limit) {
+        return productDTOAssembler.toDTOsByIds(productLeaderboards.getBestSelling(window, limit));
     }
 
     @Override
     public List<ProductDTO> getLowStockProducts(int threshold) {
         List<Product> products = productRepository.findLowStockProducts(threshold);
 
-        return products.stream()
-                .map(this::convertToDTOSafe)
-                .filter(dto -> dto != null)
-                .collect(Collectors.toList());
+        return productDTOAssembler.toDTOs(products);
     }
 
     @Override
@@ -422,7 +366,10 @@ public class ProductServiceImpl implements ProductService {
             }
         }
 
-        return convertToDTOSafe(savedProduct);
+        productImageSummaryUpdater.refresh(savedProduct);
+        eventPublisher.publishEvent(new ProductChangedEvent(savedProduct.getId(), ProductChangedEvent.ChangeType.CREATED));
+
+        return productDTOAssembler.toDTO(savedProduct);
     }
 
     @Override
@@ -566,7 +513,10 @@ public class ProductServiceImpl implements ProductService {
             }
         }
 
-        return convertToDTOSafe(updatedProduct);
+        productImageSummaryUpdater.refresh(updatedProduct);
+        eventPublisher.publishEvent(new ProductChangedEvent(id, ProductChangedEvent.ChangeType.UPDATED));
+
+        return productDTOAssembler.toDTO(updatedProduct);
     }
 
     @Override
@@ -579,6 +529,10 @@ public class ProductServiceImpl implements ProductService {
         productImageRepository.deleteByProductId(id);
 
         productRepository.deleteById(id);
+
+        productRatingService.deleteByProductId(id);
+
+        eventPublisher.publishEvent(new ProductChangedEvent(id, ProductChangedEvent.ChangeType.DELETED));
     }
 
     @Override
@@ -587,24 +541,8 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
-    public List<ProductDTO> getRandomProducts(int limit) {
-        List<Integer> allProductIds = productRepository.findAllProductIds();
-        
-        if (allProductIds.isEmpty()) {
-            return new ArrayList<>();
-        }
-        
-        Collections.shuffle(allProductIds);
-        
-        int size = Math.min(limit, allProductIds.size());
-        List<Integer> randomIds = allProductIds.subList(0, size);
-        
-        List<Product> randomProducts = productRepository.findByIdInWithVariantsAndImages(randomIds);
-        
-        return randomProducts.stream()
-            .map(this::convertToDTOSafe)
-            .filter(dto -> dto != null)
-            .collect(Collectors.toList());
+    public List<ProductDTO> getRandomProducts(Integer categoryId, int limit) {
+        return productDTOAssembler.toDTOsByIds(pickRandomProductIds(categoryId, limit));
     }
 
     @Override
@@ -612,9 +550,7 @@ public class ProductServiceImpl implements ProductService {
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.fromString(sortDir), sortBy));
         Page<Product> products = productRepository.findByCategoryIdAndBrandId(categoryId, brandId, pageable);
         return new PagedResponse<>(
-            products.getContent().stream()
-                .map(this::convertToDTOSafe)
-                .collect(Collectors.toList()),
+            productDTOAssembler.toDTOs(products.getContent()),
             products.getNumber(),
             products.getSize(),
             products.getTotalElements(),
@@ -623,266 +559,388 @@ public class ProductServiceImpl implements ProductService {
         );
     }
 
-    private ProductDTO convertToDTOSafe(Product product) {
-        try {
-            if (product == null) {
-                return null;
-            }
+    @Override
+    public PagedResponse<ProductSummaryDTO> getProductSummaries(int page, int size, String sortBy, String sortDir) {
+        return toSummaryPage(productRepository.findAllSummaries(productPageable(page, size, sortBy, sortDir)));
+    }
 
-            ProductDTO dto = new ProductDTO();
-            dto.setId(product.getId());
-            dto.setName(product.getName());
-            dto.setDescription(product.getDescription());
-            dto.setBasePrice(product.getBasePrice());
-            
-            if (product.getCategory() != null) {
-                dto.setCategoryId(product.getCategory().getId());
-                dto.setCategoryName(product.getCategory().getName());
-            }
-            
-            if (product.getBrand() != null) {
-                dto.setBrandId(product.getBrand().getId());
-                dto.setBrandName(product.getBrand().getName());
-            }
-            
-            if (product.getProductType() != null) {
-                dto.setProductType(product.getProductType().name());
-            }
-            
-            try {
-                dto.setTotalStockQuantity(product.getTotalStockQuantity());
-            } catch (Exception e) {
-                System.err.println("Error calculating total stock for product ID " + product.getId() + ": " + e.getMessage());
-                int totalStock = 0;
-                List<ProductVariant> safeVariants = safeCollectionCopy(product.getVariants(), 
-                    "Error copying variants for product ID ", product.getId());
-                for (ProductVariant variant : safeVariants) {
-                    if (variant != null && variant.getStockQuantity() != null) {
-                        totalStock += variant.getStockQuantity();
-                    }
-                }
-                dto.setTotalStockQuantity(totalStock);
-            }
-            
-            if (product.getDefaultVariant() != null) {
-                dto.setDefaultVariantId(product.getDefaultVariant().getId());
-            }
-            
-            if (product.getStatus() != null) {
-                dto.setStatus(product.getStatus().name());
-            }
-            
-            dto.setCreatedAt(product.getCreatedAt());
-            dto.setUpdatedAt(product.getUpdatedAt());
-            
-            List<ProductVariant> safeVariants = safeCollectionCopy(product.getVariants(),
-                "Error copying variants for product ID ", product.getId());
-            
-            if (!safeVariants.isEmpty()) {
-                List<ProductVariantDTO> variantDTOs = new ArrayList<>();
-                for (ProductVariant variant : safeVariants) {
-                    try {
-                        ProductVariantDTO variantDTO = convertVariantToDTOSafe(variant);
-                        if (variantDTO != null) {
-                            variantDTOs.add(variantDTO);
-                        }
-                    } catch (Exception e) {
-                        System.err.println("Error converting variant for product ID " + product.getId() + ": " + e.getMessage());
-                    }
-                }
-                dto.setVariants(variantDTOs);
-            } else {
-                dto.setVariants(new ArrayList<>());
-            }
-            
-            List<ProductImage> safeImages = safeCollectionCopy(product.getImages(),
-                "Error copying images for product ID ", product.getId());
-            
-            if (!safeImages.isEmpty()) {
-                List<String> imageUrls = new ArrayList<>();
-                for (ProductImage img : safeImages) {
-                    if (img != null && img.getVariant() == null && img.getImageURL() != null) {
-                        imageUrls.add(img.getImageURL());
-                    }
-                }
-                dto.setImages(imageUrls);
-            } else {
-                dto.setImages(new ArrayList<>());
-            }
-            
-            try {
-                Double avgRating = reviewRepository.findAverageRatingByProductId(product.getId());
-                dto.setAverageRating(avgRating != null ? avgRating : 0.0);
-                
-                Long reviewCount = reviewRepository.countByProductId(product.getId());
-                dto.setReviewCount(reviewCount != null ? reviewCount : 0L);
-                
-                Pageable pageable = PageRequest.of(0, 10, Sort.by("createdAt").descending());
-                Page<Review> reviews = reviewRepository.findByProductId(product.getId(), pageable);
-                
-                List<ReviewDTO> reviewDTOs = reviews.getContent().stream()
-                    .map(review -> {
-                        ReviewDTO reviewDTO = new ReviewDTO();
-                        reviewDTO.setId(review.getId());
-                        reviewDTO.setProductId(review.getProduct().getId());
-                        reviewDTO.setProductName(review.getProduct().getName());
-                        reviewDTO.setUserId(review.getUser().getId());
-                        reviewDTO.setUsername(review.getUser().getUsername());
-                        reviewDTO.setRating(review.getRating());
-                        reviewDTO.setTitle(review.getTitle());
-                        reviewDTO.setContent(review.getContent());
-                        reviewDTO.setComment(review.getComment());
-                        reviewDTO.setCreatedAt(review.getCreatedAt());
-                        reviewDTO.setUpdatedAt(review.getUpdatedAt());
-                        return reviewDTO;
-                    })
-                    .collect(Collectors.toList());
-                
-                dto.setReviews(reviewDTOs);
-            } catch (Exception e) {
-                System.err.println("Error getting review stats for product ID " + product.getId() + ": " + e.getMessage());
-                dto.setAverageRating(0.0);
-                dto.setReviewCount(0L);
-                dto.setReviews(new ArrayList<>());
-            }
-            
-            try {
-                List<RelatedProductDTO> relatedProducts = relatedProductService.getRelatedProducts(product.getId());
-                dto.setRelatedProducts(relatedProducts);
-            } catch (Exception e) {
-                System.err.println("Error getting related products for product ID " + product.getId() + ": " + e.getMessage());
-                dto.setRelatedProducts(new ArrayList<>());
-            }
-            
-            return dto;
-        } catch (Exception e) {
-            System.err.println("Error converting product to DTO: " + e.getMessage());
-            e.printStackTrace();
-            return null;
+    @Override
+    public PagedResponse<ProductSummaryDTO> getProductSummariesByCategory(Integer categoryId, int page, int size, String sortBy, String sortDir) {
+        List<Integer> categoryIds = resolveCategoryIds(categoryId);
+        return toSummaryPage(productRepository.findSummariesByCategoryIdIn(
+                categoryIds, productPageable(page, size, sortBy, sortDir)));
+    }
+
+    @Override
+    public PagedResponse<ProductSummaryDTO> getProductSummariesByBrand(Integer brandId, int page, int size, String sortBy, String sortDir) {
+        if (!brandRepository.existsById(brandId)) {
+            throw new ResourceNotFoundException("Brand not found with id: " + brandId);
         }
+        return toSummaryPage(productRepository.findSummariesByBrandId(
+                brandId, productPageable(page, size, sortBy, sortDir)));
     }
 
-    private ProductVariantDTO convertVariantToDTOSafe(ProductVariant variant) {
-        try {
-            if (variant == null) {
-                return null;
-            }
+    @Override
+    public PagedResponse<ProductSummaryDTO> searchProductSummaries(String keyword, int page, int size, String sortBy, String sortDir) {
+        if (productSearchIndex.isReady()) {
+            Page<Integer> productIds = searchPageIds(keyword, page, size, sortBy, sortDir);
+            return new PagedResponse<>(
+                    getSummariesByIds(productIds.getContent()),
+                    productIds.getNumber(),
+                    productIds.getSize(),
+                    productIds.getTotalElements(),
+                    productIds.getTotalPages(),
+                    productIds.isLast()
+            );
+        }
 
-            ProductVariantDTO dto = new ProductVariantDTO();
-            dto.setId(variant.getId());
-            
-            if (variant.getProduct() != null) {
-                dto.setProductId(variant.getProduct().getId());
-            }
-            
-            dto.setColor(variant.getColor());
-            dto.setSize(variant.getSize());
-            
-            if (variant.getSizeType() != null) {
-                dto.setSizeType(variant.getSizeType().name());
-            }
-            
-            dto.setStockQuantity(variant.getStockQuantity());
-            dto.setPriceAdjustment(variant.getPriceAdjustment());
-            
-            try {
-                dto.setFinalPrice(variant.getFinalPrice());
-            } catch (Exception e) {
-                System.err.println("Error calculating final price for variant ID " + variant.getId() + ": " + e.getMessage());
-                if (variant.getProduct() != null && variant.getProduct().getBasePrice() != null) {
-                    dto.setFinalPrice(variant.getProduct().getBasePrice().add(variant.getPriceAdjustment()));
-                } else {
-                    dto.setFinalPrice(variant.getPriceAdjustment());
-                }
+        return toSummaryPage(productRepository.searchSummaries(
+                keyword, productPageable(page, size, RELEVANCE_SORT.equals(sortBy) ? "id" : sortBy, sortDir)));
+    }
+
+    @Override
+    public PagedResponse<ProductSummaryDTO> filterProductSummariesByPrice(BigDecimal minPrice, BigDecimal maxPrice, int page, int size, String sortBy, String sortDir) {
+        return toSummaryPage(productRepository.findSummariesByBasePriceBetween(
+                minPrice, maxPrice, productPageable(page, size, sortBy, sortDir)));
+    }
+
+    @Override
+    public PagedResponse<ProductSummaryDTO> getProductSummariesByCategoryAndBrand(Integer categoryId, Integer brandId, int page, int size, String sortBy, String sortDir) {
+        return toSummaryPage(productRepository.findSummariesByCategoryIdAndBrandId(
+                categoryId, brandId, productPageable(page, size, sortBy, sortDir)));
+    }
+
+    @Override
+    public ProductFacetResponse<ProductDTO> filterProducts(ProductFilterRequest filter, int page, int size, String sortBy, String sortDir) {
+        return filter(filter, page, size, sortBy, sortDir, productDTOAssembler::toDTOsByIds);
+    }
+
+    @Override
+    public ProductFacetResponse<ProductSummaryDTO> filterProductSummaries(ProductFilterRequest filter, int page, int size, String sortBy, String sortDir) {
+        return filter(filter, page, size, sortBy, sortDir, this::getSummariesByIds);
+    }
+
+    @Override
+    public SuggestResponse suggest(String query, int limit) {
+        return productSuggestIndex.suggest(query, Math.max(1, Math.min(limit, 20)));
+    }
+
+    @Override
+    public List<ProductSummaryDTO> getNewArrivalSummaries(int limit) {
+        return productRepository.findNewArrivalSummaries(PageRequest.of(0, limit));
+    }
+
+    @Override
+    public List<ProductSummaryDTO> getTopRatedSummaries(int limit) {
+        return getSummariesByIds(productLeaderboards.getTopRated(limit));
+    }
+
+    @Override
+    public List<ProductSummaryDTO> getBestSellingSummaries(String window, int limit) {
+        return getSummariesByIds(productLeaderboards.getBestSelling(window, limit));
+    }
+
+    @Override
+    public List<ProductSummaryDTO> getRandomProductSummaries(Integer categoryId, int limit) {
+        return getSummariesByIds(pickRandomProductIds(categoryId, limit));
+    }
+
+    @Override
+    public List<ProductSummaryDTO> getBoughtTogetherSummaries(Integer productId, int limit) {
+        return getSummariesByIds(coPurchaseRecommender.getNeighbors(productId, limit));
+    }
+
+    @Override
+    public List<ProductSummaryDTO> getSummariesByIds(List<Integer> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, ProductSummaryDTO> byId = new HashMap<>();
+        for (ProductSummaryDTO summary : productRepository.findSummariesByIdIn(productIds)) {
+            byId.put(summary.getId(), summary);
+        }
+
+        List<ProductSummaryDTO> ordered = new ArrayList<>();
+        for (Integer id : productIds) {
+            ProductSummaryDTO summary = byId.get(id);
+            if (summary != null) {
+                ordered.add(summary);
             }
-            
-            dto.setSku(variant.getSku());
-            
-            if (variant.getStatus() != null) {
-                dto.setStatus(variant.getStatus().name());
+        }
+        return ordered;
+    }
+
+    @Override
+    public PagedResponse<ProductDTO> getProductsByCursor(String cursor, int size, String sortBy, String sortDir) {
+        List<Object[]> rows = seekProductKeys(cursor, size, sortBy, sortDir);
+        return PagedResponse.ofCursor(
+                productDTOAssembler.toDTOsByIds(pageIds(rows, size)), size, nextProductCursor(rows, size, sortBy, sortDir));
+    }
+
+    @Override
+    public PagedResponse<ProductSummaryDTO> getProductSummariesByCursor(String cursor, int size, String sortBy, String sortDir) {
+        List<Object[]> rows = seekProductKeys(cursor, size, sortBy, sortDir);
+        return PagedResponse.ofCursor(
+                getSummariesByIds(pageIds(rows, size)), size, nextProductCursor(rows, size, sortBy, sortDir));
+    }
+
+    // Lấy size + 1 cặp (id, khóa sắp xếp) để biết còn trang sau hay không; không nạp entity Product
+    private List<Object[]> seekProductKeys(String cursor, int size, String sortBy, String sortDir) {
+        CursorUtils.Cursor position = CursorUtils.decode(cursor, cursorSort(sortBy, sortDir));
+        Integer lastId = position != null ? position.getId() : null;
+        boolean desc = sortDir.equalsIgnoreCase("desc");
+        Pageable limit = PageRequest.of(0, size + 1);
+
+        switch (sortBy) {
+            case "id":
+                return desc ? productRepository.findKeysetByIdDesc(lastId, limit)
+                        : productRepository.findKeysetByIdAsc(lastId, limit);
+            case "createdAt": {
+                LocalDateTime key = position != null ? position.getKeyAsDateTime() : null;
+                return desc ? productRepository.findKeysetByCreatedAtDesc(key, lastId, limit)
+                        : productRepository.findKeysetByCreatedAtAsc(key, lastId, limit);
             }
-            
-            try {
-                Product product = variant.getProduct();
-                if (product != null && product.getDefaultVariant() != null) {
-                    dto.setIsPrimary(product.getDefaultVariant().getId().equals(variant.getId()));
-                } else {
-                    dto.setIsPrimary(false);
-                }
-            } catch (Exception e) {
-                System.err.println("Error checking if variant is primary for variant ID " + variant.getId() + ": " + e.getMessage());
-                dto.setIsPrimary(false);
+            case "basePrice": {
+                BigDecimal key = position != null ? position.getKeyAsDecimal() : null;
+                return desc ? productRepository.findKeysetByBasePriceDesc(key, lastId, limit)
+                        : productRepository.findKeysetByBasePriceAsc(key, lastId, limit);
             }
-            
-            List<ProductImage> safeImages = safeCollectionCopy(variant.getImages(),
-                "Error copying images for variant ID ", variant.getId());
-            
-            if (!safeImages.isEmpty()) {
-                List<ProductImageDTO> imageDTOs = new ArrayList<>();
-                for (ProductImage image : safeImages) {
-                    try {
-                        ProductImageDTO imageDTO = convertImageToDTOSafe(image);
-                        if (imageDTO != null) {
-                            imageDTOs.add(imageDTO);
-                        }
-                    } catch (Exception e) {
-                        System.err.println("Error converting image for variant ID " + variant.getId() + ": " + e.getMessage());
-                    }
-                }
-                dto.setImages(imageDTOs);
-            } else {
-                dto.setImages(new ArrayList<>());
+            case "name": {
+                String key = position != null ? position.getKey() : null;
+                return desc ? productRepository.findKeysetByNameDesc(key, lastId, limit)
+                        : productRepository.findKeysetByNameAsc(key, lastId, limit);
             }
-            
-            return dto;
-        } catch (Exception e) {
-            System.err.println("Error converting variant to DTO: " + e.getMessage());
-            e.printStackTrace();
+            default:
+                throw new IllegalArgumentException("Cursor pagination does not support sorting by: " + sortBy);
+        }
+    }
+
+    private static List<Integer> pageIds(List<Object[]> rows, int size) {
+        return (rows.size() > size ? rows.subList(0, size) : rows).stream()
+                .map(row -> (Integer) row[0])
+                .collect(Collectors.toList());
+    }
+
+    private static String cursorSort(String sortBy, String sortDir) {
+        return sortBy + ":" + (sortDir.equalsIgnoreCase("desc") ? "desc" : "asc");
+    }
+
+    private String nextProductCursor(List<Object[]> rows, int size, String sortBy, String sortDir) {
+        if (rows.size() <= size) {
             return null;
         }
+        Object[] last = rows.get(size - 1);
+        Object key = last[1] instanceof BigDecimal price ? price.toPlainString() : last[1];
+        return CursorUtils.encode(cursorSort(sortBy, sortDir), key, (Integer) last[0]);
     }
 
-    private ProductImageDTO convertImageToDTOSafe(ProductImage image) {
-        try {
-            if (image == null) {
-                return null;
-            }
+    // Kết quả tìm kiếm từ chỉ mục: sortBy=relevance giữ thứ tự BM25, các khóa khác sắp xếp trong SQL
+    private Page<Integer> searchPageIds(String keyword, int page, int size, String sortBy, String sortDir) {
+        List<Integer> matches = productSearchIndex.search(keyword);
+        Pageable pageable = PageRequest.of(page, size);
+        if (matches.isEmpty()) {
+            return new PageImpl<>(new ArrayList<>(), pageable, 0);
+        }
+
+        if (RELEVANCE_SORT.equals(sortBy)) {
+            int from = Math.min((int) pageable.getOffset(), matches.size());
+            int to = Math.min(from + size, matches.size());
+            return new PageImpl<>(new ArrayList<>(matches.subList(from, to)), pageable, matches.size());
+        }
+        return productRepository.findPageIdsByIdIn(matches, productPageable(page, size, sortBy, sortDir));
+    }
 
-            ProductImageDTO dto = new ProductImageDTO();
-            dto.setId(image.getId());
-            
-            if (image.getProduct() != null) {
-                dto.setProductId(image.getProduct().getId());
+    private <T> ProductFacetResponse<T> filter(ProductFilterRequest filter, int page, int size, String sortBy, String sortDir,
+                                               Function<List<Integer>, List<T>> loader) {
+        ProductFilterRequest resolved = resolveCategories(filter);
+        Page<Integer> productIds;
+        Map<String, List<FacetValueDTO>> facets;
+        if (productFacetIndex.isReady()) {
+            BitsetFacetIndex.Result result = productFacetIndex.query(resolved);
+            productIds = facetPageIds(result, page, size, sortBy, sortDir);
+            facets = buildFacets(filter, result);
+        } else {
+            // Chỉ mục đang dựng lần đầu: lọc trong DB, chưa có số đếm facet
+            productIds = filterPageIdsFromDb(resolved, page, size, sortBy, sortDir);
+            facets = new LinkedHashMap<>();
+            for (String facetName : ProductFacetIndex.FACETS) {
+                facets.put(facetName, new ArrayList<>());
             }
-            
-            if (image.getVariant() != null) {
-                dto.setVariantId(image.getVariant().getId());
+        }
+
+        PagedResponse<T> products = new PagedResponse<>(
+                loader.apply(productIds.getContent()),
+                productIds.getNumber(),
+                productIds.getSize(),
+                productIds.getTotalElements(),
+                productIds.getTotalPages(),
+                productIds.isLast()
+        );
+        return new ProductFacetResponse<>(products, facets);
+    }
+
+    // Danh mục được chọn bao gồm cả danh mục con, giống /category/{id}
+    private ProductFilterRequest resolveCategories(ProductFilterRequest filter) {
+        List<Integer> categoryIds = null;
+        if (filter.getCategoryIds() != null && !filter.getCategoryIds().isEmpty()) {
+            categoryIds = new ArrayList<>();
+            for (Integer categoryId : filter.getCategoryIds()) {
+                categoryIds.addAll(resolveCategoryIds(categoryId));
             }
-            
-            dto.setImageURL(image.getImageURL());
-            dto.setIsPrimary(image.getIsPrimary());
-            dto.setSortOrder(image.getSortOrder());
-            dto.setAltText(image.getAltText());
-            dto.setCreatedAt(image.getCreatedAt());
-            
-            return dto;
-        } catch (Exception e) {
-            System.err.println("Error converting image to DTO: " + e.getMessage());
-            e.printStackTrace();
-            return null;
         }
+
+        return new ProductFilterRequest(
+                categoryIds,
+                filter.getBrandIds(),
+                filter.getSizes(),
+                filter.getColors(),
+                filter.getPriceRanges(),
+                filter.getMinPrice(),
+                filter.getMaxPrice()
+        );
     }
 
+    // Tổng và trang lấy thẳng từ BitSet kết quả; chỉ các khóa sắp xếp chỉ mục không giữ (ví dụ averageRating) mới cần SQL
+    private Page<Integer> facetPageIds(BitsetFacetIndex.Result result, int page, int size, String sortBy, String sortDir) {
+        Pageable pageable = PageRequest.of(page, size);
+        int total = result.getTotal();
+        if (total == 0) {
+            return new PageImpl<>(new ArrayList<>(), pageable, 0);
+        }
 
-    private <T> List<T> safeCollectionCopy(Set<T> collection, String errorMessage, Integer entityId) {
-        try {
-            if (collection == null) {
-                return new ArrayList<>();
+        if (ProductFacetIndex.isSortable(sortBy)) {
+            int offset = (int) Math.min(pageable.getOffset(), total);
+            List<Integer> ids = productFacetIndex.page(result.getMatches(), sortBy,
+                    "desc".equalsIgnoreCase(sortDir), offset, size);
+            return new PageImpl<>(ids, pageable, total);
+        }
+        List<Integer> matches = result.getMatches().stream().boxed().collect(Collectors.toList());
+        return productRepository.findPageIdsByIdIn(matches, productPageable(page, size, sortBy, sortDir));
+    }
+
+    private Page<Integer> filterPageIdsFromDb(ProductFilterRequest filter, int page, int size, String sortBy, String sortDir) {
+        BigDecimal[] priceBounds = productFacetIndex.priceBucketBounds(filter.getPriceRanges());
+        return productRepository.findPageIdsByFilter(
+                isEmpty(filter.getCategoryIds()), orPlaceholder(filter.getCategoryIds(), -1),
+                isEmpty(filter.getBrandIds()), orPlaceholder(filter.getBrandIds(), -1),
+                isEmpty(filter.getSizes()), orPlaceholder(filter.getSizes(), ""),
+                isEmpty(filter.getColors()), orPlaceholder(filter.getColors(), ""),
+                filter.getMinPrice(), filter.getMaxPrice(), priceBounds[0], priceBounds[1],
+                productPageable(page, size, sortBy, sortDir));
+    }
+
+    private static boolean isEmpty(Collection<?> values) {
+        return values == null || values.isEmpty();
+    }
+
+    // IN với danh sách rỗng không hợp lệ trong SQL; giá trị giữ chỗ không được dùng khi cờ any* = true
+    private static <T> Collection<T> orPlaceholder(Collection<T> values, T placeholder) {
+        return isEmpty(values) ? List.of(placeholder) : values;
+    }
+
+    private Map<String, List<FacetValueDTO>> buildFacets(ProductFilterRequest filter, BitsetFacetIndex.Result result) {
+        Map<String, List<FacetValueDTO>> facets = new LinkedHashMap<>();
+
+        Map<String, Integer> categoryCounts = result.getCounts(ProductFacetIndex.CATEGORY);
+        Set<String> selectedCategories = toKeySet(filter.getCategoryIds());
+        CategoryTree categoryTree = categoryTreeCache.get();
+        facets.put(ProductFacetIndex.CATEGORY, toFacetValues(categoryCounts, selectedCategories,
+                key -> categoryTree.get(Integer.valueOf(key)).map(CategoryTree.Node::getName).orElse(null), null));
+
+        Map<String, Integer> brandCounts = result.getCounts(ProductFacetIndex.BRAND);
+        Set<String> selectedBrands = toKeySet(filter.getBrandIds());
+        Map<String, String> brandNames = new HashMap<>();
+        brandRepository.findAllById(toIdList(brandCounts.keySet(), selectedBrands))
+                .forEach(brand -> brandNames.put(String.valueOf(brand.getId()), brand.getName()));
+        facets.put(ProductFacetIndex.BRAND,
+                toFacetValues(brandCounts, selectedBrands, brandNames::get, null));
+
+        facets.put(ProductFacetIndex.SIZE, toFacetValues(result.getCounts(ProductFacetIndex.SIZE),
+                foldValues(filter.getSizes()), productFacetIndex::getLabel, null));
+        facets.put(ProductFacetIndex.COLOR, toFacetValues(result.getCounts(ProductFacetIndex.COLOR),
+                foldValues(filter.getColors()), productFacetIndex::getLabel, null));
+
+        Set<String> selectedPrices = filter.getPriceRanges() != null ? new HashSet<>(filter.getPriceRanges()) : Set.of();
+        facets.put(ProductFacetIndex.PRICE, toFacetValues(result.getCounts(ProductFacetIndex.PRICE),
+                selectedPrices, Function.identity(), productFacetIndex.getPriceBuckets()));
+        return facets;
+    }
+
+    // Giữ các giá trị có kết quả và các giá trị đang được chọn; order == null thì sắp theo số lượng giảm dần
+    private List<FacetValueDTO> toFacetValues(Map<String, Integer> counts, Set<String> selected,
+                                              Function<String, String> labels, List<String> order) {
+        Set<String> values = new HashSet<>(counts.keySet());
+        values.addAll(selected);
+
+        List<FacetValueDTO> facetValues = new ArrayList<>();
+        for (String value : order != null ? order : values) {
+            if (!values.contains(value)) {
+                continue;
             }
-            return new ArrayList<>(collection);
-        } catch (Exception e) {
-            System.err.println(errorMessage + entityId + ": " + e.getMessage());
-            return new ArrayList<>();
+            String label = labels.apply(value);
+            facetValues.add(new FacetValueDTO(value, label != null ? label : value,
+                    counts.getOrDefault(value, 0), selected.contains(value)));
+        }
+
+        if (order == null) {
+            facetValues.sort(Comparator.comparing(FacetValueDTO::getCount).reversed()
+                    .thenComparing(FacetValueDTO::getLabel));
+        }
+        return facetValues;
+    }
+
+    private Set<String> toKeySet(Collection<Integer> ids) {
+        Set<String> keys = new HashSet<>();
+        if (ids != null) {
+            ids.forEach(id -> keys.add(String.valueOf(id)));
+        }
+        return keys;
+    }
+
+    private Set<String> foldValues(Collection<String> values) {
+        Set<String> keys = new HashSet<>();
+        if (values != null) {
+            values.forEach(value -> keys.add(ProductFacetIndex.foldValue(value)));
         }
+        return keys;
+    }
+
+    private List<Integer> toIdList(Set<String> counted, Set<String> selected) {
+        Set<Integer> ids = new HashSet<>();
+        counted.forEach(key -> ids.add(Integer.valueOf(key)));
+        selected.forEach(key -> ids.add(Integer.valueOf(key)));
+        return new ArrayList<>(ids);
+    }
+
+    // Danh mục và toàn bộ danh mục con ở mọi cấp, lấy từ cây danh mục trong bộ nhớ
+    private List<Integer> resolveCategoryIds(Integer categoryId) {
+        return new ArrayList<>(categoryTreeCache.getNode(categoryId).getDescendantIds());
+    }
+
+    private List<Integer> pickRandomProductIds(Integer categoryId, int limit) {
+        return randomProductSampler.sample(categoryId != null ? resolveCategoryIds(categoryId) : null, limit);
+    }
+
+    private Pageable productPageable(int page, int size, String sortBy, String sortDir) {
+        Sort.Direction direction = sortDir.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        // averageRating không phải thuộc tính của Product, sắp xếp theo cột của bảng tổng hợp (alias pr)
+        Sort sort = "averageRating".equals(sortBy)
+                ? JpaSort.unsafe(direction, "COALESCE(pr.averageRating, 0)")
+                : Sort.by(direction, sortBy);
+        if (!"id".equals(sortBy)) {
+            sort = sort.and(Sort.by(direction, "id"));
+        }
+        return PageRequest.of(page, size, sort);
+    }
+
+    private PagedResponse<ProductSummaryDTO> toSummaryPage(Page<ProductSummaryDTO> summaries) {
+        return new PagedResponse<>(
+                summaries.getContent(),
+                summaries.getNumber(),
+                summaries.getSize(),
+                summaries.getTotalElements(),
+                summaries.getTotalPages(),
+                summaries.isLast()
+        );
     }
-}
\ No newline at end of file
+}
@@ -4,11 +4,14 @@ import com.example.app.dto.ProductVariantDTO;
 import com.example.app.entity.Product;
 import com.example.app.entity.ProductImage;
 import com.example.app.entity.ProductVariant;
+import com.example.app.event.ProductChangedEvent;
 import com.example.app.exception.ResourceNotFoundException;
 import com.example.app.repository.ProductRepository;
 import com.example.app.repository.ProductVariantRepository;
 import com.example.app.service.ProductVariantService;
+import com.example.app.util.ImageDerivatives;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,13 +26,19 @@ public class ProductVariantServiceImpl implements ProductVariantService {
 
     private final ProductVariantRepository variantRepository;
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductImageSummaryUpdater productImageSummaryUpdater;
 
     @Autowired
     public ProductVariantServiceImpl(
             ProductVariantRepository variantRepository,
-            ProductRepository productRepository) {
+            ProductRepository productRepository,
+            ApplicationEventPublisher eventPublisher,
+            ProductImageSummaryUpdater productImageSummaryUpdater) {
         this.variantRepository = variantRepository;
         this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.productImageSummaryUpdater = productImageSummaryUpdater;
     }
 
     @Override
@@ -105,6 +114,7 @@ public class ProductVariantServiceImpl implements ProductVariantService {
         }
 
         ProductVariant savedVariant = variantRepository.save(variant);
+        publishVariantChange(savedVariant, ProductChangedEvent.ChangeType.VARIANT);
         return convertToDTO(savedVariant);
     }
 
@@ -144,6 +154,7 @@ public class ProductVariantServiceImpl implements ProductVariantService {
         }
 
         ProductVariant updatedVariant = variantRepository.save(variant);
+        publishVariantChange(updatedVariant, ProductChangedEvent.ChangeType.VARIANT);
         return convertToDTO(updatedVariant);
     }
 
@@ -166,6 +177,7 @@ public class ProductVariantServiceImpl implements ProductVariantService {
         }
 
         ProductVariant updatedVariant = variantRepository.save(variant);
+        publishVariantChange(updatedVariant, ProductChangedEvent.ChangeType.STOCK);
         return convertToDTO(updatedVariant);
     }
 
@@ -184,6 +196,7 @@ public class ProductVariantServiceImpl implements ProductVariantService {
 
             variant.setStatus(newStatus);
             ProductVariant updatedVariant = variantRepository.save(variant);
+            publishVariantChange(updatedVariant, ProductChangedEvent.ChangeType.VARIANT);
             return convertToDTO(updatedVariant);
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("Invalid status: " + status);
@@ -193,11 +206,12 @@ public class ProductVariantServiceImpl implements ProductVariantService {
     @Override
     @Transactional
     public void deleteVariant(Integer id) {
-        if (!variantRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Product variant not found with id: " + id);
-        }
+        ProductVariant variant = variantRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Product variant not found with id: " + id));
 
         variantRepository.deleteById(id);
+        productImageSummaryUpdater.refresh(variant.getProduct());
+        publishVariantChange(variant, ProductChangedEvent.ChangeType.VARIANT);
     }
 
     @Override
@@ -208,6 +222,12 @@ public class ProductVariantServiceImpl implements ProductVariantService {
                 .collect(Collectors.toList());
     }
 
+    private void publishVariantChange(ProductVariant variant, ProductChangedEvent.ChangeType type) {
+        if (variant.getProduct() != null) {
+            eventPublisher.publishEvent(new ProductChangedEvent(variant.getProduct().getId(), type));
+        }
+    }
+
     private ProductVariantDTO convertToDTO(ProductVariant variant) {
         ProductVariantDTO dto = new ProductVariantDTO();
         dto.setId(variant.getId());
@@ -237,6 +257,7 @@ public class ProductVariantServiceImpl implements ProductVariantService {
                 ProductImageDTO imageDTO = new ProductImageDTO();
                 imageDTO.setId(image.getId());
                 imageDTO.setImageURL(image.getImageURL());
+                imageDTO.setDerivativeURLs(ImageDerivatives.urlsOf(image));
                 imageDTO.setIsPrimary(image.getIsPrimary());
                 imageDTO.setSortOrder(image.getSortOrder());
                 imageDTO.setAltText(image.getAltText());
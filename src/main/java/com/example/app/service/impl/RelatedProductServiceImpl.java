@@ -1,16 +1,21 @@
 package com.example.app.service.impl;
 
+import com.example.app.cache.RelatedProductGraph;
+import com.example.app.dto.ProductSummaryDTO;
 import com.example.app.dto.RelatedProductDTO;
 import com.example.app.entity.Product;
 import com.example.app.entity.ProductImage;
 import com.example.app.entity.ProductVariant;
 import com.example.app.entity.RelatedProduct;
 import com.example.app.entity.RelatedProductId;
+import com.example.app.event.ProductChangedEvent;
 import com.example.app.exception.ResourceNotFoundException;
 import com.example.app.repository.ProductRepository;
 import com.example.app.repository.RelatedProductRepository;
+import com.example.app.search.CoPurchaseRecommender;
 import com.example.app.service.RelatedProductService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -18,8 +23,13 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,37 +37,45 @@ public class RelatedProductServiceImpl implements RelatedProductService {
 
     private final RelatedProductRepository relatedProductRepository;
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CoPurchaseRecommender coPurchaseRecommender;
+    private final RelatedProductGraph relatedProductGraph;
 
     @Autowired
     public RelatedProductServiceImpl(
             RelatedProductRepository relatedProductRepository,
-            ProductRepository productRepository) {
+            ProductRepository productRepository,
+            ApplicationEventPublisher eventPublisher,
+            CoPurchaseRecommender coPurchaseRecommender,
+            RelatedProductGraph relatedProductGraph) {
         this.relatedProductRepository = relatedProductRepository;
         this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.coPurchaseRecommender = coPurchaseRecommender;
+        this.relatedProductGraph = relatedProductGraph;
     }
 
     @Override
     public List<RelatedProductDTO> getRelatedProducts(Integer productId) {
-        if (!productRepository.existsById(productId)) {
-            throw new ResourceNotFoundException("Product not found with id: " + productId);
-        }
+        return getRelatedProductsByType(productId, null);
+    }
 
-        List<RelatedProduct> relatedProducts = relatedProductRepository.findByProductId(productId);
-        return relatedProducts.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    @Override
+    public Map<Integer, List<RelatedProductDTO>> getRelatedProductsForProducts(Collection<Integer> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        return hydrate(productIds, null);
     }
 
     @Override
     public List<RelatedProductDTO> getRelatedProductsByType(Integer productId, RelatedProduct.RelationType relationType) {
-        if (!productRepository.existsById(productId)) {
+        List<RelatedProductDTO> related = hydrate(List.of(productId), relationType).get(productId);
+        // Sản phẩm gốc nằm trong cùng truy vấn summary nên không cần existsById riêng
+        if (related == null) {
             throw new ResourceNotFoundException("Product not found with id: " + productId);
         }
-
-        List<RelatedProduct> relatedProducts = relatedProductRepository.findByProductIdAndRelationType(productId, relationType);
-        return relatedProducts.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return related;
     }
 
     @Override
@@ -94,6 +112,7 @@ public class RelatedProductServiceImpl implements RelatedProductService {
         newRelation.setRelationType(relationType);
 
         RelatedProduct savedRelation = relatedProductRepository.save(newRelation);
+        eventPublisher.publishEvent(new ProductChangedEvent(product.getId(), ProductChangedEvent.ChangeType.RELATED));
         return convertToDTO(savedRelation);
     }
 
@@ -126,6 +145,7 @@ public class RelatedProductServiceImpl implements RelatedProductService {
         newRelation.setRelationType(newRelationType);
 
         RelatedProduct savedRelation = relatedProductRepository.save(newRelation);
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.ChangeType.RELATED));
         return convertToDTO(savedRelation);
     }
 
@@ -139,6 +159,7 @@ public class RelatedProductServiceImpl implements RelatedProductService {
         }
 
         relatedProductRepository.deleteById(id);
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.ChangeType.RELATED));
     }
 
     @Override
@@ -148,9 +169,16 @@ public class RelatedProductServiceImpl implements RelatedProductService {
             throw new ResourceNotFoundException("Product not found with id: " + productId);
         }
 
+        List<Integer> referencingProductIds = relatedProductRepository.findProductIdsByRelatedProductId(productId);
+
         relatedProductRepository.deleteByProductId(productId);
 
         relatedProductRepository.deleteByRelatedProductId(productId);
+
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.ChangeType.RELATED));
+        for (Integer referencingProductId : referencingProductIds) {
+            eventPublisher.publishEvent(new ProductChangedEvent(referencingProductId, ProductChangedEvent.ChangeType.RELATED));
+        }
     }
 
     @Override
@@ -158,30 +186,50 @@ public class RelatedProductServiceImpl implements RelatedProductService {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
 
-        List<RelatedProduct> existingRelations = relatedProductRepository.findByProductId(productId);
-        List<Integer> existingRelatedIds = existingRelations.stream()
-                .map(rp -> rp.getRelatedProduct().getId())
-                .collect(Collectors.toList());
+        RelatedProductGraph.Adjacency existingRelations = relatedProductGraph.get(productId);
+        List<Integer> existingRelatedIds = new ArrayList<>();
+        for (int i = 0; i < existingRelations.size(); i++) {
+            existingRelatedIds.add(existingRelations.relatedId(i));
+        }
 
         existingRelatedIds.add(productId);
 
-        Pageable pageable = PageRequest.of(0, limit);
-        List<Product> sameCategoryProducts = productRepository.findByCategoryId(product.getCategory().getId(), pageable)
-                .getContent().stream()
-                .filter(p -> !existingRelatedIds.contains(p.getId()))
+        // Ưu tiên sản phẩm thường được mua cùng, sau đó mới bù bằng cùng danh mục/thương hiệu
+        List<Integer> boughtTogetherIds = coPurchaseRecommender.getNeighbors(productId, limit + existingRelatedIds.size()).stream()
+                .filter(id -> !existingRelatedIds.contains(id))
+                .limit(limit)
+                .collect(Collectors.toList());
+        Map<Integer, Product> boughtTogetherById = productRepository.findAllById(boughtTogetherIds).stream()
+                .collect(Collectors.toMap(Product::getId, p -> p));
+        List<Product> boughtTogetherProducts = boughtTogetherIds.stream()
+                .map(boughtTogetherById::get)
+                .filter(p -> p != null)
                 .collect(Collectors.toList());
+        boughtTogetherProducts.forEach(p -> existingRelatedIds.add(p.getId()));
+
+        Pageable pageable = PageRequest.of(0, limit);
+        List<Product> sameCategoryProducts = new ArrayList<>();
+        if (boughtTogetherProducts.size() < limit) {
+            sameCategoryProducts = productRepository.findByCategoryId(product.getCategory().getId(), pageable)
+                    .getContent().stream()
+                    .filter(p -> !existingRelatedIds.contains(p.getId()))
+                    .collect(Collectors.toList());
+        }
 
         List<Product> sameBrandProducts = new ArrayList<>();
-        if (sameCategoryProducts.size() < limit) {
+        int filled = boughtTogetherProducts.size() + sameCategoryProducts.size();
+        if (filled < limit) {
+            List<Product> categoryMatches = sameCategoryProducts;
             sameBrandProducts = productRepository.findByBrandId(product.getBrand().getId(),
-                            PageRequest.of(0, limit - sameCategoryProducts.size()))
+                            PageRequest.of(0, limit - filled))
                     .getContent().stream()
                     .filter(p -> !existingRelatedIds.contains(p.getId()) &&
-                            !sameCategoryProducts.contains(p))
+                            !categoryMatches.contains(p))
                     .collect(Collectors.toList());
         }
 
-        List<Product> suggestedProducts = new ArrayList<>(sameCategoryProducts);
+        List<Product> suggestedProducts = new ArrayList<>(boughtTogetherProducts);
+        suggestedProducts.addAll(sameCategoryProducts);
         suggestedProducts.addAll(sameBrandProducts);
 
         if (suggestedProducts.size() > limit) {
@@ -216,6 +264,44 @@ public class RelatedProductServiceImpl implements RelatedProductService {
         return dto;
     }
 
+    /**
+     * Dựng DTO từ danh sách kề trong bộ nhớ, lấy tên/ảnh/giá của cả sản phẩm gốc lẫn sản phẩm liên quan
+     * bằng một truy vấn summary. Sản phẩm gốc không tồn tại sẽ không có trong kết quả.
+     */
+    private Map<Integer, List<RelatedProductDTO>> hydrate(Collection<Integer> productIds, RelatedProduct.RelationType relationType) {
+        Map<Integer, RelatedProductGraph.Adjacency> adjacency = relatedProductGraph.getAll(productIds);
+
+        Set<Integer> summaryIds = new HashSet<>(productIds);
+        for (RelatedProductGraph.Adjacency edges : adjacency.values()) {
+            for (int i = 0; i < edges.size(); i++) {
+                summaryIds.add(edges.relatedId(i));
+            }
+        }
+        Map<Integer, ProductSummaryDTO> summaries = productRepository.findSummariesByIdIn(summaryIds).stream()
+                .collect(Collectors.toMap(ProductSummaryDTO::getId, summary -> summary));
+
+        Map<Integer, List<RelatedProductDTO>> result = new HashMap<>();
+        for (Integer productId : productIds) {
+            ProductSummaryDTO product = summaries.get(productId);
+            if (product == null) {
+                continue;
+            }
+            RelatedProductGraph.Adjacency edges = adjacency.get(productId);
+            List<RelatedProductDTO> dtos = new ArrayList<>(edges.size());
+            for (int i = 0; i < edges.size(); i++) {
+                ProductSummaryDTO related = summaries.get(edges.relatedId(i));
+                if (related != null && (relationType == null || edges.type(i) == relationType)) {
+                    dtos.add(new RelatedProductDTO(
+                            product.getId(), product.getName(), product.getMainImageUrl(), product.getBasePrice(),
+                            related.getId(), related.getName(), related.getMainImageUrl(), related.getBasePrice(),
+                            edges.type(i).name()));
+                }
+            }
+            result.put(productId, dtos);
+        }
+        return result;
+    }
+
     private RelatedProductDTO convertToDTO(RelatedProduct relatedProduct) {
         RelatedProductDTO dto = new RelatedProductDTO();
 
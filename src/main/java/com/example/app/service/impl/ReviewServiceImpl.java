@@ -4,31 +4,41 @@ import com.example.app.dto.ReviewDTO;
 import com.example.app.entity.Product;
 import com.example.app.entity.Review;
 import com.example.app.entity.User;
+import com.example.app.event.ProductChangedEvent;
 import com.example.app.exception.ResourceNotFoundException;
 import com.example.app.repository.OrderItemRepository;
 import com.example.app.repository.OrderRepository;
 import com.example.app.repository.ProductRepository;
 import com.example.app.repository.ReviewRepository;
 import com.example.app.repository.UserRepository;
+import com.example.app.service.ProductRatingService;
 import com.example.app.service.ReviewService;
+import com.example.app.util.CursorUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
 public class ReviewServiceImpl implements ReviewService {
 
+    // Review của sản phẩm chỉ phân trang con trỏ theo thời gian tạo mới nhất trước
+    private static final String REVIEW_CURSOR_SORT = "createdAt:desc";
+
     private final ReviewRepository reviewRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
+    private final ProductRatingService productRatingService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public ReviewServiceImpl(
@@ -36,12 +46,16 @@ public class ReviewServiceImpl implements ReviewService {
             ProductRepository productRepository,
             UserRepository userRepository,
             OrderRepository orderRepository,
-            OrderItemRepository orderItemRepository) {
+            OrderItemRepository orderItemRepository,
+            ProductRatingService productRatingService,
+            ApplicationEventPublisher eventPublisher) {
         this.reviewRepository = reviewRepository;
         this.productRepository = productRepository;
         this.userRepository = userRepository;
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
+        this.productRatingService = productRatingService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -67,6 +81,32 @@ public class ReviewServiceImpl implements ReviewService {
         );
     }
 
+    @Override
+    public PagedResponse<ReviewDTO> getReviewsByProductCursor(Integer productId, String cursor, int size) {
+        if (!productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException("Product not found with id: " + productId);
+        }
+
+        CursorUtils.Cursor position = CursorUtils.decode(cursor, REVIEW_CURSOR_SORT);
+        LocalDateTime lastKey = position != null ? position.getKeyAsDateTime() : null;
+        Integer lastId = position != null ? position.getId() : null;
+
+        List<Review> rows = reviewRepository.findKeysetByProductId(productId, lastKey, lastId, PageRequest.of(0, size + 1));
+
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            Review last = rows.get(size - 1);
+            nextCursor = CursorUtils.encode(REVIEW_CURSOR_SORT, last.getCreatedAt(), last.getId());
+        }
+
+        List<ReviewDTO> content = rows.stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+
+        return PagedResponse.ofCursor(content, size, nextCursor);
+    }
+
     @Override
     public List<ReviewDTO> getReviewsByUser(Integer userId) {
         // Check if user exists
@@ -98,6 +138,10 @@ public class ReviewServiceImpl implements ReviewService {
         User user = userRepository.findById(reviewDTO.getUserId())
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + reviewDTO.getUserId()));
 
+        if (reviewDTO.getRating() == null || reviewDTO.getRating() < 1 || reviewDTO.getRating() > 5) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5");
+        }
+
         Review review = new Review();
         review.setProduct(product);
         review.setUser(user);
@@ -110,7 +154,8 @@ public class ReviewServiceImpl implements ReviewService {
 
         Review savedReview = reviewRepository.save(review);
 
-        updateProductRating(product.getId());
+        productRatingService.addRating(product.getId(), savedReview.getRating());
+        eventPublisher.publishEvent(new ProductChangedEvent(product.getId(), ProductChangedEvent.ChangeType.REVIEW));
 
         return convertToDTO(savedReview);
     }
@@ -129,22 +174,28 @@ public class ReviewServiceImpl implements ReviewService {
             throw new IllegalArgumentException("Rating must be between 1 and 5");
         }
 
+        Integer oldRating = review.getRating();
         review.setRating(reviewDTO.getRating());
         review.setComment(reviewDTO.getComment());
 
         Review updatedReview = reviewRepository.save(review);
 
+        productRatingService.changeRating(review.getProduct().getId(), oldRating, updatedReview.getRating());
+        eventPublisher.publishEvent(new ProductChangedEvent(review.getProduct().getId(), ProductChangedEvent.ChangeType.REVIEW));
+
         return convertToDTO(updatedReview);
     }
 
     @Override
     @Transactional
     public void deleteReview(Integer id) {
-        if (!reviewRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Review not found with id: " + id);
-        }
+        Review review = reviewRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Review not found with id: " + id));
 
-        reviewRepository.deleteById(id);
+        reviewRepository.delete(review);
+
+        productRatingService.removeRating(review.getProduct().getId(), review.getRating());
+        eventPublisher.publishEvent(new ProductChangedEvent(review.getProduct().getId(), ProductChangedEvent.ChangeType.REVIEW));
     }
 
     @Override
@@ -232,14 +283,4 @@ public class ReviewServiceImpl implements ReviewService {
 
         return updateReview(id, reviewDTO);
     }
-
-
-    private void updateProductRating(Integer productId) {
-        Double avgRating = calculateAverageRating(productId);
-        
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
-        
-
-    }
 }
\ No newline at end of file
@@ -0,0 +1,295 @@
+package com.example.app.service.impl;
+
+import com.example.app.repository.BrandRepository;
+import com.example.app.repository.CategoryRepository;
+import com.example.app.repository.ImageBlobRepository;
+import com.example.app.repository.ProductImageRepository;
+import com.example.app.repository.ProductRepository;
+import com.example.app.repository.SlideBannerRepository;
+import com.example.app.service.FileStorageService;
+import com.example.app.service.UploadCleanupService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Dọn file upload mồ côi: xóa sản phẩm, thay ảnh biến thể hay đổi banner chỉ xóa bản ghi trong DB nên file
+ * (và refCount trong Image_Blob) vẫn còn. Mỗi lượt so các blob trong UploadIndex với mọi tham chiếu trong
+ * ProductImage, Product (ảnh lưu sẵn), Category, SlideBanner và Brand; blob không còn ai trỏ tới và đã cũ hơn
+ * thời gian chờ thì bị xóa theo từng lô, nghỉ giữa các lô để không chiếm I/O của luồng phục vụ ảnh. Trước mỗi lô
+ * các đường dẫn ứng viên được tra lại trực tiếp (IN) trên từng bảng, vì ảnh có thể được gán lại trong lúc dọn.
+ * Lượt quét đầy đủ tốn một lần đọc mọi cột ảnh, nên giữa hai lượt đầy đủ chỉ chạy lượt nhanh: ứng viên là blob có
+ * refCount = 0 (đã giải phóng qua deleteFile). Blob mồ côi do xóa hàng loạt (refCount không giảm) chờ lượt đầy đủ.
+ * Chỉ dọn file lưu theo nội dung (blobs/); file cũ lưu theo tên không có định dạng tham chiếu thống nhất nên giữ lại.
+ */
+@Service
+public class UploadCleanupServiceImpl implements UploadCleanupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadCleanupServiceImpl.class);
+
+    private static final String BLOB_PREFIX = FileStorageService.BLOB_DIRECTORY + "/";
+    // Tham chiếu có thể là đường dẫn tương đối, "/images/..." hoặc URL đầy đủ; chỉ lấy phần đường dẫn blob
+    private static final Pattern BLOB_PATH = Pattern.compile(
+            Pattern.quote(BLOB_PREFIX) + "[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}\\.[A-Za-z0-9]+");
+
+    private final ProductImageRepository productImageRepository;
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final SlideBannerRepository slideBannerRepository;
+    private final BrandRepository brandRepository;
+    private final ImageBlobRepository imageBlobRepository;
+    private final FileStorageService fileStorageService;
+    private final UploadIndex uploadIndex;
+    // Tiền tố URL công khai ("/images/"), tham chiếu có thể lưu kèm tiền tố này
+    private final String publicPrefix;
+    private final long gracePeriodMillis;
+    private final int batchSize;
+    private final long batchPauseMillis;
+    // Cứ bao nhiêu lượt thì có một lượt đối chiếu toàn bộ tham chiếu (lượt đầu tiên luôn đầy đủ)
+    private final int fullScanEvery;
+    private final ThreadPoolExecutor cleanupExecutor;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong filesDeleted = new AtomicLong();
+    private final AtomicLong bytesReclaimed = new AtomicLong();
+    private volatile Map<String, Object> lastRun;
+
+    @Autowired
+    public UploadCleanupServiceImpl(ProductImageRepository productImageRepository,
+                                    ProductRepository productRepository,
+                                    CategoryRepository categoryRepository,
+                                    SlideBannerRepository slideBannerRepository,
+                                    BrandRepository brandRepository,
+                                    ImageBlobRepository imageBlobRepository,
+                                    FileStorageService fileStorageService,
+                                    UploadIndex uploadIndex,
+                                    @Value("${app.file.access-path}") String accessPath,
+                                    @Value("${app.upload-gc.grace-period-minutes:60}") long gracePeriodMinutes,
+                                    @Value("${app.upload-gc.batch-size:100}") int batchSize,
+                                    @Value("${app.upload-gc.batch-pause-ms:500}") long batchPauseMillis,
+                                    @Value("${app.upload-gc.full-scan-every:4}") int fullScanEvery) {
+        this.productImageRepository = productImageRepository;
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.slideBannerRepository = slideBannerRepository;
+        this.brandRepository = brandRepository;
+        this.imageBlobRepository = imageBlobRepository;
+        this.fileStorageService = fileStorageService;
+        this.uploadIndex = uploadIndex;
+        this.publicPrefix = accessPath.replace("**", "");
+        this.gracePeriodMillis = TimeUnit.MINUTES.toMillis(gracePeriodMinutes);
+        this.batchSize = Math.max(1, batchSize);
+        this.batchPauseMillis = batchPauseMillis;
+        this.fullScanEvery = Math.max(1, fullScanEvery);
+        // Một luồng, không xếp hàng thêm: mỗi lúc chỉ có một lượt dọn
+        this.cleanupExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "upload-gc");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+        this.cleanupExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Chỉ chuyển việc sang luồng riêng: bộ lập lịch mặc định có một luồng, không được nghỉ giữa các lô ở đây
+     */
+    @Scheduled(initialDelayString = "${app.upload-gc.interval-ms:21600000}",
+            fixedDelayString = "${app.upload-gc.interval-ms:21600000}")
+    public void scheduledCollection() {
+        requestCollection();
+    }
+
+    @Override
+    public boolean requestCollection() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            cleanupExecutor.execute(() -> {
+                try {
+                    collect();
+                } catch (Exception e) {
+                    logger.error("Error collecting orphaned uploads: {}", e.getMessage(), e);
+                } finally {
+                    running.set(false);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+            return false;
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", running.get());
+        stats.put("runs", runs.get());
+        stats.put("indexedFiles", uploadIndex.size());
+        stats.put("indexedBytes", uploadIndex.totalBytes());
+        stats.put("filesDeleted", filesDeleted.get());
+        stats.put("bytesReclaimed", bytesReclaimed.get());
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleanupExecutor.shutdownNow();
+    }
+
+    private void collect() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.currentTimeMillis();
+        long cutoff = start - gracePeriodMillis;
+
+        boolean fullScan = runs.get() % fullScanEvery == 0;
+        List<UploadIndex.Entry> blobs;
+        List<String> orphans;
+        Integer referencedCount = null;
+        if (fullScan) {
+            // Đọc tham chiếu trước khi lấy danh sách blob: blob lưu sau thời điểm này đều mới hơn cutoff
+            Set<String> referenced = loadReferences();
+            referencedCount = referenced.size();
+            blobs = uploadIndex.entriesUnder(BLOB_PREFIX);
+            orphans = blobs.stream()
+                    .filter(entry -> entry.storedAt() <= cutoff && !referenced.contains(entry.path()))
+                    .map(UploadIndex.Entry::path)
+                    .collect(Collectors.toList());
+        } else {
+            // refCount = 0 chỉ là ứng viên: tham chiếu vẫn được tra lại theo lô trước khi xóa
+            Set<String> released = new HashSet<>(imageBlobRepository.findUnreferencedPaths());
+            blobs = uploadIndex.entriesUnder(BLOB_PREFIX);
+            orphans = blobs.stream()
+                    .filter(entry -> entry.storedAt() <= cutoff && released.contains(entry.path()))
+                    .map(UploadIndex.Entry::path)
+                    .collect(Collectors.toList());
+        }
+
+        int deleted = 0;
+        int rescued = 0;
+        long reclaimed = 0;
+        for (int from = 0; from < orphans.size(); from += batchSize) {
+            if (from > 0 && batchPauseMillis > 0) {
+                try {
+                    Thread.sleep(batchPauseMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            List<String> batch = orphans.subList(from, Math.min(from + batchSize, orphans.size()));
+            Set<String> stillReferenced;
+            try {
+                stillReferenced = loadReferences(batch);
+            } catch (RuntimeException e) {
+                // Không xác nhận được thì không xóa gì ở lô này
+                logger.warn("Error re-checking references for upload cleanup batch: {}", e.getMessage());
+                continue;
+            }
+            for (String path : batch) {
+                if (stillReferenced.contains(path)) {
+                    rescued++;
+                    continue;
+                }
+                try {
+                    long bytes = fileStorageService.deleteOrphan(path, cutoff);
+                    if (bytes > 0) {
+                        deleted++;
+                        reclaimed += bytes;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Error deleting orphaned upload {}: {}", path, e.getMessage());
+                }
+            }
+        }
+
+        runs.incrementAndGet();
+        filesDeleted.addAndGet(deleted);
+        bytesReclaimed.addAndGet(reclaimed);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("startedAt", startedAt);
+        summary.put("fullScan", fullScan);
+        summary.put("durationMs", System.currentTimeMillis() - start);
+        summary.put("scanned", blobs.size());
+        summary.put("referenced", referencedCount);
+        summary.put("orphans", orphans.size());
+        summary.put("referencedOnRecheck", rescued);
+        summary.put("deleted", deleted);
+        summary.put("bytesReclaimed", reclaimed);
+        lastRun = summary;
+
+        if (!orphans.isEmpty()) {
+            logger.info("Upload cleanup ({} scan) deleted {} of {} orphaned files, reclaimed {} bytes in {} ms",
+                    fullScan ? "full" : "refCount", deleted, orphans.size(), reclaimed, System.currentTimeMillis() - start);
+        }
+    }
+
+    private Set<String> loadReferences() {
+        Set<String> referenced = new HashSet<>();
+        addBlobPaths(referenced, productImageRepository.findImageUrlsContaining(BLOB_PREFIX));
+        addBlobPaths(referenced, productRepository.findImageUrlsContaining(BLOB_PREFIX));
+        addBlobPaths(referenced, categoryRepository.findImagesContaining(BLOB_PREFIX));
+        addBlobPaths(referenced, slideBannerRepository.findImageUrlsContaining(BLOB_PREFIX));
+        addBlobPaths(referenced, brandRepository.findLogoUrlsContaining(BLOB_PREFIX));
+        return referenced;
+    }
+
+    /**
+     * Tra lại tham chiếu của đúng các đường dẫn trong lô (cả dạng có tiền tố URL công khai)
+     */
+    private Set<String> loadReferences(List<String> paths) {
+        List<String> urls = new ArrayList<>(paths.size() * 2);
+        for (String path : paths) {
+            urls.add(path);
+            urls.add(publicPrefix + path);
+        }
+        Set<String> referenced = new HashSet<>();
+        addBlobPaths(referenced, productImageRepository.findImageUrlsIn(urls));
+        addBlobPaths(referenced, productRepository.findMainImageUrlsIn(urls));
+        addBlobPaths(referenced, categoryRepository.findImagesIn(urls));
+        addBlobPaths(referenced, slideBannerRepository.findImageUrlsIn(urls));
+        addBlobPaths(referenced, brandRepository.findLogoUrlsIn(urls));
+        return referenced;
+    }
+
+    private static void addBlobPaths(Set<String> referenced, List<String> values) {
+        for (String value : values) {
+            if (value == null) {
+                continue;
+            }
+            Matcher matcher = BLOB_PATH.matcher(value);
+            while (matcher.find()) {
+                referenced.add(matcher.group());
+            }
+        }
+    }
+}
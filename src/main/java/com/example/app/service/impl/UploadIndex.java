@@ -0,0 +1,252 @@
+package com.example.app.service.impl;
+
+import com.example.app.service.FileStorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Chỉ mục các file đã lưu trong thư mục upload, ghi trên đĩa dạng nhật ký (mỗi dòng "+ path size storedAt"
+ * hoặc "- path", phân tách bằng tab). FileStorageServiceImpl ghi thêm dòng khi lưu/xóa file nên việc liệt kê
+ * và dọn file mồ côi không phải duyệt cây thư mục. Chỉ duyệt toàn bộ thư mục một lần khi chưa có file chỉ mục.
+ * Ảnh thu nhỏ (derived/) và file tạm (blobs/tmp/) không nằm trong chỉ mục.
+ */
+@Component
+public class UploadIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadIndex.class);
+
+    private static final String ADDED = "+";
+    private static final String REMOVED = "-";
+    private static final String SEPARATOR = "\t";
+    private static final String DERIVED_SEGMENT = "derived";
+    private static final String TEMP_DIRECTORY = FileStorageService.BLOB_DIRECTORY + "/tmp/";
+    // Nhật ký dài gấp đôi số file còn lại thì ghi lại thành ảnh chụp gọn
+    private static final int COMPACT_MIN_LINES = 10_000;
+
+    public record Entry(String path, long size, long storedAt) {
+    }
+
+    private final Path uploadRoot;
+    private final Path indexFile;
+    private final NavigableMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+    private volatile boolean loaded;
+    private int journalLines;
+
+    @Autowired
+    public UploadIndex(@Value("${app.file.upload-dir}") String uploadDir,
+                       @Value("${app.file.index-file:./uploads/upload-index.tsv}") String indexFile) {
+        this.uploadRoot = Paths.get(uploadDir);
+        this.indexFile = Paths.get(indexFile);
+    }
+
+    public void add(String path, long size) {
+        ensureLoaded();
+        synchronized (this) {
+            Entry entry = new Entry(path, size, System.currentTimeMillis());
+            entries.put(path, entry);
+            append(ADDED + SEPARATOR + path + SEPARATOR + size + SEPARATOR + entry.storedAt());
+        }
+    }
+
+    public void remove(String path) {
+        ensureLoaded();
+        synchronized (this) {
+            if (entries.remove(path) != null) {
+                append(REMOVED + SEPARATOR + path);
+            }
+        }
+    }
+
+    /**
+     * @return các file có đường dẫn bắt đầu bằng prefix, sắp theo đường dẫn
+     */
+    public List<Entry> entriesUnder(String prefix) {
+        ensureLoaded();
+        return new ArrayList<>(entries.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values());
+    }
+
+    public int size() {
+        ensureLoaded();
+        return entries.size();
+    }
+
+    public long totalBytes() {
+        ensureLoaded();
+        return entries.values().stream().mapToLong(Entry::size).sum();
+    }
+
+    /**
+     * Duyệt lại toàn bộ thư mục upload và ghi đè chỉ mục (dùng khi chưa có chỉ mục hoặc chỉ mục lệch với đĩa)
+     */
+    public synchronized void rebuild() {
+        entries.clear();
+        if (Files.isDirectory(uploadRoot)) {
+            try (Stream<Path> files = Files.walk(uploadRoot)) {
+                files.filter(Files::isRegularFile).forEach(file -> {
+                    String path = uploadRoot.relativize(file).toString().replace(File.separatorChar, '/');
+                    if (isIndexed(path)) {
+                        try {
+                            entries.put(path, new Entry(path, Files.size(file), Files.getLastModifiedTime(file).toMillis()));
+                        } catch (IOException e) {
+                            logger.warn("Skipping unreadable upload {}: {}", path, e.getMessage());
+                        }
+                    }
+                });
+            } catch (IOException e) {
+                logger.error("Error scanning upload directory {}: {}", uploadRoot, e.getMessage());
+            }
+        }
+        writeSnapshot();
+        loaded = true;
+        logger.info("Upload index rebuilt with {} files", entries.size());
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            if (!Files.exists(indexFile)) {
+                rebuild();
+                return;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+                // Dòng cuối không có ký tự xuống dòng là dòng ghi dở khi tiến trình dừng đột ngột
+                boolean partialTail = !endsWithNewline(indexFile);
+                String line;
+                String previous = null;
+                int lines = 0;
+                while ((line = reader.readLine()) != null) {
+                    if (previous != null) {
+                        lines++;
+                        replay(previous);
+                    }
+                    previous = line;
+                }
+                if (previous != null && !partialTail) {
+                    lines++;
+                    replay(previous);
+                }
+                journalLines = lines;
+                if (previous != null && partialTail) {
+                    // Không tin nội dung dòng dở (số có thể bị cắt), đối chiếu với đĩa rồi ghi lại chỉ mục gọn
+                    // để dòng ghi thêm sau đó không bị nối vào dòng này
+                    reconcile(previous);
+                    writeSnapshot();
+                    logger.warn("Upload index {} ended with a partial line, recovered from disk", indexFile);
+                }
+                loaded = true;
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Upload index {} is unreadable, rebuilding: {}", indexFile, e.getMessage());
+                rebuild();
+            }
+        }
+    }
+
+    private void replay(String line) {
+        String[] parts = line.split(SEPARATOR);
+        if (parts.length == 4 && ADDED.equals(parts[0])) {
+            entries.put(parts[1], new Entry(parts[1], Long.parseLong(parts[2]), Long.parseLong(parts[3])));
+        } else if (parts.length == 2 && REMOVED.equals(parts[0])) {
+            entries.remove(parts[1]);
+        }
+    }
+
+    /**
+     * Cập nhật đường dẫn của một dòng ghi dở theo trạng thái file trên đĩa
+     */
+    private void reconcile(String partialLine) {
+        String[] parts = partialLine.split(SEPARATOR);
+        if (parts.length < 2 || !(ADDED.equals(parts[0]) || REMOVED.equals(parts[0])) || !isIndexed(parts[1])) {
+            return;
+        }
+        String path = parts[1];
+        Path file = uploadRoot.resolve(path);
+        try {
+            if (Files.isRegularFile(file)) {
+                entries.put(path, new Entry(path, Files.size(file), Files.getLastModifiedTime(file).toMillis()));
+            } else {
+                entries.remove(path);
+            }
+        } catch (IOException e) {
+            logger.warn("Skipping unreadable upload {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static boolean endsWithNewline(Path file) throws IOException {
+        try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+            if (channel.size() == 0) {
+                return true;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.position(channel.size() - 1);
+            channel.read(last);
+            return last.get(0) == '\n';
+        }
+    }
+
+    private void append(String line) {
+        try {
+            Files.createDirectories(indexFile.toAbsolutePath().getParent());
+            Files.writeString(indexFile, line + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            journalLines++;
+            if (journalLines > COMPACT_MIN_LINES && journalLines > entries.size() * 2) {
+                writeSnapshot();
+            }
+        } catch (IOException e) {
+            // Ghi lại toàn bộ để nhật ký trên đĩa không thiếu dòng này
+            logger.warn("Error appending to upload index, writing full snapshot: {}", e.getMessage());
+            writeSnapshot();
+        }
+    }
+
+    private void writeSnapshot() {
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(indexFile.toAbsolutePath().getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Entry entry : entries.values()) {
+                    writer.write(ADDED + SEPARATOR + entry.path() + SEPARATOR + entry.size() + SEPARATOR + entry.storedAt());
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journalLines = entries.size();
+        } catch (IOException e) {
+            logger.error("Error writing upload index {}: {}", indexFile, e.getMessage());
+        }
+    }
+
+    private static boolean isIndexed(String path) {
+        return !path.startsWith(TEMP_DIRECTORY)
+                && !path.startsWith(DERIVED_SEGMENT + "/")
+                && !path.contains("/" + DERIVED_SEGMENT + "/")
+                && !path.contains(SEPARATOR)
+                && !path.contains("\n");
+    }
+}
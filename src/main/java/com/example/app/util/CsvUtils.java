@@ -0,0 +1,188 @@
+package com.example.app.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Đọc/ghi CSV theo RFC 4180 (dấu phẩy, trường trong ngoặc kép, "" là ký tự ngoặc kép) mà không nạp
+ * cả file vào bộ nhớ. Một bản ghi có thể trải trên nhiều dòng khi trường trong ngoặc kép chứa xuống dòng.
+ * Ngoặc kép không được đóng (tới cuối file hoặc quá MAX_RECORD_LINES dòng) chỉ làm hỏng bản ghi đó:
+ * các dòng đã đọc thêm được trả lại để đọc như bản ghi mới.
+ */
+public final class CsvUtils {
+
+    // Ký tự đầu khiến Excel/LibreOffice hiểu ô là công thức (CSV injection)
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    private CsvUtils() {
+    }
+
+    /**
+     * Thêm dấu ' trước giá trị bắt đầu bằng ký tự công thức để bảng tính hiển thị như văn bản
+     */
+    public static String guardFormula(String value) {
+        if (value == null || value.isEmpty() || FORMULA_PREFIXES.indexOf(value.charAt(0)) < 0) {
+            return value;
+        }
+        return "'" + value;
+    }
+
+    /**
+     * Bỏ dấu ' do guardFormula thêm vào để file xuất ra nhập lại được nguyên giá trị
+     */
+    public static String unguardFormula(String value) {
+        if (value == null || value.length() < 2 || value.charAt(0) != '\''
+                || FORMULA_PREFIXES.indexOf(value.charAt(1)) < 0) {
+            return value;
+        }
+        return value.substring(1);
+    }
+
+    public static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        boolean needsQuotes = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        return needsQuotes ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+
+    public static void writeRow(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escape(values[i] != null ? values[i].toString() : null));
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Như writeRow nhưng chặn công thức trong các giá trị chuỗi; dùng cho file người dùng tải về mở bằng bảng tính.
+     * Số và ngày giữ nguyên để số âm không bị biến thành văn bản.
+     */
+    public static void writeGuardedRow(Writer writer, Object... values) throws IOException {
+        Object[] guarded = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            guarded[i] = values[i] instanceof String text ? guardFormula(text) : values[i];
+        }
+        writeRow(writer, guarded);
+    }
+
+    /**
+     * Bản ghi có trường trong ngoặc kép không được đóng; có thể đọc tiếp bản ghi kế tiếp.
+     */
+    public static final class MalformedRecordException extends IOException {
+
+        private final long line;
+
+        public MalformedRecordException(String message, long line) {
+            super(message);
+            this.line = line;
+        }
+
+        public long getLine() {
+            return line;
+        }
+    }
+
+    public static final class RecordReader {
+
+        // Giới hạn số dòng của một bản ghi để ngoặc kép thiếu không nuốt phần còn lại của file
+        private static final int MAX_RECORD_LINES = 1000;
+
+        private final BufferedReader reader;
+        private final Deque<String> pushedBack = new ArrayDeque<>();
+        private long lineNumber = 0;
+        private long recordLine = 0;
+
+        public RecordReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return các trường của bản ghi kế tiếp, hoặc null khi hết file
+         */
+        public List<String> next() throws IOException {
+            String line = readLine();
+            if (line == null) {
+                return null;
+            }
+            recordLine = lineNumber;
+            // Bỏ BOM của file xuất từ Excel
+            if (lineNumber == 1 && !line.isEmpty() && line.charAt(0) == '\uFEFF') {
+                line = line.substring(1);
+            }
+
+            List<String> fields = new ArrayList<>();
+            List<String> continuation = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == line.length()) {
+                    if (!quoted) {
+                        break;
+                    }
+                    // Trường trong ngoặc kép chứa xuống dòng: đọc tiếp dòng sau
+                    String nextLine = continuation.size() < MAX_RECORD_LINES ? readLine() : null;
+                    if (nextLine == null) {
+                        // Trả lại các dòng đã đọc thêm, lần gọi sau bắt đầu từ dòng ngay sau dòng đầu của bản ghi hỏng
+                        for (int k = continuation.size() - 1; k >= 0; k--) {
+                            pushedBack.push(continuation.get(k));
+                        }
+                        lineNumber = recordLine;
+                        throw new MalformedRecordException("Unterminated quoted field starting at line " + recordLine, recordLine);
+                    }
+                    continuation.add(nextLine);
+                    field.append('\n');
+                    line = nextLine;
+                    i = 0;
+                    continue;
+                }
+                char c = line.charAt(i++);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i < line.length() && line.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        private String readLine() throws IOException {
+            String line = pushedBack.isEmpty() ? reader.readLine() : pushedBack.pop();
+            if (line != null) {
+                lineNumber++;
+            }
+            return line;
+        }
+
+        /**
+         * Dòng bắt đầu của bản ghi vừa đọc (tính từ 1)
+         */
+        public long getRecordLine() {
+            return recordLine;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.app.util;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Mã hóa/giải mã con trỏ phân trang keyset. Con trỏ là chuỗi base64url của
+ * "giá trị khóa sắp xếp|id" của bản ghi cuối trang trước; client chỉ cần gửi lại nguyên văn.
+ */
+public final class CursorUtils {
+
+    private static final char SEPARATOR = '|';
+
+    private CursorUtils() {
+    }
+
+    /**
+     * Con trỏ kèm kiểu sắp xếp ("sortBy:sortDir|khóa|id") để không dùng nhầm con trỏ với cách sắp xếp khác
+     */
+    public static String encode(String sort, Object sortKey, Integer id) {
+        return encode(sort + SEPARATOR + (sortKey != null ? sortKey.toString() : ""), id);
+    }
+
+    /**
+     * Giải mã con trỏ tạo bởi encode(sort, ...); con trỏ của kiểu sắp xếp khác bị từ chối
+     *
+     * @return null nếu cursor rỗng (trang đầu tiên)
+     */
+    public static Cursor decode(String cursor, String expectedSort) {
+        Cursor position = decode(cursor);
+        if (position == null) {
+            return null;
+        }
+        int separatorIndex = position.getKey().indexOf(SEPARATOR);
+        if (separatorIndex < 0 || !position.getKey().substring(0, separatorIndex).equals(expectedSort)) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort order");
+        }
+        return new Cursor(position.getKey().substring(separatorIndex + 1), position.getId());
+    }
+
+    private static String encode(Object sortKey, Integer id) {
+        String raw = (sortKey != null ? sortKey.toString() : "") + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separatorIndex = raw.lastIndexOf(SEPARATOR);
+            if (separatorIndex < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new Cursor(raw.substring(0, separatorIndex), Integer.valueOf(raw.substring(separatorIndex + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public static final class Cursor {
+        private final String key;
+        private final Integer id;
+
+        public Cursor(String key, Integer id) {
+            this.key = key;
+            this.id = id;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public Integer getId() {
+            return id;
+        }
+
+        public LocalDateTime getKeyAsDateTime() {
+            try {
+                return LocalDateTime.parse(key);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        public BigDecimal getKeyAsDecimal() {
+            try {
+                return new BigDecimal(key);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
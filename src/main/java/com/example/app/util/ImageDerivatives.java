@@ -0,0 +1,56 @@
+package com.example.app.util;
+
+import com.example.app.entity.ProductImage;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Quy ước đường dẫn ảnh thu nhỏ sinh từ ảnh gốc: "products/12/abc.png" có các bản
+ * "products/12/derived/abc_thumb.jpg", "..._card.jpg", "..._zoom.jpg". Đường dẫn tính được từ URL gốc
+ * nên không cần lưu từng bản vào DB, chỉ cần cờ ProductImage.derivativesReady.
+ */
+public final class ImageDerivatives {
+
+    public static final String THUMB = "thumb";
+    public static final String CARD = "card";
+    public static final String ZOOM = "zoom";
+    public static final List<String> NAMES = List.of(THUMB, CARD, ZOOM);
+
+    private static final String DERIVED_DIR = "derived/";
+    private static final String EXTENSION = ".jpg";
+
+    private ImageDerivatives() {
+    }
+
+    public static String pathOf(String imageUrl, String name) {
+        int slash = imageUrl.lastIndexOf('/');
+        String directory = imageUrl.substring(0, slash + 1);
+        String fileName = imageUrl.substring(slash + 1);
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return directory + DERIVED_DIR + baseName + "_" + name + EXTENSION;
+    }
+
+    /**
+     * @return tên bản (thumb/card/zoom) -> đường dẫn, hoặc null khi ảnh chưa được xử lý xong
+     */
+    public static Map<String, String> urlsOf(ProductImage image) {
+        if (image == null || !Boolean.TRUE.equals(image.getDerivativesReady())) {
+            return null;
+        }
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (String name : NAMES) {
+            urls.put(name, pathOf(image.getImageURL(), name));
+        }
+        return urls;
+    }
+
+    /**
+     * Ảnh ngoài (URL tuyệt đối) không nằm trong thư mục upload nên không sinh bản thu nhỏ
+     */
+    public static boolean isLocal(String imageUrl) {
+        return imageUrl != null && !imageUrl.isBlank() && !imageUrl.contains("://") && !imageUrl.startsWith("/");
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.app.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BitsetFacetIndexTest {
+
+    private static final List<String> FACETS = List.of("size", "color", "brand");
+
+    private BitsetFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BitsetFacetIndex();
+        index.put(1, document(Set.of("s", "m"), Set.of("do"), "a"));
+        index.put(2, document(Set.of("m"), Set.of("xanh"), "a"));
+        index.put(3, document(Set.of("l"), Set.of("do"), "b"));
+        index.put(4, document(Set.of("s"), Set.of("xanh"), "b"));
+    }
+
+    @Test
+    void matchesEveryDocumentWithoutSelection() {
+        BitsetFacetIndex.Result result = index.query(Map.of(), null, FACETS);
+
+        assertEquals(4, result.getTotal());
+        assertEquals(Map.of("s", 2, "m", 2, "l", 1), result.getCounts("size"));
+        assertEquals(Map.of("a", 2, "b", 2), result.getCounts("brand"));
+    }
+
+    @Test
+    void orsValuesWithinFacet() {
+        BitsetFacetIndex.Result result = index.query(Map.of("size", Set.of("m", "l")), null, FACETS);
+
+        assertEquals(bits(1, 2, 3), result.getMatches());
+    }
+
+    @Test
+    void andsAcrossFacets() {
+        BitsetFacetIndex.Result result = index.query(
+                Map.of("size", Set.of("s", "m"), "color", Set.of("do")), null, FACETS);
+
+        assertEquals(bits(1), result.getMatches());
+        assertEquals(1, result.getTotal());
+    }
+
+    @Test
+    void countsFacetWithoutItsOwnSelection() {
+        BitsetFacetIndex.Result result = index.query(
+                Map.of("size", Set.of("s", "m"), "color", Set.of("do")), null, FACETS);
+
+        // Size đếm trong các sản phẩm màu đỏ, màu đếm trong các sản phẩm size S/M
+        assertEquals(Map.of("s", 1, "m", 1, "l", 1), result.getCounts("size"));
+        assertEquals(Map.of("do", 1, "xanh", 2), result.getCounts("color"));
+        assertEquals(Map.of("a", 1), result.getCounts("brand"));
+    }
+
+    @Test
+    void omitsZeroCounts() {
+        BitsetFacetIndex.Result result = index.query(Map.of("brand", Set.of("b")), null, FACETS);
+
+        assertEquals(Map.of("s", 1, "l", 1), result.getCounts("size"));
+    }
+
+    @Test
+    void treatsEmptySelectionAsUnfiltered() {
+        BitsetFacetIndex.Result result = index.query(Map.of("size", Set.of()), null, FACETS);
+
+        assertEquals(4, result.getTotal());
+    }
+
+    @Test
+    void unknownValueMatchesNothing() {
+        BitsetFacetIndex.Result result = index.query(Map.of("color", Set.of("tim")), null, FACETS);
+
+        assertEquals(0, result.getTotal());
+        assertEquals(Map.of(), result.getCounts("brand"));
+        assertEquals(Map.of("do", 2, "xanh", 2), result.getCounts("color"));
+    }
+
+    @Test
+    void restrictsToGivenDocuments() {
+        BitsetFacetIndex.Result result = index.query(Map.of("color", Set.of("xanh")), bits(1, 2, 3), FACETS);
+
+        assertEquals(bits(2), result.getMatches());
+        assertEquals(Map.of("do", 2, "xanh", 1), result.getCounts("color"));
+    }
+
+    @Test
+    void doesNotExposeInternalBitsets() {
+        BitsetFacetIndex.Result result = index.query(Map.of(), null, FACETS);
+
+        result.getMatches().clear();
+
+        assertEquals(4, index.query(Map.of(), null, FACETS).getTotal());
+    }
+
+    @Test
+    void putReplacesPreviousValues() {
+        index.put(1, document(Set.of("xl"), Set.of("den"), "a"));
+
+        assertEquals(4, index.size());
+        assertEquals(bits(1), index.query(Map.of("size", Set.of("xl")), null, FACETS).getMatches());
+        assertEquals(bits(4), index.query(Map.of("size", Set.of("s")), null, FACETS).getMatches());
+        assertEquals(bits(3), index.query(Map.of("color", Set.of("do")), null, FACETS).getMatches());
+    }
+
+    @Test
+    void removeDropsDocumentAndEmptyValues() {
+        index.remove(3);
+
+        assertEquals(3, index.size());
+        assertFalse(index.hasValue("size", "l"));
+        assertTrue(index.hasValue("color", "do"));
+        assertEquals(Map.of("a", 2, "b", 1), index.query(Map.of(), null, FACETS).getCounts("brand"));
+    }
+
+    @Test
+    void clearEmptiesIndex() {
+        index.clear();
+
+        assertEquals(0, index.size());
+        assertEquals(0, index.query(Map.of(), null, FACETS).getTotal());
+    }
+
+    private static Map<String, Set<String>> document(Set<String> sizes, Set<String> colors, String brand) {
+        return Map.of("size", sizes, "color", colors, "brand", Set.of(brand));
+    }
+
+    private static BitSet bits(int... ids) {
+        BitSet bits = new BitSet();
+        for (int id : ids) {
+            bits.set(id);
+        }
+        return bits;
+    }
+}
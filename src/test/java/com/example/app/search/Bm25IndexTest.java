@@ -0,0 +1,127 @@
+package com.example.app.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Bm25IndexTest {
+
+    private Bm25Index index;
+
+    @BeforeEach
+    void setUp() {
+        index = new Bm25Index();
+    }
+
+    @Test
+    void returnsOnlyDocumentsContainingEveryQueryTerm() {
+        index.put(1, List.of("ao", "thun", "den"));
+        index.put(2, List.of("ao", "khoac", "den"));
+        index.put(3, List.of("quan", "jean", "den"));
+
+        assertEquals(List.of(2), index.search(List.of("ao", "khoac")));
+        assertEquals(List.of(), index.search(List.of("ao", "jean")));
+        assertEquals(List.of(), index.search(List.of("vay")));
+    }
+
+    @Test
+    void ranksHigherTermFrequencyFirst() {
+        index.put(1, List.of("ao", "thun", "trang", "basic"));
+        index.put(2, List.of("ao", "ao", "ao", "thun"));
+        index.put(3, List.of("quan", "short"));
+
+        assertEquals(List.of(2, 1), index.search(List.of("ao")));
+    }
+
+    @Test
+    void ranksShorterDocumentFirstForSameFrequency() {
+        index.put(1, List.of("giay", "chay", "bo", "nam", "de", "em", "nhe"));
+        index.put(2, List.of("giay", "sneaker"));
+        index.put(3, List.of("dep", "lao"));
+
+        assertEquals(List.of(2, 1), index.search(List.of("giay")));
+    }
+
+    @Test
+    void ranksRareTermsAboveCommonOnes() {
+        // "ao" có ở mọi tài liệu nên gần như không phân biệt; "len" chỉ có ở tài liệu 3
+        index.put(1, List.of("ao", "len", "xanh"));
+        index.put(2, List.of("ao", "thun", "len"));
+        index.put(3, List.of("ao", "len", "len"));
+        index.put(4, List.of("ao", "thun", "xanh"));
+
+        List<Integer> results = index.search(List.of("ao", "len"));
+
+        assertEquals(3, results.get(0));
+        assertEquals(3, results.size());
+    }
+
+    @Test
+    void matchesTermPrefixesBelowExactMatches() {
+        index.put(1, List.of("aokhoac", "gio"));
+        index.put(2, List.of("ao", "gio"));
+
+        assertEquals(List.of(2, 1), index.search(List.of("ao")));
+        assertEquals(List.of(1), index.search(List.of("aokh")));
+    }
+
+    @Test
+    void doesNotExpandSingleCharacterTokens() {
+        index.put(1, List.of("xl"));
+        index.put(2, List.of("x"));
+
+        assertEquals(List.of(2), index.search(List.of("x")));
+    }
+
+    @Test
+    void breaksScoreTiesByNewerIdFirst() {
+        index.put(5, List.of("mu", "luoi", "trai"));
+        index.put(9, List.of("mu", "luoi", "trai"));
+
+        assertEquals(List.of(9, 5), index.search(List.of("mu")));
+    }
+
+    @Test
+    void putReplacesPreviousTokensOfDocument() {
+        index.put(1, List.of("ao", "thun"));
+        index.put(1, List.of("quan", "jean"));
+
+        assertEquals(1, index.size());
+        assertEquals(List.of(), index.search(List.of("thun")));
+        assertEquals(List.of(1), index.search(List.of("jean")));
+    }
+
+    @Test
+    void removeDropsDocumentAndItsTerms() {
+        index.put(1, List.of("ao", "thun"));
+        index.put(2, List.of("ao", "polo"));
+
+        index.remove(1);
+        index.remove(42);
+
+        assertEquals(1, index.size());
+        assertEquals(List.of(2), index.search(List.of("ao")));
+        assertEquals(List.of(), index.search(List.of("thun")));
+    }
+
+    @Test
+    void clearEmptiesIndex() {
+        index.put(1, List.of("ao"));
+
+        index.clear();
+
+        assertEquals(0, index.size());
+        assertTrue(index.search(List.of("ao")).isEmpty());
+    }
+
+    @Test
+    void emptyQueryMatchesNothing() {
+        index.put(1, List.of("ao"));
+
+        assertTrue(index.search(List.of()).isEmpty());
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.app.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CoPurchaseMatrixTest {
+
+    private CoPurchaseMatrix matrix;
+
+    @BeforeEach
+    void setUp() {
+        matrix = new CoPurchaseMatrix();
+    }
+
+    @Test
+    void ranksNeighborsByCosineSimilarity() {
+        matrix.addBasket(new int[]{1, 2}, 1);
+        matrix.addBasket(new int[]{1, 2}, 1);
+        matrix.addBasket(new int[]{1, 3}, 1);
+        matrix.addBasket(new int[]{2, 3}, 1);
+
+        CoPurchaseMatrix.Neighbors top = matrix.topK(1, 10);
+
+        assertArrayEquals(new int[]{2, 3}, ids(top));
+        // co(1,2) = 2, n(1) = n(2) = 3; co(1,3) = 1, n(3) = 2
+        assertEquals(2 / 3.0, top.score(0), 1e-6);
+        assertEquals(1 / Math.sqrt(6), top.score(1), 1e-6);
+    }
+
+    @Test
+    void limitsToK() {
+        matrix.addBasket(new int[]{1, 2, 3, 4}, 1);
+        matrix.addBasket(new int[]{1, 4}, 1);
+
+        assertArrayEquals(new int[]{4}, ids(matrix.topK(1, 1)));
+        assertSame(CoPurchaseMatrix.Neighbors.EMPTY, matrix.topK(1, 0));
+    }
+
+    @Test
+    void breaksScoreTiesByLowerId() {
+        matrix.addBasket(new int[]{5, 7}, 1);
+        matrix.addBasket(new int[]{5, 6}, 1);
+
+        assertArrayEquals(new int[]{6, 7}, ids(matrix.topK(5, 10)));
+    }
+
+    @Test
+    void countsDuplicateIdsInBasketOnce() {
+        matrix.addBasket(new int[]{1, 1, 2, 2}, 1);
+        matrix.addBasket(new int[]{1, 3}, 1);
+
+        assertEquals(2, matrix.pairCount());
+        assertEquals(1 / Math.sqrt(2), matrix.topK(1, 10).score(0), 1e-6);
+    }
+
+    @Test
+    void subtractsBasketWithNegativeSign() {
+        matrix.addBasket(new int[]{1, 2}, 1);
+        matrix.addBasket(new int[]{1, 2, 3}, 1);
+
+        matrix.addBasket(new int[]{1, 2, 3}, -1);
+
+        assertArrayEquals(new int[]{2}, sorted(matrix.partners(1)));
+        assertArrayEquals(new int[0], matrix.partners(3));
+        assertSame(CoPurchaseMatrix.Neighbors.EMPTY, matrix.topK(3, 10));
+        assertEquals(1, matrix.pairCount());
+        assertEquals(1.0, matrix.topK(1, 10).score(0), 1e-6);
+    }
+
+    @Test
+    void neverDropsCountsBelowZero() {
+        matrix.addBasket(new int[]{1, 2}, -1);
+        matrix.addBasket(new int[]{1, 2}, 1);
+
+        assertArrayEquals(new int[]{2}, ids(matrix.topK(1, 10)));
+        assertEquals(1, matrix.pairCount());
+    }
+
+    @Test
+    void readdsPairAfterItDroppedToZero() {
+        matrix.addBasket(new int[]{1, 2}, 1);
+        matrix.addBasket(new int[]{1, 2}, -1);
+        matrix.addBasket(new int[]{1, 2}, 1);
+
+        assertEquals(1, matrix.pairCount());
+        assertArrayEquals(new int[]{2}, matrix.partners(1));
+    }
+
+    @Test
+    void growsRowsAndProductTableBeyondInitialCapacity() {
+        int[] basket = new int[200];
+        for (int i = 0; i < basket.length; i++) {
+            basket[i] = 1000 + i * 64;
+        }
+
+        matrix.addBasket(basket, 1);
+
+        assertEquals(200, matrix.size());
+        assertEquals(200L * 199 / 2, matrix.pairCount());
+        assertEquals(199, matrix.partners(1000).length);
+        assertEquals(199, matrix.topK(1000 + 199 * 64, 500).size());
+
+        matrix.addBasket(basket, -1);
+
+        assertEquals(0, matrix.pairCount());
+        assertEquals(0, matrix.partners(1000).length);
+    }
+
+    @Test
+    void keepsCountsWhenZeroedSlotsAreDroppedOnRehash() {
+        // Hàng của sản phẩm 0 chứa nhiều ô về 0 rồi được giãn khi thêm cặp mới
+        for (int partner = 1; partner <= 20; partner++) {
+            matrix.addBasket(new int[]{0, partner}, 1);
+        }
+        for (int partner = 1; partner <= 15; partner++) {
+            matrix.addBasket(new int[]{0, partner}, -1);
+        }
+        for (int partner = 21; partner <= 60; partner++) {
+            matrix.addBasket(new int[]{0, partner}, 1);
+        }
+
+        int[] expected = new int[45];
+        for (int i = 0; i < 5; i++) {
+            expected[i] = 16 + i;
+        }
+        for (int i = 0; i < 40; i++) {
+            expected[5 + i] = 21 + i;
+        }
+        assertArrayEquals(expected, sorted(matrix.partners(0)));
+        assertEquals(45, matrix.pairCount());
+    }
+
+    @Test
+    void removeDropsProductFromPartners() {
+        matrix.addBasket(new int[]{1, 2, 3}, 1);
+        matrix.addBasket(new int[]{2, 3}, 1);
+
+        matrix.remove(2);
+        matrix.remove(99);
+
+        assertArrayEquals(new int[]{3}, matrix.partners(1));
+        assertArrayEquals(new int[]{1}, matrix.partners(3));
+        assertArrayEquals(new int[0], matrix.partners(2));
+        assertSame(CoPurchaseMatrix.Neighbors.EMPTY, matrix.topK(2, 10));
+        assertEquals(1, matrix.pairCount());
+    }
+
+    @Test
+    void unknownProductHasNoNeighbors() {
+        assertArrayEquals(new int[0], matrix.partners(1));
+        assertSame(CoPurchaseMatrix.Neighbors.EMPTY, matrix.topK(1, 10));
+    }
+
+    private static int[] ids(CoPurchaseMatrix.Neighbors neighbors) {
+        int[] ids = new int[neighbors.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = neighbors.id(i);
+        }
+        return ids;
+    }
+
+    private static int[] sorted(int[] ids) {
+        int[] copy = ids.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.app.search;
+
+import com.example.app.entity.Order;
+import com.example.app.event.OrderStatusChangedEvent;
+import com.example.app.repository.OrderItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CoPurchaseRecommenderTest {
+
+    private OrderItemRepository orderItemRepository;
+    private CoPurchaseRecommender recommender;
+
+    @BeforeEach
+    void setUp() {
+        orderItemRepository = mock(OrderItemRepository.class);
+        recommender = new CoPurchaseRecommender(orderItemRepository, 20, 50);
+        // Sản phẩm 1 mua cùng 3 trong hai đơn, cùng 2 trong một đơn
+        when(orderItemRepository.findDeliveredOrderProductPairs()).thenReturn(List.of(
+                new Object[]{10, 1}, new Object[]{10, 2},
+                new Object[]{11, 1}, new Object[]{11, 3},
+                new Object[]{12, 1}, new Object[]{12, 3}));
+    }
+
+    @Test
+    void buildsNeighborsFromDeliveredOrders() {
+        recommender.rebuild();
+
+        assertEquals(List.of(3, 2), recommender.getNeighbors(1, 10));
+        assertEquals(List.of(3), recommender.getNeighbors(1, 1));
+        assertEquals(List.of(1), recommender.getNeighbors(2, 10));
+    }
+
+    @Test
+    void keepsEventsReceivedBeforeFirstBuild() {
+        recommender.onOrderStatusChanged(delivered(13));
+        when(orderItemRepository.findOrderProductPairs(Set.of(13)))
+                .thenReturn(List.of(new Object[]{13, 2}, new Object[]{13, 4}));
+
+        recommender.rebuild();
+        recommender.processPendingOrders();
+
+        assertEquals(List.of(4, 1), recommender.getNeighbors(2, 10));
+    }
+
+    @Test
+    void skipsEventsForOrdersAlreadyInRebuiltMatrix() {
+        // Đơn 10 commit trước khi dựng lại đọc dữ liệu nhưng sự kiện đến sau: không được cộng hai lần
+        recommender.rebuild();
+        recommender.onOrderStatusChanged(delivered(10));
+        recommender.processPendingOrders();
+
+        assertEquals(List.of(3, 2), recommender.getNeighbors(1, 10));
+        assertEquals(0, recommender.getStats().get("pendingOrders"));
+    }
+
+    @Test
+    void skipsRefundOfOrderMissingFromRebuiltMatrix() {
+        recommender.rebuild();
+        recommender.onOrderStatusChanged(refunded(99));
+        recommender.processPendingOrders();
+
+        assertEquals(List.of(3, 2), recommender.getNeighbors(1, 10));
+    }
+
+    @Test
+    void subtractsRefundedOrder() {
+        recommender.rebuild();
+        when(orderItemRepository.findOrderProductPairs(Set.of(11)))
+                .thenReturn(List.of(new Object[]{11, 1}, new Object[]{11, 3}));
+
+        recommender.onOrderStatusChanged(refunded(11));
+        recommender.processPendingOrders();
+
+        // co(1,2) = 1 / sqrt(2 * 1), co(1,3) = 1 / sqrt(2 * 1)
+        assertEquals(List.of(2, 3), recommender.getNeighbors(1, 10));
+    }
+
+    @Test
+    void cancelsOrderDeliveredAndRefundedInSameBatch() {
+        recommender.rebuild();
+
+        recommender.onOrderStatusChanged(delivered(13));
+        recommender.onOrderStatusChanged(refunded(13));
+        recommender.processPendingOrders();
+
+        assertEquals(List.of(3, 2), recommender.getNeighbors(1, 10));
+    }
+
+    @Test
+    void retriesOrdersWhenLoadingBasketsFails() {
+        recommender.rebuild();
+        when(orderItemRepository.findOrderProductPairs(Set.of(13)))
+                .thenThrow(new IllegalStateException("database down"))
+                .thenReturn(List.of(new Object[]{13, 2}, new Object[]{13, 4}));
+
+        recommender.onOrderStatusChanged(delivered(13));
+        recommender.processPendingOrders();
+        assertEquals(1, recommender.getStats().get("pendingOrders"));
+
+        recommender.processPendingOrders();
+        assertEquals(List.of(4, 1), recommender.getNeighbors(2, 10));
+    }
+
+    @Test
+    void retriesFailedBuildFromScheduledJob() {
+        when(orderItemRepository.findDeliveredOrderProductPairs())
+                .thenThrow(new IllegalStateException("database down"))
+                .thenReturn(List.<Object[]>of(new Object[]{10, 1}, new Object[]{10, 2}));
+
+        recommender.rebuild();
+        assertTrue(recommender.getNeighbors(1, 10).isEmpty());
+        assertEquals(false, recommender.getStats().get("ready"));
+
+        recommender.processPendingOrders();
+        assertEquals(List.of(2), recommender.getNeighbors(1, 10));
+    }
+
+    private static OrderStatusChangedEvent delivered(Integer orderId) {
+        return new OrderStatusChangedEvent(orderId, Order.OrderStatus.shipped, Order.OrderStatus.delivered, null);
+    }
+
+    private static OrderStatusChangedEvent refunded(Integer orderId) {
+        return new OrderStatusChangedEvent(orderId, Order.OrderStatus.delivered, Order.OrderStatus.refunded, null);
+    }
+}
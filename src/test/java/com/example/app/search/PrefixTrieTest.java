@@ -0,0 +1,113 @@
+package com.example.app.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrefixTrieTest {
+
+    private PrefixTrie trie;
+
+    @BeforeEach
+    void setUp() {
+        trie = new PrefixTrie();
+        trie.put(1, List.of("ao thun nam", "thun nam", "nam"), 5);
+        trie.put(2, List.of("ao thun nu", "thun nu", "nu"), 50);
+        trie.put(3, List.of("ao khoac", "khoac"), 20);
+        trie.put(4, List.of("quan tay", "tay"), 0);
+    }
+
+    @Test
+    void findsEntriesByPrefixOfAnyKey() {
+        assertEquals(List.of(2, 1), trie.search("thun", 10));
+        assertEquals(List.of(2, 3, 1), trie.search("ao", 10));
+        assertEquals(List.of(1), trie.search("ao thun na", 10));
+    }
+
+    @Test
+    void returnsEachEntryOnce() {
+        trie.put(5, List.of("nam", "nam moi"), 1);
+
+        assertEquals(List.of(1, 5), trie.search("nam", 10));
+    }
+
+    @Test
+    void returnsEmptyForUnknownPrefix() {
+        assertTrue(trie.search("vay", 10).isEmpty());
+        assertTrue(trie.search("ao thun x", 10).isEmpty());
+    }
+
+    @Test
+    void emptyPrefixMatchesEverything() {
+        assertEquals(List.of(2, 3, 1, 4), trie.search("", 10));
+    }
+
+    @Test
+    void limitsToTopK() {
+        assertEquals(List.of(2), trie.search("ao", 1));
+        assertEquals(List.of(2, 3), trie.search("ao", 2));
+    }
+
+    @Test
+    void breaksScoreTiesByLowerId() {
+        trie.put(9, List.of("mu"), 7);
+        trie.put(8, List.of("mu len"), 7);
+
+        assertEquals(List.of(8, 9), trie.search("mu", 10));
+    }
+
+    @Test
+    void ranksBeyondCachedTop() {
+        PrefixTrie large = new PrefixTrie();
+        for (int id = 1; id <= 30; id++) {
+            large.put(id, List.of("giay " + id), id);
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int id = 30; id >= 6; id--) {
+            expected.add(id);
+        }
+        assertEquals(expected, large.search("giay", 25));
+        assertEquals(expected.subList(0, 3), large.search("giay", 3));
+    }
+
+    @Test
+    void putReplacesKeysAndScore() {
+        trie.search("thun", 10);
+
+        trie.put(1, List.of("ao polo", "polo"), 100);
+
+        assertEquals(4, trie.size());
+        assertEquals(List.of(2), trie.search("thun", 10));
+        assertEquals(List.of(1), trie.search("polo", 10));
+        assertEquals(List.of(1, 2, 3), trie.search("ao", 10));
+    }
+
+    @Test
+    void removeDropsEntryFromCachedResults() {
+        assertEquals(List.of(2, 1), trie.search("ao thun", 10));
+
+        trie.remove(2);
+        trie.remove(42);
+
+        assertEquals(3, trie.size());
+        assertEquals(List.of(1), trie.search("ao thun", 10));
+        assertTrue(trie.search("thun nu", 10).isEmpty());
+    }
+
+    @Test
+    void removeKeepsEntriesSharingPath() {
+        trie.put(5, List.of("ao thun"), 1);
+
+        trie.remove(1);
+        trie.remove(2);
+
+        assertEquals(List.of(5), trie.search("ao thun", 10));
+        assertTrue(trie.search("ao thun n", 10).isEmpty());
+    }
+}
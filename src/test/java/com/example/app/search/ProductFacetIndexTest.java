@@ -0,0 +1,175 @@
+package com.example.app.search;
+
+import com.example.app.dto.ProductFilterRequest;
+import com.example.app.event.ProductChangedEvent;
+import com.example.app.repository.ProductRepository;
+import com.example.app.repository.ProductVariantRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductFacetIndexTest {
+
+    private ProductRepository productRepository;
+    private ProductVariantRepository variantRepository;
+    private ProductFacetIndex facetIndex;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        variantRepository = mock(ProductVariantRepository.class);
+        facetIndex = new ProductFacetIndex(productRepository, variantRepository, "500000,200000");
+
+        index(product(1, 1, 1, "150000", "Áo thun", 3), variant(1, "S", "Đỏ"), variant(1, "M", "đỏ"));
+        index(product(2, 1, 2, "450000", "Quần jean", 1), variant(2, "M", "Xanh"));
+        index(product(3, 2, 1, "900000", "Áo khoác", 2), variant(3, "L", "Đen"));
+        index(product(4, 2, 2, "200000", "Váy", 4));
+    }
+
+    @AfterEach
+    void tearDown() {
+        facetIndex.shutdown();
+    }
+
+    @Test
+    void filtersFoldedVariantValues() {
+        ProductFilterRequest filter = new ProductFilterRequest();
+        filter.setColors(List.of("DO"));
+
+        BitsetFacetIndex.Result result = facetIndex.query(filter);
+
+        assertEquals(bits(1), result.getMatches());
+        assertEquals(Map.of("s", 1, "m", 1), result.getCounts(ProductFacetIndex.SIZE));
+        assertEquals("Đỏ", facetIndex.getLabel("do"));
+    }
+
+    @Test
+    void bucketsBasePrice() {
+        ProductFilterRequest filter = new ProductFilterRequest();
+        filter.setPriceRanges(List.of("200000-500000"));
+
+        BitsetFacetIndex.Result result = facetIndex.query(filter);
+
+        assertEquals(List.of("0-200000", "200000-500000", "500000-"), facetIndex.getPriceBuckets());
+        assertEquals(bits(2, 4), result.getMatches());
+        assertEquals(Map.of("0-200000", 1, "200000-500000", 2, "500000-", 1),
+                result.getCounts(ProductFacetIndex.PRICE));
+    }
+
+    @Test
+    void filtersCustomPriceRangeInclusive() {
+        ProductFilterRequest filter = new ProductFilterRequest();
+        filter.setMinPrice(new BigDecimal("200000"));
+        filter.setMaxPrice(new BigDecimal("450000"));
+        filter.setCategoryIds(List.of(1, 2));
+
+        assertEquals(bits(2, 4), facetIndex.query(filter).getMatches());
+    }
+
+    @Test
+    void pagesByIdWalkingBitset() {
+        BitSet all = bits(1, 2, 3, 4);
+
+        assertEquals(List.of(2, 3), facetIndex.page(all, "id", false, 1, 2));
+        assertEquals(List.of(3, 2), facetIndex.page(all, "id", true, 1, 2));
+        assertEquals(List.of(1), facetIndex.page(all, "id", true, 3, 10));
+    }
+
+    @Test
+    void pagesBySortKeys() {
+        BitSet all = bits(1, 2, 3, 4);
+
+        assertEquals(List.of(1, 4, 2, 3), facetIndex.page(all, "basePrice", false, 0, 10));
+        assertEquals(List.of(2, 3), facetIndex.page(all, "basePrice", false, 2, 2));
+        assertEquals(List.of(3, 1, 2, 4), facetIndex.page(all, "name", false, 0, 10));
+        assertEquals(List.of(4, 1, 3, 2), facetIndex.page(all, "createdAt", true, 0, 10));
+    }
+
+    @Test
+    void pagesOnlyMatches() {
+        assertEquals(List.of(3, 1), facetIndex.page(bits(1, 3), "basePrice", true, 0, 10));
+    }
+
+    @Test
+    void returnsEmptyPageOutOfRange() {
+        BitSet all = bits(1, 2, 3, 4);
+
+        assertTrue(facetIndex.page(all, "id", false, 4, 10).isEmpty());
+        assertTrue(facetIndex.page(all, "name", false, 10, 10).isEmpty());
+        assertTrue(facetIndex.page(all, "name", false, 0, 0).isEmpty());
+    }
+
+    @Test
+    void rejectsUnsupportedSort() {
+        assertThrows(IllegalArgumentException.class,
+                () -> facetIndex.page(bits(1), "stockQuantity", false, 0, 10));
+    }
+
+    @Test
+    void removesDeletedProductAndUnusedLabels() {
+        facetIndex.onProductChanged(new ProductChangedEvent(1, ProductChangedEvent.ChangeType.DELETED));
+
+        ProductFilterRequest filter = new ProductFilterRequest();
+        assertEquals(bits(2, 3, 4), facetIndex.query(filter).getMatches());
+        assertEquals("do", facetIndex.getLabel("do"));
+        assertEquals("Xanh", facetIndex.getLabel("xanh"));
+    }
+
+    @Test
+    void reindexesChangedVariants() {
+        when(variantRepository.findFacetRowsByProductId(4)).thenReturn(List.<Object[]>of(variant(4, "XL", "Tím")));
+        facetIndex.onProductChanged(new ProductChangedEvent(4, ProductChangedEvent.ChangeType.VARIANT));
+
+        ProductFilterRequest filter = new ProductFilterRequest();
+        filter.setSizes(List.of("xl"));
+
+        assertEquals(bits(4), facetIndex.query(filter).getMatches());
+    }
+
+    @Test
+    void boundsSelectedPriceBuckets() {
+        assertArrayEquals(new BigDecimal[]{null, null}, facetIndex.priceBucketBounds(List.of()));
+        assertArrayEquals(new BigDecimal[]{new BigDecimal("200000"), null},
+                facetIndex.priceBucketBounds(List.of("500000-", "200000-500000")));
+        assertArrayEquals(new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO},
+                facetIndex.priceBucketBounds(List.of("1-2")));
+    }
+
+    private void index(Object[] product, Object[]... variants) {
+        Integer productId = (Integer) product[0];
+        when(productRepository.findFacetRowsById(productId)).thenReturn(List.<Object[]>of(product));
+        when(variantRepository.findFacetRowsByProductId(productId)).thenReturn(List.of(variants));
+        facetIndex.reindex(productId);
+    }
+
+    private static Object[] product(Integer id, Integer categoryId, Integer brandId, String basePrice,
+                                    String name, int createdDay) {
+        return new Object[]{id, categoryId, brandId, new BigDecimal(basePrice), name,
+                LocalDateTime.of(2024, 1, createdDay, 0, 0)};
+    }
+
+    private static Object[] variant(Integer productId, String size, String color) {
+        return new Object[]{productId, size, color};
+    }
+
+    private static BitSet bits(int... ids) {
+        BitSet bits = new BitSet();
+        for (int id : ids) {
+            bits.set(id);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.app.search;
+
+import com.example.app.entity.Brand;
+import com.example.app.entity.Category;
+import com.example.app.entity.Product;
+import com.example.app.event.CatalogChangedEvent;
+import com.example.app.event.ProductChangedEvent;
+import com.example.app.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductSearchIndexTest {
+
+    private ProductRepository productRepository;
+    private ProductSearchIndex searchIndex;
+    private Brand brand;
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        searchIndex = new ProductSearchIndex(productRepository);
+        brand = brand(10, "Việt Tiến");
+        category = category(20, "Thời trang nam");
+    }
+
+    @Test
+    void matchesKeywordsWithoutDiacritics() {
+        Product jacket = product(1, "Áo khoác gió", "Chống nước nhẹ");
+        Product jeans = product(2, "Quần jean", "Ống đứng");
+        when(productRepository.findAllWithBrandAndCategory()).thenReturn(List.of(jacket, jeans));
+
+        searchIndex.rebuild();
+
+        assertTrue(searchIndex.isReady());
+        assertEquals(2, searchIndex.size());
+        assertEquals(List.of(1), searchIndex.search("ao khoac"));
+        assertEquals(List.of(1), searchIndex.search("ÁO KHOÁC"));
+        assertEquals(List.of(2), searchIndex.search("quần"));
+    }
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatches() {
+        Product jacket = product(1, "Áo khoác gió", "Chống nước nhẹ");
+        Product jeans = product(2, "Quần jean", "Dễ phối cùng áo khoác");
+        when(productRepository.findAllWithBrandAndCategory()).thenReturn(List.of(jeans, jacket));
+
+        searchIndex.rebuild();
+
+        assertEquals(List.of(1, 2), searchIndex.search("ao khoac"));
+    }
+
+    @Test
+    void indexesBrandAndCategoryNames() {
+        when(productRepository.findAllWithBrandAndCategory())
+                .thenReturn(List.of(product(1, "Sơ mi công sở", "Cotton")));
+
+        searchIndex.rebuild();
+
+        assertEquals(List.of(1), searchIndex.search("viet tien"));
+        assertEquals(List.of(1), searchIndex.search("so mi nam"));
+    }
+
+    @Test
+    void reindexesUpdatedProduct() {
+        Product product = product(1, "Áo thun", null);
+        when(productRepository.findAllWithBrandAndCategory()).thenReturn(List.of(product));
+        searchIndex.rebuild();
+
+        Product renamed = product(1, "Áo polo", null);
+        when(productRepository.findByIdWithBrandAndCategory(1)).thenReturn(Optional.of(renamed));
+        searchIndex.onProductChanged(new ProductChangedEvent(1, ProductChangedEvent.ChangeType.UPDATED));
+
+        assertEquals(List.of(), searchIndex.search("thun"));
+        assertEquals(List.of(1), searchIndex.search("polo"));
+    }
+
+    @Test
+    void addsCreatedProduct() {
+        when(productRepository.findAllWithBrandAndCategory()).thenReturn(List.of());
+        searchIndex.rebuild();
+
+        when(productRepository.findByIdWithBrandAndCategory(7)).thenReturn(Optional.of(product(7, "Váy maxi", null)));
+        searchIndex.onProductChanged(new ProductChangedEvent(7, ProductChangedEvent.ChangeType.CREATED));
+
+        assertEquals(1, searchIndex.size());
+        assertEquals(List.of(7), searchIndex.search("vay"));
+    }
+
+    @Test
+    void removesDeletedProduct() {
+        when(productRepository.findAllWithBrandAndCategory())
+                .thenReturn(List.of(product(1, "Áo thun", null), product(2, "Áo len", null)));
+        searchIndex.rebuild();
+
+        searchIndex.onProductChanged(new ProductChangedEvent(1, ProductChangedEvent.ChangeType.DELETED));
+
+        assertEquals(1, searchIndex.size());
+        assertEquals(List.of(2), searchIndex.search("ao"));
+    }
+
+    @Test
+    void removesProductThatNoLongerExistsOnReindex() {
+        when(productRepository.findAllWithBrandAndCategory()).thenReturn(List.of(product(1, "Áo thun", null)));
+        searchIndex.rebuild();
+
+        searchIndex.reindex(1);
+
+        assertEquals(0, searchIndex.size());
+    }
+
+    @Test
+    void ignoresChangesThatDoNotAffectIndexedText() {
+        when(productRepository.findAllWithBrandAndCategory()).thenReturn(List.of(product(1, "Áo thun", null)));
+        searchIndex.rebuild();
+
+        searchIndex.onProductChanged(new ProductChangedEvent(1, ProductChangedEvent.ChangeType.STOCK));
+
+        assertEquals(List.of(1), searchIndex.search("ao thun"));
+    }
+
+    @Test
+    void reindexesProductsOfRenamedBrand() {
+        when(productRepository.findAllWithBrandAndCategory()).thenReturn(List.of(product(1, "Áo thun", null)));
+        searchIndex.rebuild();
+
+        brand.setName("Canifa");
+        when(productRepository.findIdsByBrandId(10)).thenReturn(List.of(1));
+        when(productRepository.findByIdWithBrandAndCategory(1)).thenReturn(Optional.of(product(1, "Áo thun", null)));
+        searchIndex.onCatalogChanged(new CatalogChangedEvent(CatalogChangedEvent.CatalogType.BRAND, 10));
+
+        assertEquals(List.of(), searchIndex.search("viet tien"));
+        assertEquals(List.of(1), searchIndex.search("canifa"));
+    }
+
+    @Test
+    void staysNotReadyWhenRebuildFails() {
+        when(productRepository.findAllWithBrandAndCategory()).thenThrow(new IllegalStateException("database down"));
+
+        searchIndex.rebuild();
+
+        assertFalse(searchIndex.isReady());
+    }
+
+    private Product product(Integer id, String name, String description) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setDescription(description);
+        product.setBrand(brand);
+        product.setCategory(category);
+        return product;
+    }
+
+    private static Brand brand(Integer id, String name) {
+        Brand brand = new Brand();
+        brand.setId(id);
+        brand.setName(name);
+        return brand;
+    }
+
+    private static Category category(Integer id, String name) {
+        Category category = new Category();
+        category.setId(id);
+        category.setName(name);
+        return category;
+    }
+}
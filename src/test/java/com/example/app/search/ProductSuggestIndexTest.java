@@ -0,0 +1,164 @@
+package com.example.app.search;
+
+import com.example.app.dto.SuggestResponse;
+import com.example.app.dto.SuggestionDTO;
+import com.example.app.entity.Brand;
+import com.example.app.entity.Category;
+import com.example.app.event.CatalogChangedEvent;
+import com.example.app.event.ProductChangedEvent;
+import com.example.app.repository.BrandRepository;
+import com.example.app.repository.CategoryRepository;
+import com.example.app.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductSuggestIndexTest {
+
+    private ProductRepository productRepository;
+    private BrandRepository brandRepository;
+    private CategoryRepository categoryRepository;
+    private ProductSuggestIndex suggestIndex;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        brandRepository = mock(BrandRepository.class);
+        categoryRepository = mock(CategoryRepository.class);
+        suggestIndex = new ProductSuggestIndex(productRepository, brandRepository, categoryRepository);
+
+        when(productRepository.findSoldQuantities()).thenReturn(List.of(
+                new Object[]{1, 5L},
+                new Object[]{2, 50L}));
+        when(productRepository.findSuggestRows()).thenReturn(List.of(
+                new Object[]{1, "Áo thun nam", 10, 20},
+                new Object[]{2, "Áo thun nữ", 11, 20},
+                new Object[]{3, "Quần thun ống rộng", 11, 21}));
+        when(brandRepository.findAll()).thenReturn(List.of(brand(10, "Coolmate"), brand(11, "Canifa")));
+        when(categoryRepository.findByStatus(Category.CategoryStatus.active))
+                .thenReturn(List.of(category(20, "Áo", Category.CategoryStatus.active),
+                        category(21, "Quần", Category.CategoryStatus.active)));
+        suggestIndex.rebuild();
+    }
+
+    @Test
+    void matchesStartOfAnyWordIgnoringDiacritics() {
+        SuggestResponse response = suggestIndex.suggest("THÚN", 10);
+
+        assertEquals(List.of(2, 1, 3), ids(response.getProducts()));
+        assertEquals("Áo thun nữ", response.getProducts().get(0).getName());
+    }
+
+    @Test
+    void matchesMultiWordPrefix() {
+        assertEquals(List.of(2, 1), ids(suggestIndex.suggest("ao  thun n", 10).getProducts()));
+        assertEquals(List.of(1), ids(suggestIndex.suggest("áo thun na", 10).getProducts()));
+    }
+
+    @Test
+    void limitsEachGroupToTopSellers() {
+        SuggestResponse response = suggestIndex.suggest("ao", 1);
+
+        assertEquals(List.of(2), ids(response.getProducts()));
+        assertEquals(List.of(20), ids(response.getCategories()));
+    }
+
+    @Test
+    void ranksBrandsBySalesOfTheirProducts() {
+        assertEquals(List.of(11, 10), ids(suggestIndex.suggest("c", 10).getBrands()));
+    }
+
+    @Test
+    void returnsNothingForBlankQuery() {
+        SuggestResponse response = suggestIndex.suggest(" ?! ", 10);
+
+        assertTrue(response.getProducts().isEmpty());
+        assertTrue(response.getBrands().isEmpty());
+        assertTrue(response.getCategories().isEmpty());
+    }
+
+    @Test
+    void renamesUpdatedProductKeepingItsScore() {
+        when(productRepository.findSuggestRowsById(1)).thenReturn(List.<Object[]>of(new Object[]{1, "Áo polo", 10, 20}));
+
+        suggestIndex.onProductChanged(new ProductChangedEvent(1, ProductChangedEvent.ChangeType.UPDATED));
+
+        assertEquals(List.of(2, 3), ids(suggestIndex.suggest("thun", 10).getProducts()));
+        assertEquals(List.of(2, 1), ids(suggestIndex.suggest("ao", 10).getProducts()));
+        assertEquals("Áo polo", suggestIndex.suggest("polo", 10).getProducts().get(0).getName());
+    }
+
+    @Test
+    void removesDeletedOrInactiveProduct() {
+        suggestIndex.onProductChanged(new ProductChangedEvent(2, ProductChangedEvent.ChangeType.DELETED));
+        // Sản phẩm ngừng bán không còn trong findSuggestRowsById
+        suggestIndex.onProductChanged(new ProductChangedEvent(3, ProductChangedEvent.ChangeType.UPDATED));
+
+        assertEquals(List.of(1), ids(suggestIndex.suggest("thun", 10).getProducts()));
+    }
+
+    @Test
+    void addsCreatedProductWithoutSales() {
+        when(productRepository.findSuggestRowsById(4)).thenReturn(List.<Object[]>of(new Object[]{4, "Áo thun trẻ em", 10, 20}));
+
+        suggestIndex.onProductChanged(new ProductChangedEvent(4, ProductChangedEvent.ChangeType.CREATED));
+
+        assertEquals(List.of(2, 1, 3, 4), ids(suggestIndex.suggest("thun", 10).getProducts()));
+    }
+
+    @Test
+    void updatesRenamedAndDeletedBrands() {
+        when(brandRepository.findById(10)).thenReturn(Optional.of(brand(10, "Routine")));
+
+        suggestIndex.onCatalogChanged(new CatalogChangedEvent(CatalogChangedEvent.CatalogType.BRAND, 10));
+        suggestIndex.onCatalogChanged(new CatalogChangedEvent(CatalogChangedEvent.CatalogType.BRAND, 11));
+
+        assertTrue(suggestIndex.suggest("c", 10).getBrands().isEmpty());
+        assertEquals(List.of(10), ids(suggestIndex.suggest("rou", 10).getBrands()));
+    }
+
+    @Test
+    void removesDeactivatedCategory() {
+        when(categoryRepository.findById(21))
+                .thenReturn(Optional.of(category(21, "Quần", Category.CategoryStatus.inactive)));
+
+        suggestIndex.onCatalogChanged(new CatalogChangedEvent(CatalogChangedEvent.CatalogType.CATEGORY, 21));
+
+        assertTrue(suggestIndex.suggest("quan", 10).getCategories().isEmpty());
+    }
+
+    @Test
+    void rebuildPicksUpNewSales() {
+        when(productRepository.findSoldQuantities()).thenReturn(List.<Object[]>of(new Object[]{3, 500L}));
+
+        suggestIndex.rebuild();
+
+        assertEquals(List.of(3, 1, 2), ids(suggestIndex.suggest("thun", 10).getProducts()));
+    }
+
+    private static List<Integer> ids(List<SuggestionDTO> suggestions) {
+        return suggestions.stream().map(SuggestionDTO::getId).toList();
+    }
+
+    private static Brand brand(Integer id, String name) {
+        Brand brand = new Brand();
+        brand.setId(id);
+        brand.setName(name);
+        return brand;
+    }
+
+    private static Category category(Integer id, String name, Category.CategoryStatus status) {
+        Category category = new Category();
+        category.setId(id);
+        category.setName(name);
+        category.setStatus(status);
+        return category;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.app.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VietnameseTextNormalizerTest {
+
+    @Test
+    void foldsDiacriticsAndCase() {
+        assertEquals("ao thun nu", VietnameseTextNormalizer.fold("Áo Thun Nữ"));
+        assertEquals("giay the thao", VietnameseTextNormalizer.fold("GIÀY THỂ THAO"));
+        assertEquals("quan ong rong", VietnameseTextNormalizer.fold("quần ống rộng"));
+    }
+
+    @Test
+    void foldsDToD() {
+        assertEquals("dam do", VietnameseTextNormalizer.fold("Đầm đỏ"));
+    }
+
+    @Test
+    void foldsPrecomposedAndDecomposedInputAlike() {
+        String precomposed = "\u1EA5o";
+        String decomposed = "a\u0302\u0301o";
+
+        assertEquals("ao", VietnameseTextNormalizer.fold(precomposed));
+        assertEquals("ao", VietnameseTextNormalizer.fold(decomposed));
+    }
+
+    @Test
+    void ignoresDefaultLocale() {
+        Locale previous = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr"));
+        try {
+            assertEquals("in hinh", VietnameseTextNormalizer.fold("IN HÌNH"));
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+
+    @Test
+    void foldsEmptyInputToEmptyString() {
+        assertEquals("", VietnameseTextNormalizer.fold(null));
+        assertEquals("", VietnameseTextNormalizer.fold(""));
+    }
+
+    @Test
+    void tokenizesOnNonAlphanumerics() {
+        assertEquals(List.of("ao", "so", "mi", "tay", "dai", "size", "xl", "2024"),
+                VietnameseTextNormalizer.tokenize("  Áo sơ-mi (tay dài), size: XL/2024!"));
+    }
+
+    @Test
+    void tokenizesBlankInputToNoTokens() {
+        assertTrue(VietnameseTextNormalizer.tokenize(null).isEmpty());
+        assertTrue(VietnameseTextNormalizer.tokenize(" -- ").isEmpty());
+    }
+}
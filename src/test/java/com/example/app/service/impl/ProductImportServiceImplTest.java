@@ -0,0 +1,335 @@
+package com.example.app.service.impl;
+
+import com.example.app.dto.ProductImportStatusDTO;
+import com.example.app.entity.Brand;
+import com.example.app.entity.Category;
+import com.example.app.repository.BrandRepository;
+import com.example.app.repository.CategoryRepository;
+import com.example.app.repository.ProductVariantRepository;
+import com.example.app.util.CsvUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Chạy job nhập thật trên JdbcTemplate ghi lại câu lệnh theo từng transaction, không cần DB.
+ */
+class ProductImportServiceImplTest {
+
+    private static final String HEADER = "name,product_key,category,brand,base_price,product_type,color,size,sku\n";
+
+    @TempDir
+    Path workDir;
+
+    private RecordingJdbcTemplate jdbcTemplate;
+    private CountingTransactionManager transactionManager;
+    private ProductImportServiceImpl importService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new RecordingJdbcTemplate();
+        transactionManager = new CountingTransactionManager();
+
+        CategoryRepository categoryRepository = mock(CategoryRepository.class);
+        BrandRepository brandRepository = mock(BrandRepository.class);
+        ProductVariantRepository variantRepository = mock(ProductVariantRepository.class);
+        when(categoryRepository.findAll()).thenReturn(List.of(category(1, "Áo")));
+        when(brandRepository.findAll()).thenReturn(List.of(brand(2, "Việt Tiến")));
+        when(variantRepository.findAllSkus()).thenReturn(List.of("SKU-EXISTING"));
+
+        importService = new ProductImportServiceImpl(jdbcTemplate, transactionManager, categoryRepository,
+                brandRepository, variantRepository, mock(ApplicationEventPublisher.class), new ObjectMapper(),
+                workDir.toString(), 2, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        importService.shutdown();
+    }
+
+    @Test
+    void cutsChunksOnlyBetweenProducts() throws Exception {
+        ProductImportStatusDTO status = runImport(HEADER +
+                "Áo A,,ao,viet tien,100000,clothing,Đỏ,S,\n" +
+                "Áo A,,ao,viet tien,100000,clothing,Đỏ,M,\n" +
+                "Áo A,,ao,viet tien,100000,clothing,Đỏ,L,\n" +
+                "Áo B,,ao,viet tien,200000,clothing,Xanh,M,\n" +
+                "Áo C,,ao,viet tien,300000,clothing,,,\n");
+
+        assertEquals("COMPLETED", status.getState());
+        assertEquals(2, transactionManager.commits);
+        // Chunk đầy sau 2 dòng nhưng cả 3 dòng của Áo A vẫn nằm chung một transaction
+        assertEquals(List.of("Áo A"), jdbcTemplate.productNames(1));
+        assertEquals(List.of("S", "M", "L"), jdbcTemplate.variantSizes(1));
+        assertEquals(List.of("Áo B", "Áo C"), jdbcTemplate.productNames(2));
+        assertEquals(3, status.getProductsCreated());
+        assertEquals(4, status.getVariantsCreated());
+        assertEquals(5, status.getRowsImported());
+    }
+
+    @Test
+    void addsLaterRowsOfWrittenProductToIt() throws Exception {
+        ProductImportStatusDTO status = runImport(HEADER +
+                "Áo A,KEY-A,ao,viet tien,100000,clothing,Đỏ,S,\n" +
+                "Áo B,,ao,viet tien,200000,clothing,Xanh,M,\n" +
+                "Áo C,,ao,viet tien,300000,clothing,Xanh,M,\n" +
+                "Áo A mới,KEY-A,ao,viet tien,100000,clothing,Đỏ,M,\n");
+
+        assertEquals("COMPLETED", status.getState());
+        assertEquals(List.of("Áo A", "Áo B"), jdbcTemplate.productNames(1));
+        assertEquals(List.of("Áo C"), jdbcTemplate.productNames(2));
+        // Dòng sau của KEY-A không tạo sản phẩm mới mà thêm biến thể vào sản phẩm đã ghi ở chunk 1
+        Integer productA = jdbcTemplate.productIds(1).get(0);
+        assertEquals(List.of(productA), jdbcTemplate.variantProductIds(2).subList(1, 2));
+        assertEquals(3, status.getProductsCreated());
+        assertEquals(4, status.getVariantsCreated());
+    }
+
+    @Test
+    void writesRejectedRowsToErrorFile() throws Exception {
+        ProductImportStatusDTO status = runImport(HEADER +
+                "Áo A,,ao,viet tien,100000,clothing,Đỏ,S,SKU-1\n" +
+                "Áo A,,ao,viet tien,100000,clothing,đỏ,s,\n" +
+                "Áo B,,quần,viet tien,100000,clothing,Đỏ,S,\n" +
+                "Áo C,,ao,viet tien,100000,clothing,Đỏ,S,SKU-EXISTING\n" +
+                "Áo D,,ao,viet tien,-1,clothing,Đỏ,S,\n" +
+                "=HYPERLINK(1),,ao,viet tien,abc,clothing,Đỏ,S,\n" +
+                "Áo E,,ao,viet tien,100000,clothing,Đỏ,\"S\n");
+
+        assertEquals("COMPLETED", status.getState());
+        assertEquals(7, status.getRowsRead());
+        assertEquals(1, status.getRowsImported());
+        assertEquals(6, status.getErrorCount());
+        assertEquals(List.of(
+                List.of("line", "product_key", "error"),
+                List.of("3", "Áo A", "Duplicate color/size for product"),
+                List.of("4", "Áo B", "Unknown category: quần"),
+                List.of("5", "Áo C", "SKU already exists: SKU-EXISTING"),
+                List.of("6", "Áo D", "base_price must not be negative"),
+                List.of("7", "'=HYPERLINK(1)", "Invalid base_price: abc"),
+                List.of("8", "", "Unterminated quoted field starting at line 8")), errorRows(status));
+    }
+
+    @Test
+    void rejectsEveryRowOfRolledBackChunk() throws Exception {
+        jdbcTemplate.failOnProduct = "Áo lỗi";
+
+        ProductImportStatusDTO status = runImport(HEADER +
+                "Áo A,,ao,viet tien,100000,clothing,Đỏ,S,SKU-1\n" +
+                "Áo A,,ao,viet tien,100000,clothing,Đỏ,M,SKU-2\n" +
+                "Áo lỗi,,ao,viet tien,100000,clothing,Đỏ,S,SKU-3\n" +
+                "Áo lỗi,,ao,viet tien,100000,clothing,Đỏ,M,SKU-4\n" +
+                "Áo C,,ao,viet tien,100000,clothing,Đỏ,S,SKU-3\n");
+
+        assertEquals("COMPLETED", status.getState());
+        assertEquals(2, transactionManager.commits);
+        assertEquals(1, transactionManager.rollbacks);
+        assertEquals(2, status.getProductsCreated());
+        assertEquals(List.of(
+                List.of("line", "product_key", "error"),
+                List.of("4", "Áo lỗi", "Chunk rolled back: Duplicate entry"),
+                List.of("5", "Áo lỗi", "Chunk rolled back: Duplicate entry")), errorRows(status));
+        // SKU của chunk bị rollback được trả lại nên dòng sau dùng lại được
+        assertEquals(List.of("Áo C"), jdbcTemplate.productNames(3));
+    }
+
+    @Test
+    void failsJobWithMissingColumns() throws Exception {
+        ProductImportStatusDTO status = runImport("name,category\nÁo,ao\n");
+
+        assertEquals("FAILED", status.getState());
+        assertEquals("CSV header is missing columns: brand, base_price, product_type, color, size", status.getMessage());
+        assertEquals(0, transactionManager.commits);
+    }
+
+    private ProductImportStatusDTO runImport(String csv) throws Exception {
+        ProductImportStatusDTO started = importService.startImport(
+                new MockMultipartFile("file", "products.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8)));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            ProductImportStatusDTO status = importService.getStatus(started.getJobId());
+            if ("COMPLETED".equals(status.getState()) || "FAILED".equals(status.getState())) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        return fail("Import did not finish");
+    }
+
+    private List<List<String>> errorRows(ProductImportStatusDTO status) throws Exception {
+        List<List<String>> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                importService.getErrorFile(status.getJobId()).getInputStream(), StandardCharsets.UTF_8))) {
+            CsvUtils.RecordReader records = new CsvUtils.RecordReader(reader);
+            for (List<String> row = records.next(); row != null; row = records.next()) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static Category category(Integer id, String name) {
+        Category category = new Category();
+        category.setId(id);
+        category.setName(name);
+        return category;
+    }
+
+    private static Brand brand(Integer id, String name) {
+        Brand brand = new Brand();
+        brand.setId(id);
+        brand.setName(name);
+        return brand;
+    }
+
+    private static final class CountingTransactionManager implements PlatformTransactionManager {
+        private int transactions;
+        private int commits;
+        private int rollbacks;
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            transactions++;
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            commits++;
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            rollbacks++;
+        }
+    }
+
+    /**
+     * Ghi lại tham số của từng câu lệnh batch theo số thứ tự transaction và sinh id tăng dần.
+     */
+    private final class RecordingJdbcTemplate extends JdbcTemplate {
+        private final List<Statement> statements = new ArrayList<>();
+        private int nextId = 100;
+        private String failOnProduct;
+
+        @Override
+        public int[] batchUpdate(PreparedStatementCreator creator, BatchPreparedStatementSetter setter, KeyHolder keyHolder) {
+            List<Map<Integer, Object>> rows = new ArrayList<>();
+            String[] sql = new String[1];
+            try {
+                creator.createPreparedStatement(connection(sql));
+                for (int i = 0; i < setter.getBatchSize(); i++) {
+                    Map<Integer, Object> params = new HashMap<>();
+                    setter.setValues(statement(params), i);
+                    rows.add(params);
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            for (Map<Integer, Object> params : rows) {
+                if (sql[0].startsWith("INSERT INTO product ") && params.get(3).equals(failOnProduct)) {
+                    throw new DuplicateKeyException("Duplicate entry");
+                }
+                keyHolder.getKeyList().add(Map.of("GENERATED_KEY", nextId++));
+            }
+            statements.add(new Statement(transactionManager.transactions, sql[0], rows, keyHolder.getKeyList()));
+            return new int[rows.size()];
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, BatchPreparedStatementSetter setter) {
+            return new int[setter.getBatchSize()];
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            return new int[batchArgs.size()];
+        }
+
+        List<String> productNames(int transaction) {
+            return column(transaction, "INSERT INTO product ", 3).stream().map(String.class::cast).collect(Collectors.toList());
+        }
+
+        List<Integer> productIds(int transaction) {
+            return statements.stream()
+                    .filter(statement -> statement.transaction == transaction && statement.sql.startsWith("INSERT INTO product "))
+                    .flatMap(statement -> statement.keys.stream())
+                    .map(key -> (Integer) key.get("GENERATED_KEY"))
+                    .collect(Collectors.toList());
+        }
+
+        List<String> variantSizes(int transaction) {
+            return column(transaction, "INSERT INTO product_variant ", 3).stream().map(String.class::cast).collect(Collectors.toList());
+        }
+
+        List<Integer> variantProductIds(int transaction) {
+            return column(transaction, "INSERT INTO product_variant ", 1).stream().map(Integer.class::cast).collect(Collectors.toList());
+        }
+
+        private List<Object> column(int transaction, String sqlPrefix, int index) {
+            return statements.stream()
+                    .filter(statement -> statement.transaction == transaction && statement.sql.startsWith(sqlPrefix))
+                    .flatMap(statement -> statement.rows.stream())
+                    .map(params -> params.get(index))
+                    .collect(Collectors.toList());
+        }
+
+        private Connection connection(String[] sql) {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("prepareStatement")) {
+                            sql[0] = (String) args[0];
+                            return statement(new HashMap<>());
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        private PreparedStatement statement(Map<Integer, Object> params) {
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().startsWith("set") && args != null && args[0] instanceof Integer index) {
+                            params.put(index, method.getName().equals("setNull") ? null : args[1]);
+                            return null;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+    }
+
+    private record Statement(int transaction, String sql, List<Map<Integer, Object>> rows, List<Map<String, Object>> keys) {
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.app.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UploadIndexTest {
+
+    private static final String ONE = "blobs/ab/cd/one.png";
+    private static final String TWO = "blobs/ab/cd/two.png";
+    private static final String THREE = "blobs/ef/01/three.jpg";
+
+    @TempDir
+    Path uploadRoot;
+
+    @TempDir
+    Path indexDirectory;
+
+    private Path indexFile;
+
+    @BeforeEach
+    void setUp() {
+        indexFile = indexDirectory.resolve("upload-index.tsv");
+    }
+
+    @Test
+    void rebuildsFromDiskWhenIndexIsMissing() throws IOException {
+        write(ONE, 3);
+        write("products/7/legacy.png", 4);
+        write("blobs/tmp/upload-1.part", 5);
+        write("blobs/ab/cd/derived/one-card.jpg", 6);
+
+        UploadIndex index = open();
+
+        assertEquals(List.of(ONE, "products/7/legacy.png"), paths(index, ""));
+        assertEquals(7L, index.totalBytes());
+        assertTrue(Files.exists(indexFile));
+    }
+
+    @Test
+    void replaysJournalAfterRestart() {
+        UploadIndex index = open();
+        index.add(ONE, 3);
+        index.add(TWO, 5);
+        index.remove(ONE);
+        index.add(THREE, 7);
+
+        UploadIndex reopened = open();
+
+        assertEquals(List.of(TWO, THREE), paths(reopened, ""));
+        assertEquals(5L, reopened.entriesUnder(TWO).get(0).size());
+        assertEquals(12L, reopened.totalBytes());
+    }
+
+    @Test
+    void removingUnknownPathDoesNotGrowJournal() throws IOException {
+        UploadIndex index = open();
+        index.add(ONE, 3);
+        long before = Files.size(indexFile);
+
+        index.remove(TWO);
+
+        assertEquals(before, Files.size(indexFile));
+    }
+
+    @Test
+    void recoversAddInterruptedMidLine() throws IOException {
+        write(ONE, 3);
+        write(TWO, 5);
+        // Tiến trình dừng khi đang ghi dòng của TWO: thời điểm lưu bị cắt, thiếu ký tự xuống dòng
+        Files.writeString(indexFile, "+\t" + ONE + "\t3\t100\n+\t" + TWO + "\t5\t17", StandardCharsets.UTF_8);
+
+        UploadIndex index = open();
+        index.add(THREE, 7);
+
+        UploadIndex reopened = open();
+        assertEquals(List.of(ONE, TWO, THREE), paths(reopened, "blobs/"), "partial line must not swallow the next append");
+        assertEquals(5L, reopened.entriesUnder(TWO).get(0).size());
+        assertTrue(reopened.entriesUnder(TWO).get(0).storedAt() > 17);
+        assertEquals(100L, reopened.entriesUnder(ONE).get(0).storedAt());
+    }
+
+    @Test
+    void dropsPartialAddOfFileThatIsNotOnDisk() throws IOException {
+        write(ONE, 3);
+        Files.writeString(indexFile, "+\t" + ONE + "\t3\t100\n+\tblobs/ab/cd/tw", StandardCharsets.UTF_8);
+
+        UploadIndex index = open();
+        index.add(TWO, 5);
+
+        assertEquals(List.of(ONE, TWO), paths(open(), ""));
+    }
+
+    @Test
+    void appliesPartialRemoveOfDeletedFile() throws IOException {
+        write(ONE, 3);
+        // TWO đã bị xóa khỏi đĩa nhưng dòng "-" chưa ghi xong
+        Files.writeString(indexFile, "+\t" + ONE + "\t3\t100\n+\t" + TWO + "\t5\t200\n-\t" + TWO,
+                StandardCharsets.UTF_8);
+
+        assertEquals(List.of(ONE), paths(open(), ""));
+        assertEquals(List.of(ONE), paths(open(), ""));
+    }
+
+    @Test
+    void rebuildsWhenJournalIsCorrupt() throws IOException {
+        write(ONE, 3);
+        Files.writeString(indexFile, "+\t" + TWO + "\tnot-a-number\t100\n", StandardCharsets.UTF_8);
+
+        assertEquals(List.of(ONE), paths(open(), ""));
+    }
+
+    @Test
+    void ignoresTrailingEmptyLine() throws IOException {
+        Files.writeString(indexFile, "+\t" + ONE + "\t3\t100\n", StandardCharsets.UTF_8);
+        Files.writeString(indexFile, "\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        UploadIndex index = open();
+
+        assertEquals(List.of(ONE), paths(index, ""));
+        assertEquals(100L, index.entriesUnder(ONE).get(0).storedAt());
+    }
+
+    @Test
+    void compactsJournalDominatedByChurn() throws IOException {
+        UploadIndex index = open();
+        index.add(ONE, 3);
+        for (int i = 0; i < 5_001; i++) {
+            index.add(TWO, 5);
+            index.remove(TWO);
+        }
+        index.add(THREE, 7);
+
+        List<String> lines = Files.readAllLines(indexFile, StandardCharsets.UTF_8);
+        assertTrue(lines.size() < 100, "journal should have been compacted, has " + lines.size() + " lines");
+        assertEquals(List.of(ONE, THREE), paths(open(), ""));
+    }
+
+    @Test
+    void entriesUnderMatchesPrefixInPathOrder() {
+        UploadIndex index = open();
+        index.add(THREE, 7);
+        index.add(TWO, 5);
+        index.add(ONE, 3);
+        index.add("blobs2/x.png", 1);
+        index.add("products/1/a.png", 1);
+        index.add("products/10/b.png", 1);
+
+        assertEquals(List.of(ONE, TWO, THREE), paths(index, "blobs/"));
+        assertEquals(List.of(ONE, TWO), paths(index, "blobs/ab/cd/"));
+        assertEquals(List.of("products/1/a.png"), paths(index, "products/1/"));
+        assertEquals(List.of("products/1/a.png", "products/10/b.png"), paths(index, "products/1"));
+        assertEquals(List.of(), paths(index, "banners/"));
+    }
+
+    private UploadIndex open() {
+        return new UploadIndex(uploadRoot.toString(), indexFile.toString());
+    }
+
+    private void write(String path, int size) throws IOException {
+        Path file = uploadRoot.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[size]);
+    }
+
+    private static List<String> paths(UploadIndex index, String prefix) {
+        return index.entriesUnder(prefix).stream().map(UploadIndex.Entry::path).toList();
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.app.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvUtilsTest {
+
+    @Test
+    void readsPlainAndEmptyFields() throws IOException {
+        CsvUtils.RecordReader reader = reader("name,color,,size,\nÁo thun,Đỏ,,M,");
+
+        assertEquals(List.of("name", "color", "", "size", ""), reader.next());
+        assertEquals(List.of("Áo thun", "Đỏ", "", "M", ""), reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void readsQuotedFieldsWithCommasAndEscapedQuotes() throws IOException {
+        CsvUtils.RecordReader reader = reader("\"Áo, quần\",\"size \"\"XL\"\"\",\"\"\n");
+
+        assertEquals(List.of("Áo, quần", "size \"XL\"", ""), reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void readsQuotedFieldSpanningLines() throws IOException {
+        CsvUtils.RecordReader reader = reader("name,description\nÁo,\"Dòng 1\r\nDòng 2\n\nDòng 4\"\nQuần,ngắn");
+
+        assertEquals(List.of("name", "description"), reader.next());
+        assertEquals(List.of("Áo", "Dòng 1\nDòng 2\n\nDòng 4"), reader.next());
+        assertEquals(2, reader.getRecordLine());
+        assertEquals(List.of("Quần", "ngắn"), reader.next());
+        assertEquals(6, reader.getRecordLine());
+    }
+
+    @Test
+    void stripsByteOrderMark() throws IOException {
+        CsvUtils.RecordReader reader = reader("\uFEFFname,size\n");
+
+        assertEquals(List.of("name", "size"), reader.next());
+    }
+
+    @Test
+    void rejectsOnlyRecordWithUnterminatedQuote() throws IOException {
+        CsvUtils.RecordReader reader = reader("a,b\n1,\"chưa đóng\n2,ok\n3,\"x\"\"y\"");
+
+        assertEquals(List.of("a", "b"), reader.next());
+        CsvUtils.MalformedRecordException error = assertThrows(CsvUtils.MalformedRecordException.class, reader::next);
+        assertEquals(2, error.getLine());
+
+        assertEquals(List.of("2", "ok"), reader.next());
+        assertEquals(3, reader.getRecordLine());
+        assertEquals(List.of("3", "x\"y"), reader.next());
+        assertEquals(4, reader.getRecordLine());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void limitsLinesSwallowedByUnterminatedQuote() throws IOException {
+        StringBuilder csv = new StringBuilder("0,\"mở ngoặc\n");
+        for (int i = 1; i <= 1500; i++) {
+            csv.append(i).append(",dòng\n");
+        }
+        CsvUtils.RecordReader reader = reader(csv.toString());
+
+        assertThrows(CsvUtils.MalformedRecordException.class, reader::next);
+
+        int records = 0;
+        List<String> last = null;
+        for (List<String> record = reader.next(); record != null; record = reader.next()) {
+            last = record;
+            records++;
+        }
+        assertEquals(1500, records);
+        assertEquals(List.of("1500", "dòng"), last);
+        assertEquals(1501, reader.getRecordLine());
+    }
+
+    @Test
+    void writesRowsThatReadBack() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvUtils.writeRow(out, "Áo, quần", "nói \"xin chào\"", "hai\ndòng", null, 42);
+
+        assertEquals("\"Áo, quần\",\"nói \"\"xin chào\"\"\",\"hai\ndòng\",,42\r\n", out.toString());
+        assertEquals(List.of("Áo, quần", "nói \"xin chào\"", "hai\ndòng", "", "42"), reader(out.toString()).next());
+    }
+
+    @Test
+    void guardsFormulaPrefixes() {
+        assertEquals("'=SUM(A1:A3)", CsvUtils.guardFormula("=SUM(A1:A3)"));
+        assertEquals("'+84901234567", CsvUtils.guardFormula("+84901234567"));
+        assertEquals("'-1", CsvUtils.guardFormula("-1"));
+        assertEquals("'@cmd", CsvUtils.guardFormula("@cmd"));
+        assertEquals("Áo thun", CsvUtils.guardFormula("Áo thun"));
+        assertEquals("", CsvUtils.guardFormula(""));
+        assertNull(CsvUtils.guardFormula(null));
+    }
+
+    @Test
+    void unguardsOnlyValuesGuardedByGuardFormula() {
+        assertEquals("=SUM(A1:A3)", CsvUtils.unguardFormula(CsvUtils.guardFormula("=SUM(A1:A3)")));
+        assertEquals("'quoted'", CsvUtils.unguardFormula("'quoted'"));
+        assertEquals("'", CsvUtils.unguardFormula("'"));
+    }
+
+    @Test
+    void writeGuardedRowKeepsNumbersAsIs() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvUtils.writeGuardedRow(out, "=1+1", -5, new BigDecimal("-1.50"), "-5");
+
+        assertEquals("'=1+1,-5,-1.50,'-5\r\n", out.toString());
+    }
+
+    private static CsvUtils.RecordReader reader(String csv) {
+        return new CsvUtils.RecordReader(new BufferedReader(new StringReader(csv)));
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.app.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CursorUtilsTest {
+
+    @Test
+    void roundTripsDateTimeKey() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 17, 8, 30, 15, 123_000_000);
+        String cursor = CursorUtils.encode("createdAt:desc", createdAt, 42);
+
+        CursorUtils.Cursor position = CursorUtils.decode(cursor, "createdAt:desc");
+
+        assertEquals(createdAt, position.getKeyAsDateTime());
+        assertEquals(42, position.getId());
+    }
+
+    @Test
+    void roundTripsDecimalKey() {
+        String cursor = CursorUtils.encode("basePrice:asc", new BigDecimal("199000.50"), 7);
+
+        CursorUtils.Cursor position = CursorUtils.decode(cursor, "basePrice:asc");
+
+        assertEquals(new BigDecimal("199000.50"), position.getKeyAsDecimal());
+        assertEquals(7, position.getId());
+    }
+
+    @Test
+    void keepsSeparatorInsideKey() {
+        String name = "Áo thun | cổ tròn|";
+        String cursor = CursorUtils.encode("name:asc", name, 15);
+
+        CursorUtils.Cursor position = CursorUtils.decode(cursor, "name:asc");
+
+        assertEquals(name, position.getKey());
+        assertEquals(15, position.getId());
+    }
+
+    @Test
+    void cursorIsUrlSafe() {
+        String cursor = CursorUtils.encode("name:asc", "???>>>", 1);
+
+        assertEquals(-1, cursor.indexOf('+'));
+        assertEquals(-1, cursor.indexOf('/'));
+        assertEquals(-1, cursor.indexOf('='));
+    }
+
+    @Test
+    void rejectsCursorFromAnotherSortField() {
+        String cursor = CursorUtils.encode("createdAt:desc", LocalDateTime.of(2024, 1, 1, 0, 0), 3);
+
+        assertThrows(IllegalArgumentException.class, () -> CursorUtils.decode(cursor, "id:desc"));
+    }
+
+    @Test
+    void rejectsCursorFromAnotherSortDirection() {
+        String cursor = CursorUtils.encode("id:desc", 10, 10);
+
+        assertThrows(IllegalArgumentException.class, () -> CursorUtils.decode(cursor, "id:asc"));
+    }
+
+    @Test
+    void rejectsSortThatIsOnlyAPrefix() {
+        String cursor = CursorUtils.encode("name:asc", "x", 1);
+
+        assertThrows(IllegalArgumentException.class, () -> CursorUtils.decode(cursor, "name"));
+    }
+
+    @Test
+    void emptyCursorMeansFirstPage() {
+        assertNull(CursorUtils.decode(null, "id:desc"));
+        assertNull(CursorUtils.decode("", "id:desc"));
+        assertNull(CursorUtils.decode("   ", "id:desc"));
+    }
+
+    @Test
+    void rejectsInvalidBase64() {
+        assertThrows(IllegalArgumentException.class, () -> CursorUtils.decode("not base64!", "id:desc"));
+    }
+
+    @Test
+    void rejectsCursorWithoutSeparator() {
+        String cursor = encodeRaw("12345");
+
+        assertThrows(IllegalArgumentException.class, () -> CursorUtils.decode(cursor, "id:desc"));
+    }
+
+    @Test
+    void rejectsNonNumericId() {
+        String cursor = encodeRaw("id:desc|10|abc");
+
+        assertThrows(IllegalArgumentException.class, () -> CursorUtils.decode(cursor, "id:desc"));
+    }
+
+    @Test
+    void rejectsCursorWithoutSort() {
+        // Con trỏ dạng cũ "khóa|id" không có kiểu sắp xếp
+        String cursor = encodeRaw("10|10");
+
+        assertThrows(IllegalArgumentException.class, () -> CursorUtils.decode(cursor, "id:desc"));
+    }
+
+    @Test
+    void rejectsMalformedKeys() {
+        CursorUtils.Cursor dateCursor = CursorUtils.decode(CursorUtils.encode("createdAt:asc", "yesterday", 1), "createdAt:asc");
+        CursorUtils.Cursor priceCursor = CursorUtils.decode(CursorUtils.encode("basePrice:asc", "cheap", 1), "basePrice:asc");
+        CursorUtils.Cursor emptyCursor = CursorUtils.decode(CursorUtils.encode("createdAt:asc", null, 1), "createdAt:asc");
+
+        assertThrows(IllegalArgumentException.class, dateCursor::getKeyAsDateTime);
+        assertThrows(IllegalArgumentException.class, priceCursor::getKeyAsDecimal);
+        assertThrows(IllegalArgumentException.class, emptyCursor::getKeyAsDateTime);
+    }
+
+    private static String encodeRaw(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}